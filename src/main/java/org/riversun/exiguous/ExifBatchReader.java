@@ -0,0 +1,355 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reader of the EXIF info of many files in parallel<br>
+ * <br>
+ * The files are read on the executor by a shared ExiguousExifReader.The
+ * number of the files read at the same time(in-flight) is bounded, so the
+ * paths are taken from the source only as fast as the results are
+ * consumed.<br>
+ * The results are returned as a Stream in the order of the paths(ordered) or
+ * in the order of completion(unordered).An error of a file does not stop the
+ * batch,it is returned as the result of the file.<br>
+ * <br>
+ * The default executor is ForkJoinPool#commonPool().Reading the files is
+ * blocking I/O,so give an executor with enough threads to keep the storage
+ * busy(e.g. Executors.newFixedThreadPool(64) for NVMe) and set the same
+ * number to maxInFlight.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifBatchReader {
+
+	private final Executor mExecutor;
+	private final int mMaxInFlight;
+
+	private final ExiguousExifReader mExifReader = new ExiguousExifReader();
+
+	private volatile boolean mIsOrdered = true;
+
+	/**
+	 * Read on ForkJoinPool#commonPool() with (number of the processors*2)
+	 * files in-flight
+	 */
+	public ExifBatchReader() {
+		this(ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	/**
+	 * @param executor
+	 *            executor on which the files are read
+	 * @param maxInFlight
+	 *            max number of the files read at the same time
+	 */
+	public ExifBatchReader(Executor executor, int maxInFlight) {
+		if (executor == null) {
+			throw new NullPointerException("executor is null");
+		}
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("maxInFlight must be 1 or more. maxInFlight=" + maxInFlight);
+		}
+		mExecutor = executor;
+		mMaxInFlight = maxInFlight;
+
+		// Less system calls for each file
+		mExifReader.setBulkReadEnabled(true);
+	}
+
+	/**
+	 * Get the reader used for each file to change its settings
+	 * 
+	 * @return
+	 */
+	public ExiguousExifReader getExifReader() {
+		return mExifReader;
+	}
+
+	/**
+	 * Set the order of the results
+	 * 
+	 * @param ordered
+	 *            true:in the order of the paths(default) / false:in the order
+	 *            of completion
+	 */
+	public void setOrdered(boolean ordered) {
+		mIsOrdered = ordered;
+	}
+
+	/**
+	 * Read the files in parallel
+	 * 
+	 * @param paths
+	 * @return stream of the results.The files are read while the stream is
+	 *         consumed.
+	 */
+	public Stream<ExifBatchResult> readAll(Collection<Path> paths) {
+		return readAll(paths.iterator());
+	}
+
+	/**
+	 * Read the files in parallel
+	 * 
+	 * @param paths
+	 * @return stream of the results.The files are read while the stream is
+	 *         consumed.Closing it closes the stream of the paths.
+	 */
+	public Stream<ExifBatchResult> readAll(Stream<Path> paths) {
+		return readAll(paths.iterator()).onClose(paths::close);
+	}
+
+	/**
+	 * Read the files in parallel and pass each result to the callback<br>
+	 * The callback is called on the caller thread,and it returns when all of
+	 * the files are read.
+	 * 
+	 * @param paths
+	 * @param callback
+	 */
+	public void readAll(Stream<Path> paths, Consumer<ExifBatchResult> callback) {
+		try (Stream<ExifBatchResult> results = readAll(paths)) {
+			results.forEach(callback);
+		}
+	}
+
+	/**
+	 * Read the files in parallel and append the EXIF info into the batch<br>
+	 * The rows are appended on the caller thread,and the files which can not
+	 * be read are not appended.
+	 * 
+	 * @param paths
+	 * @param batch
+	 * @return number of the rows appended
+	 */
+	public int readAll(Collection<Path> paths, ExifInfoBatch batch) {
+		return readAll(paths.stream(), batch);
+	}
+
+	/**
+	 * Read the files in parallel and append the EXIF info into the batch<br>
+	 * The rows are appended on the caller thread,and the files which can not
+	 * be read are not appended.
+	 * 
+	 * @param paths
+	 * @param batch
+	 * @return number of the rows appended
+	 */
+	public int readAll(Stream<Path> paths, ExifInfoBatch batch) {
+		int appendedCount = 0;
+		try (Stream<ExifBatchResult> results = readAll(paths)) {
+			Iterator<ExifBatchResult> it = results.iterator();
+			while (it.hasNext()) {
+				ExifBatchResult result = it.next();
+				if (result.isSucceeded()) {
+					batch.append(result.getPath(), result.getExifInfo());
+					appendedCount++;
+				}
+			}
+		}
+		return appendedCount;
+	}
+
+	/**
+	 * Read the files in parallel and append the EXIF info into the store out
+	 * of the heap<br>
+	 * The records are appended on the caller thread,and the files which can
+	 * not be read are not appended.
+	 * 
+	 * @param paths
+	 * @param store
+	 * @return number of the records appended
+	 * @throws IOException
+	 *             if the store can not be extended
+	 */
+	public long readAll(Collection<Path> paths, ExifRecordStore store) throws IOException {
+		return readAll(paths.stream(), store);
+	}
+
+	/**
+	 * Read the files in parallel and append the EXIF info into the store out
+	 * of the heap<br>
+	 * The records are appended on the caller thread,and the files which can
+	 * not be read are not appended.
+	 * 
+	 * @param paths
+	 * @param store
+	 * @return number of the records appended
+	 * @throws IOException
+	 *             if the store can not be extended
+	 */
+	public long readAll(Stream<Path> paths, ExifRecordStore store) throws IOException {
+		long appendedCount = 0;
+		try (Stream<ExifBatchResult> results = readAll(paths)) {
+			Iterator<ExifBatchResult> it = results.iterator();
+			while (it.hasNext()) {
+				ExifBatchResult result = it.next();
+				if (result.isSucceeded()) {
+					store.append(result.getPath(), result.getExifInfo());
+					appendedCount++;
+				}
+			}
+		}
+		return appendedCount;
+	}
+
+	private Stream<ExifBatchResult> readAll(Iterator<Path> paths) {
+		Spliterator<ExifBatchResult> spliterator;
+		if (mIsOrdered) {
+			spliterator = new OrderedResults(paths);
+		} else {
+			spliterator = new UnorderedResults(paths);
+		}
+		return StreamSupport.stream(spliterator, false);
+	}
+
+	/**
+	 * Read a file on the thread of the executor
+	 * 
+	 * @param path
+	 * @return
+	 */
+	private ExifBatchResult read(Path path) {
+		return read(mExifReader, path);
+	}
+
+	/**
+	 * Read a file and wrap any error into the result<br>
+	 * It never throws so that the caller waiting for the result is not left
+	 * blocked.
+	 * 
+	 * @param exifReader
+	 * @param path
+	 * @return
+	 */
+	static ExifBatchResult read(ExiguousExifReader exifReader, Path path) {
+		ExifInfo exifInfo = new ExifInfo();
+		try {
+			// Check it here to return the error which tells the file does
+			// not exist.
+			if (!Files.isRegularFile(path)) {
+				throw new NoSuchFileException(path.toString());
+			}
+			exifReader.readStrictly(path.toString(), exifInfo);
+			return new ExifBatchResult(path, exifInfo, null);
+		} catch (ExifDecodeException e) {
+			// keep the part which could be decoded
+			return new ExifBatchResult(path, exifInfo, e);
+		} catch (Throwable e) {
+			return new ExifBatchResult(path, null, e);
+		}
+	}
+
+	/**
+	 * Results in the order of the paths.<br>
+	 * It keeps up to maxInFlight files read ahead and waits for the oldest
+	 * one.
+	 */
+	private class OrderedResults extends Spliterators.AbstractSpliterator<ExifBatchResult> {
+
+		private final Iterator<Path> mPaths;
+		private final Queue<CompletableFuture<ExifBatchResult>> mInFlight = new ArrayDeque<CompletableFuture<ExifBatchResult>>();
+
+		OrderedResults(Iterator<Path> paths) {
+			super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+			mPaths = paths;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super ExifBatchResult> action) {
+			while (mInFlight.size() < mMaxInFlight && mPaths.hasNext()) {
+				final Path path = mPaths.next();
+				mInFlight.add(CompletableFuture.supplyAsync(() -> read(path), mExecutor));
+			}
+
+			CompletableFuture<ExifBatchResult> oldest = mInFlight.poll();
+			if (oldest == null) {
+				return false;
+			}
+			action.accept(oldest.join());
+			return true;
+		}
+	}
+
+	/**
+	 * Results in the order of completion.<br>
+	 * It keeps up to maxInFlight files in-flight and takes the result which
+	 * completed first.
+	 */
+	private class UnorderedResults extends Spliterators.AbstractSpliterator<ExifBatchResult> {
+
+		private final Iterator<Path> mPaths;
+		private final BlockingQueue<ExifBatchResult> mCompleted = new LinkedBlockingQueue<ExifBatchResult>();
+		private int mInFlightCount = 0;
+
+		UnorderedResults(Iterator<Path> paths) {
+			super(Long.MAX_VALUE, Spliterator.NONNULL);
+			mPaths = paths;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super ExifBatchResult> action) {
+			while (mInFlightCount < mMaxInFlight && mPaths.hasNext()) {
+				final Path path = mPaths.next();
+				mExecutor.execute(() -> mCompleted.add(read(path)));
+				mInFlightCount++;
+			}
+
+			if (mInFlightCount == 0) {
+				return false;
+			}
+
+			ExifBatchResult result;
+			try {
+				result = mCompleted.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for the result", e);
+			}
+			mInFlightCount--;
+			action.accept(result);
+			return true;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.nio.file.Path;
+
+/**
+ * Result of a file read by ExifBatchReader,or of a source decoded by
+ * ExifFlowProcessor
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifBatchResult {
+
+	private final Object mSource;
+	private final Path mPath;
+	private final ExifInfo mExifInfo;
+	private final Throwable mError;
+
+	ExifBatchResult(Path path, ExifInfo exifInfo, Throwable error) {
+		this(path, path, exifInfo, error);
+	}
+
+	ExifBatchResult(Object source, Path path, ExifInfo exifInfo, Throwable error) {
+		mSource = source;
+		mPath = path;
+		mExifInfo = exifInfo;
+		mError = error;
+	}
+
+	/**
+	 * Get the source which was read
+	 * 
+	 * @return the path of the file,or the byte array or the buffer given to
+	 *         ExifFlowProcessor
+	 */
+	public Object getSource() {
+		return mSource;
+	}
+
+	/**
+	 * Get the path of the file
+	 * 
+	 * @return null if the source is not a file
+	 */
+	public Path getPath() {
+		return mPath;
+	}
+
+	/**
+	 * Get the EXIF info of the file
+	 * 
+	 * @return null if the file could not be read.If the file does not have
+	 *         Exif, ExifInfo#isEnabled() returns false.If the Exif is broken,
+	 *         the result is not succeeded(the error is ExifDecodeException)
+	 *         and it has the part which could be decoded.
+	 */
+	public ExifInfo getExifInfo() {
+		return mExifInfo;
+	}
+
+	/**
+	 * Get the error which occurred while reading the file
+	 * 
+	 * @return null if succeeded
+	 */
+	public Throwable getError() {
+		return mError;
+	}
+
+	public boolean isSucceeded() {
+		return mError == null;
+	}
+
+	@Override
+	public String toString() {
+		return "ExifBatchResult [path=" + mPath + ", exifInfo=" + mExifInfo + ", error=" + mError + "]";
+	}
+}
@@ -0,0 +1,115 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Data source of the bytes on memory<br>
+ * The range from the position to the limit of the buffer is treated as the
+ * image(or a part of the image starting at the base position).The position of
+ * the original buffer is not changed.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+class ExifByteBufferDataSource extends ExifDataSource {
+
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+	private ByteBuffer m_Buffer;
+	private long m_BasePosition;
+
+	ExifByteBufferDataSource(ByteBuffer buffer) {
+		this(buffer, 0);
+	}
+
+	/**
+	 * @param buffer
+	 * @param basePosition
+	 *            position in the image where the buffer starts
+	 */
+	ExifByteBufferDataSource(ByteBuffer buffer, long basePosition) {
+		setBuffer(buffer, basePosition);
+	}
+
+	/**
+	 * Replace the buffer(the source is reused by the decoder for each image)
+	 * 
+	 * @param buffer
+	 * @param basePosition
+	 *            position in the image where the buffer starts
+	 */
+	void setBuffer(ByteBuffer buffer, long basePosition) {
+		m_Buffer = buffer.slice();
+		m_BasePosition = basePosition;
+	}
+
+	@Override
+	int read(long imagePosition, byte[] dst, int offset, int length) throws IOException {
+		long position = imagePosition - m_BasePosition;
+		int capacity = m_Buffer.capacity();
+		if (position < 0 || position >= capacity) {
+			return -1;
+		}
+
+		int readLength = (int) Math.min(length, capacity - position);
+		ByteBuffer src = m_Buffer.duplicate();
+		src.position((int) position);
+		src.get(dst, offset, readLength);
+		return readLength;
+	}
+
+	@Override
+	ByteBuffer readSegment(long imagePosition, int length) throws IOException {
+		long position = imagePosition - m_BasePosition;
+		int capacity = m_Buffer.capacity();
+		if (position < 0) {
+			return ByteBuffer.allocate(0);
+		}
+		int start = (int) Math.min(position, capacity);
+		int end = (int) Math.min(start + (long) length, capacity);
+
+		// Returns a view of the original buffer without copying
+		ByteBuffer segment = m_Buffer.duplicate();
+		segment.position(start);
+		segment.limit(end);
+		return segment.slice();
+	}
+
+	@Override
+	boolean isSegmentViewAvailable() {
+		return true;
+	}
+
+	/**
+	 * Release the buffer of the caller(the views already returned are still
+	 * available)
+	 */
+	@Override
+	void close() throws IOException {
+		m_Buffer = EMPTY_BUFFER;
+	}
+}
@@ -0,0 +1,111 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+/**
+ * Snapshot of the statistics of ExifInfoCache
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifCacheStats {
+
+	private final long mHitCount;
+	private final long mMissCount;
+	private final long mLoadCount;
+	private final long mEvictionCount;
+	private final int mEntryCount;
+	private final long mRetainedSize;
+
+	ExifCacheStats(long hitCount, long missCount, long loadCount, long evictionCount, int entryCount, long retainedSize) {
+		mHitCount = hitCount;
+		mMissCount = missCount;
+		mLoadCount = loadCount;
+		mEvictionCount = evictionCount;
+		mEntryCount = entryCount;
+		mRetainedSize = retainedSize;
+	}
+
+	/**
+	 * Get the number of the lookups found in the cache
+	 * 
+	 * @return
+	 */
+	public long getHitCount() {
+		return mHitCount;
+	}
+
+	/**
+	 * Get the number of the lookups not found in the cache(or found but the
+	 * file was changed)
+	 * 
+	 * @return
+	 */
+	public long getMissCount() {
+		return mMissCount;
+	}
+
+	/**
+	 * Get the number of the files actually read.It is less than the misses
+	 * when the same file is requested by the threads at the same time.
+	 * 
+	 * @return
+	 */
+	public long getLoadCount() {
+		return mLoadCount;
+	}
+
+	/**
+	 * Get the number of the entries evicted by the limits
+	 * 
+	 * @return
+	 */
+	public long getEvictionCount() {
+		return mEvictionCount;
+	}
+
+	public int getEntryCount() {
+		return mEntryCount;
+	}
+
+	/**
+	 * Get the estimated bytes retained by the entries
+	 * 
+	 * @return
+	 */
+	public long getRetainedSize() {
+		return mRetainedSize;
+	}
+
+	public double getHitRate() {
+		long requestCount = mHitCount + mMissCount;
+		return requestCount == 0 ? 1.0 : (double) mHitCount / requestCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ExifCacheStats [hit=" + mHitCount + ", miss=" + mMissCount + ", load=" + mLoadCount + ", eviction=" + mEvictionCount + ", entries=" + mEntryCount + ", retainedSize="
+				+ mRetainedSize + "]";
+	}
+}
@@ -0,0 +1,192 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Source of the bytes to be decoded<br>
+ * It absorbs the difference between a file, a stream and a memory
+ * buffer.Positions are absolute positions from the head of the image.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+abstract class ExifDataSource {
+
+	/**
+	 * Read bytes at the specified position
+	 * 
+	 * @param position
+	 *            absolute position from the head of the image
+	 * @param dst
+	 * @param offset
+	 * @param length
+	 * @return number of bytes read,or -1 if the position is at the end
+	 * @throws IOException
+	 */
+	abstract int read(long position, byte[] dst, int offset, int length) throws IOException;
+
+	/**
+	 * Read bytes at the specified position.If it reaches the end before
+	 * reading all of the bytes, EOFException is thrown.
+	 * 
+	 * @param position
+	 * @param dst
+	 * @param offset
+	 * @param length
+	 * @throws IOException
+	 */
+	void readFully(long position, byte[] dst, int offset, int length) throws IOException {
+		int readLength = readAvailable(position, dst, offset, length);
+		if (readLength < length) {
+			throw new EOFException();
+		}
+	}
+
+	/**
+	 * Read the specified range as a ByteBuffer.<br>
+	 * If the source is shorter than the range, the returned buffer contains
+	 * only the existing bytes.
+	 * 
+	 * @param position
+	 * @param length
+	 * @return
+	 * @throws IOException
+	 */
+	ByteBuffer readSegment(long position, int length) throws IOException {
+		byte[] buffer = new byte[length];
+		int readLength = readAvailable(position, buffer, 0, length);
+		return ByteBuffer.wrap(buffer, 0, readLength).slice();
+	}
+
+	/**
+	 * Read the specified range into the scratch buffer of the caller
+	 * instead of a new buffer.<br>
+	 * If the source returns a view(#isSegmentViewAvailable()) or the scratch
+	 * buffer is not large enough, it is same as #readSegment(long, int).
+	 * 
+	 * @param position
+	 * @param length
+	 * @param scratch
+	 *            heap buffer reused by the caller
+	 * @return the scratch buffer(from 0 to the length read),or a view
+	 * @throws IOException
+	 */
+	ByteBuffer readSegment(long position, int length, ByteBuffer scratch) throws IOException {
+		if (isSegmentViewAvailable() || scratch.capacity() < length || !scratch.hasArray()) {
+			return readSegment(position, length);
+		}
+		int readLength = readAvailable(position, scratch.array(), scratch.arrayOffset(), length);
+		scratch.clear();
+		scratch.limit(readLength);
+		return scratch;
+	}
+
+	/**
+	 * Write the specified range to the channel
+	 * 
+	 * @param position
+	 * @param length
+	 * @param target
+	 * @return number of bytes written
+	 * @throws IOException
+	 */
+	long transferTo(long position, int length, WritableByteChannel target) throws IOException {
+		ByteBuffer segment = readSegment(position, length);
+		long writtenLength = 0;
+		while (segment.hasRemaining()) {
+			writtenLength += target.write(segment);
+		}
+		return writtenLength;
+	}
+
+	/**
+	 * Returns true if #readSegment returns a view of the bytes already on
+	 * memory(so reading a segment costs nothing).
+	 * 
+	 * @return
+	 */
+	boolean isSegmentViewAvailable() {
+		return false;
+	}
+
+	/**
+	 * Returns false if the views returned by #readSegment become unavailable
+	 * after closing
+	 * 
+	 * @return
+	 */
+	boolean isSegmentViewValidAfterClose() {
+		return true;
+	}
+
+	/**
+	 * Returns true if the source can be read only forward
+	 * 
+	 * @return
+	 */
+	boolean isSequential() {
+		return false;
+	}
+
+	/**
+	 * Limit the range which may be read from now on.<br>
+	 * Sources which have to consume bytes to reach a position use it to stop
+	 * consuming at the end of the APP1 segment.
+	 * 
+	 * @param limit
+	 *            absolute position of the end
+	 */
+	void setReadLimit(long limit) {
+	}
+
+	void close() throws IOException {
+	}
+
+	/**
+	 * Read bytes at the specified position as many as available
+	 * 
+	 * @param position
+	 * @param dst
+	 * @param offset
+	 * @param length
+	 * @return number of bytes read
+	 * @throws IOException
+	 */
+	int readAvailable(long position, byte[] dst, int offset, int length) throws IOException {
+		int readLength = 0;
+		while (readLength < length) {
+			int count = read(position + readLength, dst, offset + readLength, length - readLength);
+			if (count <= 0) {
+				break;
+			}
+			readLength += count;
+		}
+		return readLength;
+	}
+}
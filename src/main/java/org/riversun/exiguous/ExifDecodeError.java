@@ -0,0 +1,64 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+/**
+ * Problems found while decoding the image<br>
+ * <br>
+ * The decoder does not throw an exception for the broken or crafted image.
+ * It skips the broken part, records the problem and continues to decode the
+ * rest(see ExiguousExifLowLevelDecoder#getErrors()).
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public enum ExifDecodeError {
+
+	// The number of the IFDs reached ExifDecoderConfig#getMaxIFDCount()
+	IFD_COUNT_EXCEEDED,
+
+	// The number of the fields reached
+	// ExifDecoderConfig#getMaxTotalEntryCount()
+	TOTAL_ENTRY_COUNT_EXCEEDED,
+
+	// The number of the fields of an IFD is larger than
+	// ExifDecoderConfig#getMaxEntryCount()
+	ENTRY_COUNT_EXCEEDED,
+
+	// The size of a value is larger than ExifDecoderConfig#getMaxValueSize()
+	VALUE_SIZE_EXCEEDED,
+
+	// The size of the values reached
+	// ExifDecoderConfig#getMaxTotalValueSize()
+	TOTAL_VALUE_SIZE_EXCEEDED,
+
+	// An IFD or a value is placed out of the APP1 segment
+	INVALID_OFFSET,
+
+	// The data type of a field is unknown
+	INVALID_TYPE,
+
+	// An offset links to the IFD already visited
+	IFD_CYCLE;
+}
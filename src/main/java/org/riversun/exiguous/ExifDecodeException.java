@@ -0,0 +1,58 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Thrown when the image is read but the decoder found the problems(see
+ * ExifDecodeError)<br>
+ * The part which could be decoded is still kept in the ExifInfo.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifDecodeException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Set<ExifDecodeError> mErrors;
+
+	public ExifDecodeException(String message, Set<ExifDecodeError> errors) {
+		super(message + " " + errors);
+		mErrors = Collections.unmodifiableSet(errors.isEmpty() ? EnumSet.noneOf(ExifDecodeError.class) : EnumSet.copyOf(errors));
+	}
+
+	/**
+	 * Get the problems found while decoding the image
+	 * 
+	 * @return
+	 */
+	public Set<ExifDecodeError> getErrors() {
+		return mErrors;
+	}
+}
@@ -0,0 +1,162 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+/**
+ * Configuration of the limits of the decoder<br>
+ * <br>
+ * The IFDs are linked by the offsets written in the image, so a corrupt or
+ * crafted image can make a long chain or a cycle of the IFDs, or a huge size
+ * of the value. The decoder stops walking the IFDs or skips the field when it
+ * reaches these limits, and reports it as ExifDecodeError.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifDecoderConfig {
+
+	public static final int DEFAULT_MAX_IFD_COUNT = 32;
+	public static final int DEFAULT_MAX_TOTAL_ENTRY_COUNT = 4096;
+	public static final int DEFAULT_MAX_ENTRY_COUNT = 1024;
+	// APP1 segment can not be larger than 64KB
+	public static final int DEFAULT_MAX_VALUE_SIZE = 0xFFFF;
+	public static final long DEFAULT_MAX_TOTAL_VALUE_SIZE = 1024 * 1024;
+
+	private int mMaxIFDCount = DEFAULT_MAX_IFD_COUNT;
+	private int mMaxTotalEntryCount = DEFAULT_MAX_TOTAL_ENTRY_COUNT;
+	private int mMaxEntryCount = DEFAULT_MAX_ENTRY_COUNT;
+	private int mMaxValueSize = DEFAULT_MAX_VALUE_SIZE;
+	private long mMaxTotalValueSize = DEFAULT_MAX_TOTAL_VALUE_SIZE;
+
+	public ExifDecoderConfig() {
+	}
+
+	/**
+	 * Copy the limits of the config
+	 * 
+	 * @param config
+	 */
+	public ExifDecoderConfig(ExifDecoderConfig config) {
+		mMaxIFDCount = config.mMaxIFDCount;
+		mMaxTotalEntryCount = config.mMaxTotalEntryCount;
+		mMaxEntryCount = config.mMaxEntryCount;
+		mMaxValueSize = config.mMaxValueSize;
+		mMaxTotalValueSize = config.mMaxTotalValueSize;
+	}
+
+	/**
+	 * Get the max number of the IFDs visited in an image
+	 * 
+	 * @return
+	 */
+	public int getMaxIFDCount() {
+		return mMaxIFDCount;
+	}
+
+	/**
+	 * Set the max number of the IFDs visited in an image
+	 * 
+	 * @param maxIFDCount
+	 */
+	public void setMaxIFDCount(int maxIFDCount) {
+		mMaxIFDCount = maxIFDCount;
+	}
+
+	/**
+	 * Get the max number of the fields(entries) analyzed in all of the IFDs
+	 * of an image
+	 * 
+	 * @return
+	 */
+	public int getMaxTotalEntryCount() {
+		return mMaxTotalEntryCount;
+	}
+
+	/**
+	 * Set the max number of the fields(entries) analyzed in all of the IFDs
+	 * of an image
+	 * 
+	 * @param maxTotalEntryCount
+	 */
+	public void setMaxTotalEntryCount(int maxTotalEntryCount) {
+		mMaxTotalEntryCount = maxTotalEntryCount;
+	}
+
+	/**
+	 * Get the max number of the fields(entries) analyzed in an IFD
+	 * 
+	 * @return
+	 */
+	public int getMaxEntryCount() {
+		return mMaxEntryCount;
+	}
+
+	/**
+	 * Set the max number of the fields(entries) analyzed in an IFD
+	 * 
+	 * @param maxEntryCount
+	 */
+	public void setMaxEntryCount(int maxEntryCount) {
+		mMaxEntryCount = maxEntryCount;
+	}
+
+	/**
+	 * Get the max size of a value in bytes.The field which has the larger
+	 * value is skipped.
+	 * 
+	 * @return
+	 */
+	public int getMaxValueSize() {
+		return mMaxValueSize;
+	}
+
+	/**
+	 * Set the max size of a value in bytes
+	 * 
+	 * @param maxValueSize
+	 */
+	public void setMaxValueSize(int maxValueSize) {
+		mMaxValueSize = maxValueSize;
+	}
+
+	/**
+	 * Get the max size of the values(placed out of the fields) of an image in
+	 * bytes
+	 * 
+	 * @return
+	 */
+	public long getMaxTotalValueSize() {
+		return mMaxTotalValueSize;
+	}
+
+	/**
+	 * Set the max size of the values(placed out of the fields) of an image in
+	 * bytes
+	 * 
+	 * @param maxTotalValueSize
+	 */
+	public void setMaxTotalValueSize(long maxTotalValueSize) {
+		mMaxTotalValueSize = maxTotalValueSize;
+	}
+}
@@ -0,0 +1,307 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Scanner of the EXIF info of the files under a directory<br>
+ * <br>
+ * Each file is read on its own thread.On Java 21 or later the threads are
+ * virtual threads,so the crawl on the network filesystem which waits for many
+ * small dependent reads of each file(header,IFD0,Exif IFD,GPS IFD) is not
+ * limited by the number of the platform threads.On the older JVM,the cached
+ * thread pool is used instead.<br>
+ * The number of the files read at the same time is bounded by a semaphore.
+ * The directory is walked on the calling thread and it waits for a permit,so
+ * the walk does not run ahead of the reads.<br>
+ * <br>
+ * The files are filtered by the extensions(jpg and jpeg by default) or a glob
+ * pattern.<br>
+ * The exception thrown by the callback does not stop the scan,it is counted
+ * in ExifScanProgress.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifDirectoryScanner {
+
+	public static final int DEFAULT_MAX_CONCURRENCY = 256;
+
+	// Executors#newVirtualThreadPerTaskExecutor() or null
+	private static final Method VIRTUAL_THREAD_EXECUTOR_FACTORY = findVirtualThreadExecutorFactory();
+
+	private final ExiguousExifReader mExifReader = new ExiguousExifReader();
+
+	private int mMaxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+	private String[] mExtensions = new String[] { "jpg", "jpeg" };
+
+	private String mGlob = null;
+
+	private volatile ExifScanProgress mProgress = new ExifScanProgress();
+
+	/**
+	 * Get the reader used for each file to change its settings
+	 * 
+	 * @return
+	 */
+	public ExiguousExifReader getExifReader() {
+		return mExifReader;
+	}
+
+	/**
+	 * Set the max number of the files read at the same time
+	 * 
+	 * @param maxConcurrency
+	 */
+	public void setMaxConcurrency(int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("maxConcurrency must be 1 or more. maxConcurrency=" + maxConcurrency);
+		}
+		mMaxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * Set the extensions of the files to read(case insensitive)
+	 * 
+	 * @param extensions
+	 *            like "jpg","jpeg".If nothing is given,all of the files are
+	 *            read.
+	 */
+	public void setExtensions(String... extensions) {
+		String[] lowerCaseExtensions = new String[extensions.length];
+		for (int i = 0; i < extensions.length; i++) {
+			lowerCaseExtensions[i] = extensions[i].toLowerCase(Locale.ENGLISH);
+		}
+		mExtensions = lowerCaseExtensions;
+	}
+
+	/**
+	 * Set the glob pattern of the files to read.It is used instead of the
+	 * extensions.<br>
+	 * If the pattern contains '/',it matches the path relative to the
+	 * scanned directory(like "2019/**.jpg"),otherwise it matches the file
+	 * name(like "IMG_*.JPG").
+	 * 
+	 * @param glob
+	 *            null to use the extensions
+	 */
+	public void setGlob(String glob) {
+		mGlob = glob;
+	}
+
+	/**
+	 * Get the progress of the current(or last) scan
+	 * 
+	 * @return
+	 */
+	public ExifScanProgress getProgress() {
+		return mProgress;
+	}
+
+	/**
+	 * Returns true if the files are read on virtual threads on this JVM
+	 * 
+	 * @return
+	 */
+	public static boolean isVirtualThreadAvailable() {
+		return VIRTUAL_THREAD_EXECUTOR_FACTORY != null;
+	}
+
+	/**
+	 * Scan the files under the directory<br>
+	 * The callback is called on the thread which read the file,so it has to
+	 * be thread-safe.It returns when all of the files are read.
+	 * 
+	 * @param directory
+	 * @param callback
+	 * @return progress counters of this scan
+	 * @throws IOException
+	 *             if the directory can not be walked
+	 * @throws InterruptedException
+	 */
+	public ExifScanProgress scan(final Path directory, final Consumer<ExifBatchResult> callback) throws IOException, InterruptedException {
+
+		final ExifScanProgress progress = new ExifScanProgress();
+		mProgress = progress;
+
+		final int maxConcurrency = mMaxConcurrency;
+		final Semaphore permits = new Semaphore(maxConcurrency);
+		final PathMatcher matcher = createMatcher();
+		final boolean isRelativeMatch = mGlob != null && mGlob.indexOf('/') >= 0;
+
+		final ExecutorService executor = newExecutor();
+		try {
+			Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+				@Override
+				public FileVisitResult visitFile(final Path file, BasicFileAttributes attrs) throws IOException {
+					if (!attrs.isRegularFile() || !matches(matcher, isRelativeMatch ? directory.relativize(file) : file.getFileName())) {
+						return FileVisitResult.CONTINUE;
+					}
+
+					progress.found();
+
+					try {
+						permits.acquire();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return FileVisitResult.TERMINATE;
+					}
+
+					try {
+						executor.execute(new Runnable() {
+							@Override
+							public void run() {
+								try {
+									complete(read(file), progress, callback);
+								} finally {
+									permits.release();
+								}
+							}
+						});
+					} catch (Throwable e) {
+						// The thread could not be started(rejected,or out of
+						// memory for the platform thread)
+						permits.release();
+						complete(new ExifBatchResult(file, null, e), progress, callback);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					// unreadable file or directory
+					progress.found();
+					complete(new ExifBatchResult(file, null, e), progress, callback);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} finally {
+			try {
+				// wait for all of the files in-flight even if interrupted,so
+				// that no callback is called after returning(the interrupt is
+				// kept and thrown below)
+				permits.acquireUninterruptibly(maxConcurrency);
+				permits.release(maxConcurrency);
+			} finally {
+				executor.shutdown();
+			}
+		}
+
+		if (Thread.interrupted()) {
+			throw new InterruptedException("Interrupted while scanning " + directory);
+		}
+		return progress;
+	}
+
+	private ExifBatchResult read(Path file) {
+		return ExifBatchReader.read(mExifReader, file);
+	}
+
+	private static void complete(ExifBatchResult result, ExifScanProgress progress, Consumer<ExifBatchResult> callback) {
+		progress.completed(result);
+		try {
+			callback.accept(result);
+		} catch (RuntimeException e) {
+			progress.callbackFailed(e);
+		}
+	}
+
+	private PathMatcher createMatcher() {
+		if (mGlob != null) {
+			return FileSystems.getDefault().getPathMatcher("glob:" + mGlob);
+		}
+		return null;
+	}
+
+	private boolean matches(PathMatcher matcher, Path path) {
+		if (matcher != null) {
+			return matcher.matches(path);
+		}
+		if (mExtensions.length == 0) {
+			return true;
+		}
+		String fileName = path.toString().toLowerCase(Locale.ENGLISH);
+		for (String extension : mExtensions) {
+			if (fileName.endsWith("." + extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Create the executor which runs a virtual thread for each file(or a
+	 * platform thread if not available)<br>
+	 * Overridden by the tests.
+	 * 
+	 * @return
+	 */
+	ExecutorService newExecutor() {
+		if (VIRTUAL_THREAD_EXECUTOR_FACTORY != null) {
+			try {
+				return (ExecutorService) VIRTUAL_THREAD_EXECUTOR_FACTORY.invoke(null);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		// The number of the threads is bounded by the semaphore
+		return Executors.newCachedThreadPool();
+	}
+
+	/**
+	 * Find Executors#newVirtualThreadPerTaskExecutor() of Java 21 or later.It
+	 * is looked up by reflection to run on the older JVM.
+	 * 
+	 * @return null if not available
+	 */
+	private static Method findVirtualThreadExecutorFactory() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			// It is a preview API before Java 21 and throws if it is not
+			// enabled
+			((ExecutorService) factory.invoke(null)).shutdown();
+			return factory;
+		} catch (Exception e) {
+			return null;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+}
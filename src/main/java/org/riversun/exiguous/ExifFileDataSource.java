@@ -0,0 +1,86 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Data source of the file opened by RandomAccessFile
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+class ExifFileDataSource extends ExifDataSource {
+
+	private RandomAccessFile m_TargetRAFile;
+
+	ExifFileDataSource(RandomAccessFile targetRAFile) {
+		m_TargetRAFile = targetRAFile;
+	}
+
+	/**
+	 * Replace the file(the source is reused by the decoder for each file)
+	 * 
+	 * @param targetRAFile
+	 */
+	void setFile(RandomAccessFile targetRAFile) {
+		m_TargetRAFile = targetRAFile;
+	}
+
+	@Override
+	int read(long position, byte[] dst, int offset, int length) throws IOException {
+		m_TargetRAFile.seek(position);
+		return m_TargetRAFile.read(dst, offset, length);
+	}
+
+	/**
+	 * Write the range by FileChannel#transferTo,the bytes are not copied
+	 * into the java heap.
+	 */
+	@Override
+	long transferTo(long position, int length, WritableByteChannel target) throws IOException {
+		FileChannel channel = m_TargetRAFile.getChannel();
+		long end = Math.min(position + length, channel.size());
+		long writtenLength = 0;
+		while (position + writtenLength < end) {
+			long count = channel.transferTo(position + writtenLength, end - position - writtenLength, target);
+			if (count <= 0) {
+				break;
+			}
+			writtenLength += count;
+		}
+		return writtenLength;
+	}
+
+	@Override
+	void close() throws IOException {
+		if (m_TargetRAFile != null) {
+			m_TargetRAFile.close();
+			m_TargetRAFile = null;
+		}
+	}
+}
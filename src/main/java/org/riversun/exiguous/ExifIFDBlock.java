@@ -24,48 +24,143 @@
 package org.riversun.exiguous;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 
 /**
- * Structure class of IFD block
+ * Structure class of IFD block<br>
+ * The fields are kept in the order of addition and looked up by the tag code
+ * as a primitive int through the open addressing hash table.
  * 
  * @author Tom Misawa (riversun.org@gmail.com)
  * 
  */
 public class ExifIFDBlock {
 
-	private HashMap<String, ExifIFDField> m_FieldMap = new LinkedHashMap<String, ExifIFDField>();
+	// Fields in the order of addition
+	private ExifIFDField[] m_Fields = new ExifIFDField[16];
+	private int m_FieldCount = 0;
+
+	// Open addressing hash table.(tag code -> index of m_Fields + 1, 0 means
+	// empty slot)
+	private int[] m_TagTable = new int[32];
 
 	// Property definition part: not need to do useless encapsulation
+	public ExifIFDKind Kind;
 	public long Count;
 	public long NextIFDOffset;
 	public long NextIFDAbsoluteOffset;
 
 	/**
-	 * IFD
+	 * IFD<br>
+	 * If the field of the same tag is already added, it is replaced.
 	 * 
 	 * @param IfdField
 	 */
 	public void addField(ExifIFDField IfdField) {
 
-		String key = String.format("0x%04x", IfdField.Tag);
+		int slot = findSlot(IfdField.Tag);
+
+		if (m_TagTable[slot] != 0) {
+			// replace at the same position
+			m_Fields[m_TagTable[slot] - 1] = IfdField;
+			return;
+		}
+
+		if (m_FieldCount == m_Fields.length) {
+			ExifIFDField[] newFields = new ExifIFDField[m_Fields.length * 2];
+			System.arraycopy(m_Fields, 0, newFields, 0, m_FieldCount);
+			m_Fields = newFields;
+		}
+
+		m_Fields[m_FieldCount++] = IfdField;
+		m_TagTable[slot] = m_FieldCount;
+
+		if (m_FieldCount * 2 > m_TagTable.length) {
+			rehash();
+		}
+	}
 
-		m_FieldMap.put(key, IfdField);
+	/**
+	 * Get the field by the tag code
+	 * 
+	 * @param tagCode
+	 * @return the field,or null if not found
+	 */
+	public ExifIFDField getField(int tagCode) {
+		int index = m_TagTable[findSlot(tagCode)];
+		return index == 0 ? null : m_Fields[index - 1];
 	}
 
+	/**
+	 * Get the field by the tag name
+	 * 
+	 * The tag name is looked up in the tag definitions of the kind of this
+	 * IFD first.
+	 * 
+	 * @param key
+	 *            tag name like "Model"
+	 * @return
+	 */
 	public ExifIFDField getFieldByName(String key) {
-		String tagCode = ExifTagFinder.getTagCodeAsString(key);
-		return m_FieldMap.get(tagCode);
+		if (Kind != null) {
+			ExifTag tag = ExifTag.findByName(Kind, key);
+			if (tag != null) {
+				return getField(tag.getCode());
+			}
+		}
+		int tagCode = ExifTagFinder.getTagCode(key);
+		if (tagCode < 0) {
+			return null;
+		}
+		return getField(tagCode);
 	}
 
+	/**
+	 * Get the field by the tag code as a hex string
+	 * 
+	 * @param tagCodeH
+	 *            tag code like "0x0110"
+	 * @return
+	 */
 	public ExifIFDField getField(String tagCodeH) {
-		return m_FieldMap.get(tagCodeH);
+		int tagCode = ExifTagFinder.parseTagCode(tagCodeH);
+		if (tagCode < 0) {
+			return null;
+		}
+		return getField(tagCode);
 	}
 
 	public List<ExifIFDField> getIFDList() {
-		return new ArrayList<ExifIFDField>(m_FieldMap.values());
+		List<ExifIFDField> list = new ArrayList<ExifIFDField>(m_FieldCount);
+		for (int i = 0; i < m_FieldCount; i++) {
+			list.add(m_Fields[i]);
+		}
+		return list;
+	}
+
+	/**
+	 * Find the slot of the tag code in the hash table.<br>
+	 * It returns the slot which holds the tag code, or the empty slot where
+	 * the tag code should be placed.
+	 * 
+	 * @param tagCode
+	 * @return
+	 */
+	private int findSlot(long tagCode) {
+		int mask = m_TagTable.length - 1;
+		int slot = (int) ((tagCode * 0x9E3779B1L) >>> 16) & mask;
+
+		while (m_TagTable[slot] != 0 && m_Fields[m_TagTable[slot] - 1].Tag != tagCode) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash() {
+		m_TagTable = new int[m_TagTable.length * 2];
+		for (int i = 0; i < m_FieldCount; i++) {
+			m_TagTable[findSlot(m_Fields[i].Tag)] = i + 1;
+		}
 	}
 
 }
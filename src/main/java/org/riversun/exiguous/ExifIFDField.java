@@ -24,14 +24,38 @@
 
 package org.riversun.exiguous;
 
+import java.nio.ByteBuffer;
+
 /**
- * Structure class of IFD field
+ * Structure class of IFD field<br>
+ * <br>
+ * The value is not copied for each field. It refers a range of the buffer
+ * shared by the fields of the same image(or the 4byte data area in the field
+ * itself), and #getData() converts it to int[] on each call.
  * 
  * @author Tom Misawa (riversun.org@gmail.com)
  * 
  */
 public class ExifIFDField {
 
+	// Data types
+	public static final int TYPE_BYTE = 1;
+	public static final int TYPE_ASCII = 2;
+	public static final int TYPE_SHORT = 3;
+	public static final int TYPE_LONG = 4;
+	public static final int TYPE_RATIONAL = 5;
+	public static final int TYPE_SBYTE = 6;
+	public static final int TYPE_UNDEFINED = 7;
+	public static final int TYPE_SSHORT = 8;
+	public static final int TYPE_SLONG = 9;
+	public static final int TYPE_SRATIONAL = 10;
+	public static final int TYPE_FLOAT = 11;
+	public static final int TYPE_DFLOAT = 12;
+	// Offset of the IFD(TIFF Technical Note 1)
+	public static final int TYPE_IFD = 13;
+
+	// Name of the tag.null for the tag not defined,it is resolved by
+	// #getTagName() on the first access
 	public String TagName;
 	public long Tag;
 	public long DataType;
@@ -39,19 +63,409 @@ public class ExifIFDField {
 	public long DataSize;
 	public long DataOffsetAddress;
 
-	// If the data is larger than 4byte, it'll enter into this.
+	/**
+	 * The value set directly by the user.If it is set, it takes priority over
+	 * the value decoded from the image.
+	 * 
+	 * @deprecated <b>The decoder does not set it any longer,so it is always
+	 *             null for the fields decoded from the image.</b> Use
+	 *             #getData()(same int[] as this field used to have),
+	 *             #getByte(int) or #getDataBuffer() instead.
+	 */
+	@Deprecated
 	public int[] Data;
+
 	// If the data is smaller than 4byte, it'll enter into this.
 	public long LongData;
 
+	// Range of the value in the shared buffer
+	private ExifSegmentBuffer m_ValueBuffer;
+	private int m_ValueOffset;
+	private int m_ValueLength = -1;
+
+	// If the data is smaller than 4byte, the 4byte data area itself
+	// (in the order of the file)
+	private int m_InlineValue;
+
+	// Endian of the numeric values
+	private int m_EndianMode = ExiguousExifLowLevelDecoder.LITTLE_ENDIAN;
+
+	// In lazy value loading mode, the decoder which loads the value on the
+	// first access and the position of the value
+	private ExiguousExifLowLevelDecoder m_ValueLoader;
+	private int m_ReadGeneration;
+	private long m_ValuePosition;
+
+	/**
+	 * Set the value as a range of the shared buffer
+	 * 
+	 * @param valueBuffer
+	 * @param offset
+	 * @param length
+	 */
+	void setValue(ExifSegmentBuffer valueBuffer, int offset, int length) {
+		m_ValueLoader = null;
+		m_ValueBuffer = valueBuffer;
+		m_ValueOffset = offset;
+		m_ValueLength = length;
+	}
+
+	/**
+	 * Copy the field with its own copy of the value<br>
+	 * The copy does not refer the shared buffer,so it does not keep the whole
+	 * segment(or the buffer of the caller) alive and it is not changed when
+	 * the buffer is changed.
+	 * 
+	 * @return
+	 */
+	@SuppressWarnings("deprecation")
+	ExifIFDField copyWithOwnValue() {
+		ExifIFDField copy = new ExifIFDField();
+		copy.TagName = TagName;
+		copy.Tag = Tag;
+		copy.DataType = DataType;
+		copy.SizeCount = SizeCount;
+		copy.DataSize = DataSize;
+		copy.DataOffsetAddress = DataOffsetAddress;
+		copy.LongData = LongData;
+		copy.Data = Data;
+		copy.m_EndianMode = m_EndianMode;
+
+		if (Data == null && m_ValueLength >= 0) {
+			byte[] value = new byte[m_ValueLength];
+			for (int i = 0; i < m_ValueLength; i++) {
+				value[i] = (byte) getByte(i);
+			}
+			copy.setValue(new ExifSegmentBuffer(ByteBuffer.wrap(value)), 0, m_ValueLength);
+		}
+		return copy;
+	}
+
+	/**
+	 * Set the 4byte data area in the field as the value
+	 * 
+	 * @param dataArea
+	 *            4byte data area(in the order of the file)
+	 */
+	void setInlineValue(int dataArea) {
+		m_ValueLoader = null;
+		m_ValueBuffer = null;
+		m_InlineValue = dataArea;
+		m_ValueLength = 4;
+	}
+
+	/**
+	 * Set the endian of the image which has this field
+	 * 
+	 * @param endianMode
+	 *            (BIG_ENDIAN=0 / LITTLE_ENDIAN=1)
+	 */
+	void setEndianMode(int endianMode) {
+		m_EndianMode = endianMode;
+	}
+
+	/**
+	 * Get the endian of the numeric values
+	 * 
+	 * @return (BIG_ENDIAN=0 / LITTLE_ENDIAN=1)
+	 */
+	public int getEndianMode() {
+		return m_EndianMode;
+	}
+
+	/**
+	 * Get the name of the tag<br>
+	 * The name of the tag not defined("UNKNOWN(0x....)") is made on the first
+	 * access,not for every field analyzed.
+	 * 
+	 * @return
+	 */
+	public String getTagName() {
+		if (TagName == null) {
+			TagName = "UNKNOWN(" + String.format("0x%04x", Tag) + ")";
+		}
+		return TagName;
+	}
+
+	/**
+	 * Set the position of the value which is loaded on the first access
+	 * 
+	 * @param valueLoader
+	 * @param readGeneration
+	 * @param position
+	 *            position of the value in the image
+	 * @param length
+	 */
+	void setLazyValue(ExiguousExifLowLevelDecoder valueLoader, int readGeneration, long position, int length) {
+		m_ValueBuffer = null;
+		m_ValueLoader = valueLoader;
+		m_ReadGeneration = readGeneration;
+		m_ValuePosition = position;
+		m_ValueLength = length;
+	}
+
+	/**
+	 * Returns true if the value is on memory.It returns false only for the
+	 * field not accessed yet in lazy value loading mode.
+	 * 
+	 * @return
+	 */
+	public boolean isValueLoaded() {
+		return m_ValueLoader == null;
+	}
+
+	private void loadValue() {
+		if (m_ValueLoader != null) {
+			m_ValueLoader.loadLazyValue(this, m_ReadGeneration, m_ValuePosition, m_ValueLength);
+		}
+	}
+
+	/**
+	 * Get the length of the referenced data in bytes
+	 * 
+	 * @return
+	 */
+	@SuppressWarnings("deprecation")
+	public int getDataLength() {
+		if (Data != null) {
+			return Data.length;
+		}
+		return Math.max(m_ValueLength, 0);
+	}
+
+	/**
+	 * Get the size of the buffer kept alive by the value.If the value refers
+	 * the shared buffer,it is the size of the whole buffer.
+	 * 
+	 * @return
+	 */
+	@SuppressWarnings("deprecation")
+	long getRetainedValueSize() {
+		if (Data != null) {
+			return Data.length * 4L;
+		}
+		if (m_ValueBuffer != null) {
+			return m_ValueBuffer.capacity();
+		}
+		return 0;
+	}
+
+	/**
+	 * Get 1byte of the referenced data as unsigned value
+	 * 
+	 * @param index
+	 * @return
+	 */
+	@SuppressWarnings("deprecation")
+	public int getByte(int index) {
+		if (Data != null) {
+			return Data[index];
+		}
+
+		if (index < 0 || index >= m_ValueLength) {
+			throw new IndexOutOfBoundsException("index=" + index + " length=" + m_ValueLength);
+		}
+
+		loadValue();
+
+		if (m_ValueBuffer != null) {
+			return m_ValueBuffer.get(m_ValueOffset + index);
+		}
+		return (m_InlineValue >>> (24 - index * 8)) & 0xFF;
+	}
+
+	/**
+	 * Get the SHORT value
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public int getUnsignedShort(int index) {
+		return (int) getUnsignedValue(index * 2, 2);
+	}
+
+	/**
+	 * Get the SSHORT value
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public int getSignedShort(int index) {
+		return (short) getUnsignedValue(index * 2, 2);
+	}
+
+	/**
+	 * Get the LONG value
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public long getUnsignedInt(int index) {
+		return getUnsignedValue(index * 4, 4);
+	}
+
+	/**
+	 * Get the SLONG value
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public int getSignedInt(int index) {
+		return (int) getUnsignedValue(index * 4, 4);
+	}
+
+	/**
+	 * Get the BYTE,SHORT or LONG value according to the data type
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public long getUnsignedInteger(int index) {
+		if (DataType == TYPE_BYTE) {
+			return getByte(index);
+		}
+		if (DataType == TYPE_SHORT) {
+			return getUnsignedShort(index);
+		}
+		return getUnsignedInt(index);
+	}
+
+	/**
+	 * Get the numerator of the RATIONAL value
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public long getRationalNumerator(int index) {
+		return getUnsignedValue(index * 8, 4);
+	}
+
+	/**
+	 * Get the denominator of the RATIONAL value
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public long getRationalDenominator(int index) {
+		return getUnsignedValue(index * 8 + 4, 4);
+	}
+
+	/**
+	 * Get the RATIONAL value as double
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public double getRationalAsDouble(int index) {
+		return (double) getRationalNumerator(index) / (double) getRationalDenominator(index);
+	}
+
+	/**
+	 * Get the numerator of the SRATIONAL value
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public int getSignedRationalNumerator(int index) {
+		return (int) getUnsignedValue(index * 8, 4);
+	}
+
+	/**
+	 * Get the denominator of the SRATIONAL value
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public int getSignedRationalDenominator(int index) {
+		return (int) getUnsignedValue(index * 8 + 4, 4);
+	}
+
+	/**
+	 * Get the SRATIONAL value as double
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public double getSignedRationalAsDouble(int index) {
+		return (double) getSignedRationalNumerator(index) / (double) getSignedRationalDenominator(index);
+	}
+
+	/**
+	 * Get the unsigned value of the bytes of the referenced data
+	 * 
+	 * @param offset
+	 *            byte offset
+	 * @param size
+	 *            byte size
+	 * @return
+	 */
+	@SuppressWarnings("deprecation")
+	private long getUnsignedValue(int offset, int size) {
+		if (offset < 0 || offset + size > getDataLength()) {
+			throw new IndexOutOfBoundsException("offset=" + offset + " size=" + size + " length=" + getDataLength());
+		}
+
+		if (Data != null) {
+			return ExifValueCodec.getLongValue(Data, offset, size, m_EndianMode);
+		}
+
+		loadValue();
+
+		if (m_ValueBuffer != null) {
+			return ExifValueCodec.getLongValue(m_ValueBuffer, m_ValueOffset + offset, size, m_EndianMode);
+		}
+		return ExifValueCodec.getLongValue(m_InlineValue, offset, size, m_EndianMode);
+	}
+
+	/**
+	 * Get the read-only view of the referenced data without copying
+	 * 
+	 * @return
+	 */
+	@SuppressWarnings("deprecation")
+	public ByteBuffer getDataBuffer() {
+		if (Data == null) {
+			loadValue();
+		}
+		if (Data != null || m_ValueBuffer == null) {
+			int length = getDataLength();
+			ByteBuffer buffer = ByteBuffer.allocate(length);
+			for (int i = 0; i < length; i++) {
+				buffer.put(i, (byte) getByte(i));
+			}
+			return buffer.asReadOnlyBuffer();
+		}
+		return m_ValueBuffer.slice(m_ValueOffset, m_ValueLength);
+	}
+
 	/**
 	 * Retrieve the referenced data of IFD of field<br>
-	 * (It equals to specify the IFDField#Data properties directly)
+	 * The array is newly created on each call.
 	 * 
 	 * @return
 	 */
+	@SuppressWarnings("deprecation")
 	public int[] getData() {
-		return Data;
+		if (Data != null || m_ValueLength < 0) {
+			return Data;
+		}
+
+		int[] ret = new int[m_ValueLength];
+		for (int i = 0; i < m_ValueLength; i++) {
+			ret[i] = getByte(i);
+		}
+		return ret;
 	}
 
 	/**
@@ -59,15 +473,17 @@ public class ExifIFDField {
 	 * 
 	 * @return
 	 */
+	@SuppressWarnings("deprecation")
 	public String getStringData() {
 		String ret = null;
-		if (Data == null) {
+		if (Data == null && m_ValueLength < 0) {
 			ret = String.valueOf(LongData);
 		} else {
 			StringBuffer sb = new StringBuffer();
 
-			for (int i = 0; i < Data.length; i++) {
-				char c = (char) Data[i];
+			int length = getDataLength();
+			for (int i = 0; i < length; i++) {
+				char c = (char) getByte(i);
 				// cancel null string
 				if (c != '\0') {
 					sb.append(c);
@@ -0,0 +1,55 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+/**
+ * Kind of the IFD<br>
+ * The tag codes are defined in the namespace of each kind of IFD.IFD1 (the
+ * thumbnail image) and SUB_IFD share the TIFF tags with IFD0.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public enum ExifIFDKind {
+
+	IFD0, IFD1, EXIF, GPS, INTEROPERABILITY,
+
+	// The IFDs pointed by SubIFDs(0x014a) and their chains
+	SUB_IFD,
+
+	// The IFD in the MakerNote(its tags are defined by each vendor)
+	MAKER_NOTE;
+
+	/**
+	 * Returns the kind which defines the tag codes of this kind of IFD
+	 * 
+	 * @return
+	 */
+	ExifIFDKind getTagSpace() {
+		if (this == IFD1 || this == SUB_IFD) {
+			return IFD0;
+		}
+		return this;
+	}
+}
@@ -0,0 +1,750 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Persistent index of the EXIF info of the files under a directory<br>
+ * <br>
+ * The values of ExifInfo(except the makerNote) and the size and the last
+ * modified time of each file are stored in an index file.On #refresh(),only
+ * the files which are new or changed are read,and the records of the other
+ * files are copied from the current index.The file which can not be read is
+ * indexed as disabled(ExifInfo#isEnabled() returns false).The lookups are served from the
+ * memory mapped index file,so the index is ready right after opening.<br>
+ * <br>
+ * The records are written into a new generation file("[index file].N") on
+ * each refresh,and then the index file is replaced to point the new
+ * generation.The generation file mapped now is never overwritten or
+ * replaced(it can not be on Windows),and the old generations are deleted
+ * when they can be.<br>
+ * <br>
+ * [Format of the index file](big endian)<br>
+ * magic 4byte("EXIX"),version 4byte,generation 8byte<br>
+ * [Format of the generation file](big endian)<br>
+ * Header: magic 4byte("EXIX"),version 4byte,number of the records 4byte,size
+ * of the chunk 4byte<br>
+ * Offset table: offset of each record 8byte * number of the records<br>
+ * Record: path(relative to the directory,'/' separated),size 8byte,last
+ * modified time 8byte,enabled 1byte,the strings and the numbers of
+ * ExifInfo<br>
+ * String: length 2byte(0xFFFF means null) + UTF-8 bytes<br>
+ * The records are sorted by the UTF-8 bytes of the path to find the record by
+ * binary search.A record never spans the chunks(padded by zero),so the file
+ * larger than 2GB is mapped by the chunk.<br>
+ * <br>
+ * The lookups are thread-safe.#refresh() is serialized.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifIndex {
+
+	private static final int MAGIC = 0x45584958;// EXIX
+	private static final int VERSION = 2;
+	private static final int POINTER_SIZE = 16;
+	private static final int HEADER_SIZE = 16;
+	private static final int NULL_STRING = 0xFFFF;
+
+	// Size of the numbers at the end of a record
+	private static final int NUMBERS_SIZE = 4 + 4 + 4 + 4 + 8 + 8 + 4;
+
+	private static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+	private final Path mDirectory;
+	private final Path mIndexFile;
+
+	private String[] mExtensions = new String[] { "jpg", "jpeg" };
+
+	private ExifBatchReader mBatchReader = new ExifBatchReader();
+
+	// Size of the chunk of the generation file written by the next refresh
+	private int mChunkSize = DEFAULT_CHUNK_SIZE;
+
+	// read-only view of the generation file
+	private volatile MappedIndex mIndex = null;
+
+	// generation of the index,0 before the first refresh
+	private long mGeneration = 0;
+
+	private int mReusedCount = 0;
+	private int mDecodedCount = 0;
+
+	/**
+	 * Open the index of the directory.If the index file exists,it is mapped
+	 * on memory.
+	 * 
+	 * @param directory
+	 *            directory of the images
+	 * @param indexFile
+	 * @throws IOException
+	 *             if the index file can not be read or is not an index
+	 */
+	public ExifIndex(Path directory, Path indexFile) throws IOException {
+		mDirectory = directory;
+		mIndexFile = indexFile;
+		if (Files.exists(indexFile)) {
+			mGeneration = readGeneration(indexFile);
+			mIndex = map(getGenerationFile(mGeneration));
+		}
+	}
+
+	/**
+	 * Set the extensions of the files to index(case insensitive)
+	 * 
+	 * @param extensions
+	 *            like "jpg","jpeg"
+	 */
+	public void setExtensions(String... extensions) {
+		String[] lowerCaseExtensions = new String[extensions.length];
+		for (int i = 0; i < extensions.length; i++) {
+			lowerCaseExtensions[i] = extensions[i].toLowerCase(Locale.ENGLISH);
+		}
+		mExtensions = lowerCaseExtensions;
+	}
+
+	/**
+	 * Set the reader of the new or changed files
+	 * 
+	 * @param batchReader
+	 *            the reader must return the results in the order of the
+	 *            paths(default of ExifBatchReader)
+	 */
+	public void setBatchReader(ExifBatchReader batchReader) {
+		mBatchReader = batchReader;
+	}
+
+	/**
+	 * Set the size of the chunk(for testing the chunks without the files of
+	 * some GB)
+	 * 
+	 * @param chunkSize
+	 *            power of 2,and large enough for a record
+	 */
+	void setChunkSize(int chunkSize) {
+		if (chunkSize < HEADER_SIZE || Integer.bitCount(chunkSize) != 1) {
+			throw new IllegalArgumentException("chunkSize must be power of 2. chunkSize=" + chunkSize);
+		}
+		mChunkSize = chunkSize;
+	}
+
+	/**
+	 * Get the number of the records in the index
+	 * 
+	 * @return
+	 */
+	public int size() {
+		MappedIndex index = mIndex;
+		return index == null ? 0 : index.count;
+	}
+
+	/**
+	 * Get the number of the records copied from the previous index by the
+	 * last refresh
+	 * 
+	 * @return
+	 */
+	public int getReusedCount() {
+		return mReusedCount;
+	}
+
+	/**
+	 * Get the number of the files read by the last refresh
+	 * 
+	 * @return
+	 */
+	public int getDecodedCount() {
+		return mDecodedCount;
+	}
+
+	/**
+	 * Look up the EXIF info of the file
+	 * 
+	 * @param file
+	 *            file under the directory(absolute or relative to the
+	 *            directory)
+	 * @param exifInfo
+	 * @return false if the file is not in the index
+	 */
+	public boolean read(Path file, ExifInfo exifInfo) {
+		return read(toIndexPath(mDirectory.resolve(file)), exifInfo);
+	}
+
+	/**
+	 * Look up the EXIF info of the file
+	 * 
+	 * @param relativePath
+	 *            path relative to the directory('/' separated)
+	 * @param exifInfo
+	 * @return false if the file is not in the index
+	 */
+	public boolean read(String relativePath, ExifInfo exifInfo) {
+		MappedIndex index = mIndex;
+		if (index == null) {
+			return false;
+		}
+		int recordIndex = find(index, relativePath.getBytes(StandardCharsets.UTF_8));
+		if (recordIndex < 0) {
+			return false;
+		}
+		readRecord(index.getRecord(recordIndex), exifInfo);
+		return true;
+	}
+
+	/**
+	 * Update the index by the current files under the directory<br>
+	 * The new index is written into a new generation file,the index file is
+	 * replaced to point it,and then it is mapped.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void refresh() throws IOException {
+		List<IndexedFile> files = listFiles();
+
+		MappedIndex oldIndex = mIndex;
+
+		// Files to read(new or changed)
+		List<Path> changedFiles = new ArrayList<Path>();
+		for (IndexedFile file : files) {
+			if (oldIndex != null) {
+				file.oldRecordIndex = find(oldIndex, file.indexPath);
+			}
+			if (file.oldRecordIndex < 0 || !isSameFile(oldIndex.getRecord(file.oldRecordIndex), file)) {
+				file.oldRecordIndex = -1;
+				changedFiles.add(file.path);
+			}
+		}
+
+		// The generation file mapped by any index now is never overwritten
+		long generation = Math.max(mGeneration, getLatestGeneration()) + 1;
+		Path generationFile = getGenerationFile(generation);
+		int chunkSize = mChunkSize;
+		int reusedCount = 0;
+		int decodedCount = 0;
+		long[] offsets = new long[files.size()];
+		int recordCount = 0;
+
+		// ordered results of the changed files in the order of the paths
+		try (Stream<ExifBatchResult> results = mBatchReader.readAll(changedFiles)) {
+			Iterator<ExifBatchResult> changedResults = results.iterator();
+
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(generationFile))) {
+				// placeholder of the header and the offset table
+				long position = HEADER_SIZE + (long) files.size() * 8;
+				writeZeros(out, position);
+
+				ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+				DataOutputStream recordOut = new DataOutputStream(recordBytes);
+
+				for (IndexedFile file : files) {
+					recordBytes.reset();
+					if (file.oldRecordIndex >= 0) {
+						ByteBuffer source = oldIndex.getRecord(file.oldRecordIndex);
+						byte[] record = new byte[getRecordLength(source)];
+						source.get(record);
+						recordOut.write(record);
+						reusedCount++;
+					} else {
+						ExifBatchResult result = changedResults.next();
+						ExifInfo exifInfo = result.getExifInfo();
+						if (exifInfo == null) {
+							// The file which can not be read is indexed as
+							// disabled,and it is not read again until it is
+							// changed.
+							exifInfo = new ExifInfo();
+							exifInfo.setEnabled(false);
+						}
+						// The broken image(ExifDecodeException) is indexed
+						// with the part which could be decoded
+						writeRecord(recordOut, file, exifInfo);
+						decodedCount++;
+					}
+
+					int length = recordBytes.size();
+					if (length > chunkSize) {
+						throw new IOException("Too large record for the chunk:" + file.path);
+					}
+					// The record never spans the chunks
+					long chunkEnd = (position | (chunkSize - 1)) + 1;
+					if (position + length > chunkEnd) {
+						writeZeros(out, chunkEnd - position);
+						position = chunkEnd;
+					}
+					offsets[recordCount++] = position;
+					recordBytes.writeTo(out);
+					position += length;
+				}
+			}
+		}
+
+		// header and offset table
+		try (FileChannel channel = FileChannel.open(generationFile, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(64 * 1024);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(recordCount);
+			header.putInt(chunkSize);
+			for (int i = 0; i < recordCount; i++) {
+				if (header.remaining() < 8) {
+					header.flip();
+					writeFully(channel, header);
+					header.clear();
+				}
+				header.putLong(offsets[i]);
+			}
+			header.flip();
+			writeFully(channel, header);
+		}
+
+		// Point the new generation.The index file is small and not mapped,so
+		// it can be replaced.
+		Path tempFile = mIndexFile.resolveSibling(mIndexFile.getFileName() + ".tmp");
+		ByteBuffer pointer = ByteBuffer.allocate(POINTER_SIZE);
+		pointer.putInt(MAGIC);
+		pointer.putInt(VERSION);
+		pointer.putLong(generation);
+		Files.write(tempFile, pointer.array());
+		Files.move(tempFile, mIndexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		mIndex = map(generationFile);
+		mGeneration = generation;
+		mReusedCount = reusedCount;
+		mDecodedCount = decodedCount;
+
+		deleteOldGenerations(generation);
+	}
+
+	/**
+	 * Read-only view of the generation file mapped by the chunk
+	 */
+	private static final class MappedIndex {
+		final int count;
+		final int chunkShift;
+		final int chunkMask;
+		final ByteBuffer[] chunks;
+
+		MappedIndex(int count, int chunkSize, ByteBuffer[] chunks) {
+			this.count = count;
+			this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+			this.chunkMask = chunkSize - 1;
+			this.chunks = chunks;
+		}
+
+		long getRecordOffset(int recordIndex) {
+			// The offsets are aligned by 8,so an offset never spans the chunks
+			long position = HEADER_SIZE + (long) recordIndex * 8;
+			return chunks[(int) (position >>> chunkShift)].getLong((int) (position & chunkMask));
+		}
+
+		/**
+		 * Get the buffer positioned at the record
+		 */
+		ByteBuffer getRecord(int recordIndex) {
+			long offset = getRecordOffset(recordIndex);
+			ByteBuffer record = chunks[(int) (offset >>> chunkShift)].duplicate();
+			record.position((int) (offset & chunkMask));
+			return record;
+		}
+	}
+
+	/**
+	 * File under the directory
+	 */
+	private static class IndexedFile {
+		final Path path;
+		final byte[] indexPath;
+		final long size;
+		final long lastModified;
+		int oldRecordIndex = -1;
+
+		IndexedFile(Path path, byte[] indexPath, long size, long lastModified) {
+			this.path = path;
+			this.indexPath = indexPath;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+	}
+
+	/**
+	 * List the files to index sorted by the path in the index
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	private List<IndexedFile> listFiles() throws IOException {
+		final List<IndexedFile> files = new ArrayList<IndexedFile>();
+		final Path indexFile = mIndexFile.toAbsolutePath();
+
+		Files.walkFileTree(mDirectory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile() && isTarget(file) && !file.toAbsolutePath().equals(indexFile)) {
+					byte[] indexPath = toIndexPath(file).getBytes(StandardCharsets.UTF_8);
+					files.add(new IndexedFile(file, indexPath, attrs.size(), attrs.lastModifiedTime().toMillis()));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				// not indexed
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		Collections.sort(files, new Comparator<IndexedFile>() {
+			@Override
+			public int compare(IndexedFile o1, IndexedFile o2) {
+				return compareBytes(o1.indexPath, o2.indexPath);
+			}
+		});
+		return files;
+	}
+
+	private boolean isTarget(Path file) {
+		if (getGeneration(file) >= 0) {
+			return false;
+		}
+		String fileName = file.getFileName().toString().toLowerCase(Locale.ENGLISH);
+		for (String extension : mExtensions) {
+			if (fileName.endsWith("." + extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the path in the index(relative to the directory,'/' separated)
+	 * 
+	 * @param file
+	 * @return
+	 */
+	private String toIndexPath(Path file) {
+		Path relativePath = mDirectory.toAbsolutePath().normalize().relativize(file.toAbsolutePath().normalize());
+		StringBuilder sb = new StringBuilder();
+		for (Path name : relativePath) {
+			if (sb.length() > 0) {
+				sb.append('/');
+			}
+			sb.append(name.toString());
+		}
+		return sb.toString();
+	}
+
+	private Path getGenerationFile(long generation) {
+		return mIndexFile.resolveSibling(mIndexFile.getFileName() + "." + generation);
+	}
+
+	/**
+	 * Get the generation of the generation file of this index
+	 * 
+	 * @param file
+	 * @return -1 if the file is not a generation file of this index
+	 */
+	private long getGeneration(Path file) {
+		Path fileName = file.getFileName();
+		Path directory = file.toAbsolutePath().normalize().getParent();
+		String prefix = mIndexFile.getFileName() + ".";
+		if (fileName == null || !fileName.toString().startsWith(prefix) || !mIndexFile.toAbsolutePath().normalize().getParent().equals(directory)) {
+			return -1;
+		}
+		String suffix = fileName.toString().substring(prefix.length());
+		if (suffix.isEmpty() || suffix.length() > 18) {
+			return -1;
+		}
+		for (int i = 0; i < suffix.length(); i++) {
+			if (suffix.charAt(i) < '0' || suffix.charAt(i) > '9') {
+				return -1;
+			}
+		}
+		return Long.parseLong(suffix);
+	}
+
+	/**
+	 * Get the latest generation file on the disk(written by another index of
+	 * the same file or left by a failed refresh)
+	 * 
+	 * @return 0 if there is no generation file
+	 * @throws IOException
+	 */
+	private long getLatestGeneration() throws IOException {
+		long latestGeneration = 0;
+		try (DirectoryStream<Path> siblings = Files.newDirectoryStream(mIndexFile.toAbsolutePath().normalize().getParent())) {
+			for (Path sibling : siblings) {
+				latestGeneration = Math.max(latestGeneration, getGeneration(sibling));
+			}
+		}
+		return latestGeneration;
+	}
+
+	/**
+	 * Delete the generation files except the current one<br>
+	 * The file still mapped can not be deleted on some platforms,so it is
+	 * deleted by the next refresh.
+	 * 
+	 * @param currentGeneration
+	 */
+	private void deleteOldGenerations(long currentGeneration) {
+		try (DirectoryStream<Path> siblings = Files.newDirectoryStream(mIndexFile.toAbsolutePath().normalize().getParent())) {
+			for (Path sibling : siblings) {
+				long generation = getGeneration(sibling);
+				if (generation >= 0 && generation < currentGeneration) {
+					try {
+						Files.deleteIfExists(sibling);
+					} catch (IOException e) {
+						// still mapped
+					}
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static long readGeneration(Path indexFile) throws IOException {
+		ByteBuffer pointer = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+		checkHeader(pointer, indexFile);
+		if (pointer.limit() < POINTER_SIZE) {
+			throw new IOException("Not an index file:" + indexFile);
+		}
+		return pointer.getLong(8);
+	}
+
+	private static void checkHeader(ByteBuffer header, Path file) throws IOException {
+		if (header.limit() < 8 || header.getInt(0) != MAGIC) {
+			throw new IOException("Not an index file:" + file);
+		}
+		if (header.getInt(4) != VERSION) {
+			throw new IOException("Unsupported version " + header.getInt(4) + " of the index file:" + file);
+		}
+	}
+
+	private static MappedIndex map(Path generationFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(generationFile, StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_SIZE));
+			checkHeader(header, generationFile);
+			if (size < HEADER_SIZE) {
+				throw new IOException("Not an index file:" + generationFile);
+			}
+			int count = header.getInt(8);
+			int chunkSize = header.getInt(12);
+			if (count < 0 || chunkSize < HEADER_SIZE || Integer.bitCount(chunkSize) != 1 || HEADER_SIZE + (long) count * 8 > size) {
+				throw new IOException("Broken index file:" + generationFile);
+			}
+
+			ByteBuffer[] chunks = new ByteBuffer[(int) ((size + chunkSize - 1) / chunkSize)];
+			for (int i = 0; i < chunks.length; i++) {
+				long chunkStart = (long) i * chunkSize;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, Math.min(chunkSize, size - chunkStart));
+			}
+			return new MappedIndex(count, chunkSize, chunks);
+		}
+	}
+
+	private static void writeZeros(OutputStream out, long length) throws IOException {
+		byte[] zeros = new byte[(int) Math.min(length, 8192)];
+		for (long remaining = length; remaining > 0; remaining -= zeros.length) {
+			out.write(zeros, 0, (int) Math.min(remaining, zeros.length));
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Find the record by binary search
+	 * 
+	 * @param index
+	 * @param indexPath
+	 * @return index of the record,or -1 if not found
+	 */
+	private static int find(MappedIndex index, byte[] indexPath) {
+		int low = 0;
+		int high = index.count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = comparePath(index.getRecord(mid), indexPath);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compare the path of the record with the path as unsigned bytes
+	 */
+	private static int comparePath(ByteBuffer record, byte[] indexPath) {
+		int recordOffset = record.position();
+		int length = record.getShort(recordOffset) & 0xFFFF;
+		int minLength = Math.min(length, indexPath.length);
+		for (int i = 0; i < minLength; i++) {
+			int cmp = (record.get(recordOffset + 2 + i) & 0xFF) - (indexPath[i] & 0xFF);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return length - indexPath.length;
+	}
+
+	private static int compareBytes(byte[] a, byte[] b) {
+		int minLength = Math.min(a.length, b.length);
+		for (int i = 0; i < minLength; i++) {
+			int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	private static boolean isSameFile(ByteBuffer record, IndexedFile file) {
+		int offset = record.position();
+		int pos = offset + 2 + (record.getShort(offset) & 0xFFFF);
+		return record.getLong(pos) == file.size && record.getLong(pos + 8) == file.lastModified;
+	}
+
+	/**
+	 * Get the length of the record at the position of the buffer
+	 */
+	private static int getRecordLength(ByteBuffer record) {
+		int offset = record.position();
+		// path,size,last modified time and enabled
+		int pos = offset + 2 + (record.getShort(offset) & 0xFFFF) + 17;
+		for (int i = 0; i < 11; i++) {
+			int length = record.getShort(pos) & 0xFFFF;
+			pos += 2 + (length == NULL_STRING ? 0 : length);
+		}
+		return pos + NUMBERS_SIZE - offset;
+	}
+
+	private static void writeRecord(DataOutputStream out, IndexedFile file, ExifInfo exifInfo) throws IOException {
+		out.writeShort(file.indexPath.length);
+		out.write(file.indexPath);
+		out.writeLong(file.size);
+		out.writeLong(file.lastModified);
+		out.writeBoolean(exifInfo.isEnabled());
+
+		writeString(out, exifInfo.getMaker());
+		writeString(out, exifInfo.getModel());
+		writeString(out, exifInfo.getDateTime());
+		writeString(out, exifInfo.getXResolution());
+		writeString(out, exifInfo.getYResolution());
+		writeString(out, exifInfo.getExifVersion());
+		writeString(out, exifInfo.getGpsIFDVersion());
+		writeString(out, exifInfo.getGpsLongitudeRef());
+		writeString(out, exifInfo.getGpsLatitudeRef());
+		writeString(out, exifInfo.getGpsLatitudeDDMMSSsss());
+		writeString(out, exifInfo.getGpsLongitudeDDMMSSsss());
+
+		out.writeFloat(exifInfo.getExposureTime());
+		out.writeFloat(exifInfo.getFValue());
+		out.writeInt(exifInfo.getImageWidth());
+		out.writeInt(exifInfo.getImageHeight());
+		out.writeDouble(exifInfo.getGpsLongitude());
+		out.writeDouble(exifInfo.getGpsLatitude());
+		out.writeFloat(exifInfo.getGpsImageDirection());
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeShort(NULL_STRING);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		// Exif strings are short,but cut it not to break the format
+		int length = Math.min(bytes.length, NULL_STRING - 1);
+		out.writeShort(length);
+		out.write(bytes, 0, length);
+	}
+
+	private static void readRecord(ByteBuffer record, ExifInfo exifInfo) {
+		// path,size and last modified time
+		record.position(record.position() + 2 + (record.getShort(record.position()) & 0xFFFF) + 16);
+
+		exifInfo.setEnabled(record.get() != 0);
+
+		exifInfo.setMaker(readString(record));
+		exifInfo.setModel(readString(record));
+		exifInfo.setDateTime(readString(record));
+		exifInfo.setXResolution(readString(record));
+		exifInfo.setYResolution(readString(record));
+		exifInfo.setExifVersion(readString(record));
+		exifInfo.setGpsIFDVersion(readString(record));
+		exifInfo.setGpsLongitudeRef(readString(record));
+		exifInfo.setGpsLatitudeRef(readString(record));
+		exifInfo.setGpsLatitudeDDMMSSsss(readString(record));
+		exifInfo.setGpsLongitudeDDMMSSsss(readString(record));
+
+		exifInfo.setExposureTime(record.getFloat());
+		exifInfo.setFValue(record.getFloat());
+		exifInfo.setImageWidth(record.getInt());
+		exifInfo.setImageHeight(record.getInt());
+		exifInfo.setGpsLongitude(record.getDouble());
+		exifInfo.setGpsLatitude(record.getDouble());
+		exifInfo.setGpsImageDirection(record.getFloat());
+	}
+
+	private static String readString(ByteBuffer record) {
+		int length = record.getShort() & 0xFFFF;
+		if (length == NULL_STRING) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		record.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
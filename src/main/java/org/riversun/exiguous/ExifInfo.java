@@ -24,7 +24,7 @@
 
 package org.riversun.exiguous;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 /**
  * Model of Exif Information
@@ -43,6 +43,7 @@ public class ExifInfo {
 	private String exifVersion = "";
 	private float fValue;
 	private int[] makerNote;
+	private ExifMakerNote exifMakerNote;
 
 	private int imageWidth;
 	private int imageHeight;
@@ -130,12 +131,71 @@ public class ExifInfo {
 		fValue = value;
 	}
 
+	/**
+	 * Get the makerNote<br>
+	 * If it is decoded by the reader, the array is newly created on each call.
+	 * 
+	 * @return
+	 */
 	public int[] getMakerNote() {
+		if (makerNote == null && exifMakerNote != null) {
+			return exifMakerNote.getData();
+		}
 		return makerNote;
 	}
 
 	public void setMakerNote(int[] makerNote) {
 		this.makerNote = makerNote;
+		this.exifMakerNote = null;
+	}
+
+	/**
+	 * Get the read-only view of the makerNote without copying
+	 * 
+	 * @return
+	 */
+	public ByteBuffer getMakerNoteBuffer() {
+		if (makerNote == null && exifMakerNote != null) {
+			return exifMakerNote.getBuffer();
+		}
+		if (makerNote != null) {
+			ByteBuffer buffer = ByteBuffer.allocate(makerNote.length);
+			for (int i = 0; i < makerNote.length; i++) {
+				buffer.put(i, (byte) makerNote[i]);
+			}
+			return buffer.asReadOnlyBuffer();
+		}
+		return null;
+	}
+
+	/**
+	 * Get the reference to the makerNote which decodes the vendor specific
+	 * tags on demand
+	 * 
+	 * @return null if the makerNote is not kept by the reader
+	 */
+	public ExifMakerNote getExifMakerNote() {
+		return exifMakerNote;
+	}
+
+	/**
+	 * Set the makerNote which has its own copy of the bytes
+	 * 
+	 * @param exifMakerNote
+	 */
+	void setExifMakerNote(ExifMakerNote exifMakerNote) {
+		this.makerNote = null;
+		this.exifMakerNote = exifMakerNote;
+	}
+
+	private String makerNoteToString() {
+		if (exifMakerNote != null) {
+			return exifMakerNote.toString();
+		}
+		if (makerNote != null) {
+			return "int[" + makerNote.length + "]";
+		}
+		return null;
 	}
 
 	public double getGpsLongitude() {
@@ -218,10 +278,65 @@ public class ExifInfo {
 		this.imageHeight = imageHeight;
 	}
 
+	/**
+	 * Copy all of the values into the other ExifInfo.The makerNote is shared
+	 * without copying.
+	 * 
+	 * @param dest
+	 */
+	void copyTo(ExifInfo dest) {
+		dest.maker = maker;
+		dest.model = model;
+		dest.dateTime = dateTime;
+		dest.xResolution = xResolution;
+		dest.yResolution = yResolution;
+		dest.exposureTime = exposureTime;
+		dest.exifVersion = exifVersion;
+		dest.fValue = fValue;
+		dest.makerNote = makerNote;
+		dest.exifMakerNote = exifMakerNote;
+		dest.imageWidth = imageWidth;
+		dest.imageHeight = imageHeight;
+		dest.GpsIFDVersion = GpsIFDVersion;
+		dest.GpsLongitude = GpsLongitude;
+		dest.GpsLongitudeRef = GpsLongitudeRef;
+		dest.GpsLatitude = GpsLatitude;
+		dest.GpsLatitudeRef = GpsLatitudeRef;
+		dest.GpsLatitudeDDMMSSsss = GpsLatitudeDDMMSSsss;
+		dest.GpsLongitudeDDMMSSsss = GpsLongitudeDDMMSSsss;
+		dest.GpsImageDirection = GpsImageDirection;
+		dest.enabled = enabled;
+	}
+
+	/**
+	 * Estimate the bytes retained by this object on the heap(roughly)
+	 * 
+	 * @return
+	 */
+	long estimateRetainedSize() {
+		// object header and the fields
+		long size = 128;
+		String[] strings = new String[] { maker, model, dateTime, xResolution, yResolution, exifVersion, GpsIFDVersion, GpsLongitudeRef, GpsLatitudeRef, GpsLatitudeDDMMSSsss,
+				GpsLongitudeDDMMSSsss };
+		for (String string : strings) {
+			if (string != null) {
+				size += 40 + string.length() * 2;
+			}
+		}
+		if (makerNote != null) {
+			size += 16 + makerNote.length * 4;
+		}
+		if (exifMakerNote != null) {
+			// the buffer which the makerNote refers(usually its own copy)
+			size += 64 + exifMakerNote.getRetainedSize();
+		}
+		return size;
+	}
+
 	@Override
 	public String toString() {
 		return "ExifInfo [maker=" + maker + ", model=" + model + ", dateTime=" + dateTime + ", xResolution=" + xResolution + ", yResolution=" + yResolution + ", exposureTime=" + exposureTime
-				+ ", exifVersion=" + exifVersion + ", fValue=" + fValue + ", makerNote=" + Arrays.toString(makerNote) + ", imageWidth=" + imageWidth + ", imageHeight=" + imageHeight
+				+ ", exifVersion=" + exifVersion + ", fValue=" + fValue + ", makerNote=" + makerNoteToString() + ", imageWidth=" + imageWidth + ", imageHeight=" + imageHeight
 				+ ", GpsIFDVersion=" + GpsIFDVersion + ", GpsLongitude=" + GpsLongitude + ", GpsLongitudeRef=" + GpsLongitudeRef + ", GpsLatitude=" + GpsLatitude + ", GpsLatitudeRef="
 				+ GpsLatitudeRef + ", GpsLatitudeDDMMSSsss=" + GpsLatitudeDDMMSSsss + ", GpsLongitudeDDMMSSsss=" + GpsLongitudeDDMMSSsss + ", GpsImageDirection=" + GpsImageDirection + "]";
 	}
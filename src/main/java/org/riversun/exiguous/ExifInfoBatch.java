@@ -0,0 +1,650 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Container of the EXIF info of many files stored column by column<br>
+ * <br>
+ * Each value of ExifInfo is stored in the primitive array of its column
+ * instead of holding an ExifInfo for each file.<br>
+ * The strings which have a few kinds of values(maker,model,resolutions,Exif
+ * version and GPS IFD version) are stored as the ids of the dictionary of
+ * each column,and DateTime is stored as epoch millis.The paths are stored as
+ * the UTF-8 bytes in one byte area,and the Path is created only when it is
+ * requested.<br>
+ * The MakerNote and the GPS DDMMSSsss strings(they are made from the
+ * latitude and the longitude) are not stored.<br>
+ * <br>
+ * Read the rows by the index or by the cursor without creating an ExifInfo
+ * for each row.<br>
+ * It is not thread-safe.Read it after all of the rows are appended.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifInfoBatch {
+
+	/**
+	 * Id of null in the dictionary columns
+	 */
+	public static final int NULL_ID = ExifStringDictionary.NULL_ID;
+
+	/**
+	 * DateTime which is not set or can not be parsed
+	 */
+	public static final long NO_DATE_TIME = Long.MIN_VALUE;
+
+	private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+	// Average length of a path in the byte area allocated first
+	private static final int INITIAL_PATH_LENGTH = 64;
+
+	// Max size of the array(some VMs reserve a few words in the array)
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	private int mSize = 0;
+	private int mCapacity;
+
+	// UTF-8 bytes of the paths of all of the rows
+	private byte[] mPathBytes;
+	private int mPathBytesSize = 0;
+	// File system of the paths to create the Path again
+	private FileSystem mFileSystem = null;
+
+	// offset in the byte area and length of the path of each row(length is
+	// -1 if the path is null)
+	private int[] mPathOffsets;
+	private int[] mPathLengths;
+	private boolean[] mEnabled;
+
+	private final ExifStringDictionary mMakers = new ExifStringDictionary();
+	private final ExifStringDictionary mModels = new ExifStringDictionary();
+	private final ExifStringDictionary mResolutions = new ExifStringDictionary();
+	private final ExifStringDictionary mVersions = new ExifStringDictionary();
+
+	private int[] mMakerIds;
+	private int[] mModelIds;
+	private int[] mXResolutionIds;
+	private int[] mYResolutionIds;
+	private int[] mExifVersionIds;
+	private int[] mGpsIFDVersionIds;
+
+	private long[] mDateTimes;
+	private float[] mExposureTimes;
+	private float[] mFValues;
+	private int[] mImageWidths;
+	private int[] mImageHeights;
+
+	private double[] mGpsLatitudes;
+	private double[] mGpsLongitudes;
+	private char[] mGpsLatitudeRefs;
+	private char[] mGpsLongitudeRefs;
+	private float[] mGpsImageDirections;
+
+	public ExifInfoBatch() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+
+	/**
+	 * @param initialCapacity
+	 *            number of the rows allocated first(the columns grow when
+	 *            they are full)
+	 */
+	public ExifInfoBatch(int initialCapacity) {
+		if (initialCapacity < 1) {
+			throw new IllegalArgumentException("initialCapacity must be 1 or more. initialCapacity=" + initialCapacity);
+		}
+		allocate(initialCapacity);
+		mPathBytes = new byte[(int) Math.min((long) initialCapacity * INITIAL_PATH_LENGTH, MAX_ARRAY_SIZE)];
+	}
+
+	/**
+	 * Append the EXIF info of the file
+	 * 
+	 * @param path
+	 *            path of the file(can be null).The paths of a batch are
+	 *            expected to be on the same file system.
+	 * @param exifInfo
+	 * @return index of the row
+	 */
+	public int append(Path path, ExifInfo exifInfo) {
+		if (mSize == mCapacity) {
+			allocate(mCapacity * 2);
+		}
+
+		int row = mSize;
+
+		if (path == null) {
+			mPathOffsets[row] = 0;
+			mPathLengths[row] = -1;
+		} else {
+			if (mFileSystem == null) {
+				mFileSystem = path.getFileSystem();
+			}
+			byte[] pathBytes = path.toString().getBytes(StandardCharsets.UTF_8);
+			ensurePathBytes(pathBytes.length);
+			System.arraycopy(pathBytes, 0, mPathBytes, mPathBytesSize, pathBytes.length);
+			mPathOffsets[row] = mPathBytesSize;
+			mPathLengths[row] = pathBytes.length;
+			mPathBytesSize += pathBytes.length;
+		}
+		mEnabled[row] = exifInfo.isEnabled();
+
+		mMakerIds[row] = mMakers.getOrAddId(exifInfo.getMaker());
+		mModelIds[row] = mModels.getOrAddId(exifInfo.getModel());
+		mXResolutionIds[row] = mResolutions.getOrAddId(exifInfo.getXResolution());
+		mYResolutionIds[row] = mResolutions.getOrAddId(exifInfo.getYResolution());
+		mExifVersionIds[row] = mVersions.getOrAddId(exifInfo.getExifVersion());
+		mGpsIFDVersionIds[row] = mVersions.getOrAddId(exifInfo.getGpsIFDVersion());
+
+		mDateTimes[row] = toEpochMillis(exifInfo.getDateTime());
+		mExposureTimes[row] = exifInfo.getExposureTime();
+		mFValues[row] = exifInfo.getFValue();
+		mImageWidths[row] = exifInfo.getImageWidth();
+		mImageHeights[row] = exifInfo.getImageHeight();
+
+		mGpsLatitudes[row] = exifInfo.getGpsLatitude();
+		mGpsLongitudes[row] = exifInfo.getGpsLongitude();
+		mGpsLatitudeRefs[row] = toRef(exifInfo.getGpsLatitudeRef());
+		mGpsLongitudeRefs[row] = toRef(exifInfo.getGpsLongitudeRef());
+		mGpsImageDirections[row] = exifInfo.getGpsImageDirection();
+
+		mSize++;
+		return row;
+	}
+
+	/**
+	 * Get the number of the rows
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * Release the unused capacity of the columns
+	 */
+	public void trimToSize() {
+		if (mSize > 0 && mSize < mCapacity) {
+			allocate(mSize);
+		}
+		if (mPathBytesSize < mPathBytes.length) {
+			mPathBytes = Arrays.copyOf(mPathBytes, mPathBytesSize);
+		}
+	}
+
+	/**
+	 * Get the cursor before the first row
+	 * 
+	 * @return
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Set the values of the row into the ExifInfo
+	 * 
+	 * @param row
+	 * @param exifInfo
+	 */
+	public void copyTo(int row, ExifInfo exifInfo) {
+		checkRow(row);
+		exifInfo.setEnabled(mEnabled[row]);
+		exifInfo.setMaker(getMaker(row));
+		exifInfo.setModel(getModel(row));
+		exifInfo.setDateTime(toDateTime(mDateTimes[row]));
+		exifInfo.setXResolution(mResolutions.get(mXResolutionIds[row]));
+		exifInfo.setYResolution(mResolutions.get(mYResolutionIds[row]));
+		exifInfo.setExifVersion(mVersions.get(mExifVersionIds[row]));
+		exifInfo.setExposureTime(mExposureTimes[row]);
+		exifInfo.setFValue(mFValues[row]);
+		exifInfo.setImageWidth(mImageWidths[row]);
+		exifInfo.setImageHeight(mImageHeights[row]);
+		exifInfo.setGpsIFDVersion(mVersions.get(mGpsIFDVersionIds[row]));
+		exifInfo.setGpsLatitude(mGpsLatitudes[row]);
+		exifInfo.setGpsLongitude(mGpsLongitudes[row]);
+		exifInfo.setGpsLatitudeRef(fromRef(mGpsLatitudeRefs[row]));
+		exifInfo.setGpsLongitudeRef(fromRef(mGpsLongitudeRefs[row]));
+		exifInfo.setGpsImageDirection(mGpsImageDirections[row]);
+	}
+
+	/**
+	 * Get the path of the row<br>
+	 * The Path is created from the stored bytes for each call.
+	 * 
+	 * @param row
+	 * @return
+	 */
+	public Path getPath(int row) {
+		checkRow(row);
+		if (mPathLengths[row] < 0) {
+			return null;
+		}
+		return mFileSystem.getPath(new String(mPathBytes, mPathOffsets[row], mPathLengths[row], StandardCharsets.UTF_8));
+	}
+
+	public boolean isEnabled(int row) {
+		checkRow(row);
+		return mEnabled[row];
+	}
+
+	/**
+	 * Get the id of the maker in the dictionary
+	 * 
+	 * @param row
+	 * @return id,or NULL_ID if the maker is null
+	 */
+	public int getMakerId(int row) {
+		checkRow(row);
+		return mMakerIds[row];
+	}
+
+	public String getMaker(int row) {
+		return mMakers.get(getMakerId(row));
+	}
+
+	/**
+	 * Get the id of the model in the dictionary
+	 * 
+	 * @param row
+	 * @return id,or NULL_ID if the model is null
+	 */
+	public int getModelId(int row) {
+		checkRow(row);
+		return mModelIds[row];
+	}
+
+	public String getModel(int row) {
+		return mModels.get(getModelId(row));
+	}
+
+	/**
+	 * Get DateTime as epoch millis(DateTime of Exif has no time zone,so it is
+	 * treated as UTC)
+	 * 
+	 * @param row
+	 * @return epoch millis,or NO_DATE_TIME
+	 */
+	public long getDateTimeMillis(int row) {
+		checkRow(row);
+		return mDateTimes[row];
+	}
+
+	public float getExposureTime(int row) {
+		checkRow(row);
+		return mExposureTimes[row];
+	}
+
+	public float getFValue(int row) {
+		checkRow(row);
+		return mFValues[row];
+	}
+
+	public int getImageWidth(int row) {
+		checkRow(row);
+		return mImageWidths[row];
+	}
+
+	public int getImageHeight(int row) {
+		checkRow(row);
+		return mImageHeights[row];
+	}
+
+	/**
+	 * Returns true if the file has GPS IFD
+	 * 
+	 * @param row
+	 * @return
+	 */
+	public boolean hasGps(int row) {
+		checkRow(row);
+		return mGpsIFDVersionIds[row] != NULL_ID;
+	}
+
+	public double getGpsLatitude(int row) {
+		checkRow(row);
+		return mGpsLatitudes[row];
+	}
+
+	public double getGpsLongitude(int row) {
+		checkRow(row);
+		return mGpsLongitudes[row];
+	}
+
+	/**
+	 * Get GPSLatitudeRef
+	 * 
+	 * @param row
+	 * @return 'N' or 'S',or '\0' if not set
+	 */
+	public char getGpsLatitudeRef(int row) {
+		checkRow(row);
+		return mGpsLatitudeRefs[row];
+	}
+
+	/**
+	 * Get GPSLongitudeRef
+	 * 
+	 * @param row
+	 * @return 'E' or 'W',or '\0' if not set
+	 */
+	public char getGpsLongitudeRef(int row) {
+		checkRow(row);
+		return mGpsLongitudeRefs[row];
+	}
+
+	public float getGpsImageDirection(int row) {
+		checkRow(row);
+		return mGpsImageDirections[row];
+	}
+
+	/**
+	 * Get the makers in the order of the ids
+	 * 
+	 * @return
+	 */
+	public List<String> getMakerDictionary() {
+		return mMakers.values();
+	}
+
+	/**
+	 * Get the models in the order of the ids
+	 * 
+	 * @return
+	 */
+	public List<String> getModelDictionary() {
+		return mModels.values();
+	}
+
+	/**
+	 * Get the id of the maker to compare with #getMakerId(int)
+	 * 
+	 * @param maker
+	 * @return id,or NULL_ID if no row has the maker
+	 */
+	public int findMakerId(String maker) {
+		return mMakers.getId(maker);
+	}
+
+	/**
+	 * Get the id of the model to compare with #getModelId(int)
+	 * 
+	 * @param model
+	 * @return id,or NULL_ID if no row has the model
+	 */
+	public int findModelId(String model) {
+		return mModels.getId(model);
+	}
+
+	/**
+	 * Cursor over the rows<br>
+	 * One cursor reads all of the rows by #next() without creating objects.
+	 */
+	public final class Cursor {
+
+		private int mRow = -1;
+
+		private Cursor() {
+		}
+
+		/**
+		 * Move to the next row
+		 * 
+		 * @return false if there is no more row
+		 */
+		public boolean next() {
+			if (mRow + 1 >= mSize) {
+				mRow = mSize;
+				return false;
+			}
+			mRow++;
+			return true;
+		}
+
+		/**
+		 * Get the index of the current row
+		 * 
+		 * @return
+		 */
+		public int getRow() {
+			return mRow;
+		}
+
+		public Path getPath() {
+			return ExifInfoBatch.this.getPath(mRow);
+		}
+
+		public boolean isEnabled() {
+			return ExifInfoBatch.this.isEnabled(mRow);
+		}
+
+		public int getMakerId() {
+			return ExifInfoBatch.this.getMakerId(mRow);
+		}
+
+		public String getMaker() {
+			return ExifInfoBatch.this.getMaker(mRow);
+		}
+
+		public int getModelId() {
+			return ExifInfoBatch.this.getModelId(mRow);
+		}
+
+		public String getModel() {
+			return ExifInfoBatch.this.getModel(mRow);
+		}
+
+		public long getDateTimeMillis() {
+			return ExifInfoBatch.this.getDateTimeMillis(mRow);
+		}
+
+		public float getExposureTime() {
+			return ExifInfoBatch.this.getExposureTime(mRow);
+		}
+
+		public float getFValue() {
+			return ExifInfoBatch.this.getFValue(mRow);
+		}
+
+		public int getImageWidth() {
+			return ExifInfoBatch.this.getImageWidth(mRow);
+		}
+
+		public int getImageHeight() {
+			return ExifInfoBatch.this.getImageHeight(mRow);
+		}
+
+		public boolean hasGps() {
+			return ExifInfoBatch.this.hasGps(mRow);
+		}
+
+		public double getGpsLatitude() {
+			return ExifInfoBatch.this.getGpsLatitude(mRow);
+		}
+
+		public double getGpsLongitude() {
+			return ExifInfoBatch.this.getGpsLongitude(mRow);
+		}
+
+		public char getGpsLatitudeRef() {
+			return ExifInfoBatch.this.getGpsLatitudeRef(mRow);
+		}
+
+		public char getGpsLongitudeRef() {
+			return ExifInfoBatch.this.getGpsLongitudeRef(mRow);
+		}
+
+		public float getGpsImageDirection() {
+			return ExifInfoBatch.this.getGpsImageDirection(mRow);
+		}
+
+		public void copyTo(ExifInfo exifInfo) {
+			ExifInfoBatch.this.copyTo(mRow, exifInfo);
+		}
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= mSize) {
+			throw new IndexOutOfBoundsException("row=" + row + " size=" + mSize);
+		}
+	}
+
+	/**
+	 * Grow the byte area of the paths for the bytes to append
+	 * 
+	 * @param length
+	 */
+	private void ensurePathBytes(int length) {
+		long required = (long) mPathBytesSize + length;
+		if (required <= mPathBytes.length) {
+			return;
+		}
+		if (required > MAX_ARRAY_SIZE) {
+			throw new IllegalStateException("Paths are too large for a batch. size=" + required);
+		}
+		mPathBytes = Arrays.copyOf(mPathBytes, (int) Math.min(Math.max(required, (long) mPathBytes.length * 2), MAX_ARRAY_SIZE));
+	}
+
+	/**
+	 * Allocate the columns with the capacity keeping the rows
+	 * 
+	 * @param capacity
+	 */
+	private void allocate(int capacity) {
+		if (mPathOffsets == null) {
+			mPathOffsets = new int[capacity];
+			mPathLengths = new int[capacity];
+			mEnabled = new boolean[capacity];
+			mMakerIds = new int[capacity];
+			mModelIds = new int[capacity];
+			mXResolutionIds = new int[capacity];
+			mYResolutionIds = new int[capacity];
+			mExifVersionIds = new int[capacity];
+			mGpsIFDVersionIds = new int[capacity];
+			mDateTimes = new long[capacity];
+			mExposureTimes = new float[capacity];
+			mFValues = new float[capacity];
+			mImageWidths = new int[capacity];
+			mImageHeights = new int[capacity];
+			mGpsLatitudes = new double[capacity];
+			mGpsLongitudes = new double[capacity];
+			mGpsLatitudeRefs = new char[capacity];
+			mGpsLongitudeRefs = new char[capacity];
+			mGpsImageDirections = new float[capacity];
+		} else {
+			mPathOffsets = Arrays.copyOf(mPathOffsets, capacity);
+			mPathLengths = Arrays.copyOf(mPathLengths, capacity);
+			mEnabled = Arrays.copyOf(mEnabled, capacity);
+			mMakerIds = Arrays.copyOf(mMakerIds, capacity);
+			mModelIds = Arrays.copyOf(mModelIds, capacity);
+			mXResolutionIds = Arrays.copyOf(mXResolutionIds, capacity);
+			mYResolutionIds = Arrays.copyOf(mYResolutionIds, capacity);
+			mExifVersionIds = Arrays.copyOf(mExifVersionIds, capacity);
+			mGpsIFDVersionIds = Arrays.copyOf(mGpsIFDVersionIds, capacity);
+			mDateTimes = Arrays.copyOf(mDateTimes, capacity);
+			mExposureTimes = Arrays.copyOf(mExposureTimes, capacity);
+			mFValues = Arrays.copyOf(mFValues, capacity);
+			mImageWidths = Arrays.copyOf(mImageWidths, capacity);
+			mImageHeights = Arrays.copyOf(mImageHeights, capacity);
+			mGpsLatitudes = Arrays.copyOf(mGpsLatitudes, capacity);
+			mGpsLongitudes = Arrays.copyOf(mGpsLongitudes, capacity);
+			mGpsLatitudeRefs = Arrays.copyOf(mGpsLatitudeRefs, capacity);
+			mGpsLongitudeRefs = Arrays.copyOf(mGpsLongitudeRefs, capacity);
+			mGpsImageDirections = Arrays.copyOf(mGpsImageDirections, capacity);
+		}
+		mCapacity = capacity;
+	}
+
+	static char toRef(String ref) {
+		return ref == null || ref.isEmpty() ? '\0' : ref.charAt(0);
+	}
+
+	static String fromRef(char ref) {
+		return ref == '\0' ? null : String.valueOf(ref);
+	}
+
+	/**
+	 * Convert DateTime of Exif("YYYY:MM:DD HH:MM:SS") to epoch millis as UTC
+	 * 
+	 * @param dateTime
+	 * @return epoch millis,or NO_DATE_TIME if it can not be parsed
+	 */
+	static long toEpochMillis(String dateTime) {
+		if (dateTime == null || dateTime.length() < 19) {
+			return NO_DATE_TIME;
+		}
+		int year = parseDigits(dateTime, 0, 4);
+		if (year < 0) {
+			// includes the blank DateTime("    :  :     :  :  ")
+			return NO_DATE_TIME;
+		}
+		try {
+			LocalDateTime localDateTime = LocalDateTime.of(year, parseDigits(dateTime, 5, 2), parseDigits(dateTime, 8, 2),
+					parseDigits(dateTime, 11, 2), parseDigits(dateTime, 14, 2), parseDigits(dateTime, 17, 2));
+			return TimeUnit.SECONDS.toMillis(localDateTime.toEpochSecond(ZoneOffset.UTC));
+		} catch (DateTimeException e) {
+			// out of range like "2009:02:30"
+			return NO_DATE_TIME;
+		}
+	}
+
+	/**
+	 * Convert epoch millis to DateTime of Exif
+	 * 
+	 * @param epochMillis
+	 * @return
+	 */
+	static String toDateTime(long epochMillis) {
+		if (epochMillis == NO_DATE_TIME) {
+			return null;
+		}
+		LocalDateTime dateTime = LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L), 0, ZoneOffset.UTC);
+		return String.format("%04d:%02d:%02d %02d:%02d:%02d", dateTime.getYear(), dateTime.getMonthValue(), dateTime.getDayOfMonth(), dateTime.getHour(),
+				dateTime.getMinute(), dateTime.getSecond());
+	}
+
+	private static int parseDigits(String text, int start, int length) {
+		int value = 0;
+		for (int i = start; i < start + length; i++) {
+			char c = text.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+}
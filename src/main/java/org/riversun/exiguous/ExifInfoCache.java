@@ -0,0 +1,303 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of ExifInfo in front of ExiguousExifReader<br>
+ * <br>
+ * The entry is identified by the canonical path of the file,and it is
+ * valid while the size and the last modified time of the file are the same.
+ * The file which was changed is read again.<br>
+ * The entries are bounded by the number and the estimated bytes retained,
+ * and the least recently used entry is evicted first.<br>
+ * When the threads request the same file at the same time,only one of them
+ * reads the file and the others wait for its result(single-flight).<br>
+ * <br>
+ * The instance is thread-safe.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifInfoCache {
+
+	public static final int DEFAULT_MAX_ENTRY_COUNT = 10000;
+	public static final long DEFAULT_MAX_RETAINED_SIZE = 64L * 1024 * 1024;
+
+	private final ExiguousExifReader mExifReader;
+	private final int mMaxEntryCount;
+	private final long mMaxRetainedSize;
+
+	// LRU order(access order).Guarded by itself.
+	private final LinkedHashMap<Path, CacheEntry> mEntries = new LinkedHashMap<Path, CacheEntry>(16, 0.75f, true);
+	private long mRetainedSize = 0;
+
+	// Loads in-flight
+	private final Map<FileKey, CompletableFuture<ExifInfo>> mLoads = new ConcurrentHashMap<FileKey, CompletableFuture<ExifInfo>>();
+
+	private final AtomicLong mHitCount = new AtomicLong();
+	private final AtomicLong mMissCount = new AtomicLong();
+	private final AtomicLong mLoadCount = new AtomicLong();
+	private final AtomicLong mEvictionCount = new AtomicLong();
+
+	// Order of the requests.The attributes of the file are read after it is
+	// taken,so the entry of the larger sequence is the newer version of the
+	// file(even if its last modified time went backwards).
+	private final AtomicLong mRequestSequence = new AtomicLong();
+
+	/**
+	 * Identifies the version of the file
+	 */
+	private static class FileKey {
+		final Path path;
+		final long size;
+		final long lastModified;
+
+		FileKey(Path path, long size, long lastModified) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		@Override
+		public int hashCode() {
+			return path.hashCode() * 31 + (int) (size ^ (size >>> 32)) * 17 + (int) (lastModified ^ (lastModified >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof FileKey)) {
+				return false;
+			}
+			FileKey other = (FileKey) obj;
+			return path.equals(other.path) && size == other.size && lastModified == other.lastModified;
+		}
+	}
+
+	private static class CacheEntry {
+		final FileKey key;
+		final long sequence;
+		final ExifInfo exifInfo;
+		final long retainedSize;
+
+		CacheEntry(FileKey key, long sequence, ExifInfo exifInfo, long retainedSize) {
+			this.key = key;
+			this.sequence = sequence;
+			this.exifInfo = exifInfo;
+			this.retainedSize = retainedSize;
+		}
+	}
+
+	public ExifInfoCache() {
+		this(new ExiguousExifReader(), DEFAULT_MAX_ENTRY_COUNT, DEFAULT_MAX_RETAINED_SIZE);
+	}
+
+	/**
+	 * @param exifReader
+	 *            reader of the files not in the cache
+	 * @param maxEntryCount
+	 *            max number of the entries
+	 * @param maxRetainedSize
+	 *            max estimated bytes retained by the entries
+	 */
+	public ExifInfoCache(ExiguousExifReader exifReader, int maxEntryCount, long maxRetainedSize) {
+		if (exifReader == null) {
+			throw new NullPointerException("exifReader is null");
+		}
+		mExifReader = exifReader;
+		mMaxEntryCount = maxEntryCount;
+		mMaxRetainedSize = maxRetainedSize;
+	}
+
+	/**
+	 * Get the EXIF info of specified file from the cache,or read it if not
+	 * in the cache
+	 * 
+	 * @param fileName
+	 * @param exifInfo
+	 *            the values are copied into it.If the file can not be read,
+	 *            ExifInfo#isEnabled() returns false.
+	 */
+	public void read(String fileName, ExifInfo exifInfo) {
+		try {
+			get(Paths.get(fileName)).copyTo(exifInfo);
+		} catch (IOException e) {
+			e.printStackTrace();
+			exifInfo.setEnabled(false);
+		}
+	}
+
+	/**
+	 * Get the EXIF info of specified file from the cache,or read it if not
+	 * in the cache<br>
+	 * The returned object is shared by the callers,do not modify it.
+	 * 
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 *             if the attributes of the file can not be read
+	 */
+	public ExifInfo get(Path path) throws IOException {
+		long sequence = mRequestSequence.incrementAndGet();
+		Path canonicalPath = path.toRealPath();
+		BasicFileAttributes attrs = Files.readAttributes(canonicalPath, BasicFileAttributes.class);
+		FileKey key = new FileKey(canonicalPath, attrs.size(), attrs.lastModifiedTime().toMillis());
+
+		synchronized (mEntries) {
+			CacheEntry entry = mEntries.get(canonicalPath);
+			if (entry != null && entry.key.equals(key)) {
+				mHitCount.incrementAndGet();
+				return entry.exifInfo;
+			}
+		}
+		mMissCount.incrementAndGet();
+
+		CompletableFuture<ExifInfo> load = new CompletableFuture<ExifInfo>();
+		CompletableFuture<ExifInfo> existingLoad = mLoads.putIfAbsent(key, load);
+		if (existingLoad != null) {
+			// another thread is reading the same file
+			return await(existingLoad);
+		}
+
+		try {
+			mLoadCount.incrementAndGet();
+			ExifInfo exifInfo = new ExifInfo();
+			mExifReader.read(canonicalPath.toString(), exifInfo);
+			put(key, sequence, exifInfo);
+			load.complete(exifInfo);
+			return exifInfo;
+		} catch (RuntimeException e) {
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			mLoads.remove(key, load);
+		}
+	}
+
+	private static ExifInfo await(CompletableFuture<ExifInfo> load) {
+		boolean isInterrupted = false;
+		try {
+			for (;;) {
+				try {
+					return load.get();
+				} catch (InterruptedException e) {
+					isInterrupted = true;
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) e.getCause();
+					}
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		} finally {
+			if (isInterrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void put(FileKey key, long sequence, ExifInfo exifInfo) {
+		long retainedSize = exifInfo.estimateRetainedSize();
+		if (retainedSize > mMaxRetainedSize) {
+			// never fits
+			return;
+		}
+
+		synchronized (mEntries) {
+			CacheEntry currentEntry = mEntries.get(key.path);
+			if (currentEntry != null && currentEntry.sequence > sequence) {
+				// newer version of the file is already loaded by another thread
+				return;
+			}
+
+			CacheEntry oldEntry = mEntries.put(key.path, new CacheEntry(key, sequence, exifInfo, retainedSize));
+			if (oldEntry != null) {
+				mRetainedSize -= oldEntry.retainedSize;
+			}
+			mRetainedSize += retainedSize;
+
+			// evict the least recently used entries
+			Iterator<CacheEntry> it = mEntries.values().iterator();
+			while ((mEntries.size() > mMaxEntryCount || mRetainedSize > mMaxRetainedSize) && it.hasNext()) {
+				CacheEntry eldest = it.next();
+				it.remove();
+				mRetainedSize -= eldest.retainedSize;
+				mEvictionCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Remove the entry of the file
+	 * 
+	 * @param path
+	 * @throws IOException
+	 */
+	public void invalidate(Path path) throws IOException {
+		Path canonicalPath = path.toRealPath();
+		synchronized (mEntries) {
+			CacheEntry entry = mEntries.remove(canonicalPath);
+			if (entry != null) {
+				mRetainedSize -= entry.retainedSize;
+			}
+		}
+	}
+
+	/**
+	 * Remove all of the entries
+	 */
+	public void clear() {
+		synchronized (mEntries) {
+			mEntries.clear();
+			mRetainedSize = 0;
+		}
+	}
+
+	/**
+	 * Get the statistics
+	 * 
+	 * @return
+	 */
+	public ExifCacheStats getStats() {
+		int entryCount;
+		long retainedSize;
+		synchronized (mEntries) {
+			entryCount = mEntries.size();
+			retainedSize = mRetainedSize;
+		}
+		return new ExifCacheStats(mHitCount.get(), mMissCount.get(), mLoadCount.get(), mEvictionCount.get(), entryCount, retainedSize);
+	}
+}
@@ -0,0 +1,168 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reference to the MakerNote of the image<br>
+ * <br>
+ * The MakerNote is not decoded when the image is read. It keeps the offset
+ * and the bytes of the MakerNote(ExiguousExifReader copies only the range of
+ * the MakerNote from the image), and the vendor specific IFD is decoded by
+ * the decoder found by the Make(see ExifMakerNoteDecoderRegistry) on the
+ * first call of #decode().
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifMakerNote {
+
+	private final ExifIFDField mField;
+	private final String mMake;
+	private final int mEndianMode;
+
+	private ExifIFDBlock mDecodedIFD;
+	private boolean mIsDecoded;
+
+	/**
+	 * 
+	 * @param field
+	 *            MakerNote field of the Exif IFD
+	 * @param make
+	 *            Make of IFD0(may be null)
+	 * @param endianMode
+	 *            endian of the image (BIG_ENDIAN=0 / LITTLE_ENDIAN=1)
+	 */
+	public ExifMakerNote(ExifIFDField field, String make, int endianMode) {
+		mField = field;
+		mMake = make;
+		mEndianMode = endianMode;
+	}
+
+	/**
+	 * Get the Make of the image
+	 * 
+	 * @return
+	 */
+	public String getMake() {
+		return mMake;
+	}
+
+	/**
+	 * Get the endian of the image
+	 * 
+	 * @return (BIG_ENDIAN=0 / LITTLE_ENDIAN=1)
+	 */
+	public int getEndianMode() {
+		return mEndianMode;
+	}
+
+	/**
+	 * Get the offset of the MakerNote from the TIFF header
+	 * 
+	 * @return
+	 */
+	public long getOffset() {
+		return mField.LongData;
+	}
+
+	/**
+	 * Get the length of the MakerNote in bytes
+	 * 
+	 * @return
+	 */
+	public int getLength() {
+		return mField.getDataLength();
+	}
+
+	/**
+	 * Get the size of the buffer kept alive by this MakerNote
+	 * 
+	 * @return
+	 */
+	long getRetainedSize() {
+		return mField.getRetainedValueSize();
+	}
+
+	/**
+	 * Get the read-only view of the MakerNote without copying it again
+	 * 
+	 * @return
+	 */
+	public ByteBuffer getBuffer() {
+		return mField.getDataBuffer();
+	}
+
+	/**
+	 * Get the bytes of the MakerNote<br>
+	 * The array is newly created on each call.
+	 * 
+	 * @return
+	 */
+	public int[] getData() {
+		return mField.getData();
+	}
+
+	/**
+	 * Decode the IFD of the MakerNote by the decoder of the Make.<br>
+	 * It is decoded only once and the result is reused.
+	 * 
+	 * @return null if there is no decoder for the Make or it is not decodable
+	 */
+	public synchronized ExifIFDBlock decode() {
+		if (!mIsDecoded) {
+			mIsDecoded = true;
+			ExifMakerNoteDecoder decoder = ExifMakerNoteDecoderRegistry.find(mMake);
+			if (decoder != null) {
+				try {
+					mDecodedIFD = decoder.decode(this);
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return mDecodedIFD;
+	}
+
+	/**
+	 * Get the field of the MakerNote(decodes it if not yet)
+	 * 
+	 * @param tag
+	 *            vendor specific tag code
+	 * @return null if not found
+	 */
+	public ExifIFDField getField(int tag) {
+		ExifIFDBlock ifd = decode();
+		if (ifd == null) {
+			return null;
+		}
+		return ifd.getField(tag);
+	}
+
+	@Override
+	public String toString() {
+		return "ExifMakerNote [make=" + mMake + ", offset=" + getOffset() + ", length=" + getLength() + "]";
+	}
+}
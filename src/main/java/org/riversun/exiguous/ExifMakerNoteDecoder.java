@@ -0,0 +1,53 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+/**
+ * Decoder of the vendor specific MakerNote<br>
+ * <br>
+ * The implementation is registered by ExifMakerNoteDecoderRegistry#register
+ * or java.util.ServiceLoader(META-INF/services/org.riversun.exiguous.ExifMakerNoteDecoder).
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public interface ExifMakerNoteDecoder {
+
+	/**
+	 * Returns true if this decoder decodes the MakerNote of the Make
+	 * 
+	 * @param make
+	 *            Make of IFD0
+	 * @return
+	 */
+	public boolean isSupported(String make);
+
+	/**
+	 * Decode the IFD of the MakerNote
+	 * 
+	 * @param makerNote
+	 * @return null if it is not decodable
+	 */
+	public ExifIFDBlock decode(ExifMakerNote makerNote);
+}
@@ -0,0 +1,124 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of the MakerNote decoders<br>
+ * <br>
+ * The decoder for the Make is searched in the order of,<br>
+ * 1.the decoders registered by #register (the last registered first)<br>
+ * 2.the decoders provided by java.util.ServiceLoader<br>
+ * 3.the built-in decoders(Canon, Nikon, Sony, Olympus, Fujifilm, Panasonic)
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifMakerNoteDecoderRegistry {
+
+	private static final List<ExifMakerNoteDecoder> sRegisteredDecoders = new CopyOnWriteArrayList<ExifMakerNoteDecoder>();
+
+	private static volatile List<ExifMakerNoteDecoder> sServiceDecoders;
+
+	private ExifMakerNoteDecoderRegistry() {
+	}
+
+	/**
+	 * Register the decoder.It takes priority over the decoders registered
+	 * before and the built-in decoders.
+	 * 
+	 * @param decoder
+	 */
+	public static void register(ExifMakerNoteDecoder decoder) {
+		if (decoder == null) {
+			throw new NullPointerException("decoder is null");
+		}
+		sRegisteredDecoders.add(0, decoder);
+	}
+
+	/**
+	 * Unregister the decoder registered by #register
+	 * 
+	 * @param decoder
+	 * @return
+	 */
+	public static boolean unregister(ExifMakerNoteDecoder decoder) {
+		return sRegisteredDecoders.remove(decoder);
+	}
+
+	/**
+	 * Find the decoder of the Make
+	 * 
+	 * @param make
+	 *            Make of IFD0
+	 * @return null if not found
+	 */
+	public static ExifMakerNoteDecoder find(String make) {
+		if (make == null) {
+			return null;
+		}
+
+		for (ExifMakerNoteDecoder decoder : sRegisteredDecoders) {
+			if (decoder.isSupported(make)) {
+				return decoder;
+			}
+		}
+
+		for (ExifMakerNoteDecoder decoder : getServiceDecoders()) {
+			if (decoder.isSupported(make)) {
+				return decoder;
+			}
+		}
+
+		for (ExifMakerNoteDecoder decoder : ExifVendorMakerNoteDecoder.values()) {
+			if (decoder.isSupported(make)) {
+				return decoder;
+			}
+		}
+		return null;
+	}
+
+	private static List<ExifMakerNoteDecoder> getServiceDecoders() {
+		List<ExifMakerNoteDecoder> decoders = sServiceDecoders;
+		if (decoders == null) {
+			decoders = new ArrayList<ExifMakerNoteDecoder>();
+			try {
+				Iterator<ExifMakerNoteDecoder> it = ServiceLoader.load(ExifMakerNoteDecoder.class).iterator();
+				while (it.hasNext()) {
+					decoders.add(it.next());
+				}
+			} catch (ServiceConfigurationError e) {
+				e.printStackTrace();
+			}
+			sServiceDecoders = decoders;
+		}
+		return decoders;
+	}
+}
@@ -0,0 +1,117 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Data source of the file mapped on memory by FileChannel#map<br>
+ * The segments are returned as views of the mapping, so the bytes are read
+ * straight from the page cache without copying.<br>
+ * The mapping is released when the source is closed. Any view returned by
+ * this source must not be used after closing(the decoder copies the segment
+ * which the fields refer to heap before closing).
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+class ExifMappedFileDataSource extends ExifByteBufferDataSource {
+
+	private final RandomAccessFile m_TargetRAFile;
+	private MappedByteBuffer m_MappedBuffer;
+
+	private ExifMappedFileDataSource(RandomAccessFile targetRAFile, MappedByteBuffer mappedBuffer) {
+		super(mappedBuffer);
+		m_TargetRAFile = targetRAFile;
+		m_MappedBuffer = mappedBuffer;
+	}
+
+	static ExifMappedFileDataSource open(String fileName) throws IOException {
+		RandomAccessFile raFile = new RandomAccessFile(fileName, "r");
+		try {
+			FileChannel channel = raFile.getChannel();
+			MappedByteBuffer mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new ExifMappedFileDataSource(raFile, mappedBuffer);
+		} catch (IOException e) {
+			raFile.close();
+			throw e;
+		}
+	}
+
+	@Override
+	boolean isSegmentViewValidAfterClose() {
+		return false;
+	}
+
+	@Override
+	void close() throws IOException {
+		if (m_MappedBuffer != null) {
+			unmap(m_MappedBuffer);
+			m_MappedBuffer = null;
+		}
+		m_TargetRAFile.close();
+	}
+
+	/**
+	 * Release the mapping without waiting for GC.<br>
+	 * There is no public API to do it, so the cleaner of the JDK is called
+	 * reflectively.If it is not available, the mapping is released by GC as
+	 * usual.
+	 * 
+	 * @param buffer
+	 */
+	private static void unmap(ByteBuffer buffer) {
+		try {
+			// Java 9 or later
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafeField = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafeField.setAccessible(true);
+			Method invokeCleanerMethod = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			invokeCleanerMethod.invoke(theUnsafeField.get(null), buffer);
+			return;
+		} catch (Exception e) {
+			// fall through
+		}
+
+		try {
+			// Java 8 or earlier
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+				Method cleanMethod = cleaner.getClass().getMethod("clean");
+				cleanMethod.setAccessible(true);
+				cleanMethod.invoke(cleaner);
+			}
+		} catch (Exception e) {
+			// leave it to GC
+		}
+	}
+}
@@ -0,0 +1,219 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight accessor of the records of ExifRecordStore<br>
+ * One accessor reads any record by #moveTo(long) or #next() without
+ * creating objects(except #getPath() and the copy to ExifInfo).
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public final class ExifRecord {
+
+	private final ExifRecordStore mStore;
+
+	private long mIndex = -1;
+	private ByteBuffer mChunk;
+	private int mOffset;
+
+	ExifRecord(ExifRecordStore store) {
+		mStore = store;
+	}
+
+	/**
+	 * Move to the record
+	 * 
+	 * @param index
+	 */
+	public void moveTo(long index) {
+		if (index < 0 || index >= mStore.size()) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + mStore.size());
+		}
+		mIndex = index;
+		mChunk = mStore.getRecordChunk(index);
+		mOffset = mStore.getRecordOffset(index);
+	}
+
+	/**
+	 * Move to the next record
+	 * 
+	 * @return false if there is no more record
+	 */
+	public boolean next() {
+		if (mIndex + 1 >= mStore.size()) {
+			return false;
+		}
+		moveTo(mIndex + 1);
+		return true;
+	}
+
+	/**
+	 * Get the index of the current record
+	 * 
+	 * @return
+	 */
+	public long getIndex() {
+		return mIndex;
+	}
+
+	/**
+	 * Get the path of the file(a new String is created)
+	 * 
+	 * @return
+	 */
+	public String getPath() {
+		return mStore.readString(chunk().getLong(mOffset + ExifRecordStore.PATH_OFFSET), mChunk.getInt(mOffset + ExifRecordStore.PATH_LENGTH));
+	}
+
+	public boolean isEnabled() {
+		return (chunk().getInt(mOffset + ExifRecordStore.FLAGS) & ExifRecordStore.FLAG_ENABLED) != 0;
+	}
+
+	/**
+	 * Get the id of the maker in the dictionary of the store
+	 * 
+	 * @return id,or ExifInfoBatch.NULL_ID if the maker is null
+	 */
+	public int getMakerId() {
+		return chunk().getInt(mOffset + ExifRecordStore.MAKER_ID);
+	}
+
+	public String getMaker() {
+		return mStore.mMakers.get(getMakerId());
+	}
+
+	/**
+	 * Get the id of the model in the dictionary of the store
+	 * 
+	 * @return id,or ExifInfoBatch.NULL_ID if the model is null
+	 */
+	public int getModelId() {
+		return chunk().getInt(mOffset + ExifRecordStore.MODEL_ID);
+	}
+
+	public String getModel() {
+		return mStore.mModels.get(getModelId());
+	}
+
+	/**
+	 * Get DateTime as epoch millis(treated as UTC)
+	 * 
+	 * @return epoch millis,or ExifInfoBatch.NO_DATE_TIME
+	 */
+	public long getDateTimeMillis() {
+		return chunk().getLong(mOffset + ExifRecordStore.DATE_TIME);
+	}
+
+	public float getExposureTime() {
+		return chunk().getFloat(mOffset + ExifRecordStore.EXPOSURE_TIME);
+	}
+
+	public float getFValue() {
+		return chunk().getFloat(mOffset + ExifRecordStore.F_VALUE);
+	}
+
+	public int getImageWidth() {
+		return chunk().getInt(mOffset + ExifRecordStore.IMAGE_WIDTH);
+	}
+
+	public int getImageHeight() {
+		return chunk().getInt(mOffset + ExifRecordStore.IMAGE_HEIGHT);
+	}
+
+	/**
+	 * Returns true if the file has GPS IFD
+	 * 
+	 * @return
+	 */
+	public boolean hasGps() {
+		return chunk().getInt(mOffset + ExifRecordStore.GPS_IFD_VERSION_ID) != ExifStringDictionary.NULL_ID;
+	}
+
+	public double getGpsLatitude() {
+		return chunk().getDouble(mOffset + ExifRecordStore.GPS_LATITUDE);
+	}
+
+	public double getGpsLongitude() {
+		return chunk().getDouble(mOffset + ExifRecordStore.GPS_LONGITUDE);
+	}
+
+	/**
+	 * Get GPSLatitudeRef
+	 * 
+	 * @return 'N' or 'S',or '\0' if not set
+	 */
+	public char getGpsLatitudeRef() {
+		return chunk().getChar(mOffset + ExifRecordStore.GPS_LATITUDE_REF);
+	}
+
+	/**
+	 * Get GPSLongitudeRef
+	 * 
+	 * @return 'E' or 'W',or '\0' if not set
+	 */
+	public char getGpsLongitudeRef() {
+		return chunk().getChar(mOffset + ExifRecordStore.GPS_LONGITUDE_REF);
+	}
+
+	public float getGpsImageDirection() {
+		return chunk().getFloat(mOffset + ExifRecordStore.GPS_IMAGE_DIRECTION);
+	}
+
+	/**
+	 * Set the values of the record into the ExifInfo
+	 * 
+	 * @param exifInfo
+	 */
+	public void copyTo(ExifInfo exifInfo) {
+		ByteBuffer chunk = chunk();
+		exifInfo.setEnabled(isEnabled());
+		exifInfo.setMaker(getMaker());
+		exifInfo.setModel(getModel());
+		exifInfo.setDateTime(ExifInfoBatch.toDateTime(getDateTimeMillis()));
+		exifInfo.setXResolution(mStore.mResolutions.get(chunk.getInt(mOffset + ExifRecordStore.X_RESOLUTION_ID)));
+		exifInfo.setYResolution(mStore.mResolutions.get(chunk.getInt(mOffset + ExifRecordStore.Y_RESOLUTION_ID)));
+		exifInfo.setExifVersion(mStore.mVersions.get(chunk.getInt(mOffset + ExifRecordStore.EXIF_VERSION_ID)));
+		exifInfo.setExposureTime(getExposureTime());
+		exifInfo.setFValue(getFValue());
+		exifInfo.setImageWidth(getImageWidth());
+		exifInfo.setImageHeight(getImageHeight());
+		exifInfo.setGpsIFDVersion(mStore.mVersions.get(chunk.getInt(mOffset + ExifRecordStore.GPS_IFD_VERSION_ID)));
+		exifInfo.setGpsLatitude(getGpsLatitude());
+		exifInfo.setGpsLongitude(getGpsLongitude());
+		exifInfo.setGpsLatitudeRef(ExifInfoBatch.fromRef(getGpsLatitudeRef()));
+		exifInfo.setGpsLongitudeRef(ExifInfoBatch.fromRef(getGpsLongitudeRef()));
+		exifInfo.setGpsImageDirection(getGpsImageDirection());
+	}
+
+	private ByteBuffer chunk() {
+		if (mChunk == null) {
+			throw new IllegalStateException("The record is not selected. Call #next() or #moveTo(long) first");
+		}
+		return mChunk;
+	}
+}
@@ -0,0 +1,384 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Store of the EXIF info of many files out of the java heap<br>
+ * <br>
+ * Each file is stored as a fixed length record in the direct buffers or in
+ * the memory mapped scratch file.The memory is allocated by the chunk of the
+ * records,so the heap used by the store does not grow with the number of the
+ * files(except the dictionaries of the strings which have a few kinds of
+ * values like ExifInfoBatch).The paths are stored in the string area out of
+ * the heap as well.<br>
+ * Read the records by the flyweight ExifRecord.<br>
+ * <br>
+ * [Record]<br>
+ * offset of the path 8byte,length of the path 4byte,flags 4byte,ids of
+ * maker,model,XResolution,YResolution,ExifVersion and GPS IFD version 4byte
+ * each,DateTime(epoch millis) 8byte,ExposureTime 4byte,FValue 4byte,width
+ * 4byte,height 4byte,latitude 8byte,longitude 8byte,GPSImgDirection
+ * 4byte,GPSLatitudeRef 2byte,GPSLongitudeRef 2byte<br>
+ * <br>
+ * It is not thread-safe while appending.After all of the records are
+ * appended,the records can be read from multiple threads(each thread with
+ * its own ExifRecord).
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifRecordStore implements Closeable {
+
+	public static final int DEFAULT_RECORDS_PER_CHUNK = 65536;
+
+	// Layout of the record
+	static final int PATH_OFFSET = 0;
+	static final int PATH_LENGTH = 8;
+	static final int FLAGS = 12;
+	static final int MAKER_ID = 16;
+	static final int MODEL_ID = 20;
+	static final int X_RESOLUTION_ID = 24;
+	static final int Y_RESOLUTION_ID = 28;
+	static final int EXIF_VERSION_ID = 32;
+	static final int GPS_IFD_VERSION_ID = 36;
+	static final int DATE_TIME = 40;
+	static final int EXPOSURE_TIME = 48;
+	static final int F_VALUE = 52;
+	static final int IMAGE_WIDTH = 56;
+	static final int IMAGE_HEIGHT = 60;
+	static final int GPS_LATITUDE = 64;
+	static final int GPS_LONGITUDE = 72;
+	static final int GPS_IMAGE_DIRECTION = 80;
+	static final int GPS_LATITUDE_REF = 84;
+	static final int GPS_LONGITUDE_REF = 86;
+	static final int RECORD_SIZE = 88;
+
+	static final int FLAG_ENABLED = 1;
+
+	// Size of the chunk of the string area.A path never spans the chunks.
+	private static final int STRING_CHUNK_SIZE = 1024 * 1024;
+
+	// null for the direct buffers
+	private final Path mScratchFile;
+	private final FileChannel mScratchChannel;
+	private long mScratchFileSize = 0;
+
+	private final int mRecordsPerChunk;
+	private final List<ByteBuffer> mRecordChunks = new ArrayList<ByteBuffer>();
+	private final List<ByteBuffer> mStringChunks = new ArrayList<ByteBuffer>();
+	private int mStringChunkPosition = STRING_CHUNK_SIZE;
+
+	private long mSize = 0;
+
+	final ExifStringDictionary mMakers = new ExifStringDictionary();
+	final ExifStringDictionary mModels = new ExifStringDictionary();
+	final ExifStringDictionary mResolutions = new ExifStringDictionary();
+	final ExifStringDictionary mVersions = new ExifStringDictionary();
+
+	private ExifRecordStore(Path scratchFile, FileChannel scratchChannel, int recordsPerChunk) {
+		if (recordsPerChunk < 1 || (long) recordsPerChunk * RECORD_SIZE > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("recordsPerChunk is out of range. recordsPerChunk=" + recordsPerChunk);
+		}
+		mScratchFile = scratchFile;
+		mScratchChannel = scratchChannel;
+		mRecordsPerChunk = recordsPerChunk;
+	}
+
+	/**
+	 * Create the store on the direct buffers
+	 * 
+	 * @return
+	 */
+	public static ExifRecordStore allocateDirect() {
+		return allocateDirect(DEFAULT_RECORDS_PER_CHUNK);
+	}
+
+	/**
+	 * Create the store on the direct buffers
+	 * 
+	 * @param recordsPerChunk
+	 *            number of the records allocated at once
+	 * @return
+	 */
+	public static ExifRecordStore allocateDirect(int recordsPerChunk) {
+		return new ExifRecordStore(null, null, recordsPerChunk);
+	}
+
+	/**
+	 * Create the store on the memory mapped scratch file<br>
+	 * The file is created(or truncated),and it is deleted on #close().
+	 * 
+	 * @param scratchFile
+	 * @return
+	 * @throws IOException
+	 */
+	public static ExifRecordStore mapScratchFile(Path scratchFile) throws IOException {
+		return mapScratchFile(scratchFile, DEFAULT_RECORDS_PER_CHUNK);
+	}
+
+	/**
+	 * Create the store on the memory mapped scratch file<br>
+	 * The file is created(or truncated),and it is deleted on #close().
+	 * 
+	 * @param scratchFile
+	 * @param recordsPerChunk
+	 *            number of the records mapped at once
+	 * @return
+	 * @throws IOException
+	 */
+	public static ExifRecordStore mapScratchFile(Path scratchFile, int recordsPerChunk) throws IOException {
+		FileChannel channel = FileChannel.open(scratchFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		return new ExifRecordStore(scratchFile, channel, recordsPerChunk);
+	}
+
+	/**
+	 * Append the EXIF info of the file
+	 * 
+	 * @param path
+	 *            path of the file(can be null)
+	 * @param exifInfo
+	 * @return index of the record
+	 * @throws IOException
+	 *             if the scratch file can not be extended
+	 */
+	public long append(Path path, ExifInfo exifInfo) throws IOException {
+		int chunkIndex = (int) (mSize / mRecordsPerChunk);
+		if (chunkIndex == mRecordChunks.size()) {
+			mRecordChunks.add(allocateChunk(mRecordsPerChunk * RECORD_SIZE));
+		}
+		ByteBuffer chunk = mRecordChunks.get(chunkIndex);
+		int offset = (int) (mSize % mRecordsPerChunk) * RECORD_SIZE;
+
+		long pathOffset = -1;
+		int pathLength = 0;
+		if (path != null) {
+			byte[] pathBytes = path.toString().getBytes(StandardCharsets.UTF_8);
+			pathLength = pathBytes.length;
+			pathOffset = appendString(pathBytes);
+		}
+		chunk.putLong(offset + PATH_OFFSET, pathOffset);
+		chunk.putInt(offset + PATH_LENGTH, pathLength);
+		chunk.putInt(offset + FLAGS, exifInfo.isEnabled() ? FLAG_ENABLED : 0);
+
+		chunk.putInt(offset + MAKER_ID, mMakers.getOrAddId(exifInfo.getMaker()));
+		chunk.putInt(offset + MODEL_ID, mModels.getOrAddId(exifInfo.getModel()));
+		chunk.putInt(offset + X_RESOLUTION_ID, mResolutions.getOrAddId(exifInfo.getXResolution()));
+		chunk.putInt(offset + Y_RESOLUTION_ID, mResolutions.getOrAddId(exifInfo.getYResolution()));
+		chunk.putInt(offset + EXIF_VERSION_ID, mVersions.getOrAddId(exifInfo.getExifVersion()));
+		chunk.putInt(offset + GPS_IFD_VERSION_ID, mVersions.getOrAddId(exifInfo.getGpsIFDVersion()));
+
+		chunk.putLong(offset + DATE_TIME, ExifInfoBatch.toEpochMillis(exifInfo.getDateTime()));
+		chunk.putFloat(offset + EXPOSURE_TIME, exifInfo.getExposureTime());
+		chunk.putFloat(offset + F_VALUE, exifInfo.getFValue());
+		chunk.putInt(offset + IMAGE_WIDTH, exifInfo.getImageWidth());
+		chunk.putInt(offset + IMAGE_HEIGHT, exifInfo.getImageHeight());
+
+		chunk.putDouble(offset + GPS_LATITUDE, exifInfo.getGpsLatitude());
+		chunk.putDouble(offset + GPS_LONGITUDE, exifInfo.getGpsLongitude());
+		chunk.putFloat(offset + GPS_IMAGE_DIRECTION, exifInfo.getGpsImageDirection());
+		chunk.putChar(offset + GPS_LATITUDE_REF, ExifInfoBatch.toRef(exifInfo.getGpsLatitudeRef()));
+		chunk.putChar(offset + GPS_LONGITUDE_REF, ExifInfoBatch.toRef(exifInfo.getGpsLongitudeRef()));
+
+		return mSize++;
+	}
+
+	/**
+	 * Get the number of the records
+	 * 
+	 * @return
+	 */
+	public long size() {
+		return mSize;
+	}
+
+	/**
+	 * Get the bytes allocated out of the heap
+	 * 
+	 * @return
+	 */
+	public long getAllocatedSize() {
+		return (long) mRecordChunks.size() * mRecordsPerChunk * RECORD_SIZE + (long) mStringChunks.size() * STRING_CHUNK_SIZE;
+	}
+
+	/**
+	 * Create a flyweight accessor of the records.It is before the first
+	 * record.
+	 * 
+	 * @return
+	 */
+	public ExifRecord newRecord() {
+		return new ExifRecord(this);
+	}
+
+	/**
+	 * Get the makers in the order of the ids
+	 * 
+	 * @return
+	 */
+	public List<String> getMakerDictionary() {
+		return mMakers.values();
+	}
+
+	/**
+	 * Get the models in the order of the ids
+	 * 
+	 * @return
+	 */
+	public List<String> getModelDictionary() {
+		return mModels.values();
+	}
+
+	/**
+	 * Get the id of the maker to compare with ExifRecord#getMakerId()
+	 * 
+	 * @param maker
+	 * @return id,or ExifInfoBatch.NULL_ID if no record has the maker
+	 */
+	public int findMakerId(String maker) {
+		return mMakers.getId(maker);
+	}
+
+	/**
+	 * Get the id of the model to compare with ExifRecord#getModelId()
+	 * 
+	 * @param model
+	 * @return id,or ExifInfoBatch.NULL_ID if no record has the model
+	 */
+	public int findModelId(String model) {
+		return mModels.getId(model);
+	}
+
+	/**
+	 * Release the chunks.The scratch file is deleted.
+	 */
+	@Override
+	public void close() {
+		mRecordChunks.clear();
+		mStringChunks.clear();
+		mSize = 0;
+
+		if (mScratchChannel != null) {
+			try {
+				mScratchChannel.close();
+				// The mappings are released by GC,so it may fail on some
+				// platforms
+				Files.deleteIfExists(mScratchFile);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Get the chunk which has the record
+	 * 
+	 * @param index
+	 * @return
+	 */
+	ByteBuffer getRecordChunk(long index) {
+		return mRecordChunks.get((int) (index / mRecordsPerChunk));
+	}
+
+	/**
+	 * Get the offset of the record in its chunk
+	 * 
+	 * @param index
+	 * @return
+	 */
+	int getRecordOffset(long index) {
+		return (int) (index % mRecordsPerChunk) * RECORD_SIZE;
+	}
+
+	/**
+	 * Read the string in the string area
+	 * 
+	 * @param stringOffset
+	 * @param length
+	 * @return
+	 */
+	String readString(long stringOffset, int length) {
+		if (stringOffset < 0) {
+			return null;
+		}
+		ByteBuffer chunk = mStringChunks.get((int) (stringOffset / STRING_CHUNK_SIZE)).duplicate();
+		chunk.position((int) (stringOffset % STRING_CHUNK_SIZE));
+		byte[] bytes = new byte[length];
+		chunk.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Append the string into the string area
+	 * 
+	 * @param bytes
+	 * @return offset in the string area
+	 * @throws IOException
+	 */
+	private long appendString(byte[] bytes) throws IOException {
+		if (bytes.length > STRING_CHUNK_SIZE) {
+			throw new IllegalArgumentException("The path is too long. length=" + bytes.length);
+		}
+		if (mStringChunkPosition + bytes.length > STRING_CHUNK_SIZE) {
+			mStringChunks.add(allocateChunk(STRING_CHUNK_SIZE));
+			mStringChunkPosition = 0;
+		}
+		int chunkIndex = mStringChunks.size() - 1;
+		ByteBuffer chunk = mStringChunks.get(chunkIndex).duplicate();
+		chunk.position(mStringChunkPosition);
+		chunk.put(bytes);
+
+		long stringOffset = (long) chunkIndex * STRING_CHUNK_SIZE + mStringChunkPosition;
+		mStringChunkPosition += bytes.length;
+		return stringOffset;
+	}
+
+	/**
+	 * Allocate the chunk out of the heap
+	 * 
+	 * @param size
+	 * @return
+	 * @throws IOException
+	 */
+	private ByteBuffer allocateChunk(int size) throws IOException {
+		if (mScratchChannel == null) {
+			return ByteBuffer.allocateDirect(size);
+		}
+		// The file is extended by mapping beyond its end
+		ByteBuffer chunk = mScratchChannel.map(FileChannel.MapMode.READ_WRITE, mScratchFileSize, size);
+		mScratchFileSize += size;
+		return chunk;
+	}
+}
@@ -0,0 +1,131 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Progress counters of ExifDirectoryScanner<br>
+ * The counters are updated by the threads reading the files and can be read
+ * from any thread while scanning.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifScanProgress {
+
+	private final AtomicLong mFoundCount = new AtomicLong();
+	private final AtomicLong mCompletedCount = new AtomicLong();
+	private final AtomicLong mExifCount = new AtomicLong();
+	private final AtomicLong mErrorCount = new AtomicLong();
+	private final AtomicLong mCallbackErrorCount = new AtomicLong();
+	private final AtomicReference<RuntimeException> mCallbackError = new AtomicReference<RuntimeException>();
+
+	void found() {
+		mFoundCount.incrementAndGet();
+	}
+
+	void completed(ExifBatchResult result) {
+		if (!result.isSucceeded()) {
+			mErrorCount.incrementAndGet();
+		} else if (result.getExifInfo().isEnabled()) {
+			mExifCount.incrementAndGet();
+		}
+		mCompletedCount.incrementAndGet();
+	}
+
+	void callbackFailed(RuntimeException e) {
+		mCallbackError.compareAndSet(null, e);
+		mCallbackErrorCount.incrementAndGet();
+	}
+
+	/**
+	 * Get the number of the files matched to the filter
+	 * 
+	 * @return
+	 */
+	public long getFoundCount() {
+		return mFoundCount.get();
+	}
+
+	/**
+	 * Get the number of the files read(including the errors)
+	 * 
+	 * @return
+	 */
+	public long getCompletedCount() {
+		return mCompletedCount.get();
+	}
+
+	/**
+	 * Get the number of the files which have Exif
+	 * 
+	 * @return
+	 */
+	public long getExifCount() {
+		return mExifCount.get();
+	}
+
+	/**
+	 * Get the number of the files(or directories) which could not be read
+	 * 
+	 * @return
+	 */
+	public long getErrorCount() {
+		return mErrorCount.get();
+	}
+
+	/**
+	 * Get the number of the results which the callback threw an exception for
+	 * 
+	 * @return
+	 */
+	public long getCallbackErrorCount() {
+		return mCallbackErrorCount.get();
+	}
+
+	/**
+	 * Get the first exception thrown by the callback
+	 * 
+	 * @return null if the callback never threw
+	 */
+	public RuntimeException getCallbackError() {
+		return mCallbackError.get();
+	}
+
+	/**
+	 * Get the number of the files found but not read yet
+	 * 
+	 * @return
+	 */
+	public long getPendingCount() {
+		return mFoundCount.get() - mCompletedCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ExifScanProgress [found=" + getFoundCount() + ", completed=" + getCompletedCount() + ", exif=" + getExifCount() + ", error=" + getErrorCount() + ", callbackError=" + getCallbackErrorCount() + "]";
+	}
+}
@@ -0,0 +1,107 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bytes of a segment(usually whole APP1) shared by the fields of the same
+ * image<br>
+ * The fields refer a range of this buffer instead of holding their own copy
+ * of the value.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+final class ExifSegmentBuffer {
+
+	private ByteBuffer m_Buffer;
+
+	ExifSegmentBuffer(ByteBuffer buffer) {
+		m_Buffer = buffer;
+	}
+
+	/**
+	 * Replace the buffer(the holder is reused by the decoder for the buffer
+	 * which nothing refers after decoding)
+	 * 
+	 * @param buffer
+	 */
+	void set(ByteBuffer buffer) {
+		m_Buffer = buffer;
+	}
+
+	/**
+	 * Get 1byte as unsigned value
+	 * 
+	 * @param index
+	 * @return
+	 */
+	int get(int index) {
+		return m_Buffer.get(index) & 0xFF;
+	}
+
+	int limit() {
+		return m_Buffer.limit();
+	}
+
+	/**
+	 * Get the size of the memory kept by this buffer
+	 * 
+	 * @return
+	 */
+	int capacity() {
+		return m_Buffer.capacity();
+	}
+
+	/**
+	 * Get read-only view of the range
+	 * 
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	ByteBuffer slice(int offset, int length) {
+		ByteBuffer view = m_Buffer.asReadOnlyBuffer();
+		view.position(offset);
+		view.limit(offset + length);
+		return view.slice();
+	}
+
+	/**
+	 * Replace the buffer with a copy on heap.<br>
+	 * It is used before the original buffer becomes unavailable(like
+	 * unmapping the memory mapped file).
+	 */
+	void detach() {
+		ByteBuffer src = m_Buffer.duplicate();
+		src.clear();
+
+		ByteBuffer copy = ByteBuffer.allocate(src.remaining());
+		copy.put(src);
+		copy.clear();
+
+		m_Buffer = copy;
+	}
+}
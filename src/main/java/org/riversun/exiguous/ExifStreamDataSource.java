@@ -0,0 +1,179 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Data source of InputStream<br>
+ * The bytes are consumed from the stream only as far as they are requested.
+ * The consumed bytes are kept on memory to be read again, but when a position
+ * ahead of them is requested(when a segment is skipped), they are discarded
+ * and the bytes in between are skipped without buffering.<br>
+ * After the read limit is set(at the end of APP1), nothing is consumed
+ * beyond it. So the image data is never buffered.<br>
+ * The stream is not closed by this class.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+class ExifStreamDataSource extends ExifDataSource {
+
+	private static final int INITIAL_BUFFER_SIZE = 4096;
+
+	// The maximum size which may be buffered at once.
+	// (A segment of JPEG is 64KB at most)
+	private static final int MAX_BUFFER_SIZE = 0x20000;
+
+	private final InputStream m_InputStream;
+
+	private byte[] m_Buffer = new byte[INITIAL_BUFFER_SIZE];
+
+	// position in the image where m_Buffer starts
+	private long m_BufferStart = 0;
+	private int m_BufferedLength = 0;
+
+	private long m_ReadLimit = Long.MAX_VALUE;
+	private boolean m_IsEndOfStream = false;
+
+	ExifStreamDataSource(InputStream inputStream) {
+		m_InputStream = inputStream;
+	}
+
+	@Override
+	int read(long position, byte[] dst, int offset, int length) throws IOException {
+		if (!fill(position, length)) {
+			return -1;
+		}
+
+		int bufPos = (int) (position - m_BufferStart);
+		int readLength = Math.min(length, m_BufferedLength - bufPos);
+		System.arraycopy(m_Buffer, bufPos, dst, offset, readLength);
+		return readLength;
+	}
+
+	@Override
+	ByteBuffer readSegment(long position, int length) throws IOException {
+		if (!fill(position, length)) {
+			return ByteBuffer.allocate(0);
+		}
+
+		int bufPos = (int) (position - m_BufferStart);
+		int readLength = Math.min(length, m_BufferedLength - bufPos);
+
+		// Returns a view of the buffered bytes without copying
+		return ByteBuffer.wrap(m_Buffer, bufPos, readLength).slice();
+	}
+
+	@Override
+	boolean isSequential() {
+		return true;
+	}
+
+	@Override
+	boolean isSegmentViewAvailable() {
+		return true;
+	}
+
+	@Override
+	void setReadLimit(long limit) {
+		m_ReadLimit = limit;
+	}
+
+	/**
+	 * Consume the stream until the specified range is buffered
+	 * 
+	 * @param position
+	 * @param length
+	 * @return false if the position is not available(already discarded or
+	 *         end of the stream)
+	 * @throws IOException
+	 */
+	private boolean fill(long position, int length) throws IOException {
+		if (position < m_BufferStart) {
+			return false;
+		}
+
+		if (position > m_BufferStart + m_BufferedLength) {
+			skipTo(position);
+		}
+
+		long end = Math.min(position + length, m_ReadLimit);
+		int target = (int) Math.min(end - m_BufferStart, MAX_BUFFER_SIZE);
+
+		if (target > m_Buffer.length) {
+			byte[] newBuffer = new byte[Math.min(Math.max(target, m_Buffer.length * 2), MAX_BUFFER_SIZE)];
+			System.arraycopy(m_Buffer, 0, newBuffer, 0, m_BufferedLength);
+			m_Buffer = newBuffer;
+		}
+
+		while (m_BufferedLength < target && !m_IsEndOfStream) {
+			int count = m_InputStream.read(m_Buffer, m_BufferedLength, target - m_BufferedLength);
+			if (count < 0) {
+				m_IsEndOfStream = true;
+			} else {
+				m_BufferedLength += count;
+			}
+		}
+
+		return position < m_BufferStart + m_BufferedLength;
+	}
+
+	/**
+	 * Discard the buffered bytes and skip the stream to the position
+	 * 
+	 * @param position
+	 * @throws IOException
+	 */
+	private void skipTo(long position) throws IOException {
+		long skipLength = Math.min(position, m_ReadLimit) - (m_BufferStart + m_BufferedLength);
+
+		// Views of the old buffer may be still in use, so it is not reused
+		m_Buffer = new byte[INITIAL_BUFFER_SIZE];
+		m_BufferStart += m_BufferedLength;
+		m_BufferedLength = 0;
+
+		while (skipLength > 0 && !m_IsEndOfStream) {
+			long count = m_InputStream.skip(skipLength);
+			if (count <= 0) {
+				// skip() may return 0 before the end, confirm by read()
+				if (m_InputStream.read() < 0) {
+					m_IsEndOfStream = true;
+					break;
+				}
+				count = 1;
+			}
+			skipLength -= count;
+			m_BufferStart += count;
+		}
+
+		if (m_BufferStart + m_BufferedLength < position) {
+			// The position is beyond the end(or the read limit),
+			// keep nothing
+			m_BufferStart = position;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Strings of a column and their ids<br>
+ * The ids are given in the order of addition from 0.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+final class ExifStringDictionary {
+
+	/**
+	 * Id of null
+	 */
+	static final int NULL_ID = -1;
+
+	private final List<String> mValues = new ArrayList<String>();
+	private final Map<String, Integer> mIds = new HashMap<String, Integer>();
+
+	/**
+	 * Get the id of the string,the new string is added
+	 * 
+	 * @param value
+	 * @return id,or NULL_ID for null
+	 */
+	int getOrAddId(String value) {
+		if (value == null) {
+			return NULL_ID;
+		}
+		Integer id = mIds.get(value);
+		if (id == null) {
+			id = mValues.size();
+			mValues.add(value);
+			mIds.put(value, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Get the id of the string
+	 * 
+	 * @param value
+	 * @return id,or NULL_ID if the string is not added
+	 */
+	int getId(String value) {
+		Integer id = value == null ? null : mIds.get(value);
+		return id == null ? NULL_ID : id;
+	}
+
+	String get(int id) {
+		return id == NULL_ID ? null : mValues.get(id);
+	}
+
+	List<String> values() {
+		return Collections.unmodifiableList(mValues);
+	}
+}
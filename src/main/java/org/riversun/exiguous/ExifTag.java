@@ -0,0 +1,405 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import static org.riversun.exiguous.ExifIFDKind.EXIF;
+import static org.riversun.exiguous.ExifIFDKind.GPS;
+import static org.riversun.exiguous.ExifIFDKind.IFD0;
+import static org.riversun.exiguous.ExifIFDKind.INTEROPERABILITY;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tag definitions of TIFF/Exif 2.32/GPS<br>
+ * Tags are keyed by the kind of the IFD and the tag code,because the same tag
+ * code means the different tag in the different IFD (e.g. 0x0001 of GPS IFD
+ * and Interoperability IFD).<br>
+ * The lookup tables are built once in the class initialization and never
+ * modified,so that they can be shared between threads.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public enum ExifTag {
+
+	// TIFF tags (IFD0,IFD1)
+	NEW_SUBFILE_TYPE(IFD0, 0x00fe, "NewSubfileType"),
+	SUBFILE_TYPE(IFD0, 0x00ff, "SubfileType"),
+	IMAGE_WIDTH(IFD0, 0x0100, "ImageWidth"),
+	IMAGE_LENGTH(IFD0, 0x0101, "ImageLength"),
+	BITS_PER_SAMPLE(IFD0, 0x0102, "BitsPerSample"),
+	COMPRESSION(IFD0, 0x0103, "Compression"),
+	PHOTOMETRIC_INTERPRETATION(IFD0, 0x0106, "PhotometricInterpretation"),
+	THRESHHOLDING(IFD0, 0x0107, "Threshholding"),
+	CELL_WIDTH(IFD0, 0x0108, "CellWidth"),
+	CELL_LENGTH(IFD0, 0x0109, "CellLength"),
+	FILL_ORDER(IFD0, 0x010a, "FillOrder"),
+	DOCUMENT_NAME(IFD0, 0x010d, "DocumentName"),
+	IMAGE_DESCRIPTION(IFD0, 0x010e, "ImageDescription"),
+	MAKE(IFD0, 0x010f, "Make"),
+	MODEL(IFD0, 0x0110, "Model"),
+	STRIP_OFFSETS(IFD0, 0x0111, "StripOffsets"),
+	ORIENTATION(IFD0, 0x0112, "Orientation"),
+	SAMPLES_PER_PIXEL(IFD0, 0x0115, "SamplesPerPixel"),
+	ROWS_PER_STRIP(IFD0, 0x0116, "RowsPerStrip"),
+	STRIP_BYTE_COUNTS(IFD0, 0x0117, "StripByteCounts", "StripByteConunts"),
+	MIN_SAMPLE_VALUE(IFD0, 0x0118, "MinSampleValue"),
+	MAX_SAMPLE_VALUE(IFD0, 0x0119, "MaxSampleValue"),
+	X_RESOLUTION(IFD0, 0x011a, "XResolution"),
+	Y_RESOLUTION(IFD0, 0x011b, "YResolution"),
+	PLANAR_CONFIGURATION(IFD0, 0x011c, "PlanarConfiguration"),
+	PAGE_NAME(IFD0, 0x011d, "PageName"),
+	X_POSITION(IFD0, 0x011e, "XPosition"),
+	Y_POSITION(IFD0, 0x011f, "YPosition"),
+	GRAY_RESPONSE_UNIT(IFD0, 0x0122, "GrayResponseUnit"),
+	GRAY_RESPONSE_CURVE(IFD0, 0x0123, "GrayResponseCurve"),
+	RESOLUTION_UNIT(IFD0, 0x0128, "ResolutionUnit"),
+	PAGE_NUMBER(IFD0, 0x0129, "PageNumber"),
+	TRANSFER_FUNCTION(IFD0, 0x012d, "TransferFunction"),
+	SOFTWARE(IFD0, 0x0131, "Software"),
+	DATE_TIME(IFD0, 0x0132, "DateTime"),
+	ARTIST(IFD0, 0x013b, "Artist"),
+	HOST_COMPUTER(IFD0, 0x013c, "HostComputer"),
+	PREDICTOR(IFD0, 0x013d, "Predictor"),
+	WHITE_POINT(IFD0, 0x013e, "WhitePoint"),
+	PRIMARY_CHROMATICITIES(IFD0, 0x013f, "PrimaryChromaticities"),
+	COLOR_MAP(IFD0, 0x0140, "ColorMap"),
+	HALFTONE_HINTS(IFD0, 0x0141, "HalftoneHints"),
+	TILE_WIDTH(IFD0, 0x0142, "TileWidth"),
+	TILE_LENGTH(IFD0, 0x0143, "TileLength"),
+	TILE_OFFSETS(IFD0, 0x0144, "TileOffsets"),
+	TILE_BYTE_COUNTS(IFD0, 0x0145, "TileByteCounts"),
+	SUB_IFDS(IFD0, 0x014a, "SubIFDs"),
+	JPEG_TABLES(IFD0, 0x015b, "JPEGTables"),
+	JPEG_INTERCHANGE_FORMAT(IFD0, 0x0201, "JpegInterchangeFormat", "JPEGInterchangeFormat"),
+	JPEG_INTERCHANGE_FORMAT_LENGTH(IFD0, 0x0202, "JpegInterchangeFormatLength", "JPEGInterchangeFormatLength"),
+	Y_CB_CR_COEFFICIENTS(IFD0, 0x0211, "YCbCrCoefficients"),
+	Y_CB_CR_SUB_SAMPLING(IFD0, 0x0212, "YCbCrSubSampling"),
+	Y_CB_CR_POSITIONING(IFD0, 0x0213, "YCbCrPositioning"),
+	REFERENCE_BLACK_WHITE(IFD0, 0x0214, "ReferenceBlackWhite"),
+	XML_PACKET(IFD0, 0x02bc, "XMLPacket"),
+	RATING(IFD0, 0x4746, "Rating"),
+	RATING_PERCENT(IFD0, 0x4749, "RatingPercent"),
+	CFA_REPEAT_PATTERN_DIM(IFD0, 0x828d, "CFARepeatPatternDim"),
+	TIFF_EP_CFA_PATTERN(IFD0, 0x828e, "CFAPattern"),
+	BATTERY_LEVEL(IFD0, 0x828f, "BatteryLevel"),
+	COPYRIGHT(IFD0, 0x8298, "Copyright"),
+	IPTC_NAA(IFD0, 0x83bb, "IPTC/NAA"),
+	IMAGE_RESOURCES(IFD0, 0x8649, "ImageResources"),
+	EXIF_IFD_POINTER(IFD0, 0x8769, "ExifIFDPointer"),
+	INTER_COLOR_PROFILE(IFD0, 0x8773, "InterColorProfile"),
+	GPS_INFO(IFD0, 0x8825, "GPSInfo", "GPSInfoIFDPointer"),
+	INTERLACE(IFD0, 0x8829, "Interlace"),
+	TIME_ZONE_OFFSET(IFD0, 0x882a, "TimeZoneOffset"),
+	SELF_TIMER_MODE(IFD0, 0x882b, "SelfTimerMode"),
+	TIFF_EP_FLASH_ENERGY(IFD0, 0x920b, "FlashEnergy"),
+	TIFF_EP_SPATIAL_FREQUENCY_RESPONSE(IFD0, 0x920c, "SpatialFrequencyResponse"),
+	NOISE(IFD0, 0x920d, "Noise"),
+	IMAGE_NUMBER(IFD0, 0x9211, "ImageNumber"),
+	SECURITY_CLASSIFICATION(IFD0, 0x9212, "SecurityClassification"),
+	IMAGE_HISTORY(IFD0, 0x9213, "ImageHistory"),
+	TIFF_EP_SUBJECT_LOCATION(IFD0, 0x9214, "SubjectLocation"),
+	TIFF_EP_EXPOSURE_INDEX(IFD0, 0x9215, "ExposureIndex"),
+	TIFF_EP_STANDARD_ID(IFD0, 0x9216, "TIFF/EPStandardID"),
+	XP_TITLE(IFD0, 0x9c9b, "XPTitle"),
+	XP_COMMENT(IFD0, 0x9c9c, "XPComment"),
+	XP_AUTHOR(IFD0, 0x9c9d, "XPAuthor"),
+	XP_KEYWORDS(IFD0, 0x9c9e, "XPKeywords"),
+	XP_SUBJECT(IFD0, 0x9c9f, "XPSubject"),
+	PRINT_IM(IFD0, 0xc4a5, "PrintIM"),
+
+	// Exif IFD tags
+	EXPOSURE_TIME(EXIF, 0x829a, "ExposureTime"),
+	F_NUMBER(EXIF, 0x829d, "FNumber"),
+	EXPOSURE_PROGRAM(EXIF, 0x8822, "ExposureProgram"),
+	SPECTRAL_SENSITIVITY(EXIF, 0x8824, "SpectralSensitivity"),
+	ISO_SPEED_RATINGS(EXIF, 0x8827, "ISOSpeedRatings", "PhotographicSensitivity"),
+	OECF(EXIF, 0x8828, "OECF"),
+	SENSITIVITY_TYPE(EXIF, 0x8830, "SensitivityType"),
+	STANDARD_OUTPUT_SENSITIVITY(EXIF, 0x8831, "StandardOutputSensitivity"),
+	RECOMMENDED_EXPOSURE_INDEX(EXIF, 0x8832, "RecommendedExposureIndex"),
+	ISO_SPEED(EXIF, 0x8833, "ISOSpeed"),
+	ISO_SPEED_LATITUDE_YYY(EXIF, 0x8834, "ISOSpeedLatitudeyyy"),
+	ISO_SPEED_LATITUDE_ZZZ(EXIF, 0x8835, "ISOSpeedLatitudezzz"),
+	EXIF_VERSION(EXIF, 0x9000, "ExifVersion"),
+	DATE_TIME_ORIGINAL(EXIF, 0x9003, "DateTimeOriginal"),
+	DATE_TIME_DIGITIZED(EXIF, 0x9004, "DateTimeDigitized"),
+	OFFSET_TIME(EXIF, 0x9010, "OffsetTime"),
+	OFFSET_TIME_ORIGINAL(EXIF, 0x9011, "OffsetTimeOriginal"),
+	OFFSET_TIME_DIGITIZED(EXIF, 0x9012, "OffsetTimeDigitized"),
+	COMPONENTS_CONFIGURATION(EXIF, 0x9101, "ComponentsConfiguration"),
+	COMPRESSED_BITS_PER_PIXEL(EXIF, 0x9102, "CompressedBitsPerPixel"),
+	SHUTTER_SPEED_VALUE(EXIF, 0x9201, "ShutterSpeedValue"),
+	APERTURE_VALUE(EXIF, 0x9202, "ApertureValue"),
+	BRIGHTNESS_VALUE(EXIF, 0x9203, "BrightnessValue"),
+	EXPOSURE_BIAS_VALUE(EXIF, 0x9204, "ExposureBiasValue"),
+	MAX_APERTURE_VALUE(EXIF, 0x9205, "MaxApertureValue"),
+	SUBJECT_DISTANCE(EXIF, 0x9206, "SubjectDistance"),
+	METERING_MODE(EXIF, 0x9207, "MeteringMode"),
+	LIGHT_SOURCE(EXIF, 0x9208, "LightSource"),
+	FLASH(EXIF, 0x9209, "Flash"),
+	FOCAL_LENGTH(EXIF, 0x920a, "FocalLength"),
+	SUBJECT_AREA(EXIF, 0x9214, "SubjectArea"),
+	MAKER_NOTE(EXIF, 0x927c, "MakerNote"),
+	USER_COMMENT(EXIF, 0x9286, "UserComment"),
+	SUB_SEC_TIME(EXIF, 0x9290, "SubSecTime", "SubsecTime"),
+	SUB_SEC_TIME_ORIGINAL(EXIF, 0x9291, "SubSecTimeOriginal", "SubsecTimeOriginal"),
+	SUB_SEC_TIME_DIGITIZED(EXIF, 0x9292, "SubSecTimeDigitized", "SubsecTimeDigitized"),
+	TEMPERATURE(EXIF, 0x9400, "Temperature"),
+	HUMIDITY(EXIF, 0x9401, "Humidity"),
+	PRESSURE(EXIF, 0x9402, "Pressure"),
+	WATER_DEPTH(EXIF, 0x9403, "WaterDepth"),
+	ACCELERATION(EXIF, 0x9404, "Acceleration"),
+	CAMERA_ELEVATION_ANGLE(EXIF, 0x9405, "CameraElevationAngle"),
+	FLASH_PIX_VERSION(EXIF, 0xa000, "FlashPixVersion", "FlashpixVersion"),
+	COLOR_SPACE(EXIF, 0xa001, "ColorSpace"),
+	EXIF_IMAGE_WIDTH(EXIF, 0xa002, "ExifImageWidth", "PixelXDimension"),
+	EXIF_IMAGE_HEIGHT(EXIF, 0xa003, "ExifImageHeight", "PixelYDimension"),
+	RELATED_SOUND_FILE(EXIF, 0xa004, "RelatedSoundFile"),
+	INTEROPERABILITY_IFD_POINTER(EXIF, 0xa005, "InteroperabilityIFDPointer"),
+	FLASH_ENERGY(EXIF, 0xa20b, "FlashEnergy"),
+	SPATIAL_FREQUENCY_RESPONSE(EXIF, 0xa20c, "SpatialFrequencyResponse"),
+	FOCAL_PLANE_X_RESOLUTION(EXIF, 0xa20e, "FocalPlaneXResolution"),
+	FOCAL_PLANE_Y_RESOLUTION(EXIF, 0xa20f, "FocalPlaneYResolution"),
+	FOCAL_PLANE_RESOLUTION_UNIT(EXIF, 0xa210, "FocalPlaneResolutionUnit"),
+	SUBJECT_LOCATION(EXIF, 0xa214, "SubjectLocation"),
+	EXPOSURE_INDEX(EXIF, 0xa215, "ExposureIndex"),
+	SENSING_METHOD(EXIF, 0xa217, "SensingMethod"),
+	FILE_SOURCE(EXIF, 0xa300, "FileSource"),
+	SCENE_TYPE(EXIF, 0xa301, "SceneType"),
+	CFA_PATTERN(EXIF, 0xa302, "CFAPattern"),
+	CUSTOM_RENDERED(EXIF, 0xa401, "CustomRendered"),
+	EXPOSURE_MODE(EXIF, 0xa402, "ExposureMode"),
+	WHITE_BALANCE(EXIF, 0xa403, "WhiteBalance"),
+	DIGITAL_ZOOM_RATIO(EXIF, 0xa404, "DigitalZoomRatio"),
+	FOCAL_LENGTH_IN_35MM_FILM(EXIF, 0xa405, "FocalLengthIn35mmFilm"),
+	SCENE_CAPTURE_TYPE(EXIF, 0xa406, "SceneCaptureType"),
+	GAIN_CONTROL(EXIF, 0xa407, "GainControl"),
+	CONTRAST(EXIF, 0xa408, "Contrast"),
+	SATURATION(EXIF, 0xa409, "Saturation"),
+	SHARPNESS(EXIF, 0xa40a, "Sharpness"),
+	DEVICE_SETTING_DESCRIPTION(EXIF, 0xa40b, "DeviceSettingDescription"),
+	SUBJECT_DISTANCE_RANGE(EXIF, 0xa40c, "SubjectDistanceRange"),
+	IMAGE_UNIQUE_ID(EXIF, 0xa420, "ImageUniqueID"),
+	CAMERA_OWNER_NAME(EXIF, 0xa430, "CameraOwnerName"),
+	BODY_SERIAL_NUMBER(EXIF, 0xa431, "BodySerialNumber"),
+	LENS_SPECIFICATION(EXIF, 0xa432, "LensSpecification"),
+	LENS_MAKE(EXIF, 0xa433, "LensMake"),
+	LENS_MODEL(EXIF, 0xa434, "LensModel"),
+	LENS_SERIAL_NUMBER(EXIF, 0xa435, "LensSerialNumber"),
+	COMPOSITE_IMAGE(EXIF, 0xa460, "CompositeImage"),
+	SOURCE_IMAGE_NUMBER_OF_COMPOSITE_IMAGE(EXIF, 0xa461, "SourceImageNumberOfCompositeImage"),
+	SOURCE_EXPOSURE_TIMES_OF_COMPOSITE_IMAGE(EXIF, 0xa462, "SourceExposureTimesOfCompositeImage"),
+	GAMMA(EXIF, 0xa500, "Gamma"),
+
+	// GPS IFD tags
+	GPS_VERSION_ID(GPS, 0x0000, "GPSVersionID"),
+	GPS_LATITUDE_REF(GPS, 0x0001, "GPSLatitudeRef"),
+	GPS_LATITUDE(GPS, 0x0002, "GPSLatitude"),
+	GPS_LONGITUDE_REF(GPS, 0x0003, "GPSLongitudeRef"),
+	GPS_LONGITUDE(GPS, 0x0004, "GPSLongitude"),
+	GPS_ALTITUDE_REF(GPS, 0x0005, "GPSAltitudeRef"),
+	GPS_ALTITUDE(GPS, 0x0006, "GPSAltitude"),
+	GPS_TIME_STAMP(GPS, 0x0007, "GPSTimeStamp"),
+	GPS_SATELLITES(GPS, 0x0008, "GPSSatellites"),
+	GPS_STATUS(GPS, 0x0009, "GPSStatus"),
+	GPS_MEASURE_MODE(GPS, 0x000a, "GPSMeasureMode"),
+	GPS_DOP(GPS, 0x000b, "GPSDOP"),
+	GPS_SPEED_REF(GPS, 0x000c, "GPSSpeedRef"),
+	GPS_SPEED(GPS, 0x000d, "GPSSpeed"),
+	GPS_TRACK_REF(GPS, 0x000e, "GPSTrackRef"),
+	GPS_TRACK(GPS, 0x000f, "GPSTrack"),
+	GPS_IMG_DIRECTION_REF(GPS, 0x0010, "GPSImgDirectionRef"),
+	GPS_IMG_DIRECTION(GPS, 0x0011, "GPSImgDirection"),
+	GPS_MAP_DATUM(GPS, 0x0012, "GPSMapDatum"),
+	GPS_DEST_LATITUDE_REF(GPS, 0x0013, "GPSDestLatitudeRef"),
+	GPS_DEST_LATITUDE(GPS, 0x0014, "GPSDestLatitude"),
+	GPS_DEST_LONGITUDE_REF(GPS, 0x0015, "GPSDestLongitudeRef"),
+	GPS_DEST_LONGITUDE(GPS, 0x0016, "GPSDestLongitude"),
+	GPS_DEST_BEARING_REF(GPS, 0x0017, "GPSDestBearingRef"),
+	GPS_DEST_BEARING(GPS, 0x0018, "GPSDestBearing"),
+	GPS_DEST_DISTANCE_REF(GPS, 0x0019, "GPSDestDistanceRef"),
+	GPS_DEST_DISTANCE(GPS, 0x001a, "GPSDestDistance"),
+	GPS_PROCESSING_METHOD(GPS, 0x001b, "GPSProcessingMethod"),
+	GPS_AREA_INFORMATION(GPS, 0x001c, "GPSAreaInformation"),
+	GPS_DATE_STAMP(GPS, 0x001d, "GPSDateStamp"),
+	GPS_DIFFERENTIAL(GPS, 0x001e, "GPSDifferential"),
+	GPS_H_POSITIONING_ERROR(GPS, 0x001f, "GPSHPositioningError"),
+
+	// Interoperability IFD tags
+	INTEROPERABILITY_INDEX(INTEROPERABILITY, 0x0001, "InteroperabilityIndex"),
+	INTEROPERABILITY_VERSION(INTEROPERABILITY, 0x0002, "InteroperabilityVersion"),
+	RELATED_IMAGE_FILE_FORMAT(INTEROPERABILITY, 0x1000, "RelatedImageFileFormat"),
+	RELATED_IMAGE_WIDTH(INTEROPERABILITY, 0x1001, "RelatedImageWidth"),
+	RELATED_IMAGE_LENGTH(INTEROPERABILITY, 0x1002, "RelatedImageLength");
+
+	private final ExifIFDKind mKind;
+	private final int mCode;
+	private final String mName;
+	private final String[] mAliases;
+
+	ExifTag(ExifIFDKind kind, int code, String name, String... aliases) {
+		mKind = kind;
+		mCode = code;
+		mName = name;
+		mAliases = aliases;
+	}
+
+	/**
+	 * Returns the kind of IFD which defines this tag.<br>
+	 * The tags of IFD1 are defined as IFD0.
+	 * 
+	 * @return
+	 */
+	public ExifIFDKind getKind() {
+		return mKind;
+	}
+
+	public int getCode() {
+		return mCode;
+	}
+
+	/**
+	 * Returns the tag name like "Model"
+	 * 
+	 * @return
+	 */
+	public String getName() {
+		return mName;
+	}
+
+	// Lookup tables for each tag space (index:ordinal of ExifIFDKind)
+	private static final int[][] TAG_CODES;
+	private static final ExifTag[][] TAGS;
+	private static final Map<String, ExifTag>[] TAGS_BY_NAME;
+
+	static {
+		ExifIFDKind[] kinds = ExifIFDKind.values();
+		TAG_CODES = new int[kinds.length][];
+		TAGS = new ExifTag[kinds.length][];
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Map<String, ExifTag>[] tagsByName = new Map[kinds.length];
+		TAGS_BY_NAME = tagsByName;
+
+		for (ExifIFDKind kind : kinds) {
+			ExifTag[] tags = collect(kind.getTagSpace());
+
+			int[] codes = new int[tags.length];
+			Map<String, ExifTag> nameMap = new HashMap<String, ExifTag>();
+			for (int i = 0; i < tags.length; i++) {
+				codes[i] = tags[i].mCode;
+				nameMap.put(tags[i].mName, tags[i]);
+				for (String alias : tags[i].mAliases) {
+					nameMap.put(alias, tags[i]);
+				}
+			}
+
+			TAG_CODES[kind.ordinal()] = codes;
+			TAGS[kind.ordinal()] = tags;
+			TAGS_BY_NAME[kind.ordinal()] = Collections.unmodifiableMap(nameMap);
+		}
+	}
+
+	/**
+	 * Collect the tags of the tag space sorted by tag code
+	 * 
+	 * @param tagSpace
+	 * @return
+	 */
+	private static ExifTag[] collect(ExifIFDKind tagSpace) {
+		ExifTag[] all = values();
+		ExifTag[] tags = new ExifTag[all.length];
+		int count = 0;
+		for (ExifTag tag : all) {
+			if (tag.mKind == tagSpace) {
+				tags[count++] = tag;
+			}
+		}
+		tags = Arrays.copyOf(tags, count);
+
+		// insertion sort by the tag code,tags are almost sorted already
+		for (int i = 1; i < count; i++) {
+			ExifTag tag = tags[i];
+			int j = i - 1;
+			while (j >= 0 && tags[j].mCode > tag.mCode) {
+				tags[j + 1] = tags[j];
+				j--;
+			}
+			tags[j + 1] = tag;
+		}
+		return tags;
+	}
+
+	/**
+	 * Find the tag by the tag code
+	 * 
+	 * @param kind
+	 *            kind of the IFD which has the tag
+	 * @param tagCode
+	 * @return the tag,or null if not defined
+	 */
+	public static ExifTag find(ExifIFDKind kind, long tagCode) {
+		if (tagCode < 0 || tagCode > 0xFFFF) {
+			return null;
+		}
+		int index = Arrays.binarySearch(TAG_CODES[kind.ordinal()], (int) tagCode);
+		if (index < 0) {
+			return null;
+		}
+		return TAGS[kind.ordinal()][index];
+	}
+
+	/**
+	 * Find the tag by the tag name
+	 * 
+	 * @param kind
+	 *            kind of the IFD which has the tag
+	 * @param tagName
+	 *            tag name like "Model"
+	 * @return the tag,or null if not defined
+	 */
+	public static ExifTag findByName(ExifIFDKind kind, String tagName) {
+		return TAGS_BY_NAME[kind.ordinal()].get(tagName);
+	}
+
+	/**
+	 * Lookup the tag name from the tag code
+	 * 
+	 * @param kind
+	 *            kind of the IFD which has the tag
+	 * @param tagCode
+	 * @return tag name,or "UNKNOWN(0x....)" if not defined
+	 */
+	public static String getTagName(ExifIFDKind kind, long tagCode) {
+		ExifTag tag = find(kind, tagCode);
+		if (tag == null) {
+			return "UNKNOWN(" + String.format("0x%04x", tagCode) + ")";
+		}
+		return tag.mName;
+	}
+}
@@ -23,21 +23,19 @@
  */
 package org.riversun.exiguous;
 
-import java.util.HashMap;
-
 /**
  * Static class that performs the conversion of the tag code and tag names<br>
+ * This class looks up the tags without the kind of the IFD.The tag
+ * definitions of IFD0,Exif IFD,Interoperability IFD and GPS IFD are searched
+ * in this order.Use {@link ExifTag} to look up the tag of the specific IFD.
  * 
  * @author Tom Misawa (riversun.org@gmail.com)
  * 
  */
 public class ExifTagFinder {
 
-	// Collection for Forward lookup (key: tag code value: tag name)
-	private static HashMap<String, String> m_TagNameMap = null;
-
-	// Collection for Reverse lookup (key: tag name value: tag code)
-	private static HashMap<String, String> m_InvTagNameMap = null;
+	// Search order of the tag spaces
+	private static final ExifIFDKind[] SEARCH_ORDER = new ExifIFDKind[] { ExifIFDKind.IFD0, ExifIFDKind.EXIF, ExifIFDKind.INTEROPERABILITY, ExifIFDKind.GPS };
 
 	/**
 	 * 
@@ -47,22 +45,38 @@ public class ExifTagFinder {
 	 * 
 	 * @return
 	 */
-	public static String getTagName(Long tagCode) {
-		String ret = null;
-
-		// Generates the tag name x tag code Collection in the first call.
-		if (m_TagNameMap == null) {
-			buildTagNames();
+	public static String getTagName(long tagCode) {
+		ExifTag tag = find(tagCode);
+		if (tag == null) {
+			return "UNKNOWN(" + String.format("0x%04x", tagCode) + ")";
 		}
+		return tag.getName();
+	}
 
-		String key = String.format("0x%04x", tagCode);
+	/**
+	 * Lookup the tag name from the tag code
+	 * 
+	 * @param tagCode
+	 * @return
+	 */
+	public static String getTagName(Long tagCode) {
+		return getTagName(tagCode.longValue());
+	}
 
-		ret = m_TagNameMap.get(key);
-		if (ret == null) {
-			ret = "UNKNOWN(" + key + ")";
+	/**
+	 * Get the tag code from the tag name
+	 * 
+	 * @param tagName
+	 * @return tag code,or -1 if the tag name is unknown
+	 */
+	public static int getTagCode(String tagName) {
+		for (ExifIFDKind kind : SEARCH_ORDER) {
+			ExifTag tag = ExifTag.findByName(kind, tagName);
+			if (tag != null) {
+				return tag.getCode();
+			}
 		}
-		return ret;
-
+		return -1;
 	}
 
 	/**
@@ -72,97 +86,41 @@ public class ExifTagFinder {
 	 * @return
 	 */
 	public static String getTagCodeAsString(String tagName) {
-		String ret = null;
-		if (m_InvTagNameMap == null) {
-			buildTagNames();
+		int tagCode = getTagCode(tagName);
+		if (tagCode < 0) {
+			return null;
 		}
-
-		ret = m_InvTagNameMap.get(tagName);
-
-		return ret;
-
+		return String.format("0x%04x", tagCode);
 	}
 
-	private static void buildTagNames() {
-
-		m_TagNameMap = new HashMap<String, String>();
-
-		m_InvTagNameMap = new HashMap<String, String>();
-
-		String[][] IFD0Tags = new String[][] { { "0x010e", "ImageDescription" }, { "0x010f", "Make" }, { "0x0110", "Model" }, { "0x0112", "Orientation" }, { "0x011a", "XResolution" },
-				{ "0x011b", "YResolution" }, { "0x0128", "ResolutionUnit" }, { "0x0131", "Software" }, { "0x0132", "DateTime" }, { "0x013e", "WhitePoint" }, { "0x013f", "PrimaryChromaticities" },
-				{ "0x0211", "YCbCrCoefficients" }, { "0x0213", "YCbCrPositioning" }, { "0x0214", "ReferenceBlackWhite" }, { "0x8298", "Copyright" }, { "0x8769", "ExifIFDPointer" } };
-
-		String[][] SubIFDTags = new String[][] { { "0x829a", "ExposureTime" }, { "0x829d", "FNumber" }, { "0x8822", "ExposureProgram" }, { "0x8827", "ISOSpeedRatings" }, { "0x9000", "ExifVersion" },
-				{ "0x9003", "DateTimeOriginal" }, { "0x9004", "DateTimeDigitized" }, { "0x9101", "ComponentsConfiguration" }, { "0x9102", "CompressedBitsPerPixel" },
-				{ "0x9201", "ShutterSpeedValue" }, { "0x9202", "ApertureValue" }, { "0x9203", "BrightnessValue" }, { "0x9204", "ExposureBiasValue" }, { "0x9205", "MaxApertureValue" },
-				{ "0x9206", "SubjectDistance" }, { "0x9207", "MeteringMode" }, { "0x9208", "LightSource" }, { "0x9209", "Flash" }, { "0x920a", "FocalLength" }, { "0x927c", "MakerNote" },
-				{ "0x9286", "UserComment" }, { "0x9290", "SubsecTime" }, { "0x9291", "SubsecTimeOriginal" }, { "0x9292", "SubsecTimeDigitized" }, { "0xa000", "FlashPixVersion" },
-				{ "0xa001", "ColorSpace" }, { "0xa002", "ExifImageWidth" }, { "0xa003", "ExifImageHeight" }, { "0xa004", "RelatedSoundFile" }, { "0xa005", "InteroperabilityIFDPointer" },
-				{ "0xa20e", "FocalPlaneXResolution" }, { "0xa20f", "FocalPlaneYResolution" }, { "0xa210", "FocalPlaneResolutionUnit" }, { "0xa215", "ExposureIndex" }, { "0xa217", "SensingMethod" },
-				{ "0xa300", "FileSource" }, { "0xa301", "SceneType" }, { "0xa302", "CFAPattern" } };
-
-		String[][] InteroperabilityIFDTags = new String[][] { { "x0001", "InteroperabilityIndex" }, { "0x0002", "InteroperabilityVersion" }, { "0x1000", "RelatedImageFileFormat" },
-				{ "0x1001", "RelatedImageWidth" }, { "0x1001", "RelatedImageLength" } };
-
-		String[][] IFD1Tags = new String[][] { { "0x0100", "ImageWidth" }, { "0x0101", "ImageLength" }, { "0x0102", "BitsPerSample" }, { "0x0103", "Compression" },
-				{ "0x0106", "PhotometricInterpretation" }, { "0x0111", "StripOffsets" }, { "0x0112", "Orientation" }, { "0x0115", "SamplesPerPixel" }, { "0x0116", "RowsPerStrip" },
-				{ "0x0117", "StripByteConunts" }, { "0x011a", "XResolution" }, { "0x011b", "YResolution" }, { "0x011c", "PlanarConfiguration" }, { "0x0128", "ResolutionUnit" },
-				{ "0x0201", "JpegInterchangeFormat" }, { "0x0202", "JpegInterchangeFormatLength" }, { "0x0211", "YCbCrCoefficients" }, { "0x0212", "YCbCrSubSampling" },
-				{ "0x0213", "YCbCrPositioning" }, { "0x0214", "ReferenceBlackWhite" } };
-
-		String[][] OtherIFDTags = new String[][] { { "0x00fe", "NewSubfileType" }, { "0x00ff", "SubfileType" }, { "0x012d", "TransferFunction" }, { "0x013b", "Artist" }, { "0x013d", "Predictor" },
-				{ "0x013e", "WhitePoint" }, { "0x013f", "PrimaryChromaticities" }, { "0x0142", "TileWidth" }, { "0x0143", "TileLength" }, { "0x0144", "TileOffsets" }, { "0x0145", "TileByteCounts" },
-				{ "0x014a", "SubIFDs" }, { "0x015b", "JPEGTables" }, { "0x828d", "CFARepeatPatternDim" }, { "0x828e", "CFAPattern" }, { "0x828f", "BatteryLevel" }, { "0x83bb", "IPTC/NAA" },
-				{ "0x8773", "InterColorProfile" }, { "0x8824", "SpectralSensitivity" }, { "0x8825", "GPSInfo" }, { "0x8828", "OECF" }, { "0x8829", "Interlace" }, { "0x882a", "TimeZoneOffset" },
-				{ "0x882b", "SelfTimerMode" }, { "0x920b", "FlashEnergy" }, { "0x920c", "SpatialFrequencyResponse" }, { "0x920d", "Noise" }, { "0x9211", "ImageNumber" },
-				{ "0x9212", "SecurityClassification" }, { "0x9213", "ImageHistory" }, { "0x9214", "SubjectLocation" }, { "0x9215", "ExposureIndex" }, { "0x9216", "TIFF/EPStandardID" },
-				{ "0x9290", "SubSecTime" }, { "0x9291", "SubSecTimeOriginal" }, { "0x9292", "SubSecTimeDigitized" }, { "0xa20b", "FlashEnergy" }, { "0xa20c", "SpatialFrequencyResponse" },
-				{ "0xa214", "SubjectLocation" } };
-
-		// IFD0Tags
-		for (int i = 0; i < IFD0Tags.length; i++) {
-			String tagCode = IFD0Tags[i][0];
-			String tagDetail = IFD0Tags[i][1];
-			m_TagNameMap.put(tagCode, tagDetail);
-			m_InvTagNameMap.put(tagDetail, tagCode);
-
-		}
-
-		// SubIFDTags
-		for (int i = 0; i < SubIFDTags.length; i++) {
-			String tagCode = SubIFDTags[i][0];
-			String tagDetail = SubIFDTags[i][1];
-			m_TagNameMap.put(tagCode, tagDetail);
-			m_InvTagNameMap.put(tagDetail, tagCode);
-
-		}
-
-		// InteroperabilityIFDTags
-		for (int i = 0; i < InteroperabilityIFDTags.length; i++) {
-			String tagCode = InteroperabilityIFDTags[i][0];
-			String tagDetail = InteroperabilityIFDTags[i][1];
-			m_TagNameMap.put(tagCode, tagDetail);
-			m_InvTagNameMap.put(tagDetail, tagCode);
-
+	/**
+	 * Parse the tag code hex string like "0x0110"
+	 * 
+	 * @param tagCodeH
+	 * @return tag code,or -1 if it is not the tag code hex string
+	 */
+	static int parseTagCode(String tagCodeH) {
+		if (tagCodeH == null || tagCodeH.length() < 3 || tagCodeH.length() > 10 || !tagCodeH.startsWith("0x")) {
+			return -1;
 		}
-		// IFD1Tags
-		for (int i = 0; i < IFD1Tags.length; i++) {
-			String tagCode = IFD1Tags[i][0];
-			String tagDetail = IFD1Tags[i][1];
-			m_TagNameMap.put(tagCode, tagDetail);
-			m_InvTagNameMap.put(tagDetail, tagCode);
-
+		int tagCode = 0;
+		for (int i = 2; i < tagCodeH.length(); i++) {
+			int digit = Character.digit(tagCodeH.charAt(i), 16);
+			if (digit < 0 || tagCode > (Integer.MAX_VALUE >> 4)) {
+				return -1;
+			}
+			tagCode = (tagCode << 4) | digit;
 		}
+		return tagCode;
+	}
 
-		// OtherIFDTags
-		for (int i = 0; i < OtherIFDTags.length; i++) {
-			String tagCode = OtherIFDTags[i][0];
-			String tagDetail = OtherIFDTags[i][1];
-			m_TagNameMap.put(tagCode, tagDetail);
-			m_InvTagNameMap.put(tagDetail, tagCode);
-
+	private static ExifTag find(long tagCode) {
+		for (ExifIFDKind kind : SEARCH_ORDER) {
+			ExifTag tag = ExifTag.find(kind, tagCode);
+			if (tag != null) {
+				return tag;
+			}
 		}
-
+		return null;
 	}
 }
@@ -0,0 +1,190 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.util.BitSet;
+
+/**
+ * Set of the tags to be read and the fields found<br>
+ * When it is given to the decoder, only the requested tags are decoded.The
+ * IFDs which can not contain any requested tag are skipped and the decoding
+ * stops as soon as all of the requested tags are found.<br>
+ * Tags are specified for each kind of IFD.
+ * 
+ * <pre>
+ * ExifTagQuery query = new ExifTagQuery().add(ExifTag.MODEL).add(ExifTag.DATE_TIME_ORIGINAL);
+ * new ExiguousExifReader().read(fileName, query);
+ * String model = query.getField(ExifTag.MODEL).getStringData();
+ * </pre>
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifTagQuery {
+
+	// Requested tag codes for each kind (index:ordinal of ExifIFDKind)
+	private final BitSet[] m_WantedTags = new BitSet[ExifIFDKind.values().length];
+	private final int[] m_WantedCounts = new int[ExifIFDKind.values().length];
+	private int m_WantedCount = 0;
+
+	// Found fields for each kind
+	private final ExifIFDBlock[] m_Results = new ExifIFDBlock[ExifIFDKind.values().length];
+	private final int[] m_FoundCounts = new int[ExifIFDKind.values().length];
+	private int m_FoundCount = 0;
+
+	/**
+	 * Add the tag to be read.The tag is read from the IFD of its kind.
+	 * 
+	 * @param tag
+	 * @return this
+	 */
+	public ExifTagQuery add(ExifTag tag) {
+		return add(tag.getKind(), tag.getCode());
+	}
+
+	/**
+	 * Add the tag to be read
+	 * 
+	 * @param kind
+	 *            kind of the IFD which has the tag
+	 * @param tagCode
+	 * @return this
+	 */
+	public ExifTagQuery add(ExifIFDKind kind, int tagCode) {
+		if (tagCode < 0 || tagCode > 0xFFFF) {
+			throw new IllegalArgumentException("tagCode=" + tagCode);
+		}
+
+		int index = kind.ordinal();
+		if (m_WantedTags[index] == null) {
+			m_WantedTags[index] = new BitSet();
+		}
+		if (!m_WantedTags[index].get(tagCode)) {
+			m_WantedTags[index].set(tagCode);
+			m_WantedCounts[index]++;
+			m_WantedCount++;
+		}
+		return this;
+	}
+
+	/**
+	 * Returns true if the tag is requested
+	 * 
+	 * @param kind
+	 * @param tagCode
+	 * @return
+	 */
+	public boolean isWanted(ExifIFDKind kind, long tagCode) {
+		BitSet wantedTags = m_WantedTags[kind.ordinal()];
+		return wantedTags != null && tagCode >= 0 && tagCode <= 0xFFFF && wantedTags.get((int) tagCode);
+	}
+
+	/**
+	 * Returns true if any tag of the kind of IFD is requested
+	 * 
+	 * @param kind
+	 * @return
+	 */
+	public boolean hasTags(ExifIFDKind kind) {
+		return m_WantedCounts[kind.ordinal()] > 0;
+	}
+
+	/**
+	 * Get the field found by the last read
+	 * 
+	 * @param tag
+	 * @return the field,or null if not found
+	 */
+	public ExifIFDField getField(ExifTag tag) {
+		return getField(tag.getKind(), tag.getCode());
+	}
+
+	/**
+	 * Get the field found by the last read
+	 * 
+	 * @param kind
+	 * @param tagCode
+	 * @return the field,or null if not found
+	 */
+	public ExifIFDField getField(ExifIFDKind kind, int tagCode) {
+		ExifIFDBlock result = m_Results[kind.ordinal()];
+		if (result == null) {
+			return null;
+		}
+		return result.getField(tagCode);
+	}
+
+	/**
+	 * Returns true if all of the requested tags are found by the last read
+	 * 
+	 * @return
+	 */
+	public boolean isCompleted() {
+		return m_FoundCount == m_WantedCount;
+	}
+
+	/**
+	 * Returns true if all of the requested tags of the kind of IFD are found
+	 * 
+	 * @param kind
+	 * @return
+	 */
+	boolean isCompleted(ExifIFDKind kind) {
+		return m_FoundCounts[kind.ordinal()] == m_WantedCounts[kind.ordinal()];
+	}
+
+	/**
+	 * Clear the fields found by the previous read
+	 */
+	void clearResults() {
+		for (int i = 0; i < m_Results.length; i++) {
+			m_Results[i] = null;
+			m_FoundCounts[i] = 0;
+		}
+		m_FoundCount = 0;
+	}
+
+	/**
+	 * Add the field found
+	 * 
+	 * @param kind
+	 * @param field
+	 */
+	void addResult(ExifIFDKind kind, ExifIFDField field) {
+		if (!isWanted(kind, field.Tag)) {
+			return;
+		}
+
+		int index = kind.ordinal();
+		if (m_Results[index] == null) {
+			m_Results[index] = new ExifIFDBlock();
+			m_Results[index].Kind = kind;
+		}
+		if (m_Results[index].getField((int) field.Tag) == null) {
+			m_FoundCounts[index]++;
+			m_FoundCount++;
+		}
+		m_Results[index].addField(field);
+	}
+}
@@ -0,0 +1,115 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+/**
+ * Conversion of the bytes to the numeric values in consideration of the
+ * endian<br>
+ * It is shared by the decoders and the fields, and uses only shifts(no
+ * temporary arrays).
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+final class ExifValueCodec {
+
+	private ExifValueCodec() {
+	}
+
+	/**
+	 * Get the unsigned value of the bytes in int[]
+	 * 
+	 * @param src
+	 *            bytes as unsigned values
+	 * @param start
+	 * @param len
+	 *            up to 8
+	 * @param endianMode
+	 *            (BIG_ENDIAN=0 / LITTLE_ENDIAN=1)
+	 * @return
+	 */
+	static long getLongValue(int[] src, int start, int len, int endianMode) {
+		long value = 0;
+		if (endianMode == ExiguousExifLowLevelDecoder.LITTLE_ENDIAN) {
+			for (int i = len - 1; i >= 0; i--) {
+				value = (value << 8) | (src[start + i] & 0xFF);
+			}
+		} else {
+			for (int i = 0; i < len; i++) {
+				value = (value << 8) | (src[start + i] & 0xFF);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Get the unsigned value of the bytes in the segment buffer
+	 * 
+	 * @param src
+	 * @param start
+	 * @param len
+	 *            up to 8
+	 * @param endianMode
+	 *            (BIG_ENDIAN=0 / LITTLE_ENDIAN=1)
+	 * @return
+	 */
+	static long getLongValue(ExifSegmentBuffer src, int start, int len, int endianMode) {
+		long value = 0;
+		if (endianMode == ExiguousExifLowLevelDecoder.LITTLE_ENDIAN) {
+			for (int i = len - 1; i >= 0; i--) {
+				value = (value << 8) | src.get(start + i);
+			}
+		} else {
+			for (int i = 0; i < len; i++) {
+				value = (value << 8) | src.get(start + i);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Get the unsigned value of the bytes in the 4byte data area of the field
+	 * 
+	 * @param dataArea
+	 *            4byte data area(in the order of the file)
+	 * @param start
+	 * @param len
+	 * @param endianMode
+	 *            (BIG_ENDIAN=0 / LITTLE_ENDIAN=1)
+	 * @return
+	 */
+	static long getLongValue(int dataArea, int start, int len, int endianMode) {
+		long value = 0;
+		if (endianMode == ExiguousExifLowLevelDecoder.LITTLE_ENDIAN) {
+			for (int i = len - 1; i >= 0; i--) {
+				value = (value << 8) | ((dataArea >>> (24 - (start + i) * 8)) & 0xFF);
+			}
+		} else {
+			for (int i = 0; i < len; i++) {
+				value = (value << 8) | ((dataArea >>> (24 - (start + i) * 8)) & 0xFF);
+			}
+		}
+		return value;
+	}
+}
@@ -0,0 +1,228 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.nio.ByteBuffer;
+
+/**
+ * View of the value of the entry passed to ExifVisitor<br>
+ * One instance is reused for all of the entries,and it refers the segment
+ * buffer without copying.Keep the values(not the view) if they are needed
+ * after ExifVisitor#onEntry().
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public final class ExifValueView {
+
+	private ExifSegmentBuffer m_Buffer;
+	private int m_Offset;
+	private int m_Length;
+	private int m_Type;
+	private int m_EndianMode;
+
+	ExifValueView() {
+	}
+
+	/**
+	 * Point the value of the next entry
+	 * 
+	 * @param buffer
+	 * @param offset
+	 *            index of the value in the buffer
+	 * @param length
+	 * @param type
+	 * @param endianMode
+	 */
+	void set(ExifSegmentBuffer buffer, int offset, int length, int type, int endianMode) {
+		m_Buffer = buffer;
+		m_Offset = offset;
+		m_Length = length;
+		m_Type = type;
+		m_EndianMode = endianMode;
+	}
+
+	/**
+	 * Get the length of the value in bytes
+	 * 
+	 * @return
+	 */
+	public int getLength() {
+		return m_Length;
+	}
+
+	/**
+	 * Get the endian of the numeric values
+	 * 
+	 * @return (BIG_ENDIAN=0 / LITTLE_ENDIAN=1)
+	 */
+	public int getEndianMode() {
+		return m_EndianMode;
+	}
+
+	/**
+	 * Get 1byte of the value as unsigned value
+	 * 
+	 * @param index
+	 * @return
+	 */
+	public int getByte(int index) {
+		if (index < 0 || index >= m_Length) {
+			throw new IndexOutOfBoundsException("index=" + index + " length=" + m_Length);
+		}
+		return m_Buffer.get(m_Offset + index);
+	}
+
+	/**
+	 * Get the SHORT value
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public int getUnsignedShort(int index) {
+		return (int) getUnsignedValue(index * 2, 2);
+	}
+
+	/**
+	 * Get the LONG value
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public long getUnsignedInt(int index) {
+		return getUnsignedValue(index * 4, 4);
+	}
+
+	/**
+	 * Get the BYTE,SHORT or LONG value according to the data type
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public long getUnsignedInteger(int index) {
+		if (m_Type == ExifIFDField.TYPE_BYTE) {
+			return getByte(index);
+		}
+		if (m_Type == ExifIFDField.TYPE_SHORT) {
+			return getUnsignedShort(index);
+		}
+		return getUnsignedInt(index);
+	}
+
+	/**
+	 * Get the numerator of the RATIONAL value
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public long getRationalNumerator(int index) {
+		return getUnsignedValue(index * 8, 4);
+	}
+
+	/**
+	 * Get the denominator of the RATIONAL value
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public long getRationalDenominator(int index) {
+		return getUnsignedValue(index * 8 + 4, 4);
+	}
+
+	/**
+	 * Get the RATIONAL value as double
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public double getRationalAsDouble(int index) {
+		return (double) getRationalNumerator(index) / (double) getRationalDenominator(index);
+	}
+
+	/**
+	 * Get the SRATIONAL value as double
+	 * 
+	 * @param index
+	 *            index of the value(not the byte offset)
+	 * @return
+	 */
+	public double getSignedRationalAsDouble(int index) {
+		return (double) (int) getUnsignedValue(index * 8, 4) / (double) (int) getUnsignedValue(index * 8 + 4, 4);
+	}
+
+	/**
+	 * Copy the value into the array
+	 * 
+	 * @param dest
+	 *            array at least #getLength() bytes
+	 * @param destOffset
+	 * @return number of the bytes copied
+	 */
+	public int copyTo(byte[] dest, int destOffset) {
+		for (int i = 0; i < m_Length; i++) {
+			dest[destOffset + i] = (byte) m_Buffer.get(m_Offset + i);
+		}
+		return m_Length;
+	}
+
+	/**
+	 * Get the read-only view of the value.(It is a new object,so avoid it in
+	 * the loop of the large scan.)
+	 * 
+	 * @return
+	 */
+	public ByteBuffer getDataBuffer() {
+		return m_Buffer.slice(m_Offset, m_Length);
+	}
+
+	/**
+	 * Take out the value as a String(a new object is created)
+	 * 
+	 * @return
+	 */
+	public String getStringData() {
+		StringBuilder sb = new StringBuilder(m_Length);
+		for (int i = 0; i < m_Length; i++) {
+			char c = (char) m_Buffer.get(m_Offset + i);
+			// cancel null string
+			if (c != '\0') {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private long getUnsignedValue(int offset, int size) {
+		if (offset < 0 || offset + size > m_Length) {
+			throw new IndexOutOfBoundsException("offset=" + offset + " size=" + size + " length=" + m_Length);
+		}
+		return ExifValueCodec.getLongValue(m_Buffer, m_Offset + offset, size, m_EndianMode);
+	}
+}
@@ -0,0 +1,199 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Built-in MakerNote decoders<br>
+ * <br>
+ * Each vendor locates the IFD and the base of the offsets of the values by
+ * its own header.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+enum ExifVendorMakerNoteDecoder implements ExifMakerNoteDecoder {
+
+	// No header.The offsets are relative to the TIFF header.
+	CANON("Canon") {
+		@Override
+		ExifIFDBlock decode(ExifMakerNote makerNote, ByteBuffer buffer) {
+			return ExiguousMakernoteDecoder.analyzeIFD(buffer, 0, makerNote.getOffset(), makerNote.getEndianMode());
+		}
+	},
+
+	NIKON("NIKON") {
+		@Override
+		ExifIFDBlock decode(ExifMakerNote makerNote, ByteBuffer buffer) {
+			if (startsWith(buffer, "Nikon\0") && buffer.limit() >= 18 && buffer.get(6) == 2) {
+				// "Nikon\0" + version(2bytes) + 2bytes + TIFF header.
+				// The offsets are relative to the TIFF header in the
+				// MakerNote.
+				int endianMode = getEndianMode(buffer, 10);
+				if (endianMode < 0) {
+					return null;
+				}
+				int ifdOffset = 10 + (int) ExifValueCodec.getLongValue(new ExifSegmentBuffer(buffer), 14, 4, endianMode);
+				return ExiguousMakernoteDecoder.analyzeIFD(buffer, ifdOffset, -10, endianMode);
+			}
+			if (startsWith(buffer, "Nikon\0")) {
+				// "Nikon\0" + version(2bytes)
+				return ExiguousMakernoteDecoder.analyzeIFD(buffer, 8, makerNote.getOffset(), makerNote.getEndianMode());
+			}
+			// No header
+			return ExiguousMakernoteDecoder.analyzeIFD(buffer, 0, makerNote.getOffset(), makerNote.getEndianMode());
+		}
+	},
+
+	SONY("SONY") {
+		@Override
+		ExifIFDBlock decode(ExifMakerNote makerNote, ByteBuffer buffer) {
+			int ifdOffset = 0;
+			if (startsWith(buffer, "SONY DSC ") || startsWith(buffer, "SONY CAM ")) {
+				ifdOffset = 12;
+			}
+			return ExiguousMakernoteDecoder.analyzeIFD(buffer, ifdOffset, makerNote.getOffset(), makerNote.getEndianMode());
+		}
+	},
+
+	OLYMPUS("OLYMPUS", "OM Digital Solutions") {
+		@Override
+		ExifIFDBlock decode(ExifMakerNote makerNote, ByteBuffer buffer) {
+			if (startsWith(buffer, "OLYMPUS\0")) {
+				// "OLYMPUS\0" + byte order(2bytes) + version(2bytes).
+				// The offsets are relative to the head of the MakerNote.
+				int endianMode = getEndianMode(buffer, 8);
+				if (endianMode < 0) {
+					return null;
+				}
+				return ExiguousMakernoteDecoder.analyzeIFD(buffer, 12, 0, endianMode);
+			}
+			if (startsWith(buffer, "OM SYSTEM\0")) {
+				// "OM SYSTEM\0\0\0" + byte order(2bytes) + version(2bytes)
+				int endianMode = getEndianMode(buffer, 12);
+				if (endianMode < 0) {
+					return null;
+				}
+				return ExiguousMakernoteDecoder.analyzeIFD(buffer, 16, 0, endianMode);
+			}
+			if (startsWith(buffer, "OLYMP\0")) {
+				// "OLYMP\0" + version(2bytes)
+				return ExiguousMakernoteDecoder.analyzeIFD(buffer, 8, makerNote.getOffset(), makerNote.getEndianMode());
+			}
+			return null;
+		}
+	},
+
+	FUJIFILM("FUJIFILM") {
+		@Override
+		ExifIFDBlock decode(ExifMakerNote makerNote, ByteBuffer buffer) {
+			if (!startsWith(buffer, "FUJIFILM") || buffer.limit() < 12) {
+				return null;
+			}
+			// "FUJIFILM" + offset of the IFD(4bytes).
+			// Always little endian and the offsets are relative to the head
+			// of the MakerNote.
+			int endianMode = ExiguousExifLowLevelDecoder.LITTLE_ENDIAN;
+			int ifdOffset = (int) ExifValueCodec.getLongValue(new ExifSegmentBuffer(buffer), 8, 4, endianMode);
+			return ExiguousMakernoteDecoder.analyzeIFD(buffer, ifdOffset, 0, endianMode);
+		}
+	},
+
+	PANASONIC("Panasonic") {
+		@Override
+		ExifIFDBlock decode(ExifMakerNote makerNote, ByteBuffer buffer) {
+			if (!startsWith(buffer, "Panasonic\0")) {
+				return null;
+			}
+			// "Panasonic\0\0\0"
+			return ExiguousMakernoteDecoder.analyzeIFD(buffer, 12, makerNote.getOffset(), makerNote.getEndianMode());
+		}
+	};
+
+	private final String[] mMakes;
+
+	private ExifVendorMakerNoteDecoder(String... makes) {
+		mMakes = makes;
+	}
+
+	abstract ExifIFDBlock decode(ExifMakerNote makerNote, ByteBuffer buffer);
+
+	@Override
+	public boolean isSupported(String make) {
+		if (make == null) {
+			return false;
+		}
+		String trimmedMake = make.trim();
+		for (String prefix : mMakes) {
+			if (trimmedMake.regionMatches(true, 0, prefix, 0, prefix.length())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public ExifIFDBlock decode(ExifMakerNote makerNote) {
+		ByteBuffer buffer = makerNote.getBuffer();
+		if (buffer == null) {
+			return null;
+		}
+		return decode(makerNote, buffer);
+	}
+
+	private static boolean startsWith(ByteBuffer buffer, String header) {
+		if (buffer.limit() < header.length()) {
+			return false;
+		}
+		for (int i = 0; i < header.length(); i++) {
+			if (buffer.get(i) != (byte) header.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the endian from the byte order mark("II" or "MM")
+	 * 
+	 * @param buffer
+	 * @param index
+	 * @return -1 if it is not a byte order mark
+	 */
+	private static int getEndianMode(ByteBuffer buffer, int index) {
+		if (buffer.limit() < index + 2) {
+			return -1;
+		}
+		int b0 = buffer.get(index);
+		int b1 = buffer.get(index + 1);
+		if (b0 == 'I' && b1 == 'I') {
+			return ExiguousExifLowLevelDecoder.LITTLE_ENDIAN;
+		}
+		if (b0 == 'M' && b1 == 'M') {
+			return ExiguousExifLowLevelDecoder.BIG_ENDIAN;
+		}
+		return -1;
+	}
+}
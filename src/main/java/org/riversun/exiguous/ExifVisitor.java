@@ -0,0 +1,70 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+/**
+ * Callback of the streaming decoding(see
+ * ExiguousExifLowLevelDecoder#setVisitor)<br>
+ * The entries of the IFDs are passed in the order of the walk without
+ * building ExifIFDBlock and ExifIFDField.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public interface ExifVisitor {
+
+	/**
+	 * Called at the start of the IFD
+	 * 
+	 * @param kind
+	 * @param offset
+	 *            offset of the IFD(relative to the TIFF header)
+	 * @param entryCount
+	 *            number of the entries written in the IFD
+	 * @return false to skip this IFD and the IFDs linked from it
+	 */
+	boolean onIfdStart(ExifIFDKind kind, long offset, int entryCount);
+
+	/**
+	 * Called for each entry of the IFD
+	 * 
+	 * @param kind
+	 * @param tag
+	 * @param type
+	 *            data type(see ExifIFDField#TYPE_BYTE..)
+	 * @param count
+	 *            number of the values
+	 * @param value
+	 *            view of the value.It is reused for the next entry,so it is
+	 *            available only in this call.
+	 */
+	void onEntry(ExifIFDKind kind, int tag, int type, long count, ExifValueView value);
+
+	/**
+	 * Called at the end of the IFD
+	 * 
+	 * @param kind
+	 */
+	void onIfdEnd(ExifIFDKind kind);
+}
@@ -0,0 +1,290 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Asynchronous Exif Reader<br>
+ * <br>
+ * The bytes of the image are read by the positional reads of
+ * AsynchronousFileChannel and no thread is blocked while waiting for the I/O.<br>
+ * The reads are chained as follows.<br>
+ * (1) Read SOI and walk the segments marker by marker to locate the Exif APP1
+ * segment<br>
+ * (2) Read the APP1 segment, which contains IFD0, IFD1, Exif IFD and GPS
+ * IFD<br>
+ * (3) Analyze the IFDs on memory(on the thread which completed the read)<br>
+ * <br>
+ * The result is the same as ExiguousExifReader.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExiguousAsyncExifReader {
+
+	private final ExecutorService mExecutor;
+
+	private volatile boolean mIsLogging = false;
+
+	// shared by the completion handlers(ExiguousExifReader is thread-safe)
+	private final ExiguousExifReader mExifReader = new ExiguousExifReader();
+
+	/**
+	 * The completion handlers run on the default thread pool of
+	 * AsynchronousFileChannel
+	 */
+	public ExiguousAsyncExifReader() {
+		this(null);
+	}
+
+	/**
+	 * @param executor
+	 *            thread pool on which the completion handlers and the analysis
+	 *            run
+	 */
+	public ExiguousAsyncExifReader(ExecutorService executor) {
+		mExecutor = executor;
+	}
+
+	public void setLogging(boolean loggingEnabled) {
+		mIsLogging = loggingEnabled;
+		mExifReader.setLogging(loggingEnabled);
+	}
+
+	/**
+	 * Analyze EXIF info of specified file asynchronously
+	 * 
+	 * @param fileName
+	 * @return future of ExifInfo.If the file does not have Exif,
+	 *         ExifInfo#isEnabled() returns false.
+	 */
+	public CompletableFuture<ExifInfo> read(String fileName) {
+		return read(Paths.get(fileName));
+	}
+
+	/**
+	 * Analyze EXIF info of specified file asynchronously
+	 * 
+	 * @param path
+	 * @return future of ExifInfo.If the file does not have Exif,
+	 *         ExifInfo#isEnabled() returns false.
+	 */
+	public CompletableFuture<ExifInfo> read(Path path) {
+		return readAPP1Segment(path).thenApply(app1 -> {
+			ExifInfo exifInfo = new ExifInfo();
+
+			if (app1 != null) {
+				mExifReader.readAPP1Segment(app1.buffer, app1.offset, exifInfo);
+			} else {
+				exifInfo.setEnabled(false);
+			}
+			return exifInfo;
+		});
+	}
+
+	/**
+	 * Read the IFD blocks of specified file asynchronously
+	 * 
+	 * @param fileName
+	 * @return future of the decoder which holds the IFD blocks.If the file
+	 *         does not have Exif, ExiguousExifLowLevelDecoder#getIFD0()
+	 *         returns null.
+	 */
+	public CompletableFuture<ExiguousExifLowLevelDecoder> readIFD(String fileName) {
+		return readIFD(Paths.get(fileName));
+	}
+
+	/**
+	 * Read the IFD blocks of specified file asynchronously
+	 * 
+	 * @param path
+	 * @return future of the decoder which holds the IFD blocks.If the file
+	 *         does not have Exif, ExiguousExifLowLevelDecoder#getIFD0()
+	 *         returns null.
+	 */
+	public CompletableFuture<ExiguousExifLowLevelDecoder> readIFD(Path path) {
+		return readAPP1Segment(path).thenApply(app1 -> {
+			ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+			decoder.setLogging(mIsLogging);
+
+			if (app1 != null) {
+				decoder.readAPP1Segment(app1.buffer, app1.offset);
+			}
+			return decoder;
+		});
+	}
+
+	/**
+	 * Exif APP1 segment and its position in the file
+	 */
+	private static class APP1Segment {
+		final long offset;
+		final ByteBuffer buffer;
+
+		APP1Segment(long offset, ByteBuffer buffer) {
+			this.offset = offset;
+			this.buffer = buffer;
+		}
+	}
+
+	/**
+	 * Locate and read the Exif APP1 segment of the file
+	 * 
+	 * @param path
+	 * @return future of the APP1 segment,or null if the file does not have
+	 *         Exif APP1
+	 */
+	private CompletableFuture<APP1Segment> readAPP1Segment(Path path) {
+		final AsynchronousFileChannel channel;
+		try {
+			channel = AsynchronousFileChannel.open(path, Collections.singleton(StandardOpenOption.READ), mExecutor);
+		} catch (IOException e) {
+			CompletableFuture<APP1Segment> failed = new CompletableFuture<APP1Segment>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+
+		CompletableFuture<APP1Segment> future = readFully(channel, ByteBuffer.allocate(2), 0, false).thenCompose(soi -> {
+			soi.flip();
+
+			if (soi.remaining() < 2 || (soi.getShort(0) & 0xFFFF) != 0xFFD8) {
+				// not JPEG
+				return CompletableFuture.completedFuture(null);
+			}
+
+			return findAPP1Segment(channel, 2);
+		});
+
+		return future.whenComplete((result, error) -> {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				if (error == null) {
+					throw new CompletionException(e);
+				}
+				// keep the error of the read
+				Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+				cause.addSuppressed(e);
+			}
+		});
+	}
+
+	/**
+	 * Walk the segments from the position by the dependent reads until the
+	 * Exif APP1 is found
+	 * 
+	 * @param channel
+	 * @param position
+	 *            position of the marker
+	 * @return
+	 */
+	private CompletableFuture<APP1Segment> findAPP1Segment(final AsynchronousFileChannel channel, final long position) {
+		ByteBuffer markerBuffer = ByteBuffer.allocate(ExiguousExifLowLevelDecoder.MARKER_HEAD_SIZE);
+
+		return readFully(channel, markerBuffer, position, false).thenCompose(markerHeadBuffer -> {
+			markerHeadBuffer.flip();
+
+			int[] markerHead = new int[ExiguousExifLowLevelDecoder.MARKER_HEAD_SIZE];
+			for (int i = 0; i < markerHeadBuffer.limit(); i++) {
+				markerHead[i] = markerHeadBuffer.get(i) & 0xFF;
+			}
+
+			long nextPosition = ExiguousExifLowLevelDecoder.getNextMarkerOffset(markerHead, position);
+
+			if (nextPosition < 0) {
+				return CompletableFuture.completedFuture(null);
+			}
+
+			if (nextPosition != position) {
+				return findAPP1Segment(channel, nextPosition);
+			}
+
+			// Exif APP1 is found, read whole segment(APP1 code 2byte +
+			// segment length)
+			int segmentLength = markerHead[2] * 256 + markerHead[3];
+			ByteBuffer segment = ByteBuffer.allocate(2 + segmentLength);
+			segment.put(markerHeadBuffer);
+
+			// The truncated segment is an error as ExiguousExifReader
+			return readFully(channel, segment, position + segment.position(), true).thenApply(segmentBuffer -> {
+				segmentBuffer.flip();
+				return new APP1Segment(position, segmentBuffer);
+			});
+		});
+	}
+
+	/**
+	 * Fill the remaining of the buffer by reading the channel from the
+	 * specified position.
+	 * 
+	 * @param channel
+	 * @param buffer
+	 * @param position
+	 * @param failOnEOF
+	 *            if true,it completes exceptionally when the file ends before
+	 *            the buffer is filled.
+	 * @return
+	 */
+	private static CompletableFuture<ByteBuffer> readFully(final AsynchronousFileChannel channel, final ByteBuffer buffer, long position, final boolean failOnEOF) {
+		final CompletableFuture<ByteBuffer> future = new CompletableFuture<ByteBuffer>();
+
+		channel.read(buffer, position, position, new CompletionHandler<Integer, Long>() {
+
+			@Override
+			public void completed(Integer result, Long readPosition) {
+				if (result < 0 || !buffer.hasRemaining()) {
+					if (result < 0 && failOnEOF) {
+						future.completeExceptionally(new EOFException());
+					} else {
+						future.complete(buffer);
+					}
+					return;
+				}
+
+				// Continue reading the rest
+				long nextPosition = readPosition + result;
+				channel.read(buffer, nextPosition, nextPosition, this);
+			}
+
+			@Override
+			public void failed(Throwable exc, Long readPosition) {
+				future.completeExceptionally(exc);
+			}
+		});
+
+		return future;
+	}
+}
@@ -25,7 +25,21 @@ package org.riversun.exiguous;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Exif Low Level Decoder<br>
@@ -80,26 +94,40 @@ import java.io.RandomAccessFile;
  * is 0x00000020 1byte * 32 = 32 bytes<br>
  * Offset to the value 4byte: If the length of the data is 4byte below, the data
  * itself, equal to or greater than, the position of the value is stored<br>
- * [Note]<br>
- * While Exif is defined as extended format of the JFIF format (JPEG is the
- * compression method),<br>
- * In this library, JFIF is not treated. <br>
+ * [Segments before APP1]<br>
+ * Other segments like APP0(JFIF), APP2(ICC profile) or APP14(Adobe) may be
+ * placed before the Exif APP1.<br>
+ * Each segment starts with the marker 2byte and the segment length 2byte, so
+ * the decoder jumps from marker to marker by the length until it finds the
+ * Exif APP1.It stops at SOS(Start Of Scan) without touching the compressed
+ * image data.<br>
+ * <br>
+ * [Graph of IFDs]<br>
+ * IFD0 links IFD1 by the next IFD offset, Exif IFD by ExifIFDPointer, GPS IFD
+ * by GPSInfo and the SubIFDs by SubIFDs.Exif IFD links Interoperability IFD by
+ * InteroperabilityIFDPointer.The decoder walks this graph visiting each IFD
+ * only once, so a cycle of the offsets does not make it loop.<br>
  * 
  * @author Tom Misawa (riversun.org@gmail.com)
  *
  */
 public class ExiguousExifLowLevelDecoder {
 
-	private final int SOI = 0xFFD8;// Start Of Image
-	private final int FOI = 0xFFD9;// End Of Image
+	private static final int SOI = 0xFFD8;// Start Of Image
+	private static final int FOI = 0xFFD9;// End Of Image
+	private static final int SOS = 0xFFDA;// Start Of Scan
 
 	// Starting code of APP1
-	private final int APP1_START_CODE = 0xFFE1;
+	private static final int APP1_START_CODE = 0xFFE1;
+
+	// Returned when the Exif APP1 is not found
+	static final long APP1_NOT_FOUND = -999;
 
-	// Starting code of JFIF format.Not supported APP0 starting code.
-	private final int APP0_START_CODE = 0xFFE0;
+	// Bytes inspected at each marker(marker 2byte + length 2byte + Exif
+	// identifying code 6byte)
+	static final int MARKER_HEAD_SIZE = 10;
 
-	private final int[] EXIF_DEFINE_CODE = new int[] { 0x45, 0x78, 0x69, 0x66, 0x00, 0x00 };// EXIF
+	private static final int[] EXIF_DEFINE_CODE = new int[] { 0x45, 0x78, 0x69, 0x66, 0x00, 0x00 };// EXIF
 	private final int[] BYTE_ORDER_BIGENDIAN = new int[] { 0x4D, 0x4D };
 	private final int[] BYTE_ORDER_LITTLEENDIAN = new int[] { 0x49, 0x49 };
 
@@ -111,7 +139,7 @@ public class ExiguousExifLowLevelDecoder {
 
 	private int m_EndianMode = LITTLE_ENDIAN;
 
-	private RandomAccessFile m_TargetRAFile = null;
+	private ExifDataSource m_DataSource = null;
 
 	private boolean m_IsLogging = false;
 
@@ -128,19 +156,94 @@ public class ExiguousExifLowLevelDecoder {
 	private ExifIFDBlock m_IFD1 = null;
 	private ExifIFDBlock m_Exif_IFD = null;
 	private ExifIFDBlock m_GPS_IFD = null;
+	private ExifIFDBlock m_Interoperability_IFD = null;
+	private List<ExifIFDBlock> m_SubIFDs = new ArrayList<ExifIFDBlock>();
+
+	// All of the IFDs visited in the order of visiting
+	private List<ExifIFDBlock> m_IFDList = new ArrayList<ExifIFDBlock>();
+
+	// Absolute offsets of the IFDs visited(to detect the cycle)
+	private final Set<Long> m_VisitedIFDOffsets = new HashSet<Long>();
+
+	private ExifDecoderConfig m_Config = new ExifDecoderConfig();
+
+	// Rest of the fields which can be analyzed in the image
+	private int m_RestEntryCount = 0;
+
+	// Rest of the size of the values which can be loaded in the image
+	private long m_RestValueSize = 0;
+
+	// Problems found in the image currently read
+	private final Set<ExifDecodeError> m_Errors = EnumSet.noneOf(ExifDecodeError.class);
+
+	// First I/O error while reading the image
+	private IOException m_ReadError = null;
+
+	// Bytes read at once from the head of the file in bulk read mode.
+	// It covers the range scanned for the APP1 starting code.
+	private static final int HEADER_PREFETCH_SIZE = 256;
+
+	// APP1 code 2byte + max segment length
+	private static final int MAX_APP1_SIZE = 2 + 0xFFFF;
+
+	private boolean m_IsBulkReadEnabled = false;
+
+	private boolean m_IsMemoryMapEnabled = false;
+
+	private boolean m_IsLazyValueLoadingEnabled = false;
+
+	// If it is set, only the requested tags are decoded
+	private ExifTagQuery m_TagQuery = null;
+
+	// If it is set, the entries are passed to it instead of building the IFD
+	// blocks
+	private ExifVisitor m_Visitor = null;
+	private final ExifValueView m_ValueView = new ExifValueView();
+
+	// Queue of the IFDs to visit and the IFDs already visited in the
+	// streaming decoding.They are reused for the next image.
+	private long[] m_PendingVisitOffsets = new long[8];
+	private ExifIFDKind[] m_PendingVisitKinds = new ExifIFDKind[8];
+	private long[] m_VisitedOffsets = new long[8];
+
+	// The segment is read into this scratch buffer in the streaming
+	// decoding.Nothing refers the segment after the visit,so the buffer and
+	// its holder are reused for the next image.
+	private ByteBuffer m_VisitScratch = null;
+	private final ExifSegmentBuffer m_VisitSegmentBuffer = new ExifSegmentBuffer(null);
+
+	// Data sources reused for each image
+	private final ExifFileDataSource m_FileDataSource = new ExifFileDataSource(null);
+	private final ExifByteBufferDataSource m_ByteBufferDataSource = new ExifByteBufferDataSource(ByteBuffer.allocate(0));
+
+	// Incremented when the data source is closed.The fields loaded lazily
+	// check it not to read from the data source of another image.
+	private int m_ReadGeneration = 0;
+
+	// In bulk read mode, whole APP1 segment is loaded into this buffer
+	// and the reads inside the segment are served from memory.
+	// The values of the fields refer this buffer without copying.
+	private ExifSegmentBuffer m_SegmentBuffer = null;
+	private long m_Ptr_SegmentBuffer = 0;
 
 	// type names
-	private final String[] IFD_TAG_TYPE_NAME = new String[] { "-NOTHING-", "BYTE", "ASCII", "SHORT", "LONG", "RATIONAL", "SBYTE", "UNDEFINED", "SSHORT", "SLONG", "SRATIONAL", "FLOAT", "DFLOAT" };
+	private final String[] IFD_TAG_TYPE_NAME = new String[] { "-NOTHING-", "BYTE", "ASCII", "SHORT", "LONG", "RATIONAL", "SBYTE", "UNDEFINED", "SSHORT", "SLONG", "SRATIONAL", "FLOAT", "DFLOAT", "IFD" };
 
 	// size in byte for each types
-	private final int[] IFD_TAG_TYPE_SIZEOF = new int[] { -99999, 1, 1, 2, 4, 8, 1, 1, 2, 4, 8, 4, 8 };
+	private final int[] IFD_TAG_TYPE_SIZEOF = new int[] { -99999, 1, 1, 2, 4, 8, 1, 1, 2, 4, 8, 4, 8, 4 };
 
 	private void openFile(String fileName) {
 		try {
-			m_TargetRAFile = new RandomAccessFile(fileName, "r");
+			if (m_IsMemoryMapEnabled) {
+				m_DataSource = ExifMappedFileDataSource.open(fileName);
+			} else {
+				m_FileDataSource.setFile(new RandomAccessFile(fileName, "r"));
+				m_DataSource = m_FileDataSource;
+			}
 		} catch (FileNotFoundException e) {
-
-			e.printStackTrace();
+			addReadError(e);
+		} catch (IOException e) {
+			addReadError(e);
 		}
 	}
 
@@ -154,181 +257,956 @@ public class ExiguousExifLowLevelDecoder {
 	 * @param fileName
 	 */
 	public boolean read(String fileName) {
+		close();
+		m_ReadError = null;
 		openFile(fileName);
-		return readIFD();
+		return readDataSource();
 	}
 
 	/**
+	 * Enabling memory map mode<br>
+	 * When it is enabled, the file is mapped on memory by FileChannel#map and
+	 * the IFDs are analyzed straight from the mapping.The mapping is released
+	 * when the decoder is closed or the next image is read.<br>
+	 * It is suitable for the large files on the local storage.
 	 * 
-	 * read IFD if
+	 * @param isMemoryMapEnabled
+	 */
+	public void setMemoryMapEnabled(boolean isMemoryMapEnabled) {
+		m_IsMemoryMapEnabled = isMemoryMapEnabled;
+	}
+
+	/**
+	 * Enabling lazy value loading mode<br>
+	 * When it is enabled, the value of the field which is out of the 4byte
+	 * data area is not read while analyzing the IFD.It is read on the first
+	 * access to the value of the field(like ExifIFDField#getData()).<br>
+	 * The values must be accessed before the decoder is closed or the next
+	 * image is read.(The values already on memory,like in bulk read mode,are
+	 * available after closing as usual.)
+	 * 
+	 * @param isLazyValueLoadingEnabled
+	 */
+	public void setLazyValueLoadingEnabled(boolean isLazyValueLoadingEnabled) {
+		m_IsLazyValueLoadingEnabled = isLazyValueLoadingEnabled;
+	}
+
+	/**
+	 * Set the tags to be read<br>
+	 * When it is set, only the requested tags are decoded and put into the
+	 * query.The IFDs which can not contain any requested tag are skipped and
+	 * the decoding stops as soon as all of the requested tags are found. The
+	 * IFD blocks of this decoder contain only the requested fields(and the
+	 * pointers to the IFDs needed).<br>
+	 * With the empty query,only the Exif header is checked and no IFD is
+	 * analyzed.Set null to decode all of the tags.
+	 * 
+	 * @param tagQuery
+	 */
+	public void setTagQuery(ExifTagQuery tagQuery) {
+		m_TagQuery = tagQuery;
+	}
+
+	/**
+	 * Set the visitor for the streaming decoding<br>
+	 * When it is set, the whole APP1 segment is loaded at once and the entries
+	 * of the IFDs are passed to the visitor in a single pass.No ExifIFDBlock
+	 * and ExifIFDField are built(#getIFD0() and the others return null) and
+	 * the tag query is not used.<br>
+	 * Set null to build the IFD blocks as usual.
 	 * 
-	 * @return success:return true/In case if the JFIF format:return false
+	 * @param visitor
 	 */
-	private boolean readIFD() {
+	public void setVisitor(ExifVisitor visitor) {
+		m_Visitor = visitor;
+	}
 
-		log(m_Ptr_IFD0Offset, "IFD0 Analyze");
+	/**
+	 * Set the limits of walking the IFDs
+	 * 
+	 * @param config
+	 */
+	public void setConfig(ExifDecoderConfig config) {
+		if (config == null) {
+			throw new NullPointerException("config is null");
+		}
+		m_Config = config;
+	}
 
-		m_Ptr_IFD0Offset = getIFD0Offset();
+	public ExifDecoderConfig getConfig() {
+		return m_Config;
+	}
+
+	/**
+	 * Read the Exif formatted image from the stream<br>
+	 * The stream is consumed only up to the end of the APP1 segment, and it is
+	 * not closed.
+	 * 
+	 * @param inputStream
+	 */
+	public boolean read(InputStream inputStream) {
+		close();
+		m_ReadError = null;
+		m_DataSource = new ExifStreamDataSource(inputStream);
+		return readDataSource();
+	}
+
+	/**
+	 * Read the Exif formatted image on the byte array
+	 * 
+	 * @param data
+	 */
+	public boolean read(byte[] data) {
+		return read(data, 0, data.length);
+	}
+
+	/**
+	 * Read the Exif formatted image on the byte array
+	 * 
+	 * @param data
+	 * @param offset
+	 *            the position where the image starts
+	 * @param length
+	 *            length of the image
+	 */
+	public boolean read(byte[] data, int offset, int length) {
+		return read(ByteBuffer.wrap(data, offset, length));
+	}
+
+	/**
+	 * Read the Exif formatted image on the buffer<br>
+	 * The range from the position to the limit of the buffer is read. The
+	 * position of the buffer is not changed.
+	 * 
+	 * @param buffer
+	 */
+	public boolean read(ByteBuffer buffer) {
+		close();
+		m_ReadError = null;
+		m_ByteBufferDataSource.setBuffer(buffer, 0);
+		m_DataSource = m_ByteBufferDataSource;
+		return readDataSource();
+	}
+
+	/**
+	 * Close the image currently opened
+	 */
+	public void close() {
+
+		m_ReadGeneration++;
+
+		if (m_SegmentBuffer != null && m_SegmentBuffer != m_VisitSegmentBuffer && m_DataSource != null && !m_DataSource.isSegmentViewValidAfterClose()) {
+			// The segment buffer is a view of the memory mapping.
+			// Keep it on heap for the fields which refer it.
+			m_SegmentBuffer.detach();
+		}
+		m_SegmentBuffer = null;
+		m_VisitSegmentBuffer.set(null);
+
+		if (m_DataSource != null) {
+			try {
+				m_DataSource.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			m_DataSource = null;
+		}
+	}
+
+	private boolean readDataSource() {
+
+		reset();
+
+		if (m_DataSource == null) {
+			return false;
+		}
+
+		if ((m_IsBulkReadEnabled || m_DataSource.isSegmentViewAvailable()) && !m_DataSource.isSequential()) {
+			loadSegmentBuffer(0, HEADER_PREFETCH_SIZE);
+		}
+
+		return readIFD(findAPP1Offset());
+	}
+
+	/**
+	 * Read the APP1 segment which is already located and fetched by the
+	 * caller
+	 * 
+	 * @param segment
+	 *            APP1 segment(from APP1 starting code to the end of the
+	 *            segment)
+	 * @param app1Offset
+	 *            position of the APP1 segment in the image
+	 * @return
+	 */
+	boolean readAPP1Segment(ByteBuffer segment, long app1Offset) {
+		close();
+		m_ReadError = null;
+		reset();
+
+		m_ByteBufferDataSource.setBuffer(segment, app1Offset);
+		m_DataSource = m_ByteBufferDataSource;
+		return readIFD(app1Offset);
+	}
+
+	/**
+	 * Release the results of the last image(the IFD blocks,the segment
+	 * buffer and the errors).<br>
+	 * It is used before the decoder is kept in the pool not to keep the last
+	 * image(or the buffer of the caller) alive.
+	 */
+	void clear() {
+		close();
+		reset();
+		m_ReadError = null;
+	}
+
+	private void reset() {
+		m_SegmentBuffer = null;
+		m_Ptr_SegmentBuffer = 0;
+		m_ValueView.set(null, 0, 0, 0, LITTLE_ENDIAN);
+
+		m_IFD0 = null;
+		m_IFD1 = null;
+		m_Exif_IFD = null;
+		m_GPS_IFD = null;
+		m_Interoperability_IFD = null;
+		m_SubIFDs = new ArrayList<ExifIFDBlock>();
+		m_IFDList = new ArrayList<ExifIFDBlock>();
+
+		m_VisitedIFDOffsets.clear();
+		m_RestEntryCount = m_Config.getMaxTotalEntryCount();
+		m_RestValueSize = m_Config.getMaxTotalValueSize();
+		m_Errors.clear();
+
+		if (m_TagQuery != null) {
+			m_TagQuery.clearResults();
+		}
+	}
+
+	/**
+	 * Enabling bulk read mode<br>
+	 * When it is enabled, the APP1 segment is read at once and the IFDs are
+	 * analyzed in memory instead of seeking the file for every field.<br>
+	 * The decoded result is the same as the default mode.
+	 * 
+	 * @param isBulkReadEnabled
+	 */
+	public void setBulkReadEnabled(boolean isBulkReadEnabled) {
+		m_IsBulkReadEnabled = isBulkReadEnabled;
+	}
+
+	/**
+	 * 
+	 * read IFD if
+	 * 
+	 * @param app1Offset
+	 *            position of the APP1 starting code
+	 * @return success:return true/In case if Exif APP1 is not found:return
+	 *         false
+	 */
+	private boolean readIFD(long app1Offset) {
+
+		m_Ptr_IFD0Offset = getIFD0Offset(app1Offset);
 
 		if (m_Ptr_IFD0Offset < 0) {
 			return false;
 		}
 
-		m_IFD0 = IFDAnalyze(m_Ptr_IFD0Offset);
+		if (m_Visitor != null) {
+			return visitIFDs(m_Ptr_IFD0Offset);
+		}
+
+		if (m_TagQuery != null && m_TagQuery.isCompleted()) {
+			// Empty query,only checking the Exif header
+			return true;
+		}
+
+		walkIFDs(m_Ptr_IFD0Offset);
 
 		// You can look up by tag name or tag code like this
 		// IFDField modelNameFiled1 = m_IFD0.getFieldByName("Model");
-		// IFDField modelNameFiled2 = m_IFD0.getField("0x0110");
+		// IFDField modelNameFiled2 = m_IFD0.getField(0x0110);
 
-		if (m_IFD0.NextIFDOffset > 0) {
-			log(m_IFD0.NextIFDOffset, "IFD1 Analyze");
+		return m_IFD0 != null;
+	}
+
+	/**
+	 * Link to the IFD which is not visited yet
+	 */
+	private static class IFDLink {
+		final long absoluteOffset;
+		final ExifIFDKind kind;
 
-			m_IFD1 = IFDAnalyze(m_IFD0.NextIFDOffset + m_Ptr_ExifOffset);
+		IFDLink(long absoluteOffset, ExifIFDKind kind) {
+			this.absoluteOffset = absoluteOffset;
+			this.kind = kind;
 		}
+	}
 
-		// The address for pulling the exifIFD refers to the address that has
-		// been set to "ExifIFDPointer" of ifd0.
-		ExifIFDField ExifIFDPointerFiled = m_IFD0.getFieldByName("ExifIFDPointer");
+	/**
+	 * Walk the graph of the IFDs from IFD0 in breadth first order.<br>
+	 * Each IFD is visited only once, and it stops when the number of the IFDs
+	 * or the fields reaches the limit of the config.
+	 * 
+	 * @param ifd0Offset
+	 *            absolute offset of IFD0
+	 */
+	private void walkIFDs(long ifd0Offset) {
 
-		if (ExifIFDPointerFiled != null) {
+		Deque<IFDLink> pendingLinks = new ArrayDeque<IFDLink>();
+		pendingLinks.add(new IFDLink(ifd0Offset, ExifIFDKind.IFD0));
 
-			long exifIFDPointer = ExifIFDPointerFiled.LongData;
-			m_Ptr_ExifIFDOffset = exifIFDPointer + m_Ptr_ExifOffset;
+		while (!pendingLinks.isEmpty()) {
+			IFDLink link = pendingLinks.poll();
 
-			log(m_Ptr_ExifIFDOffset, "Exif IFD Analyze");
+			if (!isIFDRequired(link.kind)) {
+				continue;
+			}
+
+			if (!m_VisitedIFDOffsets.add(link.absoluteOffset)) {
+				// The offset links to the IFD already visited
+				addError(ExifDecodeError.IFD_CYCLE, link.absoluteOffset, link.kind + " IFD is already visited");
+				continue;
+			}
+
+			if (m_IFDList.size() >= m_Config.getMaxIFDCount()) {
+				addError(ExifDecodeError.IFD_COUNT_EXCEEDED, link.absoluteOffset, "IFDs=" + m_IFDList.size());
+				break;
+			}
+
+			if (m_RestEntryCount <= 0) {
+				addError(ExifDecodeError.TOTAL_ENTRY_COUNT_EXCEEDED, link.absoluteOffset, "No more fields can be analyzed");
+				break;
+			}
+
+			if (!isInSegment(link.absoluteOffset, 2)) {
+				addError(ExifDecodeError.INVALID_OFFSET, link.absoluteOffset, link.kind + " IFD is out of the segment");
+				continue;
+			}
+
+			log(link.absoluteOffset, link.kind + " IFD Analyze");
+
+			ExifIFDBlock ifd = IFDAnalyze(link.absoluteOffset, link.kind);
+			m_IFDList.add(ifd);
+
+			switch (link.kind) {
+			case IFD0:
+				m_IFD0 = ifd;
+				break;
+			case IFD1:
+				if (m_IFD1 == null) {
+					m_IFD1 = ifd;
+				}
+				break;
+			case EXIF:
+				m_Ptr_ExifIFDOffset = link.absoluteOffset;
+				m_Exif_IFD = ifd;
+				break;
+			case GPS:
+				m_Ptr_GPSIFDOffset = link.absoluteOffset;
+				m_GPS_IFD = ifd;
+				break;
+			case INTEROPERABILITY:
+				m_Interoperability_IFD = ifd;
+				break;
+			case SUB_IFD:
+				m_SubIFDs.add(ifd);
+				break;
+			default:
+				break;
+			}
+
+			addLinks(ifd, link.absoluteOffset, pendingLinks);
+		}
+	}
+
+	/**
+	 * Add the links from the IFD to the other IFDs
+	 * 
+	 * @param ifd
+	 * @param ifdOffset
+	 *            absolute offset of the IFD
+	 * @param pendingLinks
+	 */
+	private void addLinks(ExifIFDBlock ifd, long ifdOffset, Deque<IFDLink> pendingLinks) {
 
-			m_Exif_IFD = IFDAnalyze(m_Ptr_ExifIFDOffset);
+		// Next IFD of the chain(IFD0->IFD1->..., SubIFD->SubIFD->...)
+		if (ifd.NextIFDOffset > 0) {
+			if (ifd.Kind == ExifIFDKind.IFD0 || ifd.Kind == ExifIFDKind.IFD1) {
+				pendingLinks.add(new IFDLink(ifd.NextIFDAbsoluteOffset, ExifIFDKind.IFD1));
+			} else if (ifd.Kind == ExifIFDKind.SUB_IFD) {
+				pendingLinks.add(new IFDLink(ifd.NextIFDAbsoluteOffset, ExifIFDKind.SUB_IFD));
+			}
 		}
 
-		// The address for pulling the gpdIFD refers to the address that has
-		// been set to "GPSInfo" of ifd0.
-		ExifIFDField GPSIFDPointerFiled = m_IFD0.getFieldByName("GPSInfo");
+		if (ifd.Kind == ExifIFDKind.IFD0) {
 
-		if (GPSIFDPointerFiled != null) {
-			long GPSIFDPointer = GPSIFDPointerFiled.LongData;
-			m_Ptr_GPSIFDOffset = GPSIFDPointer + m_Ptr_ExifOffset;
-			log(m_Ptr_GPSIFDOffset, "GPS IFD Analyze");
+			ExifIFDField subIFDsField = ifd.getField(ExifTag.SUB_IFDS.getCode());
+			if (subIFDsField != null) {
+				if (subIFDsField.DataType != ExifIFDField.TYPE_LONG && subIFDsField.DataType != ExifIFDField.TYPE_IFD) {
+					addError(ExifDecodeError.INVALID_TYPE, ifdOffset, "SubIFDs Type=" + subIFDsField.DataType);
+				} else {
+					// Count of the SubIFDs more than the limit of the IFDs is
+					// not needed
+					long subIFDCount = Math.min(Math.min(subIFDsField.SizeCount, subIFDsField.getDataLength() / 4), m_Config.getMaxIFDCount());
+					for (int i = 0; i < subIFDCount; i++) {
+						pendingLinks.add(new IFDLink(subIFDsField.getUnsignedInt(i) + m_Ptr_ExifOffset, ExifIFDKind.SUB_IFD));
+					}
+				}
+			}
+
+			// The address for pulling the exifIFD refers to the address that
+			// has been set to "ExifIFDPointer" of ifd0.
+			ExifIFDField exifIFDPointerField = ifd.getField(ExifTag.EXIF_IFD_POINTER.getCode());
+			if (exifIFDPointerField != null && checkPointer(exifIFDPointerField.Tag, exifIFDPointerField.DataType, exifIFDPointerField.SizeCount, ifdOffset)) {
+				pendingLinks.add(new IFDLink(exifIFDPointerField.LongData + m_Ptr_ExifOffset, ExifIFDKind.EXIF));
+			}
 
-			m_GPS_IFD = IFDAnalyze(m_Ptr_GPSIFDOffset);
+			// The address for pulling the gpdIFD refers to the address that
+			// has been set to "GPSInfo" of ifd0.
+			ExifIFDField gpsIFDPointerField = ifd.getField(ExifTag.GPS_INFO.getCode());
+			if (gpsIFDPointerField != null && checkPointer(gpsIFDPointerField.Tag, gpsIFDPointerField.DataType, gpsIFDPointerField.SizeCount, ifdOffset)) {
+				pendingLinks.add(new IFDLink(gpsIFDPointerField.LongData + m_Ptr_ExifOffset, ExifIFDKind.GPS));
+			}
+
+		} else if (ifd.Kind == ExifIFDKind.EXIF) {
+
+			ExifIFDField interoperabilityIFDPointerField = ifd.getField(ExifTag.INTEROPERABILITY_IFD_POINTER.getCode());
+			if (interoperabilityIFDPointerField != null
+					&& checkPointer(interoperabilityIFDPointerField.Tag, interoperabilityIFDPointerField.DataType, interoperabilityIFDPointerField.SizeCount, ifdOffset)) {
+				pendingLinks.add(new IFDLink(interoperabilityIFDPointerField.LongData + m_Ptr_ExifOffset, ExifIFDKind.INTEROPERABILITY));
+			}
 		}
+	}
 
+	/**
+	 * Check the type and the count of the pointer to the IFD(ExifIFDPointer
+	 * and so on).It has to be one LONG(or IFD) value,otherwise the data is
+	 * not the offset of the IFD.
+	 * 
+	 * @param tag
+	 * @param type
+	 * @param count
+	 * @param pos
+	 *            position for the error
+	 * @return true if the pointer can be followed
+	 */
+	private boolean checkPointer(long tag, long type, long count, long pos) {
+		if ((type != ExifIFDField.TYPE_LONG && type != ExifIFDField.TYPE_IFD) || count != 1) {
+			addError(ExifDecodeError.INVALID_TYPE, pos, "Pointer Tag=" + toHexStr(tag) + " Type=" + type + " Count=" + count);
+			return false;
+		}
 		return true;
 	}
 
-	private String toHexStr(long val) {
-		return "0x" + String.format("%04x", val) + "(" + String.format("%06d", val) + ")";
+	/**
+	 * Returns true if the IFD has to be analyzed for the tag query
+	 * 
+	 * @param kind
+	 * @return
+	 */
+	private boolean isIFDRequired(ExifIFDKind kind) {
+		if (m_TagQuery == null) {
+			return true;
+		}
+		if (m_TagQuery.isCompleted()) {
+			return false;
+		}
+		if (kind == ExifIFDKind.IFD0) {
+			return true;
+		}
+		if (kind == ExifIFDKind.EXIF) {
+			// Interoperability IFD is linked from Exif IFD
+			return m_TagQuery.hasTags(ExifIFDKind.EXIF) || m_TagQuery.hasTags(ExifIFDKind.INTEROPERABILITY);
+		}
+		return m_TagQuery.hasTags(kind);
+	}
+
+	/**
+	 * Returns true if the field has to be decoded for the tag query
+	 * 
+	 * @param kind
+	 * @param tag
+	 * @return
+	 */
+	private boolean isFieldRequired(ExifIFDKind kind, long tag) {
+		if (m_TagQuery == null || m_TagQuery.isWanted(kind, tag)) {
+			return true;
+		}
+		if (kind == ExifIFDKind.IFD0) {
+			// pointers to the IFDs which have the requested tags
+			return (tag == ExifTag.EXIF_IFD_POINTER.getCode() && isIFDRequired(ExifIFDKind.EXIF))
+					|| (tag == ExifTag.GPS_INFO.getCode() && isIFDRequired(ExifIFDKind.GPS))
+					|| (tag == ExifTag.SUB_IFDS.getCode() && isIFDRequired(ExifIFDKind.SUB_IFD));
+		}
+		if (kind == ExifIFDKind.EXIF) {
+			return tag == ExifTag.INTEROPERABILITY_IFD_POINTER.getCode() && isIFDRequired(ExifIFDKind.INTEROPERABILITY);
+		}
+		return false;
+	}
+
+	/**
+	 * Returns true if all of the fields needed in the IFD are already found
+	 * for the tag query
+	 * 
+	 * @param ifd
+	 * @return
+	 */
+	private boolean isIFDCompleted(ExifIFDBlock ifd) {
+		if (m_TagQuery == null || !m_TagQuery.isCompleted(ifd.Kind)) {
+			return false;
+		}
+		if (ifd.Kind == ExifIFDKind.IFD0) {
+			if (isIFDRequired(ExifIFDKind.EXIF) && ifd.getField(ExifTag.EXIF_IFD_POINTER.getCode()) == null) {
+				return false;
+			}
+			if (isIFDRequired(ExifIFDKind.GPS) && ifd.getField(ExifTag.GPS_INFO.getCode()) == null) {
+				return false;
+			}
+			if (isIFDRequired(ExifIFDKind.SUB_IFD) && ifd.getField(ExifTag.SUB_IFDS.getCode()) == null) {
+				return false;
+			}
+		}
+		if (ifd.Kind == ExifIFDKind.EXIF) {
+			if (isIFDRequired(ExifIFDKind.INTEROPERABILITY) && ifd.getField(ExifTag.INTEROPERABILITY_IFD_POINTER.getCode()) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Walk the IFDs in the same order as #walkIFDs(long) and pass the entries
+	 * to the visitor.<br>
+	 * The entries are read straight from the segment buffer and the value is
+	 * passed by the view reused for all of the entries,so no object is
+	 * created for each entry.
+	 * 
+	 * @param ifd0Offset
+	 *            absolute offset of IFD0
+	 * @return true if IFD0 is visited
+	 */
+	private boolean visitIFDs(long ifd0Offset) {
+
+		if (m_SegmentBuffer == null || m_Ptr_SegmentBuffer > m_Ptr_ExifOffset || m_Ptr_SegmentBuffer + m_SegmentBuffer.limit() < getSegmentEnd()) {
+			log(m_Ptr_APP1_Offset, "APP1 segment is not loaded.(>_<)");
+			return false;
+		}
+
+		boolean isIFD0Visited = false;
+		int visitedCount = 0;
+		int head = 0;
+		int tail = addPendingVisit(0, ifd0Offset, ExifIFDKind.IFD0);
+
+		while (head < tail) {
+			long offset = m_PendingVisitOffsets[head];
+			ExifIFDKind kind = m_PendingVisitKinds[head];
+			head++;
+
+			if (isVisited(offset, visitedCount)) {
+				// The offset links to the IFD already visited
+				addError(ExifDecodeError.IFD_CYCLE, offset, kind + " IFD is already visited");
+				continue;
+			}
+
+			if (visitedCount >= m_Config.getMaxIFDCount()) {
+				addError(ExifDecodeError.IFD_COUNT_EXCEEDED, offset, "IFDs=" + visitedCount);
+				break;
+			}
+
+			if (m_RestEntryCount <= 0) {
+				addError(ExifDecodeError.TOTAL_ENTRY_COUNT_EXCEEDED, offset, "No more fields can be analyzed");
+				break;
+			}
+
+			if (!isInSegment(offset, 2)) {
+				addError(ExifDecodeError.INVALID_OFFSET, offset, kind + " IFD is out of the segment");
+				continue;
+			}
+
+			if (visitedCount == m_VisitedOffsets.length) {
+				m_VisitedOffsets = Arrays.copyOf(m_VisitedOffsets, visitedCount * 2);
+			}
+			m_VisitedOffsets[visitedCount++] = offset;
+
+			if (kind == ExifIFDKind.IFD0) {
+				isIFD0Visited = true;
+			} else if (kind == ExifIFDKind.EXIF) {
+				m_Ptr_ExifIFDOffset = offset;
+			} else if (kind == ExifIFDKind.GPS) {
+				m_Ptr_GPSIFDOffset = offset;
+			}
+
+			tail = visitIFD(offset, kind, tail);
+		}
+
+		return isIFD0Visited;
+	}
+
+	/**
+	 * Pass the entries of the IFD to the visitor
+	 * 
+	 * @param startPtr
+	 *            absolute offset of the IFD
+	 * @param kind
+	 * @param tail
+	 *            tail of the queue of the IFDs to visit
+	 * @return new tail of the queue
+	 */
+	private int visitIFD(long startPtr, ExifIFDKind kind, int tail) {
+
+		if (m_IsLogging) {
+			log(startPtr, kind + " IFD Visit");
+		}
+
+		long fPtr = startPtr;
+		long count = getSegmentValue(fPtr, 2);
+		fPtr += 2;
+
+		// Same limits as #IFDAnalyze
+		long analyzedCount = count;
+		if (analyzedCount > m_Config.getMaxEntryCount()) {
+			addError(ExifDecodeError.ENTRY_COUNT_EXCEEDED, fPtr, "Only " + m_Config.getMaxEntryCount() + " of " + count + " fields are analyzed");
+			analyzedCount = m_Config.getMaxEntryCount();
+		}
+		if (!isInSegment(fPtr, analyzedCount * 12)) {
+			addError(ExifDecodeError.INVALID_OFFSET, fPtr, "Fields are out of the segment. count=" + count);
+			analyzedCount = Math.max(0, (getSegmentEnd() - fPtr) / 12);
+		}
+		if (analyzedCount > m_RestEntryCount) {
+			addError(ExifDecodeError.TOTAL_ENTRY_COUNT_EXCEEDED, fPtr, "Only " + m_RestEntryCount + " fields are analyzed");
+			analyzedCount = m_RestEntryCount;
+		}
+		m_RestEntryCount -= analyzedCount;
+
+		if (!m_Visitor.onIfdStart(kind, startPtr - m_Ptr_ExifOffset, (int) count)) {
+			return tail;
+		}
+
+		// Next IFD of the chain is queued before the links in the entries like
+		// #addLinks
+		long nextIFDPtr = startPtr + 2 + count * 12;
+		if (isInSegment(nextIFDPtr, 4)) {
+			long nextIFDOffset = getSegmentValue(nextIFDPtr, 4);
+			if (nextIFDOffset > 0) {
+				if (kind == ExifIFDKind.IFD0 || kind == ExifIFDKind.IFD1) {
+					tail = addPendingVisit(tail, nextIFDOffset + m_Ptr_ExifOffset, ExifIFDKind.IFD1);
+				} else if (kind == ExifIFDKind.SUB_IFD) {
+					tail = addPendingVisit(tail, nextIFDOffset + m_Ptr_ExifOffset, ExifIFDKind.SUB_IFD);
+				}
+			}
+		}
+
+		for (int i = 0; i < analyzedCount; i++, fPtr += 12) {
+
+			int tag = (int) getSegmentValue(fPtr, 2);
+			int type = (int) getSegmentValue(fPtr + 2, 2);
+			long sizeCount = getSegmentValue(fPtr + 4, 4);
+			long data = getSegmentValue(fPtr + 8, 4);
+
+			if (type < 1 || type >= IFD_TAG_TYPE_SIZEOF.length) {
+				addError(ExifDecodeError.INVALID_TYPE, fPtr, "Tag=" + toHexStr(tag) + " Type=" + type);
+				continue;
+			}
+
+			long dataSize = sizeCount * IFD_TAG_TYPE_SIZEOF[type];
+
+			// the value is in the 4byte data area or at the offset
+			long valuePtr = fPtr + 8;
+
+			if (dataSize > 4) {
+				valuePtr = data + m_Ptr_ExifOffset;
+
+				if (dataSize > m_Config.getMaxValueSize()) {
+					addError(ExifDecodeError.VALUE_SIZE_EXCEEDED, fPtr, "Tag=" + toHexStr(tag) + " Size=" + dataSize);
+					continue;
+				}
+				if (!isInSegment(valuePtr, dataSize)) {
+					addError(ExifDecodeError.INVALID_OFFSET, fPtr, "Value of Tag=" + toHexStr(tag) + " is out of the segment");
+					continue;
+				}
+				if (dataSize > m_RestValueSize) {
+					addError(ExifDecodeError.TOTAL_VALUE_SIZE_EXCEEDED, fPtr, "Tag=" + toHexStr(tag) + " Size=" + dataSize);
+					continue;
+				}
+				m_RestValueSize -= dataSize;
+			}
+
+			m_ValueView.set(m_SegmentBuffer, (int) (valuePtr - m_Ptr_SegmentBuffer), (int) dataSize, type, m_EndianMode);
+
+			m_Visitor.onEntry(kind, tag, type, sizeCount, m_ValueView);
+
+			// Links to the other IFDs(same as #addLinks)
+			if (kind == ExifIFDKind.IFD0) {
+				if (tag == ExifTag.SUB_IFDS.getCode()) {
+					if (type != ExifIFDField.TYPE_LONG && type != ExifIFDField.TYPE_IFD) {
+						addError(ExifDecodeError.INVALID_TYPE, fPtr, "SubIFDs Type=" + type);
+					} else {
+						long subIFDCount = Math.min(Math.min(sizeCount, m_ValueView.getLength() / 4), m_Config.getMaxIFDCount());
+						for (int j = 0; j < subIFDCount; j++) {
+							tail = addPendingVisit(tail, m_ValueView.getUnsignedInteger(j) + m_Ptr_ExifOffset, ExifIFDKind.SUB_IFD);
+						}
+					}
+				} else if (tag == ExifTag.EXIF_IFD_POINTER.getCode()) {
+					if (checkPointer(tag, type, sizeCount, fPtr)) {
+						tail = addPendingVisit(tail, data + m_Ptr_ExifOffset, ExifIFDKind.EXIF);
+					}
+				} else if (tag == ExifTag.GPS_INFO.getCode()) {
+					if (checkPointer(tag, type, sizeCount, fPtr)) {
+						tail = addPendingVisit(tail, data + m_Ptr_ExifOffset, ExifIFDKind.GPS);
+					}
+				}
+			} else if (kind == ExifIFDKind.EXIF && tag == ExifTag.INTEROPERABILITY_IFD_POINTER.getCode() && checkPointer(tag, type, sizeCount, fPtr)) {
+				tail = addPendingVisit(tail, data + m_Ptr_ExifOffset, ExifIFDKind.INTEROPERABILITY);
+			}
+		}
+
+		m_Visitor.onIfdEnd(kind);
+
+		return tail;
+	}
+
+	/**
+	 * Add the IFD to the tail of the queue of the streaming decoding
+	 * 
+	 * @param tail
+	 * @param absoluteOffset
+	 * @param kind
+	 * @return new tail
+	 */
+	private int addPendingVisit(int tail, long absoluteOffset, ExifIFDKind kind) {
+		if (tail == m_PendingVisitOffsets.length) {
+			m_PendingVisitOffsets = Arrays.copyOf(m_PendingVisitOffsets, tail * 2);
+			m_PendingVisitKinds = Arrays.copyOf(m_PendingVisitKinds, tail * 2);
+		}
+		m_PendingVisitOffsets[tail] = absoluteOffset;
+		m_PendingVisitKinds[tail] = kind;
+		return tail + 1;
+	}
+
+	private boolean isVisited(long absoluteOffset, int visitedCount) {
+		for (int i = 0; i < visitedCount; i++) {
+			if (m_VisitedOffsets[i] == absoluteOffset) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the unsigned value in the segment buffer
+	 * 
+	 * @param startPos
+	 *            absolute pos
+	 * @param len
+	 * @return
+	 */
+	private long getSegmentValue(long startPos, int len) {
+		return ExifValueCodec.getLongValue(m_SegmentBuffer, (int) (startPos - m_Ptr_SegmentBuffer), len, m_EndianMode);
+	}
+
+	private String toHexStr(long val) {
+		return "0x" + String.format("%04x", val) + "(" + String.format("%06d", val) + ")";
+
+	}
+
+	/**
+	 * Get the start address of the Exif IFD0 (position in the file)
+	 * 
+	 * @param app1Offset
+	 *            position of the APP1 starting code
+	 * @return
+	 */
+	private long getIFD0Offset(long app1Offset) {
+		long retVal = 0;
+
+		long fPtr = app1Offset;
+
+		if (fPtr < 0) {
+			retVal = fPtr;
+			return retVal;
+		}
+
+		// Get APP1 starting pointer ===
+		log(fPtr, "This is APP1 start address");
+		m_Ptr_APP1_Offset = fPtr;
+
+		// add 2byte to move forward
+		fPtr += 2;
+
+		// Get segment size of APP1 ===
+		// The segment after APP1_POINTER(2byte) is the segment
+		// length(2bytes) of APP1
+		m_APP1_Segment_Size = get2byteAsBigEndian(fPtr);
+
+		log(fPtr, "App1 segment length find. Length=" + toHexStr(m_APP1_Segment_Size) + "bytes");
+
+		// Nothing is read beyond the end of APP1
+		m_DataSource.setReadLimit(m_Ptr_APP1_Offset + 2 + m_APP1_Segment_Size);
+
+		if (m_IsBulkReadEnabled || m_Visitor != null || m_DataSource.isSegmentViewAvailable()) {
+			// Read whole APP1 segment(APP1 code 2byte + segment
+			// length) at once
+			loadSegmentBuffer(m_Ptr_APP1_Offset, (int) (2 + m_APP1_Segment_Size));
+		}
+
+		// add 2byte to move forward
+		fPtr += 2;
+
+		// Get Exif Identifying code ====
+
+		// Stored 6 bytes like 'E'　'x'　'i'　'f'　'\0'　'\0'
+		int[] rExifDefineCode = getMultiByteFromCurrentFile(fPtr, 6);
+
+		// Confirm array of bytes 'E'　'x'　'i'　'f'　'\0'　'\0' here
+		// if not, it's an error.
+		if (!compareBetween(rExifDefineCode, EXIF_DEFINE_CODE)) {
+			log(fPtr, "'Exif' Information Tag in file is incorrect.(>_<)");
+			return retVal;
+		}
+
+		fPtr += 6;
 
-	}
+		// Acquisition of 0 points in the Exif (offset value)====
+		// Set the offset address
+		m_Ptr_ExifOffset = fPtr;
+		log(fPtr, "Exif　Zero Offset Pointer find. Offset=" + m_Ptr_ExifOffset);
 
-	/**
-	 * Get the start address of the Exif IFD0 (position in the file)
-	 * 
-	 * @return
-	 */
-	private long getIFD0Offset() {
-		long retVal = 0;
-		boolean analyzeInProgress = true;
-		long fPtr = 0;
+		// Acquisition of the byte order (or big-endian or
+		// little-endian)===
 
-		while (analyzeInProgress) {
+		int[] rByteOrder = getMultiByteFromCurrentFile(fPtr, 2);
 
-			long chunk = get2byteAsBigEndian(fPtr);
+		if (compareBetween(rByteOrder, BYTE_ORDER_LITTLEENDIAN)) {
+			m_EndianMode = LITTLE_ENDIAN;
+			log(fPtr, "Byte Order Code find. This data is LITTLE ENDIAN");
+		} else if (compareBetween(rByteOrder, BYTE_ORDER_BIGENDIAN)) {
+			m_EndianMode = BIG_ENDIAN;
+			log(fPtr, "Byte Order Code find. This data is BIG ENDIAN");
+		} else {
+			log(fPtr, "ENDIAN Information is incorrect.(>_<)");
+		}
 
-			if (chunk == SOI) {
-				// Get SOI pointer ===
-				log(fPtr, "This is SOI_ADDRESS");
-				m_Ptr_SOI = fPtr;
+		// And pass through the 0x002A==
+		fPtr += 2;
+		// Incoming AutoText Exif "0x002A" is from this position
+		// 0x002A is useless,so ignore.
 
-				fPtr += 2;
+		// Get a pointer to the IFD0 ====
+		fPtr += 2;
 
-				continue;
+		int[] ifd0OffsetData = getMultiByteFromCurrentFile(fPtr, 4);
 
-			} else if (chunk == APP1_START_CODE) {
-				// Get APP1 starting pointer ===
-				log(fPtr, "This is APP1 start address");
-				m_Ptr_APP1_Offset = fPtr;
+		long Ptr_IFD0OffsetRelative = getLongValue(ifd0OffsetData, m_EndianMode);
 
-				// add 2byte to move forward
-				fPtr += 2;
+		retVal = Ptr_IFD0OffsetRelative + m_Ptr_ExifOffset;
 
-				// Get segment size of APP1 ===
-				// The segment after APP1_POINTER(2byte) is the segment
-				// length(2bytes) of APP1
-				m_APP1_Segment_Size = get2byteAsBigEndian(fPtr);
+		log(fPtr, "IFD0　Relative Pointer:" + toHexStr(Ptr_IFD0OffsetRelative));
+		log(fPtr, "IFD0　Absolute Pointer:" + toHexStr(Ptr_IFD0OffsetRelative + m_Ptr_ExifOffset));
 
-				log(fPtr, "App1 segment length find. Length=" + toHexStr(m_APP1_Segment_Size) + "bytes");
+		return retVal;
+	}
 
-				// add 2byte to move forward
-				fPtr += 2;
+	/**
+	 * Find the starting code of the Exif APP1 by walking the segments from
+	 * SOI
+	 * 
+	 * @return position of the APP1 starting code,or APP1_NOT_FOUND if not
+	 *         found
+	 */
+	private long findAPP1Offset() {
 
-				// Get Exif Identifying code ====
+		if (get2byteAsBigEndian(0) != SOI) {
+			log(0, "SOI is not found. This is not JPEG.(>_<)");
+			return APP1_NOT_FOUND;
+		}
 
-				// Stored 6 bytes like 'E'　'x'　'i'　'f'　'\0'　'\0'
-				int[] rExifDefineCode = getMultiByteFromCurrentFile(fPtr, 6);
+		// Get SOI pointer ===
+		log(0, "This is SOI_ADDRESS");
+		m_Ptr_SOI = 0;
 
-				// Confirm array of bytes 'E'　'x'　'i'　'f'　'\0'　'\0' here
-				// if not, it's an error.
-				if (!compareBetween(rExifDefineCode, EXIF_DEFINE_CODE)) {
-					log(fPtr, "'Exif' Information Tag in file is incorrect.(>_<)");
-					break;
-				}
+		long fPtr = 2;
 
-				fPtr += 6;
+		while (fPtr >= 0) {
+			int[] markerHead = getMarkerHead(fPtr);
 
-				// Acquisition of 0 points in the Exif (offset value)====
-				// Set the offset address
-				m_Ptr_ExifOffset = fPtr;
-				log(fPtr, "Exif　Zero Offset Pointer find. Offset=" + m_Ptr_ExifOffset);
+			long nextPtr = getNextMarkerOffset(markerHead, fPtr);
 
-				// Acquisition of the byte order (or big-endian or
-				// little-endian)===
+			if (nextPtr == fPtr) {
+				log(fPtr, "This is Exif APP1 start address");
+			} else if (nextPtr >= 0) {
+				log(fPtr, "Skip segment. Marker=" + toHexStr(markerHead[0] * 256 + markerHead[1]));
+			} else {
+				log(fPtr, "Exif APP1 is not found before SOS.(>_<)");
+			}
 
-				int[] rByteOrder = getMultiByteFromCurrentFile(fPtr, 2);
+			if (nextPtr == fPtr || nextPtr < 0) {
+				return nextPtr;
+			}
+			fPtr = nextPtr;
+		}
+		return APP1_NOT_FOUND;
+	}
 
-				if (compareBetween(rByteOrder, BYTE_ORDER_LITTLEENDIAN)) {
-					m_EndianMode = LITTLE_ENDIAN;
-					log(fPtr, "Byte Order Code find. This data is LITTLE ENDIAN");
-				} else if (compareBetween(rByteOrder, BYTE_ORDER_BIGENDIAN)) {
-					m_EndianMode = BIG_ENDIAN;
-					log(fPtr, "Byte Order Code find. This data is BIG ENDIAN");
-				} else {
-					log(fPtr, "ENDIAN Information is incorrect.(>_<)");
-				}
+	/**
+	 * Inspect the marker at the position and get the position of the next
+	 * marker.<br>
+	 * 
+	 * @param markerHead
+	 *            MARKER_HEAD_SIZE bytes at the position
+	 * @param fPtr
+	 *            position of the marker
+	 * @return fPtr itself if it is the Exif APP1,APP1_NOT_FOUND if the walk
+	 *         should stop(SOS,EOI or broken data),otherwise the position of
+	 *         the next marker
+	 */
+	static long getNextMarkerOffset(int[] markerHead, long fPtr) {
 
-				// And pass through the 0x002A==
-				fPtr += 2;
-				// Incoming AutoText Exif "0x002A" is from this position
-				// 0x002A is useless,so ignore.
+		if (markerHead[0] != 0xFF) {
+			// broken data
+			return APP1_NOT_FOUND;
+		}
 
-				// Get a pointer to the IFD0 ====
-				fPtr += 2;
+		int marker = markerHead[0] * 256 + markerHead[1];
 
-				int[] ifd0OffsetData = getMultiByteFromCurrentFile(fPtr, 4);
+		if (marker == 0xFFFF) {
+			// fill byte before the marker
+			return fPtr + 1;
+		}
 
-				long Ptr_IFD0OffsetRelative = getLongValue(ifd0OffsetData, m_EndianMode);
+		if (marker == SOS || marker == FOI) {
+			// The compressed image data follows SOS, there is no more
+			// segment to find.
+			return APP1_NOT_FOUND;
+		}
 
-				retVal = Ptr_IFD0OffsetRelative + m_Ptr_ExifOffset;
+		if (marker == 0xFF01 || (marker >= 0xFFD0 && marker <= 0xFFD7)) {
+			// TEM and RSTn have no segment length
+			return fPtr + 2;
+		}
 
-				log(fPtr, "IFD0　Relative Pointer:" + toHexStr(Ptr_IFD0OffsetRelative));
-				log(fPtr, "IFD0　Absolute Pointer:" + toHexStr(Ptr_IFD0OffsetRelative + m_Ptr_ExifOffset));
+		int segmentLength = markerHead[2] * 256 + markerHead[3];
 
-				analyzeInProgress = false;
-				break;
+		if (segmentLength < 2) {
+			return APP1_NOT_FOUND;
+		}
 
+		if (marker == APP1_START_CODE && segmentLength >= 2 + EXIF_DEFINE_CODE.length) {
+			boolean isExif = true;
+			for (int i = 0; i < EXIF_DEFINE_CODE.length; i++) {
+				if (markerHead[4 + i] != EXIF_DEFINE_CODE[i]) {
+					isExif = false;
+					break;
+				}
 			}
-
-			// Processing is not performed if the JFIF format. (Do not support.)
-			// or if 128byte go ahead and at the end analysis , and I cannot not
-			// found anything, just break.
-			if (chunk == APP0_START_CODE || fPtr > 128) {
-				retVal = -999;
-				return retVal;
+			if (isExif) {
+				return fPtr;
 			}
-
-			fPtr++;
+			// APP1 other than Exif(like XMP) is skipped
 		}
 
-		return retVal;
+		return fPtr + 2 + segmentLength;
 	}
 
 	/**
@@ -336,10 +1214,13 @@ public class ExiguousExifLowLevelDecoder {
 	 * 
 	 * @param startPtr
 	 *            Start address (position in the file)
+	 * @param kind
+	 *            kind of the IFD to look up the tag names
 	 * @return
 	 */
-	private ExifIFDBlock IFDAnalyze(long startPtr) {
+	private ExifIFDBlock IFDAnalyze(long startPtr, ExifIFDKind kind) {
 		ExifIFDBlock ifd = new ExifIFDBlock();
+		ifd.Kind = kind;
 
 		long fPtr = startPtr;
 		int[] rCount = getMultiByteFromCurrentFile(fPtr, 2);
@@ -348,27 +1229,60 @@ public class ExiguousExifLowLevelDecoder {
 		long count = getLongValue(rCount, m_EndianMode);
 		log(fPtr, "IFD Field Count:" + toHexStr(count));
 
-		for (int i = 0; i < count; i++) {
+		long analyzedCount = count;
+		if (analyzedCount > m_Config.getMaxEntryCount()) {
+			addError(ExifDecodeError.ENTRY_COUNT_EXCEEDED, fPtr, "Only " + m_Config.getMaxEntryCount() + " of " + count + " fields are analyzed");
+			analyzedCount = m_Config.getMaxEntryCount();
+		}
+		if (!isInSegment(fPtr, analyzedCount * 12)) {
+			// only the fields in the segment
+			addError(ExifDecodeError.INVALID_OFFSET, fPtr, "Fields are out of the segment. count=" + count);
+			analyzedCount = Math.max(0, (getSegmentEnd() - fPtr) / 12);
+		}
+		if (analyzedCount > m_RestEntryCount) {
+			addError(ExifDecodeError.TOTAL_ENTRY_COUNT_EXCEEDED, fPtr, "Only " + m_RestEntryCount + " fields are analyzed");
+			analyzedCount = m_RestEntryCount;
+		}
+		m_RestEntryCount -= analyzedCount;
+
+		// With the tag query,it stops when the rest of the fields are not needed
+		for (int i = 0; i < analyzedCount && !isIFDCompleted(ifd); i++, fPtr += 12) {
 			int[] fieldByteArray = getMultiByteFromCurrentFile(fPtr, 12);
 
-			long tag = getLongValue(new int[] { fieldByteArray[0], fieldByteArray[1] }, m_EndianMode);
+			long tag = ExifValueCodec.getLongValue(fieldByteArray, 0, 2, m_EndianMode);
+
+			if (!isFieldRequired(kind, tag)) {
+				// skip the field without fetching the value
+				continue;
+			}
 
-			long type = getLongValue(new int[] { fieldByteArray[2], fieldByteArray[3] }, m_EndianMode);
+			long type = ExifValueCodec.getLongValue(fieldByteArray, 2, 2, m_EndianMode);
 
-			long sizeCount = getLongValue(new int[] { fieldByteArray[4], fieldByteArray[5], fieldByteArray[6], fieldByteArray[7] }, m_EndianMode);
+			long sizeCount = ExifValueCodec.getLongValue(fieldByteArray, 4, 4, m_EndianMode);
 
-			int[] dataArray = new int[] { fieldByteArray[8], fieldByteArray[9], fieldByteArray[10], fieldByteArray[11] };
+			long data = ExifValueCodec.getLongValue(fieldByteArray, 8, 4, m_EndianMode);
 
-			long data = getLongValue(dataArray, m_EndianMode);
+			if (type < 1 || type >= IFD_TAG_TYPE_SIZEOF.length) {
+				// The size of the value is unknown
+				addError(ExifDecodeError.INVALID_TYPE, fPtr, "Tag=" + toHexStr(tag) + " Type=" + type);
+				continue;
+			}
 
 			long dataSize = sizeCount * IFD_TAG_TYPE_SIZEOF[(int) type];
 
-			log(fPtr, "IFD Field(" + i + "): Tag=" + ExifTagFinder.getTagName(tag) + "(" + toHexStr(tag) + ")" + " TypeName=" + IFD_TAG_TYPE_NAME[(int) type] + " Size->" + sizeCount + "*"
-					+ IFD_TAG_TYPE_SIZEOF[(int) type] + "(byte)=" + dataSize + " data=" + toHexStr(data));
-
 			ExifIFDField field = new ExifIFDField();
 			field.Tag = tag;
-			field.TagName = ExifTagFinder.getTagName(tag);
+			// the name of the tag not defined is made on the first access
+			ExifTag exifTag = ExifTag.find(kind, tag);
+			field.TagName = exifTag == null ? null : exifTag.getName();
+
+			if (m_IsLogging) {
+				// avoid building the log text for every field when not logging
+				log(fPtr, "IFD Field(" + i + "): Tag=" + field.getTagName() + "(" + toHexStr(tag) + ")" + " TypeName=" + IFD_TAG_TYPE_NAME[(int) type] + " Size->" + sizeCount + "*"
+						+ IFD_TAG_TYPE_SIZEOF[(int) type] + "(byte)=" + dataSize + " data=" + toHexStr(data));
+			}
+
+			field.setEndianMode(m_EndianMode);
 			field.DataType = type;
 			field.SizeCount = sizeCount;
 			field.DataSize = dataSize;
@@ -379,7 +1293,21 @@ public class ExiguousExifLowLevelDecoder {
 				// location offset address of that data is specified
 				long dataPointer = data + m_Ptr_ExifOffset;
 
-				field.Data = getMultiByteFromCurrentFile(dataPointer, (int) field.DataSize);
+				if (dataSize > m_Config.getMaxValueSize()) {
+					addError(ExifDecodeError.VALUE_SIZE_EXCEEDED, fPtr, "Tag=" + toHexStr(tag) + " Size=" + dataSize);
+					continue;
+				}
+				if (!isInSegment(dataPointer, dataSize)) {
+					addError(ExifDecodeError.INVALID_OFFSET, fPtr, "Value of Tag=" + toHexStr(tag) + " is out of the segment");
+					continue;
+				}
+				if (dataSize > m_RestValueSize) {
+					addError(ExifDecodeError.TOTAL_VALUE_SIZE_EXCEEDED, fPtr, "Tag=" + toHexStr(tag) + " Size=" + dataSize);
+					continue;
+				}
+				m_RestValueSize -= dataSize;
+
+				setFieldValue(field, dataPointer, (int) field.DataSize);
 				field.LongData = data;
 
 				field.DataOffsetAddress = m_Ptr_ExifOffset;
@@ -388,19 +1316,24 @@ public class ExiguousExifLowLevelDecoder {
 				// If less than 4 bytes, or data is intact data, show the offset
 				// address of a certain IFD
 				field.LongData = data;
-				field.Data = dataArray;
+				field.setInlineValue((fieldByteArray[8] << 24) | (fieldByteArray[9] << 16) | (fieldByteArray[10] << 8) | fieldByteArray[11]);
 			}
 
 			ifd.addField(field);
 
-			fPtr += 12;
-
+			if (m_TagQuery != null) {
+				m_TagQuery.addResult(kind, field);
+			}
 		}
 
-		// Last 2byte offset address ,it's a next IFD's address.
-		int[] rNextIFDOffset = getMultiByteFromCurrentFile(fPtr, 2);
+		// Last 4byte offset address ,it's a next IFD's address.
+		fPtr = startPtr + 2 + count * 12;
 
-		long nextIFDOffset = getLongValue(rNextIFDOffset, m_EndianMode);
+		long nextIFDOffset = 0;
+		if (isInSegment(fPtr, 4)) {
+			int[] rNextIFDOffset = getMultiByteFromCurrentFile(fPtr, 4);
+			nextIFDOffset = getLongValue(rNextIFDOffset, m_EndianMode);
+		}
 		long absoluteNextIFDOffset = nextIFDOffset + m_Ptr_ExifOffset;
 
 		ifd.NextIFDOffset = nextIFDOffset;
@@ -415,6 +1348,113 @@ public class ExiguousExifLowLevelDecoder {
 
 	}
 
+	/**
+	 * Get the end of the APP1 segment
+	 * 
+	 * @return absolute position
+	 */
+	private long getSegmentEnd() {
+		return m_Ptr_APP1_Offset + 2 + m_APP1_Segment_Size;
+	}
+
+	/**
+	 * Returns true if the range is in the TIFF structure of the APP1 segment
+	 * 
+	 * @param startPos
+	 *            absolute position
+	 * @param len
+	 * @return
+	 */
+	private boolean isInSegment(long startPos, long len) {
+		return startPos >= m_Ptr_ExifOffset && len >= 0 && startPos + len <= getSegmentEnd();
+	}
+
+	/**
+	 * Record the problem found in the image
+	 * 
+	 * @param error
+	 * @param fpos
+	 * @param text
+	 */
+	private void addError(ExifDecodeError error, long fpos, String text) {
+		m_Errors.add(error);
+		log(fpos, error + ":" + text);
+	}
+
+	/**
+	 * Record the I/O error while reading the image
+	 * 
+	 * @param e
+	 */
+	private void addReadError(IOException e) {
+		e.printStackTrace();
+		if (m_ReadError == null) {
+			m_ReadError = e;
+		}
+	}
+
+	/**
+	 * Set the value of the field which is placed out of the field.<br>
+	 * If the value is in the segment buffer, the field refers it without
+	 * copying.
+	 * 
+	 * @param field
+	 * @param startPos
+	 *            absolute pos of the value
+	 * @param len
+	 */
+	private void setFieldValue(ExifIFDField field, long startPos, int len) {
+
+		if (m_SegmentBuffer != null && startPos >= m_Ptr_SegmentBuffer && startPos + len <= m_Ptr_SegmentBuffer + m_SegmentBuffer.limit()) {
+			field.setValue(m_SegmentBuffer, (int) (startPos - m_Ptr_SegmentBuffer), len);
+			return;
+		}
+
+		if (m_IsLazyValueLoadingEnabled) {
+			// Only remember where the value is
+			field.setLazyValue(this, m_ReadGeneration, startPos, len);
+			return;
+		}
+
+		loadFieldValue(field, startPos, len);
+	}
+
+	/**
+	 * Read the value of the field from the data source
+	 * 
+	 * @param field
+	 * @param startPos
+	 * @param len
+	 */
+	private void loadFieldValue(ExifIFDField field, long startPos, int len) {
+		byte[] byteArray = new byte[len];
+
+		try {
+			m_DataSource.readFully(startPos, byteArray, 0, len);
+		} catch (IOException e) {
+			addReadError(e);
+		}
+
+		field.setValue(new ExifSegmentBuffer(ByteBuffer.wrap(byteArray)), 0, len);
+	}
+
+	/**
+	 * Load the value of the field which was deferred in lazy value loading
+	 * mode
+	 * 
+	 * @param field
+	 * @param readGeneration
+	 *            generation when the field was analyzed
+	 * @param startPos
+	 * @param len
+	 */
+	void loadLazyValue(ExifIFDField field, int readGeneration, long startPos, int len) {
+		if (readGeneration != m_ReadGeneration || m_DataSource == null) {
+			throw new IllegalStateException("The value of " + field.getTagName() + " is not loaded before the decoder is closed");
+		}
+		loadFieldValue(field, startPos, len);
+	}
+
 	/**
 	 * Compare byte[] and byte[]
 	 * 
@@ -450,22 +1490,7 @@ public class ExiguousExifLowLevelDecoder {
 	 * @return
 	 */
 	public long getLongValue(int[] srcByteArray, int endianMode) {
-		long retValue = 0;
-		long[] buff = new long[srcByteArray.length];
-		int leng = buff.length;
-		for (int i = 0; i < leng; i++) {
-			if (endianMode == BIG_ENDIAN) {
-
-				retValue += srcByteArray[i] * (long) (Math.pow(256, (leng - (i + 1))));
-
-			}
-			if (endianMode == LITTLE_ENDIAN) {
-
-				retValue += srcByteArray[i] * (long) (Math.pow(256, i));
-
-			}
-		}
-		return retValue;
+		return ExifValueCodec.getLongValue(srcByteArray, 0, srcByteArray.length, endianMode);
 	}
 
 	/**
@@ -508,15 +1533,17 @@ public class ExiguousExifLowLevelDecoder {
 	 */
 	public int[] getMultiByteFromCurrentFile(long startPos, int len) {
 
+		if (m_SegmentBuffer != null && startPos >= m_Ptr_SegmentBuffer && startPos + len <= m_Ptr_SegmentBuffer + m_SegmentBuffer.limit()) {
+			return getMultiByteFromSegmentBuffer(startPos, len);
+		}
+
 		int[] ret = new int[len];
 		byte[] byteArray = new byte[len];
 
-		seek(startPos);
-
 		try {
-			m_TargetRAFile.readFully(byteArray, 0, len);
+			m_DataSource.readFully(startPos, byteArray, 0, len);
 		} catch (IOException e) {
-			e.printStackTrace();
+			addReadError(e);
 		}
 
 		for (int i = 0; i < len; i++) {
@@ -529,16 +1556,83 @@ public class ExiguousExifLowLevelDecoder {
 	}
 
 	/**
-	 * Set seek position of the current opening file
+	 * Get MARKER_HEAD_SIZE bytes at the marker.<br>
+	 * A marker near the end of the file(like SOS) may have less bytes than
+	 * MARKER_HEAD_SIZE, the missing bytes are filled with 0.
 	 * 
-	 * @param position
-	 *            　absolute pos of the current opening file
+	 * @param startPos
+	 * @return
 	 */
-	private void seek(long position) {
+	private int[] getMarkerHead(long startPos) {
+		int len = MARKER_HEAD_SIZE;
+
+		if (m_SegmentBuffer != null && startPos >= m_Ptr_SegmentBuffer && startPos + len <= m_Ptr_SegmentBuffer + m_SegmentBuffer.limit()) {
+			return getMultiByteFromSegmentBuffer(startPos, len);
+		}
+
+		int[] ret = new int[len];
+		byte[] byteArray = new byte[len];
+		int readLength = 0;
+
 		try {
-			m_TargetRAFile.seek(position);
+			readLength = m_DataSource.readAvailable(startPos, byteArray, 0, len);
 		} catch (IOException e) {
-			e.printStackTrace();
+			addReadError(e);
+		}
+
+		for (int i = 0; i < readLength; i++) {
+			// unsigned conversion( byte -> int conversion)
+			ret[i] = byteArray[i] & 0xFF;
+		}
+		return ret;
+	}
+
+	/**
+	 * Get multibytes from the bulk loaded segment buffer
+	 * 
+	 * @param startPos
+	 *            absolute pos of the current opening file
+	 * @param len
+	 * @return
+	 */
+	private int[] getMultiByteFromSegmentBuffer(long startPos, int len) {
+		int[] ret = new int[len];
+		int bufPos = (int) (startPos - m_Ptr_SegmentBuffer);
+
+		for (int i = 0; i < len; i++) {
+			// unsigned conversion( byte -> int conversion)
+			ret[i] = m_SegmentBuffer.get(bufPos + i) & 0xFF;
+		}
+		return ret;
+	}
+
+	/**
+	 * Load the specified range of the current opening file into the segment
+	 * buffer by one read.<br>
+	 * If the file is shorter than the range, only the existing bytes are
+	 * loaded and the rest are read from the file as usual.
+	 * 
+	 * @param startPos
+	 *            absolute pos of the current opening file
+	 * @param len
+	 */
+	private void loadSegmentBuffer(long startPos, int len) {
+		try {
+			if (m_Visitor != null) {
+				// No field refers the segment,so the scratch buffer is used
+				if (m_VisitScratch == null || m_VisitScratch.capacity() < len) {
+					m_VisitScratch = ByteBuffer.allocate(Math.max(len, MAX_APP1_SIZE));
+				}
+				m_VisitSegmentBuffer.set(m_DataSource.readSegment(startPos, len, m_VisitScratch));
+				m_SegmentBuffer = m_VisitSegmentBuffer;
+			} else {
+				m_SegmentBuffer = new ExifSegmentBuffer(m_DataSource.readSegment(startPos, len));
+			}
+			m_Ptr_SegmentBuffer = startPos;
+
+			log(startPos, "Segment buffer loaded. Length=" + toHexStr(m_SegmentBuffer.limit()) + "bytes");
+		} catch (IOException e) {
+			addReadError(e);
 		}
 	}
 
@@ -558,6 +1652,186 @@ public class ExiguousExifLowLevelDecoder {
 		return m_GPS_IFD;
 	}
 
+	public ExifIFDBlock getInteroperability_IFD() {
+		return m_Interoperability_IFD;
+	}
+
+	/**
+	 * Get the IFDs pointed by SubIFDs of IFD0 and their chains
+	 * 
+	 * @return
+	 */
+	public List<ExifIFDBlock> getSubIFDs() {
+		return Collections.unmodifiableList(m_SubIFDs);
+	}
+
+	/**
+	 * Get all of the IFDs visited in the order of visiting
+	 * 
+	 * @return
+	 */
+	public List<ExifIFDBlock> getIFDs() {
+		return Collections.unmodifiableList(m_IFDList);
+	}
+
+	/**
+	 * Get the problems found in the image.The broken part of the image is
+	 * skipped and the rest is decoded.
+	 * 
+	 * @return empty if no problem is found
+	 */
+	public Set<ExifDecodeError> getErrors() {
+		return Collections.unmodifiableSet(EnumSet.copyOf(m_Errors));
+	}
+
+	/**
+	 * Get the I/O error which occurred while reading the last image(like the
+	 * file which can not be opened)<br>
+	 * The decoded result is not reliable if it is not null.
+	 * 
+	 * @return the first error,or null if there is no error
+	 */
+	public IOException getReadError() {
+		return m_ReadError;
+	}
+
+	public boolean hasErrors() {
+		return !m_Errors.isEmpty();
+	}
+
+	/**
+	 * Returns true if walking the IFDs was stopped by the limit of the config
+	 * 
+	 * @return
+	 */
+	public boolean isBudgetExceeded() {
+		return m_Errors.contains(ExifDecodeError.IFD_COUNT_EXCEEDED) || m_Errors.contains(ExifDecodeError.TOTAL_ENTRY_COUNT_EXCEEDED);
+	}
+
+	/**
+	 * Returns true if an offset links to the IFD already visited
+	 * 
+	 * @return
+	 */
+	public boolean isCycleDetected() {
+		return m_Errors.contains(ExifDecodeError.IFD_CYCLE);
+	}
+
+	/**
+	 * Get the position of the embedded thumbnail(JPEG) in the image
+	 * 
+	 * @return absolute position,or -1 if the image has no thumbnail
+	 */
+	public long getThumbnailPosition() {
+		if (m_IFD1 == null) {
+			return -1;
+		}
+		ExifIFDField formatField = m_IFD1.getField(ExifTag.JPEG_INTERCHANGE_FORMAT.getCode());
+		int thumbnailLength = getThumbnailLength();
+		if (formatField == null || thumbnailLength == 0) {
+			return -1;
+		}
+		long thumbnailPos = formatField.getUnsignedInteger(0) + m_Ptr_ExifOffset;
+		if (!isInSegment(thumbnailPos, thumbnailLength)) {
+			// broken offset or length
+			return -1;
+		}
+		return thumbnailPos;
+	}
+
+	/**
+	 * Get the length of the embedded thumbnail(JPEG)
+	 * 
+	 * @return length in bytes,or 0 if the image has no thumbnail
+	 */
+	public int getThumbnailLength() {
+		if (m_IFD1 == null) {
+			return 0;
+		}
+		ExifIFDField lengthField = m_IFD1.getField(ExifTag.JPEG_INTERCHANGE_FORMAT_LENGTH.getCode());
+		if (lengthField == null) {
+			return 0;
+		}
+		return (int) Math.min(lengthField.getUnsignedInteger(0), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Get the embedded thumbnail(JPEG) of IFD1<br>
+	 * If the thumbnail is on memory(bulk read mode or the image on memory),it
+	 * returns a read-only view without copying.Otherwise the bytes are read
+	 * into a new buffer.(In memory map mode,use #transferThumbnailTo to avoid
+	 * copying.)<br>
+	 * It has to be called before the decoder is closed.
+	 * 
+	 * @return the thumbnail,or null if the image has no thumbnail
+	 */
+	public ByteBuffer getThumbnailBuffer() {
+		long thumbnailPos = getThumbnailPosition();
+		if (thumbnailPos < 0) {
+			return null;
+		}
+		int thumbnailLength = getThumbnailLength();
+
+		if (m_SegmentBuffer != null && thumbnailPos >= m_Ptr_SegmentBuffer && thumbnailPos + thumbnailLength <= m_Ptr_SegmentBuffer + m_SegmentBuffer.limit()) {
+			ByteBuffer thumbnail = m_SegmentBuffer.slice((int) (thumbnailPos - m_Ptr_SegmentBuffer), thumbnailLength);
+
+			if (m_DataSource != null && !m_DataSource.isSegmentViewValidAfterClose()) {
+				// The view of the memory mapping becomes invalid after closing
+				ByteBuffer copy = ByteBuffer.allocate(thumbnailLength);
+				copy.put(thumbnail).flip();
+				return copy.asReadOnlyBuffer();
+			}
+			return thumbnail;
+		}
+
+		checkOpened();
+
+		try {
+			return m_DataSource.readSegment(thumbnailPos, thumbnailLength).asReadOnlyBuffer();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Write the embedded thumbnail(JPEG) of IFD1 to the channel<br>
+	 * For the file,it is written by FileChannel#transferTo without copying
+	 * into the java heap.<br>
+	 * It has to be called before the decoder is closed.
+	 * 
+	 * @param target
+	 * @return number of bytes written,or -1 if the image has no thumbnail
+	 * @throws IOException
+	 */
+	public long transferThumbnailTo(WritableByteChannel target) throws IOException {
+		long thumbnailPos = getThumbnailPosition();
+		if (thumbnailPos < 0) {
+			return -1;
+		}
+		checkOpened();
+		return m_DataSource.transferTo(thumbnailPos, getThumbnailLength(), target);
+	}
+
+	/**
+	 * Write the embedded thumbnail(JPEG) of IFD1 to the stream<br>
+	 * The stream is not closed.It has to be called before the decoder is
+	 * closed.
+	 * 
+	 * @param outputStream
+	 * @return number of bytes written,or -1 if the image has no thumbnail
+	 * @throws IOException
+	 */
+	public long transferThumbnailTo(OutputStream outputStream) throws IOException {
+		return transferThumbnailTo(Channels.newChannel(outputStream));
+	}
+
+	private void checkOpened() {
+		if (m_DataSource == null) {
+			throw new IllegalStateException("The decoder is already closed");
+		}
+	}
+
 	/**
 	 * Enabling logging
 	 * 
@@ -0,0 +1,394 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * Probes which read only a few tags of the image<br>
+ * They read the minimum bytes needed for the answer and do not build
+ * ExifInfo.(No GPS formatting,no MakerNote)<br>
+ * The entries of the IFD are read directly from the image,so no
+ * ExifIFDField(or ExifIFDBlock) is built.<br>
+ * The instance is not thread-safe(unlike ExiguousExifReader),use an instance
+ * for each thread.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExiguousExifProbe {
+
+	private static final int ENTRY_SIZE = 12;
+	private static final int TIFF_HEADER_SIZE = 8;
+
+	private final ExifFileDataSource mFileDataSource = new ExifFileDataSource(null);
+
+	// source of the image probed now
+	private ExifDataSource mDataSource = null;
+
+	private final byte[] mMarkerHeadBytes = new byte[ExiguousExifLowLevelDecoder.MARKER_HEAD_SIZE];
+	private final int[] mMarkerHead = new int[ExiguousExifLowLevelDecoder.MARKER_HEAD_SIZE];
+
+	// entries of the IFD read last(reused)
+	private byte[] mEntries = new byte[ENTRY_SIZE * 32];
+
+	// position of the TIFF header(base of the offsets) and the end of APP1
+	private long mTIFFHeaderPosition;
+	private long mAPP1End;
+	private boolean mIsLittleEndian;
+
+	/**
+	 * Returns true if the file has the Exif APP1 segment<br>
+	 * Only the JPEG markers and the Exif header are read.
+	 * 
+	 * @param fileName
+	 * @return
+	 */
+	public boolean hasExif(String fileName) {
+		if (!openFile(fileName)) {
+			return false;
+		}
+		try {
+			return findExifHeader();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns true if the image read from the stream has the Exif APP1
+	 * segment<br>
+	 * The stream is consumed only up to the Exif header,and it is not closed.
+	 * 
+	 * @param inputStream
+	 * @return
+	 */
+	public boolean hasExif(InputStream inputStream) {
+		mDataSource = new ExifStreamDataSource(inputStream);
+		try {
+			return findExifHeader();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Read the Orientation of IFD0<br>
+	 * Only the entries of IFD0 are read.
+	 * 
+	 * @param fileName
+	 * @return Orientation(1-8),or 0 if not found
+	 */
+	public int readOrientation(String fileName) {
+		if (!openFile(fileName)) {
+			return 0;
+		}
+		return readOrientation();
+	}
+
+	/**
+	 * Read the Orientation of IFD0 of the image read from the stream<br>
+	 * The stream is not closed.
+	 * 
+	 * @param inputStream
+	 * @return Orientation(1-8),or 0 if not found
+	 */
+	public int readOrientation(InputStream inputStream) {
+		mDataSource = new ExifStreamDataSource(inputStream);
+		return readOrientation();
+	}
+
+	/**
+	 * Read the pixel dimensions of Exif IFD(ExifImageWidth/ExifImageHeight)
+	 * 
+	 * @param fileName
+	 * @param dimensions
+	 *            array to receive {width,height}
+	 * @return true if both of the dimensions are found
+	 */
+	public boolean readDimensions(String fileName, int[] dimensions) {
+		if (!openFile(fileName)) {
+			return false;
+		}
+		return readDimensions(dimensions);
+	}
+
+	/**
+	 * Read the pixel dimensions of Exif IFD of the image read from the
+	 * stream<br>
+	 * The stream is not closed.
+	 * 
+	 * @param inputStream
+	 * @param dimensions
+	 *            array to receive {width,height}
+	 * @return true if both of the dimensions are found
+	 */
+	public boolean readDimensions(InputStream inputStream, int[] dimensions) {
+		mDataSource = new ExifStreamDataSource(inputStream);
+		return readDimensions(dimensions);
+	}
+
+	private int readOrientation() {
+		try {
+			long ifd0Offset = readTIFFHeader();
+			if (ifd0Offset < 0) {
+				return 0;
+			}
+			int entryPos = findEntry(readEntries(ifd0Offset), ExifTag.ORIENTATION.getCode());
+			if (entryPos < 0) {
+				return 0;
+			}
+			return (int) Math.max(getInlineInteger(entryPos), 0);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return 0;
+		} finally {
+			close();
+		}
+	}
+
+	private boolean readDimensions(int[] dimensions) {
+		try {
+			long ifd0Offset = readTIFFHeader();
+			if (ifd0Offset < 0) {
+				return false;
+			}
+			int pointerPos = findEntry(readEntries(ifd0Offset), ExifTag.EXIF_IFD_POINTER.getCode());
+			if (pointerPos < 0) {
+				return false;
+			}
+			long exifIFDOffset = getInlineInteger(pointerPos);
+			if (exifIFDOffset < 0) {
+				return false;
+			}
+
+			int entryCount = readEntries(exifIFDOffset);
+			int widthPos = findEntry(entryCount, ExifTag.EXIF_IMAGE_WIDTH.getCode());
+			int heightPos = findEntry(entryCount, ExifTag.EXIF_IMAGE_HEIGHT.getCode());
+			if (widthPos < 0 || heightPos < 0) {
+				return false;
+			}
+			long width = getInlineInteger(widthPos);
+			long height = getInlineInteger(heightPos);
+			if (width < 0 || height < 0) {
+				return false;
+			}
+			dimensions[0] = (int) width;
+			dimensions[1] = (int) height;
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		} finally {
+			close();
+		}
+	}
+
+	private boolean openFile(String fileName) {
+		try {
+			mFileDataSource.setFile(new RandomAccessFile(fileName, "r"));
+			mDataSource = mFileDataSource;
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	private void close() {
+		if (mDataSource != null) {
+			try {
+				mDataSource.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			mDataSource = null;
+		}
+	}
+
+	/**
+	 * Walk the JPEG markers from SOI to the Exif APP1<br>
+	 * Nothing is read beyond the Exif header("Exif\0\0").
+	 * 
+	 * @return true if the Exif APP1 is found
+	 * @throws IOException
+	 */
+	private boolean findExifHeader() throws IOException {
+		if (readMarkerHead(0) < 2 || mMarkerHead[0] != 0xFF || mMarkerHead[1] != 0xD8) {
+			// not JPEG
+			return false;
+		}
+
+		long position = 2;
+		for (;;) {
+			readMarkerHead(position);
+			long nextPosition = ExiguousExifLowLevelDecoder.getNextMarkerOffset(mMarkerHead, position);
+			if (nextPosition < 0) {
+				return false;
+			}
+			if (nextPosition == position) {
+				mAPP1End = position + 2 + mMarkerHead[2] * 256 + mMarkerHead[3];
+				mTIFFHeaderPosition = position + ExiguousExifLowLevelDecoder.MARKER_HEAD_SIZE;
+				// Nothing is consumed beyond the end of APP1
+				mDataSource.setReadLimit(mAPP1End);
+				return true;
+			}
+			position = nextPosition;
+		}
+	}
+
+	/**
+	 * Read MARKER_HEAD_SIZE bytes at the position.The missing bytes at the
+	 * end of the image are filled with 0.(SOI is read by the first 2 bytes)
+	 * 
+	 * @param position
+	 * @return number of bytes read
+	 * @throws IOException
+	 */
+	private int readMarkerHead(long position) throws IOException {
+		int length = position == 0 ? 2 : mMarkerHeadBytes.length;
+		int readLength = mDataSource.readAvailable(position, mMarkerHeadBytes, 0, length);
+		for (int i = 0; i < mMarkerHead.length; i++) {
+			mMarkerHead[i] = i < readLength ? mMarkerHeadBytes[i] & 0xFF : 0;
+		}
+		return readLength;
+	}
+
+	/**
+	 * Find the Exif APP1 and read the TIFF header
+	 * 
+	 * @return offset of IFD0(relative to the TIFF header),or -1 if not found
+	 * @throws IOException
+	 */
+	private long readTIFFHeader() throws IOException {
+		if (!findExifHeader()) {
+			return -1;
+		}
+		if (mDataSource.readAvailable(mTIFFHeaderPosition, mEntries, 0, TIFF_HEADER_SIZE) < TIFF_HEADER_SIZE) {
+			return -1;
+		}
+		if (mEntries[0] == 'I' && mEntries[1] == 'I') {
+			mIsLittleEndian = true;
+		} else if (mEntries[0] == 'M' && mEntries[1] == 'M') {
+			mIsLittleEndian = false;
+		} else {
+			return -1;
+		}
+		return getUnsigned(4, 4);
+	}
+
+	/**
+	 * Read the entries of the IFD into mEntries by one read
+	 * 
+	 * @param ifdOffset
+	 *            offset of the IFD(relative to the TIFF header)
+	 * @return number of the entries read
+	 * @throws IOException
+	 */
+	private int readEntries(long ifdOffset) throws IOException {
+		long position = mTIFFHeaderPosition + ifdOffset;
+		if (position + 2 > mAPP1End) {
+			return 0;
+		}
+		if (mDataSource.readAvailable(position, mEntries, 0, 2) < 2) {
+			return 0;
+		}
+		long entryCount = Math.min(getUnsigned(0, 2), ExifDecoderConfig.DEFAULT_MAX_ENTRY_COUNT);
+		// only the entries in the segment
+		entryCount = Math.min(entryCount, (mAPP1End - position - 2) / ENTRY_SIZE);
+
+		int length = (int) entryCount * ENTRY_SIZE;
+		if (mEntries.length < length) {
+			mEntries = new byte[length];
+		}
+		return mDataSource.readAvailable(position + 2, mEntries, 0, length) / ENTRY_SIZE;
+	}
+
+	/**
+	 * Find the entry of the tag in mEntries
+	 * 
+	 * @param entryCount
+	 * @param tag
+	 * @return position of the entry in mEntries,or -1 if not found
+	 */
+	private int findEntry(int entryCount, int tag) {
+		for (int i = 0; i < entryCount; i++) {
+			int entryPos = i * ENTRY_SIZE;
+			if (getUnsigned(entryPos, 2) == tag) {
+				return entryPos;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the first value of the entry of BYTE,SHORT or LONG(or IFD) type
+	 * from its 4byte data area
+	 * 
+	 * @param entryPos
+	 * @return the value,or -1 if the entry is not an integer
+	 */
+	private long getInlineInteger(int entryPos) {
+		long type = getUnsigned(entryPos + 2, 2);
+		long count = getUnsigned(entryPos + 4, 4);
+		if (count < 1) {
+			return -1;
+		}
+		if (type == ExifIFDField.TYPE_BYTE) {
+			return mEntries[entryPos + 8] & 0xFF;
+		}
+		if (type == ExifIFDField.TYPE_SHORT) {
+			return getUnsigned(entryPos + 8, 2);
+		}
+		if (type == ExifIFDField.TYPE_LONG || type == ExifIFDField.TYPE_IFD) {
+			return getUnsigned(entryPos + 8, 4);
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the unsigned value of mEntries in the byte order of the image
+	 * 
+	 * @param pos
+	 * @param length
+	 *            2 or 4
+	 * @return
+	 */
+	private long getUnsigned(int pos, int length) {
+		long value = 0;
+		for (int i = 0; i < length; i++) {
+			int b = mEntries[pos + (mIsLittleEndian ? length - 1 - i : i)] & 0xFF;
+			value = (value << 8) | b;
+		}
+		return value;
+	}
+}
@@ -23,6 +23,12 @@
  */
 package org.riversun.exiguous;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
 /**
  * Exiguous Common Exif Reader &amp; Decoder v0.1.0<br>
  * Exif 2.1.1 Available<br>
@@ -30,6 +36,12 @@ package org.riversun.exiguous;
  * Read famous Exif tags <br>
  * If you want to read Unknown tags or original tags,you can get it by using
  * ExiguousExifLowLevelDecoder.<br>
+ * <br>
+ * The instance is thread-safe and can be shared by many threads.The state of
+ * each read(position of the IFDs,endian and so on) is kept in a decoder
+ * borrowed from the pool of the reader for the read, so the reads do not
+ * lock each other and the decoders are reused instead of being created for
+ * every read.
  * 
  * 
  * @author Tom Misawa (riversun.org@gmail.com)
@@ -37,14 +49,75 @@ package org.riversun.exiguous;
  */
 public class ExiguousExifReader {
 
-	private boolean mIsLogging = false;
+	private volatile boolean mIsLogging = false;
+
+	private volatile boolean mIsBulkReadEnabled = false;
+
+	private volatile boolean mIsMemoryMapEnabled = false;
+
+	private volatile boolean mIsLazyValueLoadingEnabled = false;
+
+	private volatile ExifDecoderConfig mDecoderConfig = new ExifDecoderConfig();
+
+	// Decoders not used by any read now
+	private final Queue<ExiguousExifLowLevelDecoder> mDecoderPool = new ConcurrentLinkedQueue<ExiguousExifLowLevelDecoder>();
 
-	private ExiguousExifLowLevelDecoder mLowLevelDecoder = new ExiguousExifLowLevelDecoder();
+	// Endian of the image read last(by any thread)
+	private volatile int mLastEndianMode = ExiguousExifLowLevelDecoder.LITTLE_ENDIAN;
 
 	public void setLogging(boolean loggingEnabled) {
 		mIsLogging = loggingEnabled;
 	}
 
+	/**
+	 * Read the APP1 segment at once and analyze it in memory
+	 * 
+	 * @param bulkReadEnabled
+	 * @see ExiguousExifLowLevelDecoder#setBulkReadEnabled(boolean)
+	 */
+	public void setBulkReadEnabled(boolean bulkReadEnabled) {
+		mIsBulkReadEnabled = bulkReadEnabled;
+	}
+
+	/**
+	 * Map the file on memory and analyze it straight from the mapping
+	 * 
+	 * @param memoryMapEnabled
+	 * @see ExiguousExifLowLevelDecoder#setMemoryMapEnabled(boolean)
+	 */
+	public void setMemoryMapEnabled(boolean memoryMapEnabled) {
+		mIsMemoryMapEnabled = memoryMapEnabled;
+	}
+
+	/**
+	 * Read the values of the fields only when they are used<br>
+	 * The MakerNote is kept in ExifInfo only if its value is already on
+	 * memory(bulk read or memory map mode),because it is not read from the
+	 * file in this mode.
+	 * 
+	 * @param lazyValueLoadingEnabled
+	 * @see ExiguousExifLowLevelDecoder#setLazyValueLoadingEnabled(boolean)
+	 */
+	public void setLazyValueLoadingEnabled(boolean lazyValueLoadingEnabled) {
+		mIsLazyValueLoadingEnabled = lazyValueLoadingEnabled;
+	}
+
+	/**
+	 * Set the limits of the decoder<br>
+	 * The config is copied,so changing it after this call does not affect
+	 * the reader(which may be used by the threads).Call this again instead.
+	 * 
+	 * @param decoderConfig
+	 * @see ExiguousExifLowLevelDecoder#setConfig(ExifDecoderConfig)
+	 */
+	public void setDecoderConfig(ExifDecoderConfig decoderConfig) {
+		if (decoderConfig == null) {
+			throw new NullPointerException("decoderConfig is null");
+		}
+		// The copy is never changed,and it is shared by the pooled decoders
+		mDecoderConfig = new ExifDecoderConfig(decoderConfig);
+	}
+
 	/**
 	 * Analyze EXIF info of specified file
 	 * 
@@ -52,61 +125,306 @@ public class ExiguousExifReader {
 	 * @param exifInfo
 	 */
 	public void read(String fileName, ExifInfo exifInfo) {
+		ExiguousExifLowLevelDecoder decoder = acquireDecoder(null);
+		try {
+			readExifInfo(decoder, decoder.read(fileName), exifInfo);
+		} finally {
+			releaseDecoder(decoder);
+		}
+	}
+
+	/**
+	 * Analyze EXIF info of specified file and throw the error which the
+	 * decoder kept silent<br>
+	 * Used by the batch readers so that the broken file is not counted as
+	 * succeeded.
+	 * 
+	 * @param fileName
+	 * @param exifInfo
+	 * @throws IOException
+	 *             the I/O error while reading the file,or ExifDecodeException
+	 *             if the decoder found problems in the image(exifInfo keeps
+	 *             the part which could be decoded)
+	 */
+	void readStrictly(String fileName, ExifInfo exifInfo) throws IOException {
+		ExiguousExifLowLevelDecoder decoder = acquireDecoder(null);
+		try {
+			readStrictly(decoder, decoder.read(fileName), exifInfo, fileName);
+		} finally {
+			releaseDecoder(decoder);
+		}
+	}
+
+	/**
+	 * Analyze EXIF info of the image on the buffer and throw the error which
+	 * the decoder kept silent
+	 * 
+	 * @param buffer
+	 * @param exifInfo
+	 * @throws IOException
+	 * @see #readStrictly(String, ExifInfo)
+	 */
+	void readStrictly(ByteBuffer buffer, ExifInfo exifInfo) throws IOException {
+		ExiguousExifLowLevelDecoder decoder = acquireDecoder(null);
+		try {
+			readStrictly(decoder, decoder.read(buffer), exifInfo, "the buffer");
+		} finally {
+			releaseDecoder(decoder);
+		}
+	}
+
+	private void readStrictly(ExiguousExifLowLevelDecoder decoder, boolean result, ExifInfo exifInfo, String sourceName) throws IOException {
+		if (decoder.getReadError() != null) {
+			throw decoder.getReadError();
+		}
+		try {
+			readExifInfo(decoder, result, exifInfo);
+		} catch (RuntimeException e) {
+			// The broken value which the decoder could not detect.The fields
+			// read before it are kept in exifInfo.
+			ExifDecodeException decodeException = new ExifDecodeException("Broken Exif in " + sourceName, decoder.getErrors());
+			decodeException.initCause(e);
+			throw decodeException;
+		}
+		if (decoder.getReadError() != null) {
+			throw decoder.getReadError();
+		}
+		if (decoder.hasErrors()) {
+			throw new ExifDecodeException("Broken Exif in " + sourceName, decoder.getErrors());
+		}
+	}
+
+	/**
+	 * Analyze EXIF info of the image read from the stream<br>
+	 * The stream is consumed only up to the end of the APP1 segment, and it is
+	 * not closed.
+	 * 
+	 * @param inputStream
+	 * @param exifInfo
+	 */
+	public void read(InputStream inputStream, ExifInfo exifInfo) {
+		ExiguousExifLowLevelDecoder decoder = acquireDecoder(null);
+		try {
+			readExifInfo(decoder, decoder.read(inputStream), exifInfo);
+		} finally {
+			releaseDecoder(decoder);
+		}
+	}
+
+	/**
+	 * Analyze EXIF info of the image on the byte array
+	 * 
+	 * @param data
+	 * @param exifInfo
+	 */
+	public void read(byte[] data, ExifInfo exifInfo) {
+		read(data, 0, data.length, exifInfo);
+	}
+
+	/**
+	 * Analyze EXIF info of the image on the byte array
+	 * 
+	 * @param data
+	 * @param offset
+	 *            the position where the image starts
+	 * @param length
+	 *            length of the image
+	 * @param exifInfo
+	 */
+	public void read(byte[] data, int offset, int length, ExifInfo exifInfo) {
+		ExiguousExifLowLevelDecoder decoder = acquireDecoder(null);
+		try {
+			readExifInfo(decoder, decoder.read(data, offset, length), exifInfo);
+		} finally {
+			releaseDecoder(decoder);
+		}
+	}
+
+	/**
+	 * Analyze EXIF info of the image on the buffer<br>
+	 * The range from the position to the limit of the buffer is read. The
+	 * position of the buffer is not changed.
+	 * 
+	 * @param buffer
+	 * @param exifInfo
+	 */
+	public void read(ByteBuffer buffer, ExifInfo exifInfo) {
+		ExiguousExifLowLevelDecoder decoder = acquireDecoder(null);
+		try {
+			readExifInfo(decoder, decoder.read(buffer), exifInfo);
+		} finally {
+			releaseDecoder(decoder);
+		}
+	}
+
+	/**
+	 * Analyze EXIF info of the APP1 segment which is already located and
+	 * fetched by the caller
+	 * 
+	 * @param segment
+	 * @param app1Offset
+	 *            position of the APP1 segment in the image
+	 * @param exifInfo
+	 */
+	void readAPP1Segment(ByteBuffer segment, long app1Offset, ExifInfo exifInfo) {
+		ExiguousExifLowLevelDecoder decoder = acquireDecoder(null);
+		try {
+			readExifInfo(decoder, decoder.readAPP1Segment(segment, app1Offset), exifInfo);
+		} finally {
+			releaseDecoder(decoder);
+		}
+	}
+
+	/**
+	 * Read only the requested tags of the specified file<br>
+	 * The IFDs which can not contain any requested tag are skipped and the
+	 * reading stops as soon as all of the requested tags are found.The found
+	 * fields are put into the query.
+	 * 
+	 * @param fileName
+	 * @param tagQuery
+	 */
+	public void read(String fileName, ExifTagQuery tagQuery) {
+		ExiguousExifLowLevelDecoder decoder = acquireDecoder(tagQuery);
+		try {
+			decoder.read(fileName);
+		} finally {
+			releaseDecoder(decoder);
+		}
+	}
+
+	/**
+	 * Read only the requested tags of the image read from the stream<br>
+	 * The stream is consumed only up to the end of the APP1 segment, and it is
+	 * not closed.
+	 * 
+	 * @param inputStream
+	 * @param tagQuery
+	 */
+	public void read(InputStream inputStream, ExifTagQuery tagQuery) {
+		ExiguousExifLowLevelDecoder decoder = acquireDecoder(tagQuery);
+		try {
+			decoder.read(inputStream);
+		} finally {
+			releaseDecoder(decoder);
+		}
+	}
+
+	/**
+	 * Read only the requested tags of the image on the byte array
+	 * 
+	 * @param data
+	 * @param tagQuery
+	 */
+	public void read(byte[] data, ExifTagQuery tagQuery) {
+		read(ByteBuffer.wrap(data), tagQuery);
+	}
+
+	/**
+	 * Read only the requested tags of the image on the buffer
+	 * 
+	 * @param buffer
+	 * @param tagQuery
+	 */
+	public void read(ByteBuffer buffer, ExifTagQuery tagQuery) {
+		ExiguousExifLowLevelDecoder decoder = acquireDecoder(tagQuery);
+		try {
+			decoder.read(buffer);
+		} finally {
+			releaseDecoder(decoder);
+		}
+	}
+
+	/**
+	 * Borrow a decoder from the pool(or create it if all of them are used)
+	 * and set it up for a read
+	 * 
+	 * @param tagQuery
+	 * @return
+	 */
+	private ExiguousExifLowLevelDecoder acquireDecoder(ExifTagQuery tagQuery) {
+		ExiguousExifLowLevelDecoder decoder = mDecoderPool.poll();
+		if (decoder == null) {
+			decoder = new ExiguousExifLowLevelDecoder();
+		}
+
+		decoder.setLogging(mIsLogging);
+		decoder.setBulkReadEnabled(mIsBulkReadEnabled);
+		decoder.setMemoryMapEnabled(mIsMemoryMapEnabled);
+		decoder.setConfig(mDecoderConfig);
+
+		// The fields of the query are used after closing the decoder,and
+		// the values of the unrequested fields are not read anyway.
+		decoder.setLazyValueLoadingEnabled(mIsLazyValueLoadingEnabled && tagQuery == null);
+		decoder.setTagQuery(tagQuery);
+		return decoder;
+	}
+
+	/**
+	 * Close the decoder and return it to the pool
+	 * 
+	 * @param decoder
+	 */
+	private void releaseDecoder(ExiguousExifLowLevelDecoder decoder) {
+		decoder.setTagQuery(null);
+		// The pooled decoder must not keep the last image
+		decoder.clear();
+		mDecoderPool.offer(decoder);
+	}
 
-		mLowLevelDecoder.setLogging(mIsLogging);
-		boolean fileReadSuccessFlag = mLowLevelDecoder.read(fileName);
+	private void readExifInfo(ExiguousExifLowLevelDecoder decoder, boolean fileReadSuccessFlag, ExifInfo exifInfo) {
 
 		if (fileReadSuccessFlag) {
-			int endianMode = mLowLevelDecoder.getEndianMode();
+			mLastEndianMode = decoder.getEndianMode();
 
-			ExifIFDBlock IFD0 = mLowLevelDecoder.getIFD0();
-			ExifIFDBlock IFD1 = mLowLevelDecoder.getIFD1();
-			ExifIFDBlock exif_IFD = mLowLevelDecoder.getExif_IFD();
-			ExifIFDBlock gps_IFD = mLowLevelDecoder.getGPS_IFD();
+			ExifIFDBlock IFD0 = decoder.getIFD0();
+			ExifIFDBlock IFD1 = decoder.getIFD1();
+			ExifIFDBlock exif_IFD = decoder.getExif_IFD();
+			ExifIFDBlock gps_IFD = decoder.getGPS_IFD();
 
 			// IFD0 ====
 			// Those that contain in ASCII format, is easily take out.
-			String maker = IFD0.getFieldByName("Make").getStringData();
-			String model = IFD0.getFieldByName("Model").getStringData();
-			String dateTime = IFD0.getFieldByName("DateTime").getStringData();
+			// The field may be missing(or dropped by the decoder as broken),so
+			// every field is checked before it is read.
+			String maker = getStringData(IFD0, "Make", "");
+			String model = getStringData(IFD0, "Model", "");
+			String dateTime = getStringData(IFD0, "DateTime", null);
 
 			// ExifIFD ====
 			if (exif_IFD != null) {
-				String exifVersion = exif_IFD.getFieldByName("ExifVersion").getStringData();
+				String exifVersion = getStringData(exif_IFD, "ExifVersion", "");
 
 				// Contain as fraction type, first 4byte is molecules, second is
 				// the 4byte denominator
-				int[] rExposureTime = exif_IFD.getFieldByName("ExposureTime").Data;
-
-				long bET1 = getLongValue(rExposureTime, 0, 4, endianMode);
-				long bET2 = getLongValue(rExposureTime, 4, 4, endianMode);
-
-				// exposureTime
-				float exposureTime = (float) bET1 / (float) bET2;
-
-				int[] rFValue = exif_IFD.getFieldByName("FNumber").Data;
-				long bFV1 = getLongValue(rFValue, 0, 4, endianMode);
-				long bFV2 = getLongValue(rFValue, 4, 4, endianMode);
-
-				// F-value
-				float fValue = (float) bFV1 / (float) bFV2;
+				ExifIFDField exposureTimeField = exif_IFD.getFieldByName("ExposureTime");
+				if (hasValueBytes(exposureTimeField, 8)) {
+					// exposureTime
+					float exposureTime = (float) exposureTimeField.getRationalNumerator(0) / (float) exposureTimeField.getRationalDenominator(0);
+					exifInfo.setExposureTime(exposureTime);
+				}
 
-				int[] rWidth = exif_IFD.getFieldByName("ExifImageWidth").getData();
-				int imageWidth = (int) getLongValue(rWidth, 0, 4, endianMode);
+				ExifIFDField fValueField = exif_IFD.getFieldByName("FNumber");
+				if (hasValueBytes(fValueField, 8)) {
+					// F-value
+					float fValue = (float) fValueField.getRationalNumerator(0) / (float) fValueField.getRationalDenominator(0);
+					exifInfo.setFValue(fValue);
+				}
 
-				int[] rHeight = exif_IFD.getFieldByName("ExifImageHeight").getData();
-				int imageHeight = (int) getLongValue(rHeight, 0, 4, endianMode);
+				// SHORT or LONG
+				ExifIFDField imageWidthField = exif_IFD.getFieldByName("ExifImageWidth");
+				if (hasUnsignedInteger(imageWidthField)) {
+					exifInfo.setImageWidth((int) imageWidthField.getUnsignedInteger(0));
+				}
+				ExifIFDField imageHeightField = exif_IFD.getFieldByName("ExifImageHeight");
+				if (hasUnsignedInteger(imageHeightField)) {
+					exifInfo.setImageHeight((int) imageHeightField.getUnsignedInteger(0));
+				}
 
 				exifInfo.setEnabled(true);
 				exifInfo.setMaker(maker);
 				exifInfo.setModel(model);
 				exifInfo.setDateTime(dateTime);
-				exifInfo.setExposureTime(exposureTime);
 				exifInfo.setExifVersion(exifVersion);
-				exifInfo.setFValue(fValue);
-
-				exifInfo.setImageWidth(imageWidth);
-				exifInfo.setImageHeight(imageHeight);
 
 			}
 			// GPS IFD ====
@@ -114,86 +432,92 @@ public class ExiguousExifReader {
 			if (gps_IFD != null) {
 				// GPS IFD Version
 				String GPSIfdVersion = "";
-				if (gps_IFD.getField("0x0000") != null) {
-					int[] rGpsifd_version = gps_IFD.getField("0x0000").Data;
+				if (gps_IFD.getField(0x0000) != null) {
+					int[] rGpsifd_version = gps_IFD.getField(0x0000).getData();
 
 					for (int i = 0; i < rGpsifd_version.length; i++) {
 						GPSIfdVersion += String.valueOf(rGpsifd_version[i]) + ".";
 					}
-					GPSIfdVersion = GPSIfdVersion.substring(0, GPSIfdVersion.length() - 1);
+					if (GPSIfdVersion.length() > 0) {
+						GPSIfdVersion = GPSIfdVersion.substring(0, GPSIfdVersion.length() - 1);
+					}
 				}
 
 				// GPS IFD latitude
-				int[] rGpslatitude_ref = gps_IFD.getField("0x0001").Data;
-				long lGpslatitude_ref = getLongValue(rGpslatitude_ref, 0, 4, 1);
-				String GPSLatitudeRef = String.valueOf((char) lGpslatitude_ref);
-				int[] rGpslatitude = gps_IFD.getField("0x0002").Data;
-
-				long gps_lat_DD = getLongValue(rGpslatitude, 0, 4, mLowLevelDecoder.getEndianMode());
-				long gps_lat_DD1 = getLongValue(rGpslatitude, 4, 4, mLowLevelDecoder.getEndianMode());
-
-				long gps_lat_MM = getLongValue(rGpslatitude, 8, 4, mLowLevelDecoder.getEndianMode());
-				long gps_lat_MM1 = getLongValue(rGpslatitude, 12, 4, mLowLevelDecoder.getEndianMode());
-
-				long gps_lat_SS0 = getLongValue(rGpslatitude, 16, 4, mLowLevelDecoder.getEndianMode());
-				long gps_lat_SS1 = getLongValue(rGpslatitude, 20, 4, mLowLevelDecoder.getEndianMode());
-
-				double latitude0 = (double) gps_lat_DD / (double) gps_lat_DD1;
-				double latitude1 = ((double) gps_lat_MM / (double) gps_lat_MM1) / 60d;
-				double latitude2 = ((double) gps_lat_SS0 / (double) gps_lat_SS1) / 3600d;
-				double GPSLatitude = latitude0 + latitude1 + latitude2;
-				String DD_lat = Long.toString(gps_lat_DD / gps_lat_DD1);
-				double dMM_lat = ((double) gps_lat_MM / (double) gps_lat_MM1);
-				int iMM_lat = (int) dMM_lat;
-				double dSS_lat = (dMM_lat - iMM_lat) * 60 + (double) gps_lat_SS0 / (double) gps_lat_SS1;
-				String MM_lat = Integer.toString(iMM_lat);
-
-				// The format is deg:minute:seconds
-				String DDMMSSSSS_lat = DD_lat + ":" + MM_lat + ":" + String.format("%3.3f", dSS_lat) + "";
-				exifInfo.setGpsLatitudeDDMMSSsss(DDMMSSSSS_lat);
+				ExifIFDField gpsLatitudeRefField = gps_IFD.getField(0x0001);
+				if (hasValueBytes(gpsLatitudeRefField, 1)) {
+					exifInfo.setGpsLatitudeRef(String.valueOf((char) gpsLatitudeRefField.getByte(0)));
+				}
+				ExifIFDField gpsLatitudeField = gps_IFD.getField(0x0002);
+
+				// deg,minute and seconds
+				if (hasValueBytes(gpsLatitudeField, 24) && gpsLatitudeField.getRationalDenominator(0) != 0) {
+					long gps_lat_DD = gpsLatitudeField.getRationalNumerator(0);
+					long gps_lat_DD1 = gpsLatitudeField.getRationalDenominator(0);
+
+					long gps_lat_MM = gpsLatitudeField.getRationalNumerator(1);
+					long gps_lat_MM1 = gpsLatitudeField.getRationalDenominator(1);
+
+					long gps_lat_SS0 = gpsLatitudeField.getRationalNumerator(2);
+					long gps_lat_SS1 = gpsLatitudeField.getRationalDenominator(2);
+
+					double latitude0 = (double) gps_lat_DD / (double) gps_lat_DD1;
+					double latitude1 = ((double) gps_lat_MM / (double) gps_lat_MM1) / 60d;
+					double latitude2 = ((double) gps_lat_SS0 / (double) gps_lat_SS1) / 3600d;
+					double GPSLatitude = latitude0 + latitude1 + latitude2;
+					String DD_lat = Long.toString(gps_lat_DD / gps_lat_DD1);
+					double dMM_lat = ((double) gps_lat_MM / (double) gps_lat_MM1);
+					int iMM_lat = (int) dMM_lat;
+					double dSS_lat = (dMM_lat - iMM_lat) * 60 + (double) gps_lat_SS0 / (double) gps_lat_SS1;
+					String MM_lat = Integer.toString(iMM_lat);
+
+					// The format is deg:minute:seconds
+					String DDMMSSSSS_lat = DD_lat + ":" + MM_lat + ":" + String.format("%3.3f", dSS_lat) + "";
+					exifInfo.setGpsLatitudeDDMMSSsss(DDMMSSSSS_lat);
+					exifInfo.setGpsLatitude(GPSLatitude);
+				}
 
 				// GPD IFD longitude
-				int[] rGpslongitude_ref = gps_IFD.getField("0x0003").Data;
-				long lGpslongitude_ref = getLongValue(rGpslongitude_ref, 0, 4, 1);
-				String GPSLongitudeRef = String.valueOf((char) lGpslongitude_ref);
+				ExifIFDField gpsLongitudeRefField = gps_IFD.getField(0x0003);
+				if (hasValueBytes(gpsLongitudeRefField, 1)) {
+					exifInfo.setGpsLongitudeRef(String.valueOf((char) gpsLongitudeRefField.getByte(0)));
+				}
 
-				int[] gps_longitude = gps_IFD.getField("0x0004").Data;
+				ExifIFDField gpsLongitudeField = gps_IFD.getField(0x0004);
 
-				long gps_lng_DD = getLongValue(gps_longitude, 0, 4, mLowLevelDecoder.getEndianMode());
-				long gps_lng_DD1 = getLongValue(gps_longitude, 4, 4, mLowLevelDecoder.getEndianMode());
+				if (hasValueBytes(gpsLongitudeField, 24) && gpsLongitudeField.getRationalDenominator(0) != 0) {
+					long gps_lng_DD = gpsLongitudeField.getRationalNumerator(0);
+					long gps_lng_DD1 = gpsLongitudeField.getRationalDenominator(0);
 
-				long gps_lng_MM = getLongValue(gps_longitude, 8, 4, mLowLevelDecoder.getEndianMode());
-				long gps_lng_MM1 = getLongValue(gps_longitude, 12, 4, mLowLevelDecoder.getEndianMode());
+					long gps_lng_MM = gpsLongitudeField.getRationalNumerator(1);
+					long gps_lng_MM1 = gpsLongitudeField.getRationalDenominator(1);
 
-				long gps_lng_SS0 = getLongValue(gps_longitude, 16, 4, mLowLevelDecoder.getEndianMode());
-				long gps_lng_SS1 = getLongValue(gps_longitude, 20, 4, mLowLevelDecoder.getEndianMode());
+					long gps_lng_SS0 = gpsLongitudeField.getRationalNumerator(2);
+					long gps_lng_SS1 = gpsLongitudeField.getRationalDenominator(2);
 
-				double longitude0 = (double) gps_lng_DD / (double) gps_lng_DD1;
-				double longitude1 = ((double) gps_lng_MM / (double) gps_lng_MM1) / 60d;
-				double longitude2 = ((double) gps_lng_SS0 / (double) gps_lng_SS1) / 3600d;
-				double GPSLongitude = longitude0 + longitude1 + longitude2;
+					double longitude0 = (double) gps_lng_DD / (double) gps_lng_DD1;
+					double longitude1 = ((double) gps_lng_MM / (double) gps_lng_MM1) / 60d;
+					double longitude2 = ((double) gps_lng_SS0 / (double) gps_lng_SS1) / 3600d;
+					double GPSLongitude = longitude0 + longitude1 + longitude2;
 
-				String DD_lng = Long.toString(gps_lng_DD / gps_lng_DD1);
-				double dMM_lng = ((double) gps_lng_MM / (double) gps_lng_MM1);
-				int iMM_lng = (int) dMM_lng;
-				double dSS_lng = (dMM_lng - iMM_lng) * 60 + (double) gps_lng_SS0 / (double) gps_lng_SS1;
-				String MM_lng = Integer.toString(iMM_lng);
+					String DD_lng = Long.toString(gps_lng_DD / gps_lng_DD1);
+					double dMM_lng = ((double) gps_lng_MM / (double) gps_lng_MM1);
+					int iMM_lng = (int) dMM_lng;
+					double dSS_lng = (dMM_lng - iMM_lng) * 60 + (double) gps_lng_SS0 / (double) gps_lng_SS1;
+					String MM_lng = Integer.toString(iMM_lng);
 
-				// The format is deg:minute:seconds
-				String DDMMSSSSS_lng = DD_lng + ":" + MM_lng + ":" + String.format("%3.3f", dSS_lng) + "";
-				exifInfo.setGpsLongitudeDDMMSSsss(DDMMSSSSS_lng);
+					// The format is deg:minute:seconds
+					String DDMMSSSSS_lng = DD_lng + ":" + MM_lng + ":" + String.format("%3.3f", dSS_lng) + "";
+					exifInfo.setGpsLongitudeDDMMSSsss(DDMMSSSSS_lng);
+					exifInfo.setGpsLongitude(GPSLongitude);
+				}
 
 				exifInfo.setGpsIFDVersion(GPSIfdVersion);
 
-				exifInfo.setGpsLatitude(GPSLatitude);
-				exifInfo.setGpsLatitudeRef(GPSLatitudeRef);
-				exifInfo.setGpsLongitude(GPSLongitude);
-				exifInfo.setGpsLongitudeRef(GPSLongitudeRef);
-
-				if (gps_IFD.getField("0x0011") != null) {
-					int[] rGPSImageDirection = gps_IFD.getField("0x0011").Data;
-					long direction0 = getLongValue(rGPSImageDirection, 0, 4, mLowLevelDecoder.getEndianMode());
-					long direction1 = getLongValue(rGPSImageDirection, 4, 4, mLowLevelDecoder.getEndianMode());
+				if (hasValueBytes(gps_IFD.getField(0x0011), 8)) {
+					ExifIFDField gpsImageDirectionField = gps_IFD.getField(0x0011);
+					long direction0 = gpsImageDirectionField.getRationalNumerator(0);
+					long direction1 = gpsImageDirectionField.getRationalDenominator(0);
 					exifInfo.setGpsImageDirection((float) direction0 / (float) direction1);
 
 				}
@@ -203,43 +527,81 @@ public class ExiguousExifReader {
 			// MakerNote ====
 			if (exif_IFD != null) {
 				ExifIFDField MakerNoteField = exif_IFD.getFieldByName("MakerNote");
-				if (MakerNoteField != null) {
-					exifInfo.setMakerNote(MakerNoteField.Data);
+				if (MakerNoteField != null && MakerNoteField.isValueLoaded()) {
+					// Copy only the range of the makerNote not to keep the
+					// whole segment(or the buffer of the caller) alive.
+					// It is decoded only when the vendor specific tags are
+					// requested.
+					exifInfo.setExifMakerNote(new ExifMakerNote(MakerNoteField.copyWithOwnValue(), maker, decoder.getEndianMode()));
 				}
 			}
 			// **************************************************
 		} else {
-			// If Failed to read or File is JFIF formatted
+			// If Failed to read or Exif APP1 is not found
 			exifInfo.setEnabled(false);
 		}
 	}
 
-	public int getEndianMode() {
-		return mLowLevelDecoder.getEndianMode();
+	/**
+	 * Get the string of the field or defaultValue if the field is missing
+	 * 
+	 * @param ifd
+	 * @param tagName
+	 * @param defaultValue
+	 * @return
+	 */
+	private static String getStringData(ExifIFDBlock ifd, String tagName, String defaultValue) {
+		if (ifd == null) {
+			return defaultValue;
+		}
+		ExifIFDField field = ifd.getFieldByName(tagName);
+		if (field == null) {
+			return defaultValue;
+		}
+		return field.getStringData();
 	}
 
 	/**
-	 * To extract the long value from int [] in consideration of the endian
+	 * Returns true if the field has the value of byteLength bytes at least
 	 * 
-	 * @param data
-	 * @param startPos
-	 * @param len
-	 * @param endian
+	 * @param field
+	 * @param byteLength
 	 * @return
 	 */
-	private long getLongValue(int[] data, long startPos, int len, int endian) {
-
-		long longValue = 0;
-
-		for (int i = 0; i < len; i++) {
-			if (endian == ExiguousExifLowLevelDecoder.LITTLE_ENDIAN) {
-				longValue += data[(int) (startPos + i)] * (long) Math.pow(256, i);
+	private static boolean hasValueBytes(ExifIFDField field, int byteLength) {
+		return field != null && field.getDataLength() >= byteLength;
+	}
 
-			} else if (endian == ExiguousExifLowLevelDecoder.BIG_ENDIAN) {
-				longValue += data[(int) (startPos + len - (i + 1))] * (long) Math.pow(256, i);
-			}
+	/**
+	 * Returns true if the field has one BYTE,SHORT or LONG value at least
+	 * 
+	 * @param field
+	 * @return
+	 */
+	private static boolean hasUnsignedInteger(ExifIFDField field) {
+		if (field == null) {
+			return false;
+		}
+		if (field.DataType == ExifIFDField.TYPE_BYTE) {
+			return hasValueBytes(field, 1);
 		}
-		return longValue;
+		if (field.DataType == ExifIFDField.TYPE_SHORT) {
+			return hasValueBytes(field, 2);
+		}
+		return hasValueBytes(field, 4);
+	}
+
+	/**
+	 * Get the endian of the image read last
+	 * 
+	 * @return (BIG_ENDIAN=0 / LITTLE_ENDIAN=1)
+	 * @deprecated The reader is shared by the threads,so the image read last
+	 *             may be read by another thread.Use ExifMakerNote#getEndianMode()
+	 *             or ExiguousExifLowLevelDecoder#getEndianMode() instead.
+	 */
+	@Deprecated
+	public int getEndianMode() {
+		return mLastEndianMode;
 	}
 
 }
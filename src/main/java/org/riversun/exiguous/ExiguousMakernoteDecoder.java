@@ -23,84 +23,129 @@
  */
 package org.riversun.exiguous;
 
-import java.util.Arrays;
-
+import java.nio.ByteBuffer;
+
+/**
+ * Decoder of the IFD in the MakerNote<br>
+ * The vendor decoders(see ExifMakerNoteDecoderRegistry) locate the IFD and
+ * the base of the offsets by the header of each vendor, and analyze the IFD
+ * by this class.
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
 public class ExiguousMakernoteDecoder {
 	public static final int BIG_ENDIAN = 0;
 	public static final int LITTLE_ENDIAN = 1;
 
+	// Size of the header skipped by #analyzeMakerNote(int[])
+	private static final int LEGACY_HEADER_SIZE = 12;
+
 	private int m_EndianMode = LITTLE_ENDIAN;
 
-	private final int[] IFD_TAG_TYPE_SIZEOF = new int[] { -99999, 1, 1, 2, 4, 8, 1, 1, 2, 4, 8, 4, 8 };
+	private static final int[] IFD_TAG_TYPE_SIZEOF = new int[] { -99999, 1, 1, 2, 4, 8, 1, 1, 2, 4, 8, 4, 8, 4 };
 
 	public ExiguousMakernoteDecoder(int endianMode) {
 		m_EndianMode = endianMode;
 	}
 
+	/**
+	 * Analyze the IFD which starts after the 12byte header of the MakerNote.
+	 * The offsets are relative to the head of the MakerNote.
+	 * 
+	 * @param rMakerNote
+	 * @return
+	 */
 	public ExifIFDBlock analyzeMakerNote(int[] rMakerNote) {
-		ExifIFDBlock ifd = new ExifIFDBlock();
-		int ptr = 0;
+		byte[] makerNote = new byte[rMakerNote.length];
+		for (int i = 0; i < rMakerNote.length; i++) {
+			makerNote[i] = (byte) rMakerNote[i];
+		}
+		return analyzeIFD(ByteBuffer.wrap(makerNote), LEGACY_HEADER_SIZE, 0, m_EndianMode);
+	}
 
-		ptr += 12;
+	/**
+	 * Analyze the IFD in the MakerNote.<br>
+	 * The values of the fields refer the MakerNote buffer without copying.
+	 * 
+	 * @param makerNote
+	 *            bytes of the MakerNote(from index 0 to the limit)
+	 * @param ifdOffset
+	 *            index of the IFD in the MakerNote
+	 * @param offsetBase
+	 *            the offsets of the values minus this is the index in the
+	 *            MakerNote
+	 * @param endianMode
+	 *            (BIG_ENDIAN=0 / LITTLE_ENDIAN=1)
+	 * @return
+	 */
+	static ExifIFDBlock analyzeIFD(ByteBuffer makerNote, int ifdOffset, long offsetBase, int endianMode) {
+		ExifIFDBlock ifd = new ExifIFDBlock();
+		ifd.Kind = ExifIFDKind.MAKER_NOTE;
 
-		int ifdCount = rMakerNote[ptr + 0] + rMakerNote[ptr + 1] * 16;
+		ExifSegmentBuffer buffer = new ExifSegmentBuffer(makerNote);
+		int makerNoteLength = buffer.limit();
 
-		ptr += 2;
+		if (ifdOffset < 0 || ifdOffset + 2 > makerNoteLength) {
+			return ifd;
+		}
 
-		int makerNoteLength = rMakerNote.length;
+		int ifdCount = (int) ExifValueCodec.getLongValue(buffer, ifdOffset, 2, endianMode);
+		ifd.Count = ifdCount;
 
-		for (int j = 0; j < ifdCount; j++) {
+		int ptr = ifdOffset + 2;
 
-			int[] fieldByteArray = Arrays.copyOfRange(rMakerNote, ptr, ptr + 12);
+		for (int j = 0; j < ifdCount && ptr + 12 <= makerNoteLength; j++, ptr += 12) {
 
-			long tag = getLongValue(new int[] { fieldByteArray[0], fieldByteArray[1] }, m_EndianMode);
+			long tag = ExifValueCodec.getLongValue(buffer, ptr, 2, endianMode);
 
-			long type = getLongValue(new int[] { fieldByteArray[2], fieldByteArray[3] }, m_EndianMode);
+			long type = ExifValueCodec.getLongValue(buffer, ptr + 2, 2, endianMode);
 
-			long sizeCount = getLongValue(new int[] { fieldByteArray[4], fieldByteArray[5], fieldByteArray[6], fieldByteArray[7] }, m_EndianMode);
+			long sizeCount = ExifValueCodec.getLongValue(buffer, ptr + 4, 4, endianMode);
 
-			int[] dataArray = new int[] { fieldByteArray[8], fieldByteArray[9], fieldByteArray[10], fieldByteArray[11] };
+			long dataOrOffsetValue = ExifValueCodec.getLongValue(buffer, ptr + 8, 4, endianMode);
 
-			long dataOrOffsetValue = getLongValue(dataArray, m_EndianMode);
+			if (type < 1 || type >= IFD_TAG_TYPE_SIZEOF.length) {
+				// unknown type,the size of the value is unknown
+				continue;
+			}
 
 			long dataSize = sizeCount * IFD_TAG_TYPE_SIZEOF[(int) type];
 
 			ExifIFDField field = new ExifIFDField();
 			field.Tag = tag;
-			field.TagName = ExifTagFinder.getTagName(tag);
+			// the name(UNKNOWN) is made by ExifIFDField#getTagName() on the
+			// first access
+			field.setEndianMode(endianMode);
 			field.DataType = type;
 			field.SizeCount = sizeCount;
 			field.DataSize = dataSize;
+			field.LongData = dataOrOffsetValue;
 
 			if (dataSize > 4) {
 
 				// If data size is greater than 4bytes(greater than the data
 				// area size),
 				// it means the offset address of data contents.
-				int dataPointer = (int) dataOrOffsetValue;
-
-				if (dataPointer + field.DataSize <= makerNoteLength) {
-
-					field.Data = Arrays.copyOfRange(rMakerNote, dataPointer, (int) (dataPointer + field.DataSize));
-					field.LongData = dataOrOffsetValue;
-					field.DataOffsetAddress = dataPointer;
+				long dataPointer = dataOrOffsetValue - offsetBase;
 
+				if (dataPointer >= 0 && dataPointer + dataSize <= makerNoteLength) {
+					field.setValue(buffer, (int) dataPointer, (int) dataSize);
+					// offset of the value(same as written in the entry)
+					field.DataOffsetAddress = offsetBase + dataPointer;
 				} else {
-					System.err.println("Makernote is incorrect. " + "tag=" + toHex(tag) + " tagName=" + field.TagName + "dataOffset(start)=" + dataPointer + " dataEnd(end)="
-							+ (dataPointer + field.DataSize) + " makerNoteLeng=" + makerNoteLength);
+					System.err.println("Makernote is incorrect. " + "tag=" + toHex(tag) + " dataOffset(start)=" + dataPointer + " dataEnd(end)=" + (dataPointer + dataSize)
+							+ " makerNoteLeng=" + makerNoteLength);
 					continue;
 				}
 
 			} else {
 				// If less eq than 4 bytes,it the byte sequence means data or
 				// means IFD offset address.
-				field.LongData = dataOrOffsetValue;
-				field.Data = dataArray;
+				field.setInlineValue((buffer.get(ptr + 8) << 24) | (buffer.get(ptr + 9) << 16) | (buffer.get(ptr + 10) << 8) | buffer.get(ptr + 11));
 			}
 
 			ifd.addField(field);
-
-			ptr += 12;
 		}
 
 		return ifd;
@@ -120,23 +165,7 @@ public class ExiguousMakernoteDecoder {
 	 * @return
 	 */
 	public long getLongValue(int[] srcByteArray, int endianMode) {
-		long retValue = 0;
-
-		long[] buff = new long[srcByteArray.length];
-
-		int leng = buff.length;
-
-		for (int i = 0; i < leng; i++) {
-
-			if (endianMode == BIG_ENDIAN) {
-				retValue += srcByteArray[i] * (long) (Math.pow(256, (leng - (i + 1))));
-			}
-			if (endianMode == LITTLE_ENDIAN) {
-				retValue += srcByteArray[i] * (long) (Math.pow(256, i));
-
-			}
-		}
-		return retValue;
+		return ExifValueCodec.getLongValue(srcByteArray, 0, srcByteArray.length, endianMode);
 	}
 
 }
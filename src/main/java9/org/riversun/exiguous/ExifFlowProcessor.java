@@ -0,0 +1,389 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Flow.Processor which decodes the sources(file paths or bytes of the
+ * images) into ExifInfo<br>
+ * <br>
+ * The sources are requested from the upstream only as much as the
+ * downstream requested(request(n)),and at most "concurrency" sources are
+ * decoded at the same time on the executor.So the results are never
+ * buffered more than the concurrency.<br>
+ * The results are published in the order of completion.An error of a source
+ * does not terminate the flow,it is published as the result of the source
+ * (ExifBatchResult#getSource() tells the source).An error of the upstream,or
+ * the executor which rejects the decoding,is published after the results
+ * in-flight.<br>
+ * <br>
+ * Only one subscriber is supported.<br>
+ * It is available on Java 9 or later(in META-INF/versions/9 of the jar).
+ * 
+ * @param <T>
+ *            type of the source
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class ExifFlowProcessor<T> implements Flow.Processor<T, ExifBatchResult> {
+
+	private final Executor mExecutor;
+	private final int mConcurrency;
+	private final ReadFunction<T> mReadFunction;
+
+	private final Object mLock = new Object();
+
+	// All of the following are guarded by mLock
+	private Flow.Subscription mUpstream;
+	private Flow.Subscriber<? super ExifBatchResult> mDownstream;
+	private long mDemand = 0;
+	private long mRequestedCount = 0;
+	private int mInFlightCount = 0;
+	private final Queue<ExifBatchResult> mResults = new ArrayDeque<ExifBatchResult>();
+	private boolean mIsUpstreamDone = false;
+	private Throwable mUpstreamError = null;
+	private boolean mIsTerminated = false;
+	private boolean mIsDraining = false;
+	private boolean mIsMissed = false;
+
+	/**
+	 * Processor of the file paths
+	 * 
+	 * @param reader
+	 *            reader shared by the threads
+	 * @param executor
+	 * @param concurrency
+	 *            max number of the files decoded at the same time
+	 * @return
+	 */
+	public static ExifFlowProcessor<Path> ofPaths(final ExiguousExifReader reader, Executor executor, int concurrency) {
+		return new ExifFlowProcessor<Path>(executor, concurrency, path -> ExifBatchReader.read(reader, path));
+	}
+
+	/**
+	 * Processor of the images on the byte arrays
+	 * 
+	 * @param reader
+	 *            reader shared by the threads
+	 * @param executor
+	 * @param concurrency
+	 *            max number of the images decoded at the same time
+	 * @return
+	 */
+	public static ExifFlowProcessor<byte[]> ofBytes(final ExiguousExifReader reader, Executor executor, int concurrency) {
+		return new ExifFlowProcessor<byte[]>(executor, concurrency, data -> read(reader, data, ByteBuffer.wrap(data)));
+	}
+
+	/**
+	 * Processor of the images on the buffers
+	 * 
+	 * @param reader
+	 *            reader shared by the threads
+	 * @param executor
+	 * @param concurrency
+	 *            max number of the images decoded at the same time
+	 * @return
+	 */
+	public static ExifFlowProcessor<ByteBuffer> ofByteBuffers(final ExiguousExifReader reader, Executor executor, int concurrency) {
+		return new ExifFlowProcessor<ByteBuffer>(executor, concurrency, buffer -> read(reader, buffer, buffer));
+	}
+
+	/**
+	 * Processor of the file paths decoded on ForkJoinPool#commonPool()
+	 * 
+	 * @return
+	 */
+	public static ExifFlowProcessor<Path> ofPaths() {
+		return ofPaths(new ExiguousExifReader(), ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Read the image on the buffer like ExifBatchReader reads a file
+	 * 
+	 * @param reader
+	 * @param source
+	 * @param buffer
+	 * @return
+	 */
+	private static ExifBatchResult read(ExiguousExifReader reader, Object source, ByteBuffer buffer) {
+		ExifInfo exifInfo = new ExifInfo();
+		try {
+			reader.readStrictly(buffer, exifInfo);
+			return new ExifBatchResult(source, null, exifInfo, null);
+		} catch (ExifDecodeException e) {
+			// keep the part which could be decoded
+			return new ExifBatchResult(source, null, exifInfo, e);
+		} catch (Throwable e) {
+			return new ExifBatchResult(source, null, null, e);
+		}
+	}
+
+	/**
+	 * Function which decodes the source into the result
+	 */
+	private interface ReadFunction<T> {
+		ExifBatchResult read(T source);
+	}
+
+	private ExifFlowProcessor(Executor executor, int concurrency, ReadFunction<T> readFunction) {
+		if (executor == null) {
+			throw new NullPointerException("executor is null");
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("concurrency must be 1 or more. concurrency=" + concurrency);
+		}
+		mExecutor = executor;
+		mConcurrency = concurrency;
+		mReadFunction = readFunction;
+	}
+
+	// Downstream =====
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super ExifBatchResult> subscriber) {
+		boolean isRejected;
+		synchronized (mLock) {
+			isRejected = mDownstream != null;
+			if (!isRejected) {
+				mDownstream = subscriber;
+			}
+		}
+
+		// The subscriber is called out of the lock,it may call back into the
+		// processor.
+		if (isRejected) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+			return;
+		}
+
+		subscriber.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+				if (n <= 0) {
+					synchronized (mLock) {
+						mUpstreamError = new IllegalArgumentException("non-positive request: " + n);
+						mIsUpstreamDone = true;
+						mResults.clear();
+					}
+					cancelUpstream();
+				} else {
+					synchronized (mLock) {
+						mDemand += n;
+						if (mDemand < 0) {
+							// overflow means unbounded
+							mDemand = Long.MAX_VALUE;
+						}
+					}
+				}
+				drain();
+			}
+
+			@Override
+			public void cancel() {
+				synchronized (mLock) {
+					mIsTerminated = true;
+					mResults.clear();
+				}
+				cancelUpstream();
+			}
+		});
+		drain();
+	}
+
+	// Upstream =====
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		synchronized (mLock) {
+			if (mUpstream != null || mIsTerminated) {
+				subscription.cancel();
+				return;
+			}
+			mUpstream = subscription;
+		}
+		drain();
+	}
+
+	@Override
+	public void onNext(final T source) {
+		synchronized (mLock) {
+			if (mIsTerminated) {
+				return;
+			}
+			mRequestedCount--;
+			mInFlightCount++;
+		}
+
+		try {
+			mExecutor.execute(() -> {
+				ExifBatchResult result = decode(source);
+				synchronized (mLock) {
+					mInFlightCount--;
+					if (!mIsTerminated) {
+						mResults.add(result);
+					}
+				}
+				drain();
+			});
+		} catch (RejectedExecutionException e) {
+			// The source will never complete,so stop the upstream and
+			// publish the error after the results in-flight.
+			synchronized (mLock) {
+				mInFlightCount--;
+				if (!mIsUpstreamDone) {
+					mUpstreamError = e;
+					mIsUpstreamDone = true;
+				}
+			}
+			cancelUpstream();
+			drain();
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		synchronized (mLock) {
+			mUpstreamError = throwable;
+			mIsUpstreamDone = true;
+		}
+		drain();
+	}
+
+	@Override
+	public void onComplete() {
+		synchronized (mLock) {
+			mIsUpstreamDone = true;
+		}
+		drain();
+	}
+
+	private ExifBatchResult decode(T source) {
+		try {
+			return mReadFunction.read(source);
+		} catch (Throwable e) {
+			return new ExifBatchResult(source, source instanceof Path ? (Path) source : null, null, e);
+		}
+	}
+
+	private void cancelUpstream() {
+		Flow.Subscription upstream;
+		synchronized (mLock) {
+			upstream = mUpstream;
+		}
+		if (upstream != null) {
+			upstream.cancel();
+		}
+	}
+
+	/**
+	 * Publish the results as much as the demand,request the sources from the
+	 * upstream as much as the demand and the concurrency allow,and terminate
+	 * the downstream when everything is done.<br>
+	 * Only one thread runs it at a time.The thread calls it while another
+	 * thread runs it makes the running thread loop once more.
+	 */
+	private void drain() {
+		synchronized (mLock) {
+			if (mIsDraining) {
+				mIsMissed = true;
+				return;
+			}
+			mIsDraining = true;
+		}
+
+		for (;;) {
+			ExifBatchResult result = null;
+			Flow.Subscriber<? super ExifBatchResult> downstream;
+			Flow.Subscription upstream = null;
+			long requestCount = 0;
+			boolean isCompleting = false;
+			Throwable error = null;
+
+			synchronized (mLock) {
+				downstream = mDownstream;
+
+				if (downstream != null && !mIsTerminated) {
+					if (mDemand > 0 && !mResults.isEmpty()) {
+						result = mResults.poll();
+						if (mDemand != Long.MAX_VALUE) {
+							mDemand--;
+						}
+					} else if (mIsUpstreamDone && mInFlightCount == 0 && mResults.isEmpty()) {
+						mIsTerminated = true;
+						isCompleting = true;
+						error = mUpstreamError;
+					} else if (mUpstream != null && !mIsUpstreamDone) {
+						// sources which can be requested more
+						long outstanding = mRequestedCount + mInFlightCount + mResults.size();
+						long wanted = Math.min(mConcurrency, mDemand) - outstanding;
+						if (wanted > 0) {
+							requestCount = wanted;
+							mRequestedCount += wanted;
+							upstream = mUpstream;
+						}
+					}
+				}
+
+				if (result == null && !isCompleting && requestCount == 0) {
+					if (!mIsMissed) {
+						mIsDraining = false;
+						return;
+					}
+					mIsMissed = false;
+					continue;
+				}
+			}
+
+			if (result != null) {
+				downstream.onNext(result);
+			} else if (isCompleting) {
+				if (error != null) {
+					downstream.onError(error);
+				} else {
+					downstream.onComplete();
+				}
+			} else {
+				upstream.request(requestCount);
+			}
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Compares the decode modes of ExiguousExifLowLevelDecoder on a corpus of
+ * files.<br>
+ * It is not a part of the test suite, run it manually as follows.<br>
+ * <br>
+ * mvn test -Dtest=DecodeModeBenchmark -Dexiguous.benchmark.corpus=/path/to/jpegs
+ * -Dexiguous.benchmark.iterations=20
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class DecodeModeBenchmark extends TestBase {
+
+	static final String CORPUS_DIR = System.getProperty("exiguous.benchmark.corpus", "src/test/resources");
+	static final int ITERATIONS = Integer.getInteger("exiguous.benchmark.iterations", 20);
+
+	@Test
+	public void benchmark() {
+		List<String> corpus = listCorpus(new File(CORPUS_DIR));
+
+		// warm up and check that all modes return the same result
+		for (String fileName : corpus) {
+			String expected = decode(fileName, false, false);
+			assertEquals(fileName, expected, decode(fileName, true, false));
+			assertEquals(fileName, expected, decode(fileName, false, true));
+		}
+
+		long rafTime = measure(corpus, false, false);
+		long bulkTime = measure(corpus, true, false);
+		long mmapTime = measure(corpus, false, true);
+
+		System.out.println("corpus=" + CORPUS_DIR + " files=" + corpus.size() + " iterations=" + ITERATIONS);
+		System.out.println("RandomAccessFile : " + rafTime + "ms");
+		System.out.println("Bulk read        : " + bulkTime + "ms");
+		System.out.println("Memory map       : " + mmapTime + "ms");
+	}
+
+	private long measure(List<String> corpus, boolean bulkRead, boolean memoryMap) {
+		startTimer();
+		for (int i = 0; i < ITERATIONS; i++) {
+			for (String fileName : corpus) {
+				decode(fileName, bulkRead, memoryMap);
+			}
+		}
+		return stopTimer();
+	}
+
+	private String decode(String fileName, boolean bulkRead, boolean memoryMap) {
+		ExiguousExifReader exifReader = new ExiguousExifReader();
+		exifReader.setBulkReadEnabled(bulkRead);
+		exifReader.setMemoryMapEnabled(memoryMap);
+
+		ExifInfo exifInfo = new ExifInfo();
+		exifReader.read(fileName, exifInfo);
+		return exifInfo.toString();
+	}
+
+	private List<String> listCorpus(File dir) {
+		List<String> corpus = new ArrayList<String>();
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName().toLowerCase();
+				if (file.isDirectory()) {
+					corpus.addAll(listCorpus(file));
+				} else if (name.endsWith(".jpg") || name.endsWith(".jpeg")) {
+					corpus.add(file.getPath());
+				}
+			}
+		}
+		return corpus;
+	}
+}
@@ -23,6 +23,14 @@
  */
 package org.riversun.exiguous;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
 /**
  * Unit test base class provides TEST VALUEs<br>
  * 
@@ -43,4 +51,22 @@ public class TestBase {
 		return (stopTime - startTime);
 	}
 
+	/**
+	 * Delete the directory and the files under it
+	 * 
+	 * @param directory
+	 * @throws IOException
+	 */
+	static void deleteRecursively(Path directory) throws IOException {
+		List<Path> paths = new ArrayList<Path>();
+		try (Stream<Path> walk = Files.walk(directory)) {
+			walk.forEach(path -> paths.add(path));
+		}
+		// children first
+		Collections.reverse(paths);
+		for (Path path : paths) {
+			Files.delete(path);
+		}
+	}
+
 }
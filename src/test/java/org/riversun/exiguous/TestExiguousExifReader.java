@@ -24,6 +24,36 @@
 package org.riversun.exiguous;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import org.junit.After;
 import org.junit.Before;
@@ -66,4 +96,1542 @@ public class TestExiguousExifReader extends TestBase {
 
 	}
 
+	@Test
+	public void test_02_BulkRead() {
+		ExiguousExifReader exifReder = new ExiguousExifReader();
+		ExifInfo exifInfo = new ExifInfo();
+		exifReder.read(TEST01_JPG_FILEPATH, exifInfo);
+
+		ExiguousExifReader bulkExifReder = new ExiguousExifReader();
+		bulkExifReder.setBulkReadEnabled(true);
+		ExifInfo bulkExifInfo = new ExifInfo();
+		bulkExifReder.read(TEST01_JPG_FILEPATH, bulkExifInfo);
+
+		assertEquals(exifInfo.toString(), bulkExifInfo.toString());
+	}
+
+	@Test
+	public void test_03_ReadFromMemory() throws IOException {
+		ExiguousExifReader exifReder = new ExiguousExifReader();
+		ExifInfo exifInfo = new ExifInfo();
+		exifReder.read(TEST01_JPG_FILEPATH, exifInfo);
+
+		byte[] data = readAllBytes(TEST01_JPG_FILEPATH);
+
+		// InputStream
+		ByteArrayInputStream is = new ByteArrayInputStream(data);
+		ExifInfo streamExifInfo = new ExifInfo();
+		exifReder.read(is, streamExifInfo);
+		assertEquals(exifInfo.toString(), streamExifInfo.toString());
+
+		// Only the bytes up to the end of APP1 are consumed
+		assertEquals(0x2fa8, data.length - is.available());
+
+		// byte[] with offset
+		byte[] shiftedData = new byte[data.length + 3];
+		System.arraycopy(data, 0, shiftedData, 3, data.length);
+		ExifInfo arrayExifInfo = new ExifInfo();
+		exifReder.read(shiftedData, 3, data.length, arrayExifInfo);
+		assertEquals(exifInfo.toString(), arrayExifInfo.toString());
+
+		// ByteBuffer
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data);
+		buffer.flip();
+		ExifInfo bufferExifInfo = new ExifInfo();
+		exifReder.read(buffer, bufferExifInfo);
+		assertEquals(exifInfo.toString(), bufferExifInfo.toString());
+		assertEquals(0, buffer.position());
+	}
+
+	@Test
+	public void test_04_MemoryMap() {
+		ExiguousExifReader exifReder = new ExiguousExifReader();
+		ExifInfo exifInfo = new ExifInfo();
+		exifReder.read(TEST01_JPG_FILEPATH, exifInfo);
+
+		ExiguousExifReader mmapExifReder = new ExiguousExifReader();
+		mmapExifReder.setMemoryMapEnabled(true);
+		ExifInfo mmapExifInfo = new ExifInfo();
+		mmapExifReder.read(TEST01_JPG_FILEPATH, mmapExifInfo);
+
+		assertEquals(exifInfo.toString(), mmapExifInfo.toString());
+	}
+
+	@Test
+	public void test_05_AsyncRead() throws Exception {
+		ExiguousExifReader exifReder = new ExiguousExifReader();
+		ExifInfo exifInfo = new ExifInfo();
+		exifReder.read(TEST01_JPG_FILEPATH, exifInfo);
+
+		ExiguousAsyncExifReader asyncExifReader = new ExiguousAsyncExifReader();
+
+		ExifInfo asyncExifInfo = asyncExifReader.read(TEST01_JPG_FILEPATH).get();
+		assertEquals(exifInfo.toString(), asyncExifInfo.toString());
+
+		ExiguousExifLowLevelDecoder decoder = asyncExifReader.readIFD(TEST01_JPG_FILEPATH).get();
+		assertEquals("Canon PowerShot SX130 IS", decoder.getIFD0().getFieldByName("Model").getStringData());
+
+		// The truncated APP1 segment is an I/O error as ExiguousExifReader
+		Path truncated = Files.createTempFile("exiguous", ".jpg");
+		try {
+			Files.write(truncated, Arrays.copyOf(readAllBytes(TEST01_JPG_FILEPATH), 400));
+			try {
+				asyncExifReader.read(truncated).get();
+				fail();
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof EOFException);
+			}
+		} finally {
+			Files.delete(truncated);
+		}
+	}
+
+	@Test
+	public void test_06_SegmentsBeforeExif() throws IOException {
+		ExiguousExifReader exifReder = new ExiguousExifReader();
+		ExifInfo exifInfo = new ExifInfo();
+		exifReder.read(TEST01_JPG_FILEPATH, exifInfo);
+
+		byte[] data = readAllBytes(TEST01_JPG_FILEPATH);
+
+		// JFIF APP0 and XMP APP1 are placed before Exif APP1
+		byte[] app0 = new byte[] { (byte) 0xFF, (byte) 0xE0, 0x00, 0x10, 'J', 'F', 'I', 'F', 0x00, 0x01, 0x01, 0x00, 0x00, 0x01, 0x00, 0x01, 0x00, 0x00 };
+		byte[] xmpApp1 = new byte[300];
+		xmpApp1[0] = (byte) 0xFF;
+		xmpApp1[1] = (byte) 0xE1;
+		xmpApp1[2] = (byte) ((xmpApp1.length - 2) >> 8);
+		xmpApp1[3] = (byte) (xmpApp1.length - 2);
+		System.arraycopy("http://ns.adobe.com/xap/1.0/".getBytes("US-ASCII"), 0, xmpApp1, 4, 28);
+
+		byte[] jfifData = new byte[data.length + app0.length + xmpApp1.length];
+		System.arraycopy(data, 0, jfifData, 0, 2);
+		System.arraycopy(app0, 0, jfifData, 2, app0.length);
+		System.arraycopy(xmpApp1, 0, jfifData, 2 + app0.length, xmpApp1.length);
+		System.arraycopy(data, 2, jfifData, 2 + app0.length + xmpApp1.length, data.length - 2);
+
+		ExifInfo jfifExifInfo = new ExifInfo();
+		exifReder.read(jfifData, jfifExifInfo);
+		assertEquals(true, jfifExifInfo.isEnabled());
+		assertEquals(exifInfo.toString(), jfifExifInfo.toString());
+
+		ByteArrayInputStream is = new ByteArrayInputStream(jfifData);
+		ExifInfo streamExifInfo = new ExifInfo();
+		exifReder.read(is, streamExifInfo);
+		assertEquals(exifInfo.toString(), streamExifInfo.toString());
+		assertEquals(0x2fa8 + app0.length + xmpApp1.length, jfifData.length - is.available());
+
+		// No Exif APP1 before SOS
+		byte[] noExifData = new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0x00, 0x04, 0x00, 0x00, (byte) 0xFF, (byte) 0xDA, 0x00, 0x02, 0x00, 0x00, 0x00, 0x00 };
+		ExifInfo noExifInfo = new ExifInfo();
+		exifReder.read(noExifData, noExifInfo);
+		assertEquals(false, noExifInfo.isEnabled());
+	}
+
+	@Test
+	public void test_07_FieldValueSlice() {
+		ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+		decoder.setMemoryMapEnabled(true);
+		decoder.read(TEST01_JPG_FILEPATH);
+		decoder.close();
+
+		ExifIFDField modelField = decoder.getIFD0().getFieldByName("Model");
+		int[] modelData = modelField.getData();
+		ByteBuffer modelBuffer = modelField.getDataBuffer();
+
+		assertEquals(25, modelField.getDataLength());
+		assertEquals(modelData.length, modelBuffer.remaining());
+		for (int i = 0; i < modelData.length; i++) {
+			assertEquals(modelData[i], modelBuffer.get(i) & 0xFF);
+			assertEquals(modelData[i], modelField.getByte(i));
+		}
+		assertEquals("Canon PowerShot SX130 IS", modelField.getStringData());
+
+		// The value in the 4byte data area
+		ExifIFDField orientationField = decoder.getIFD0().getFieldByName("Orientation");
+		assertEquals(4, orientationField.getData().length);
+		assertEquals(1, orientationField.getByte(1));
+	}
+
+	@Test
+	public void test_08_IntTagKey() {
+		ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+		decoder.read(TEST01_JPG_FILEPATH);
+		decoder.close();
+
+		ExifIFDBlock ifd0 = decoder.getIFD0();
+		assertSame(ifd0.getFieldByName("Model"), ifd0.getField(0x0110));
+		assertSame(ifd0.getField(0x0110), ifd0.getField("0x0110"));
+		assertNull(ifd0.getField("x0110"));
+		assertEquals("Model", ExifTagFinder.getTagName(0x0110));
+		assertEquals(0x0110, ExifTagFinder.getTagCode("Model"));
+		assertEquals("0x0110", ExifTagFinder.getTagCodeAsString("Model"));
+		assertEquals("UNKNOWN(0xfffe)", ExifTagFinder.getTagName(0xfffe));
+
+		// Fields are kept in the order of addition and replaced by the same tag
+		ExifIFDBlock block = new ExifIFDBlock();
+		for (int i = 0; i < 100; i++) {
+			ExifIFDField field = new ExifIFDField();
+			field.Tag = 0x9000 - i;
+			block.addField(field);
+		}
+		ExifIFDField replaced = new ExifIFDField();
+		replaced.Tag = 0x9000 - 50;
+		block.addField(replaced);
+
+		List<ExifIFDField> fields = block.getIFDList();
+		assertEquals(100, fields.size());
+		assertEquals(0x9000 - 99, fields.get(99).Tag);
+		assertSame(replaced, fields.get(50));
+		assertSame(replaced, block.getField(0x9000 - 50));
+		assertNull(block.getField(0x9001));
+	}
+
+	@Test
+	public void test_09_TagRegistry() {
+		assertEquals("GPSLatitude", ExifTag.getTagName(ExifIFDKind.GPS, 0x0002));
+		assertEquals("InteroperabilityVersion", ExifTag.getTagName(ExifIFDKind.INTEROPERABILITY, 0x0002));
+		assertEquals("InteroperabilityIndex", ExifTag.getTagName(ExifIFDKind.INTEROPERABILITY, 0x0001));
+		assertEquals("RelatedImageLength", ExifTag.getTagName(ExifIFDKind.INTEROPERABILITY, 0x1002));
+		assertSame(ExifTag.JPEG_INTERCHANGE_FORMAT, ExifTag.find(ExifIFDKind.IFD1, 0x0201));
+		assertSame(ExifTag.SUBJECT_LOCATION, ExifTag.find(ExifIFDKind.EXIF, 0xa214));
+		assertSame(ExifTag.TIFF_EP_SUBJECT_LOCATION, ExifTag.find(ExifIFDKind.IFD0, 0x9214));
+		assertSame(ExifTag.EXIF_IMAGE_WIDTH, ExifTag.findByName(ExifIFDKind.EXIF, "PixelXDimension"));
+		assertNull(ExifTag.find(ExifIFDKind.GPS, 0x0110));
+		assertEquals("UNKNOWN(0x0020)", ExifTag.getTagName(ExifIFDKind.GPS, 0x0020));
+
+		ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+		decoder.read(TEST01_JPG_FILEPATH);
+		decoder.close();
+
+		assertEquals(ExifIFDKind.EXIF, decoder.getExif_IFD().Kind);
+		assertEquals("WhiteBalance", decoder.getExif_IFD().getField(0xa403).TagName);
+		// the name of the tag not defined is made on the first access
+		ExifIFDField padding = decoder.getExif_IFD().getField(0xea1c);
+		assertNull(padding.TagName);
+		assertEquals("UNKNOWN(0xea1c)", padding.getTagName());
+		assertSame(decoder.getExif_IFD().getField(0xa002), decoder.getExif_IFD().getFieldByName("PixelXDimension"));
+	}
+
+	@Test
+	public void test_10_LazyValueLoading() {
+		ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+		decoder.setLazyValueLoadingEnabled(true);
+		decoder.read(TEST01_JPG_FILEPATH);
+
+		ExifIFDField modelField = decoder.getIFD0().getFieldByName("Model");
+		ExifIFDField dateTimeField = decoder.getExif_IFD().getFieldByName("DateTimeOriginal");
+		assertFalse(modelField.isValueLoaded());
+		assertFalse(dateTimeField.isValueLoaded());
+		assertEquals(25, modelField.getDataLength());
+
+		assertEquals("Canon PowerShot SX130 IS", modelField.getStringData());
+		assertTrue(modelField.isValueLoaded());
+		decoder.close();
+
+		// loaded values are available after closing
+		assertEquals("Canon PowerShot SX130 IS", modelField.getStringData());
+		try {
+			dateTimeField.getData();
+			fail();
+		} catch (IllegalStateException e) {
+			// not loaded before closing
+		}
+
+		ExiguousExifReader exifReader = new ExiguousExifReader();
+		exifReader.setLazyValueLoadingEnabled(true);
+		ExifInfo lazyExifInfo = new ExifInfo();
+		exifReader.read(TEST01_JPG_FILEPATH, lazyExifInfo);
+
+		ExifInfo exifInfo = new ExifInfo();
+		new ExiguousExifReader().read(TEST01_JPG_FILEPATH, exifInfo);
+
+		assertEquals(exifInfo.getModel(), lazyExifInfo.getModel());
+		assertEquals(exifInfo.getFValue(), lazyExifInfo.getFValue(), 0);
+		assertEquals(exifInfo.getExposureTime(), lazyExifInfo.getExposureTime(), 0);
+		assertEquals(exifInfo.getDateTime(), lazyExifInfo.getDateTime());
+	}
+
+	@Test
+	public void test_11_TypedAccessors() {
+		ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+		decoder.read(TEST01_JPG_FILEPATH);
+		decoder.close();
+
+		ExifIFDField exposureTimeField = decoder.getExif_IFD().getFieldByName("ExposureTime");
+		assertEquals(1, exposureTimeField.getRationalNumerator(0));
+		assertEquals(800, exposureTimeField.getRationalDenominator(0));
+		assertEquals(0.00125, exposureTimeField.getRationalAsDouble(0), 0);
+		assertEquals(640, decoder.getExif_IFD().getFieldByName("ExifImageWidth").getUnsignedInt(0));
+		assertEquals(1, decoder.getIFD0().getFieldByName("Orientation").getUnsignedShort(0));
+
+		// little endian, 2 SRATIONAL values
+		ExifIFDField field = new ExifIFDField();
+		field.setEndianMode(ExiguousExifLowLevelDecoder.LITTLE_ENDIAN);
+		byte[] value = new byte[] { (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 3, 0, 0, 0, 0x10, 0x27, 0, 0, (byte) 0xE8, 0x03, 0, 0 };
+		field.setValue(new ExifSegmentBuffer(ByteBuffer.wrap(value)), 0, value.length);
+		assertEquals(-2, field.getSignedRationalNumerator(0));
+		assertEquals(3, field.getSignedRationalDenominator(0));
+		assertEquals(10.0, field.getSignedRationalAsDouble(1), 0);
+		assertEquals(0xFFFFFFFEL, field.getUnsignedInt(0));
+		assertEquals(-2, field.getSignedInt(0));
+		assertEquals(0xFFFE, field.getUnsignedShort(0));
+		assertEquals(-2, field.getSignedShort(0));
+
+		// inline value in the 4byte data area
+		ExifIFDField inlineField = new ExifIFDField();
+		inlineField.setEndianMode(ExiguousExifLowLevelDecoder.BIG_ENDIAN);
+		inlineField.setInlineValue(0x12345678);
+		assertEquals(0x1234, inlineField.getUnsignedShort(0));
+		assertEquals(0x5678, inlineField.getUnsignedShort(1));
+		assertEquals(0x12345678L, inlineField.getUnsignedInt(0));
+		try {
+			inlineField.getUnsignedShort(2);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// out of the data area
+		}
+	}
+
+	@Test
+	public void test_12_TagQuery() throws IOException {
+		ExifTagQuery query = new ExifTagQuery().add(ExifTag.MODEL).add(ExifTag.DATE_TIME_ORIGINAL).add(ExifTag.EXIF_IMAGE_WIDTH);
+
+		ExiguousExifReader exifReader = new ExiguousExifReader();
+		exifReader.read(TEST01_JPG_FILEPATH, query);
+
+		assertTrue(query.isCompleted());
+		assertEquals("Canon PowerShot SX130 IS", query.getField(ExifTag.MODEL).getStringData());
+		assertEquals("2012:05:19 21:41:23", query.getField(ExifTag.DATE_TIME_ORIGINAL).getStringData());
+		assertEquals(640, query.getField(ExifTag.EXIF_IMAGE_WIDTH).getUnsignedInt(0));
+		assertNull(query.getField(ExifTag.MAKE));
+
+		// Only the requested fields and the pointer to Exif IFD are decoded
+		ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+		decoder.setTagQuery(new ExifTagQuery().add(ExifTag.ORIENTATION));
+		decoder.read(TEST01_JPG_FILEPATH);
+		decoder.close();
+		assertEquals(1, decoder.getIFD0().getIFDList().size());
+		assertNull(decoder.getExif_IFD());
+
+		decoder.setTagQuery(query);
+		decoder.read(TEST01_JPG_FILEPATH);
+		decoder.close();
+		assertEquals(2, decoder.getIFD0().getIFDList().size());
+		assertEquals(2, decoder.getExif_IFD().getIFDList().size());
+
+		// The tags not in the image
+		ExifTagQuery gpsQuery = new ExifTagQuery().add(ExifTag.MODEL).add(ExifTag.GPS_LATITUDE);
+		exifReader.read(new ByteArrayInputStream(readAllBytes(TEST01_JPG_FILEPATH)), gpsQuery);
+		assertFalse(gpsQuery.isCompleted());
+		assertEquals("Canon PowerShot SX130 IS", gpsQuery.getField(ExifTag.MODEL).getStringData());
+		assertNull(gpsQuery.getField(ExifTag.GPS_LATITUDE));
+	}
+
+	@Test
+	public void test_13_Probe() throws IOException {
+		ExiguousExifProbe probe = new ExiguousExifProbe();
+
+		assertTrue(probe.hasExif(TEST01_JPG_FILEPATH));
+		assertFalse(probe.hasExif(new ByteArrayInputStream(new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xD9 })));
+
+		assertEquals(1, probe.readOrientation(TEST01_JPG_FILEPATH));
+		assertEquals(1, probe.readOrientation(new ByteArrayInputStream(readAllBytes(TEST01_JPG_FILEPATH))));
+
+		int[] dimensions = new int[2];
+		assertTrue(probe.readDimensions(TEST01_JPG_FILEPATH, dimensions));
+		assertEquals(640, dimensions[0]);
+		assertEquals(480, dimensions[1]);
+
+		// the stream is consumed only up to the Exif header of the APP1 at 0x12
+		byte[] image = readAllBytes(TEST01_JPG_FILEPATH);
+		ByteArrayInputStream in = new ByteArrayInputStream(image);
+		assertTrue(probe.hasExif(in));
+		assertEquals(image.length - 0x1c, in.available());
+
+		// little endian
+		byte[] littleEndianImage = exifImage(probeTiff());
+		assertTrue(probe.hasExif(new ByteArrayInputStream(littleEndianImage)));
+		assertEquals(6, probe.readOrientation(new ByteArrayInputStream(littleEndianImage)));
+		assertTrue(probe.readDimensions(new ByteArrayInputStream(littleEndianImage), dimensions));
+		assertEquals(320, dimensions[0]);
+		assertEquals(240, dimensions[1]);
+
+		// no Orientation and no Exif IFD
+		byte[] noTagsImage = exifImage(malformedSubIFDsTiff());
+		assertEquals(0, probe.readOrientation(new ByteArrayInputStream(noTagsImage)));
+		assertFalse(probe.readDimensions(new ByteArrayInputStream(noTagsImage), dimensions));
+	}
+
+	@Test
+	public void test_14_Thumbnail() throws IOException {
+		byte[] image = readAllBytes(TEST01_JPG_FILEPATH);
+
+		ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+		decoder.read(TEST01_JPG_FILEPATH);
+
+		assertEquals(0x1c + 5408, decoder.getThumbnailPosition());
+		assertEquals(6763, decoder.getThumbnailLength());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(6763, decoder.transferThumbnailTo(out));
+		byte[] thumbnail = out.toByteArray();
+		assertEquals(0xFF, thumbnail[0] & 0xFF);
+		assertEquals(0xD8, thumbnail[1] & 0xFF);
+		for (int i = 0; i < thumbnail.length; i++) {
+			assertEquals(image[0x1c + 5408 + i], thumbnail[i]);
+		}
+
+		ByteBuffer thumbnailBuffer = decoder.getThumbnailBuffer();
+		decoder.close();
+		assertEquals(ByteBuffer.wrap(thumbnail), thumbnailBuffer);
+
+		// view of the image on memory
+		decoder.read(image);
+		assertEquals(ByteBuffer.wrap(thumbnail), decoder.getThumbnailBuffer());
+		decoder.close();
+
+		decoder.setMemoryMapEnabled(true);
+		decoder.read(TEST01_JPG_FILEPATH);
+		ByteArrayOutputStream mappedOut = new ByteArrayOutputStream();
+		decoder.transferThumbnailTo(mappedOut);
+		thumbnailBuffer = decoder.getThumbnailBuffer();
+		decoder.close();
+		assertEquals(ByteBuffer.wrap(thumbnail), ByteBuffer.wrap(mappedOut.toByteArray()));
+		assertEquals(ByteBuffer.wrap(thumbnail), thumbnailBuffer);
+	}
+
+	@Test
+	public void test_15_MakerNote() {
+		// test01.jpg has no MakerNote
+		ExifInfo exifInfo = new ExifInfo();
+		new ExiguousExifReader().read(TEST01_JPG_FILEPATH, exifInfo);
+		assertNull(exifInfo.getExifMakerNote());
+		assertNull(exifInfo.getMakerNote());
+
+		// Canon(big endian) at offset 1000 from the TIFF header.
+		// The offset of the value is relative to the TIFF header.
+		byte[] canon = new byte[] {
+				0x00, 0x02,
+				0x00, 0x01, 0x00, 0x03, 0x00, 0x00, 0x00, 0x01, 0x00, 0x05, 0x00, 0x00,
+				0x00, 0x06, 0x00, 0x02, 0x00, 0x00, 0x00, 0x08, 0x00, 0x00, 0x04, 0x06,
+				0x00, 0x00, 0x00, 0x00,
+				'E', 'O', 'S', ' ', '5', 'D', 0x00, 0x00 };
+		ExifMakerNote canonMakerNote = new ExifMakerNote(makerNoteField(canon, 1000), "Canon", ExiguousExifLowLevelDecoder.BIG_ENDIAN);
+		assertEquals(1000, canonMakerNote.getOffset());
+		assertEquals(canon.length, canonMakerNote.getLength());
+		assertEquals(5, canonMakerNote.getField(0x0001).getUnsignedShort(0));
+		assertEquals("EOS 5D", canonMakerNote.getField(0x0006).getStringData());
+		assertEquals(1030, canonMakerNote.getField(0x0006).DataOffsetAddress);
+		assertSame(canonMakerNote.decode(), canonMakerNote.decode());
+
+		// Fujifilm(always little endian).
+		// The offset of the value is relative to the head of the MakerNote.
+		byte[] fujifilm = new byte[] {
+				'F', 'U', 'J', 'I', 'F', 'I', 'L', 'M', 0x0C, 0x00, 0x00, 0x00,
+				0x01, 0x00,
+				0x00, 0x10, 0x02, 0x00, 0x08, 0x00, 0x00, 0x00, 0x1E, 0x00, 0x00, 0x00,
+				0x00, 0x00, 0x00, 0x00,
+				'N', 'O', 'R', 'M', 'A', 'L', 0x00, 0x00 };
+		ExifMakerNote fujifilmMakerNote = new ExifMakerNote(makerNoteField(fujifilm, 500), "FUJIFILM", ExiguousExifLowLevelDecoder.BIG_ENDIAN);
+		assertEquals("NORMAL", fujifilmMakerNote.getField(0x1000).getStringData());
+		assertEquals(30, fujifilmMakerNote.getField(0x1000).DataOffsetAddress);
+		assertEquals(ExifIFDKind.MAKER_NOTE, fujifilmMakerNote.decode().Kind);
+
+		// No decoder for the Make
+		assertNull(new ExifMakerNote(makerNoteField(canon, 1000), "Acme", ExiguousExifLowLevelDecoder.BIG_ENDIAN).decode());
+
+		ExifMakerNoteDecoder acmeDecoder = new ExifMakerNoteDecoder() {
+			@Override
+			public boolean isSupported(String make) {
+				return "Acme".equals(make);
+			}
+
+			@Override
+			public ExifIFDBlock decode(ExifMakerNote makerNote) {
+				return ExiguousMakernoteDecoder.analyzeIFD(makerNote.getBuffer(), 0, makerNote.getOffset(), makerNote.getEndianMode());
+			}
+		};
+		ExifMakerNoteDecoderRegistry.register(acmeDecoder);
+		try {
+			assertSame(acmeDecoder, ExifMakerNoteDecoderRegistry.find("Acme"));
+			assertEquals("EOS 5D", new ExifMakerNote(makerNoteField(canon, 1000), "Acme", ExiguousExifLowLevelDecoder.BIG_ENDIAN).getField(0x0006).getStringData());
+		} finally {
+			ExifMakerNoteDecoderRegistry.unregister(acmeDecoder);
+		}
+		assertNull(ExifMakerNoteDecoderRegistry.find("Acme"));
+
+		// The entry count is read as 2byte value in the endian
+		int[] legacy = new int[12 + 2 + 12];
+		legacy[12] = 0x01;
+		legacy[14] = 0x01;
+		legacy[16] = 0x03;
+		legacy[18] = 0x01;
+		legacy[22] = 0x07;
+		ExifIFDBlock legacyIFD = new ExiguousMakernoteDecoder(ExiguousMakernoteDecoder.LITTLE_ENDIAN).analyzeMakerNote(legacy);
+		assertEquals(1, legacyIFD.Count);
+		assertEquals(7, legacyIFD.getField(0x0001).getUnsignedShort(0));
+	}
+
+	private static ExifIFDField makerNoteField(byte[] makerNote, long offset) {
+		ExifIFDField field = new ExifIFDField();
+		field.Tag = 0x927c;
+		field.DataType = ExifIFDField.TYPE_UNDEFINED;
+		field.SizeCount = makerNote.length;
+		field.DataSize = makerNote.length;
+		field.LongData = offset;
+		field.setValue(new ExifSegmentBuffer(ByteBuffer.wrap(makerNote)), 0, makerNote.length);
+		return field;
+	}
+
+	@Test
+	public void test_16_IFDGraph() {
+		ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+
+		// test01.jpg: IFD0 -> IFD1, IFD0 -> Exif IFD
+		decoder.read(TEST01_JPG_FILEPATH);
+		decoder.close();
+		assertSame(decoder.getIFD0(), decoder.getIFDs().get(0));
+		assertTrue(decoder.getIFDs().contains(decoder.getIFD1()));
+		assertTrue(decoder.getIFDs().contains(decoder.getExif_IFD()));
+		assertFalse(decoder.isCycleDetected());
+		assertFalse(decoder.isBudgetExceeded());
+
+		// IFD0(8) -> Exif IFD(38) -> Interoperability IFD(56),
+		// IFD0(8) -> SubIFD(74),
+		// IFD0(8) -> IFD1(92) -> IFD0(8) (cycle)
+		byte[] tiff = new byte[] {
+				'M', 'M', 0x00, 0x2A, 0x00, 0x00, 0x00, 0x08,
+				// IFD0
+				0x00, 0x02,
+				(byte) 0x87, 0x69, 0x00, 0x04, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x26,
+				0x01, 0x4A, 0x00, 0x04, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x4A,
+				0x00, 0x00, 0x00, 0x5C,
+				// Exif IFD
+				0x00, 0x01,
+				(byte) 0xA0, 0x05, 0x00, 0x04, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x38,
+				0x00, 0x00, 0x00, 0x00,
+				// Interoperability IFD
+				0x00, 0x01,
+				0x00, 0x01, 0x00, 0x02, 0x00, 0x00, 0x00, 0x04, 'R', '9', '8', 0x00,
+				0x00, 0x00, 0x00, 0x00,
+				// SubIFD
+				0x00, 0x01,
+				0x01, 0x00, 0x00, 0x03, 0x00, 0x00, 0x00, 0x01, 0x00, 0x10, 0x00, 0x00,
+				0x00, 0x00, 0x00, 0x00,
+				// IFD1
+				0x00, 0x01,
+				0x01, 0x03, 0x00, 0x03, 0x00, 0x00, 0x00, 0x01, 0x00, 0x06, 0x00, 0x00,
+				0x00, 0x00, 0x00, 0x08 };
+		byte[] image = exifImage(tiff);
+
+		assertTrue(decoder.read(image));
+		decoder.close();
+		assertEquals(5, decoder.getIFDs().size());
+		assertEquals("R98", decoder.getInteroperability_IFD().getFieldByName("InteroperabilityIndex").getStringData());
+		assertEquals(1, decoder.getSubIFDs().size());
+		assertEquals(16, decoder.getSubIFDs().get(0).getFieldByName("ImageWidth").getUnsignedShort(0));
+		assertEquals(6, decoder.getIFD1().getFieldByName("Compression").getUnsignedShort(0));
+		assertTrue(decoder.isCycleDetected());
+		assertFalse(decoder.isBudgetExceeded());
+
+		// with the tag query,only the IFDs on the path are visited
+		ExifTagQuery query = new ExifTagQuery().add(ExifTag.INTEROPERABILITY_INDEX);
+		decoder.setTagQuery(query);
+		decoder.read(image);
+		decoder.close();
+		decoder.setTagQuery(null);
+		assertEquals("R98", query.getField(ExifTag.INTEROPERABILITY_INDEX).getStringData());
+		assertEquals(3, decoder.getIFDs().size());
+
+		// budget
+		ExifDecoderConfig config = new ExifDecoderConfig();
+		config.setMaxIFDCount(2);
+		decoder.setConfig(config);
+		decoder.read(image);
+		decoder.close();
+		assertEquals(2, decoder.getIFDs().size());
+		assertTrue(decoder.isBudgetExceeded());
+
+		config.setMaxIFDCount(ExifDecoderConfig.DEFAULT_MAX_IFD_COUNT);
+		config.setMaxTotalEntryCount(3);
+		decoder.read(image);
+		decoder.close();
+		assertTrue(decoder.isBudgetExceeded());
+		assertNull(decoder.getInteroperability_IFD());
+	}
+
+	@Test
+	public void test_17_HostileInput() {
+		ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+
+		decoder.read(TEST01_JPG_FILEPATH);
+		decoder.close();
+		assertFalse(decoder.hasErrors());
+
+		byte[] tiff = new byte[] {
+				'M', 'M', 0x00, 0x2A, 0x00, 0x00, 0x00, 0x08,
+				0x00, 0x04,
+				// unknown type
+				0x01, 0x0F, 0x00, (byte) 0xFF, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x00,
+				// huge value
+				0x01, 0x10, 0x00, 0x02, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x00, 0x00, 0x00, 0x10,
+				// value out of the segment
+				0x01, 0x31, 0x00, 0x02, 0x00, 0x00, 0x00, 0x08, 0x00, 0x00, 0x10, 0x00,
+				// IFD out of the segment
+				(byte) 0x87, 0x69, 0x00, 0x04, 0x00, 0x00, 0x00, 0x01, 0x00, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+				0x00, 0x00, 0x00, 0x00 };
+
+		assertTrue(decoder.read(exifImage(tiff)));
+		decoder.close();
+		assertEquals(1, decoder.getIFD0().getIFDList().size());
+		assertNull(decoder.getExif_IFD());
+		assertTrue(decoder.getErrors().contains(ExifDecodeError.INVALID_TYPE));
+		assertTrue(decoder.getErrors().contains(ExifDecodeError.VALUE_SIZE_EXCEEDED));
+		assertTrue(decoder.getErrors().contains(ExifDecodeError.INVALID_OFFSET));
+		assertFalse(decoder.isBudgetExceeded());
+
+		ExifDecoderConfig config = new ExifDecoderConfig();
+		config.setMaxEntryCount(2);
+		decoder.setConfig(config);
+		decoder.read(exifImage(tiff));
+		decoder.close();
+		assertEquals(0, decoder.getIFD0().getIFDList().size());
+		assertTrue(decoder.getErrors().contains(ExifDecodeError.ENTRY_COUNT_EXCEEDED));
+
+		// count of the fields larger than the segment
+		tiff[8] = (byte) 0xFF;
+		tiff[9] = (byte) 0xFF;
+		decoder.setConfig(new ExifDecoderConfig());
+		assertTrue(decoder.read(exifImage(tiff)));
+		decoder.close();
+		assertEquals(1, decoder.getIFD0().getIFDList().size());
+		assertTrue(decoder.getErrors().contains(ExifDecodeError.ENTRY_COUNT_EXCEEDED));
+		assertTrue(decoder.getErrors().contains(ExifDecodeError.INVALID_OFFSET));
+	}
+
+	@Test
+	public void test_18_SharedReader() throws Exception {
+		final byte[] image = readAllBytes(TEST01_JPG_FILEPATH);
+
+		final ExiguousExifReader reader = new ExiguousExifReader();
+
+		ExifInfo expectedInfo = new ExifInfo();
+		reader.read(TEST01_JPG_FILEPATH, expectedInfo);
+		final String expected = expectedInfo.toString();
+
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			final boolean fromFile = (i % 2 == 0);
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < 50; j++) {
+							ExifInfo exifInfo = new ExifInfo();
+							if (fromFile) {
+								reader.read(TEST01_JPG_FILEPATH, exifInfo);
+							} else {
+								reader.read(image, exifInfo);
+							}
+							assertEquals(expected, exifInfo.toString());
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+
+		// The config is copied by the reader
+		ExifDecoderConfig config = new ExifDecoderConfig();
+		config.setMaxIFDCount(1);
+		reader.setDecoderConfig(config);
+		config.setMaxIFDCount(ExifDecoderConfig.DEFAULT_MAX_IFD_COUNT);
+		ExifInfo exifInfo = new ExifInfo();
+		reader.read(image, exifInfo);
+		// Exif IFD is not visited
+		assertFalse(exifInfo.isEnabled());
+	}
+
+	@Test
+	public void test_19_BatchReader() {
+		Path test01 = Paths.get(TEST01_JPG_FILEPATH);
+		Path missing = Paths.get(TEST01_JPG_FILEPATH + ".missing");
+
+		List<Path> paths = new ArrayList<Path>();
+		for (int i = 0; i < 20; i++) {
+			paths.add(i == 7 ? missing : test01);
+		}
+
+		ExifInfo expectedInfo = new ExifInfo();
+		new ExiguousExifReader().read(TEST01_JPG_FILEPATH, expectedInfo);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ExifBatchReader batchReader = new ExifBatchReader(executor, 4);
+
+			// ordered
+			List<ExifBatchResult> results = batchReader.readAll(paths).collect(Collectors.toList());
+			assertEquals(20, results.size());
+			for (int i = 0; i < results.size(); i++) {
+				ExifBatchResult result = results.get(i);
+				assertEquals(paths.get(i), result.getPath());
+				if (i == 7) {
+					assertFalse(result.isSucceeded());
+					assertNull(result.getExifInfo());
+				} else {
+					assertTrue(result.isSucceeded());
+					assertEquals(expectedInfo.toString(), result.getExifInfo().toString());
+				}
+			}
+
+			// unordered
+			batchReader.setOrdered(false);
+			final List<ExifBatchResult> unorderedResults = new ArrayList<ExifBatchResult>();
+			batchReader.readAll(paths.stream(), result -> unorderedResults.add(result));
+			assertEquals(20, unorderedResults.size());
+			int errorCount = 0;
+			for (ExifBatchResult result : unorderedResults) {
+				if (!result.isSucceeded()) {
+					assertEquals(missing, result.getPath());
+					errorCount++;
+				}
+			}
+			assertEquals(1, errorCount);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void test_20_DirectoryScanner() throws Exception {
+		Path directory = Files.createTempDirectory("exiguous");
+		try {
+			Path subDirectory = Files.createDirectory(directory.resolve("sub"));
+			Files.copy(Paths.get(TEST01_JPG_FILEPATH), directory.resolve("a.jpg"));
+			Files.copy(Paths.get(TEST01_JPG_FILEPATH), subDirectory.resolve("b.JPEG"));
+			Files.write(subDirectory.resolve("c.jpg"), new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xD9 });
+			Files.write(directory.resolve("d.txt"), new byte[] { 'x' });
+
+			ExifDirectoryScanner scanner = new ExifDirectoryScanner();
+			scanner.setMaxConcurrency(2);
+
+			final List<ExifBatchResult> results = Collections.synchronizedList(new ArrayList<ExifBatchResult>());
+			ExifScanProgress progress = scanner.scan(directory, result -> results.add(result));
+			assertEquals(3, results.size());
+			assertEquals(3, progress.getFoundCount());
+			assertEquals(3, progress.getCompletedCount());
+			assertEquals(2, progress.getExifCount());
+			assertEquals(0, progress.getErrorCount());
+			assertEquals(0, progress.getPendingCount());
+			assertSame(progress, scanner.getProgress());
+
+			// glob matches the file name
+			scanner.setGlob("*.JPEG");
+			results.clear();
+			scanner.scan(directory, result -> results.add(result));
+			assertEquals(1, results.size());
+			assertEquals(subDirectory.resolve("b.JPEG"), results.get(0).getPath());
+
+			// glob matches the relative path
+			scanner.setGlob("sub/*");
+			assertEquals(2, scanner.scan(directory, result -> {
+			}).getFoundCount());
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	@Test
+	public void test_21_Cache() throws Exception {
+		Path directory = Files.createTempDirectory("exiguous");
+		try {
+			Path a = Files.copy(Paths.get(TEST01_JPG_FILEPATH), directory.resolve("a.jpg"));
+			Path b = Files.copy(Paths.get(TEST01_JPG_FILEPATH), directory.resolve("b.jpg"));
+
+			ExifInfo expectedInfo = new ExifInfo();
+			new ExiguousExifReader().read(TEST01_JPG_FILEPATH, expectedInfo);
+
+			ExifInfoCache cache = new ExifInfoCache(new ExiguousExifReader(), 1, ExifInfoCache.DEFAULT_MAX_RETAINED_SIZE);
+
+			ExifInfo exifInfo = new ExifInfo();
+			cache.read(a.toString(), exifInfo);
+			assertEquals(expectedInfo.toString(), exifInfo.toString());
+			ExifInfo cachedInfo = cache.get(a);
+			assertSame(cachedInfo, cache.get(directory.resolve("./a.jpg")));
+			assertEquals(2, cache.getStats().getHitCount());
+			assertEquals(1, cache.getStats().getMissCount());
+			assertEquals(1, cache.getStats().getLoadCount());
+
+			// changed file is read again
+			Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() - 10000));
+			ExifInfo reloadedInfo = cache.get(a);
+			assertFalse(cachedInfo == reloadedInfo);
+			assertEquals(2, cache.getStats().getLoadCount());
+			assertEquals(0, cache.getStats().getEvictionCount());
+			// the entry of the older last modified time replaces the cached one
+			assertSame(reloadedInfo, cache.get(a));
+			assertEquals(3, cache.getStats().getHitCount());
+			assertEquals(2, cache.getStats().getLoadCount());
+
+			// bounded by the number of the entries
+			cache.get(b);
+			assertEquals(1, cache.getStats().getEntryCount());
+			assertEquals(1, cache.getStats().getEvictionCount());
+			assertTrue(cache.getStats().getRetainedSize() > 0);
+
+			// the makerNote counts the buffer which it keeps alive
+			ExifInfo makerNoteInfo = new ExifInfo();
+			ExifIFDField makerNoteField = makerNoteField(new byte[8], 1000);
+			makerNoteField.setValue(new ExifSegmentBuffer(ByteBuffer.allocate(1024 * 1024)), 0, 8);
+			makerNoteInfo.setExifMakerNote(new ExifMakerNote(makerNoteField, "Canon", ExiguousExifLowLevelDecoder.BIG_ENDIAN));
+			assertTrue(makerNoteInfo.estimateRetainedSize() > 1024 * 1024);
+			makerNoteInfo.setExifMakerNote(new ExifMakerNote(makerNoteField.copyWithOwnValue(), "Canon", ExiguousExifLowLevelDecoder.BIG_ENDIAN));
+			assertTrue(makerNoteInfo.estimateRetainedSize() < 1024);
+
+			// bounded by the retained size
+			ExifInfoCache smallCache = new ExifInfoCache(new ExiguousExifReader(), 10, 1);
+			smallCache.get(a);
+			assertEquals(0, smallCache.getStats().getEntryCount());
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	@Test
+	public void test_22_Index() throws Exception {
+		Path directory = Files.createTempDirectory("exiguous");
+		try {
+			Files.createDirectory(directory.resolve("sub"));
+			Path a = Files.copy(Paths.get(TEST01_JPG_FILEPATH), directory.resolve("sub/a.jpg"));
+			Path b = Files.copy(Paths.get(TEST01_JPG_FILEPATH), directory.resolve("b.JPG"));
+			Files.write(directory.resolve("note.txt"), new byte[] { 1, 2, 3 });
+			Path indexFile = directory.resolve("photos.index");
+
+			ExifInfo expectedInfo = new ExifInfo();
+			new ExiguousExifReader().read(TEST01_JPG_FILEPATH, expectedInfo);
+
+			ExifIndex index = new ExifIndex(directory, indexFile);
+			assertEquals(0, index.size());
+			index.refresh();
+			assertEquals(2, index.size());
+			assertEquals(2, index.getDecodedCount());
+			assertEquals(0, index.getReusedCount());
+
+			// served from the index file after reopening
+			ExifIndex reopenedIndex = new ExifIndex(directory, indexFile);
+			ExifInfo exifInfo = new ExifInfo();
+			assertTrue(reopenedIndex.read("sub/a.jpg", exifInfo));
+			assertEquals(expectedInfo.toString(), exifInfo.toString());
+			exifInfo = new ExifInfo();
+			assertTrue(reopenedIndex.read(b, exifInfo));
+			assertEquals(expectedInfo.toString(), exifInfo.toString());
+			assertFalse(reopenedIndex.read("note.txt", new ExifInfo()));
+
+			// only the new or changed files are read
+			Files.copy(Paths.get(TEST01_JPG_FILEPATH), directory.resolve("c.jpeg"));
+			Files.setLastModifiedTime(b, FileTime.fromMillis(Files.getLastModifiedTime(b).toMillis() - 10000));
+			reopenedIndex.refresh();
+			assertEquals(3, reopenedIndex.size());
+			assertEquals(2, reopenedIndex.getDecodedCount());
+			assertEquals(1, reopenedIndex.getReusedCount());
+
+			// removed file is removed from the index
+			Files.delete(a);
+			reopenedIndex.refresh();
+			assertEquals(2, reopenedIndex.size());
+			assertEquals(0, reopenedIndex.getDecodedCount());
+			assertFalse(reopenedIndex.read("sub/a.jpg", new ExifInfo()));
+			assertTrue(reopenedIndex.read("c.jpeg", new ExifInfo()));
+
+			// the broken files are indexed and not read again until they are
+			// changed
+			Files.write(directory.resolve("dropped.jpg"), exifImage(droppedFieldsTiff()));
+			Files.write(directory.resolve("truncated.jpg"), Arrays.copyOf(readAllBytes(TEST01_JPG_FILEPATH), 400));
+			reopenedIndex.refresh();
+			assertEquals(4, reopenedIndex.size());
+			assertEquals(2, reopenedIndex.getDecodedCount());
+			exifInfo = new ExifInfo();
+			assertTrue(reopenedIndex.read("dropped.jpg", exifInfo));
+			assertTrue(exifInfo.isEnabled());
+			assertEquals("A", exifInfo.getMaker());
+			exifInfo = new ExifInfo();
+			assertTrue(reopenedIndex.read("truncated.jpg", exifInfo));
+			assertFalse(exifInfo.isEnabled());
+			reopenedIndex.refresh();
+			assertEquals(4, reopenedIndex.size());
+			assertEquals(0, reopenedIndex.getDecodedCount());
+			assertEquals(4, reopenedIndex.getReusedCount());
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	@Test
+	public void test_23_Visitor() throws Exception {
+		ExiguousExifLowLevelDecoder treeDecoder = new ExiguousExifLowLevelDecoder();
+		assertTrue(treeDecoder.read(TEST01_JPG_FILEPATH));
+		List<String> expectedEntries = new ArrayList<String>();
+		for (ExifIFDBlock ifd : treeDecoder.getIFDs()) {
+			for (ExifIFDField field : ifd.getIFDList()) {
+				expectedEntries.add(ifd.Kind + ":" + field.Tag + ":" + field.DataType + ":" + field.SizeCount + ":" + field.getByte(0));
+			}
+		}
+		String expectedModel = treeDecoder.getIFD0().getField(ExifTag.MODEL.getCode()).getStringData();
+		treeDecoder.close();
+
+		final List<String> entries = new ArrayList<String>();
+		final List<String> ifds = new ArrayList<String>();
+		final AtomicReference<String> model = new AtomicReference<String>();
+
+		ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+		decoder.setVisitor(new ExifVisitor() {
+			@Override
+			public boolean onIfdStart(ExifIFDKind kind, long offset, int entryCount) {
+				ifds.add("start:" + kind);
+				return true;
+			}
+
+			@Override
+			public void onEntry(ExifIFDKind kind, int tag, int type, long count, ExifValueView value) {
+				entries.add(kind + ":" + tag + ":" + type + ":" + count + ":" + value.getByte(0));
+				if (kind == ExifIFDKind.IFD0 && tag == ExifTag.MODEL.getCode()) {
+					model.set(value.getStringData());
+				}
+			}
+
+			@Override
+			public void onIfdEnd(ExifIFDKind kind) {
+				ifds.add("end:" + kind);
+			}
+		});
+		assertTrue(decoder.read(TEST01_JPG_FILEPATH));
+		decoder.close();
+
+		assertEquals(expectedEntries, entries);
+		assertEquals(expectedModel, model.get());
+		assertEquals("start:IFD0", ifds.get(0));
+		assertEquals("end:IFD0", ifds.get(1));
+		// no IFD blocks are built
+		assertNull(decoder.getIFD0());
+
+		// The scratch buffer of the segment is reused for the next images
+		entries.clear();
+		assertTrue(decoder.read(TEST01_JPG_FILEPATH));
+		decoder.close();
+		assertEquals(expectedEntries, entries);
+		entries.clear();
+		assertTrue(decoder.read(readAllBytes(TEST01_JPG_FILEPATH)));
+		decoder.close();
+		assertEquals(expectedEntries, entries);
+
+		// SubIFDs of ASCII type is not followed
+		entries.clear();
+		assertTrue(decoder.read(exifImage(malformedSubIFDsTiff())));
+		decoder.close();
+		assertEquals(4, entries.size());
+		assertTrue(decoder.getErrors().contains(ExifDecodeError.INVALID_TYPE));
+
+		// skip all of the IFDs
+		entries.clear();
+		decoder.setVisitor(new ExifVisitor() {
+			@Override
+			public boolean onIfdStart(ExifIFDKind kind, long offset, int entryCount) {
+				return false;
+			}
+
+			@Override
+			public void onEntry(ExifIFDKind kind, int tag, int type, long count, ExifValueView value) {
+				entries.add(kind + ":" + tag);
+			}
+
+			@Override
+			public void onIfdEnd(ExifIFDKind kind) {
+			}
+		});
+		assertTrue(decoder.read(new FileInputStream(TEST01_JPG_FILEPATH)));
+		decoder.close();
+		assertTrue(entries.isEmpty());
+	}
+
+	@Test
+	public void test_24_InfoBatch() throws Exception {
+		ExifInfo expectedInfo = new ExifInfo();
+		new ExiguousExifReader().read(TEST01_JPG_FILEPATH, expectedInfo);
+
+		List<Path> paths = new ArrayList<Path>();
+		for (int i = 0; i < 3; i++) {
+			paths.add(Paths.get(TEST01_JPG_FILEPATH));
+		}
+		paths.add(Paths.get("src/test/resources/not_found.jpg"));
+
+		ExifInfoBatch batch = new ExifInfoBatch(1);
+		assertEquals(3, new ExifBatchReader().readAll(paths, batch));
+		assertEquals(3, batch.size());
+
+		// Make and Model are stored once in the dictionaries
+		assertEquals(1, batch.getMakerDictionary().size());
+		assertEquals(1, batch.getModelDictionary().size());
+		assertEquals(batch.findMakerId(expectedInfo.getMaker()), batch.getMakerId(2));
+		assertEquals(ExifInfoBatch.NULL_ID, batch.findMakerId("unknown"));
+
+		assertEquals(expectedInfo.getDateTime(), ExifInfoBatch.toDateTime(batch.getDateTimeMillis(0)));
+		assertEquals(ExifInfoBatch.NO_DATE_TIME, ExifInfoBatch.toEpochMillis("    :  :     :  :  "));
+		assertEquals(ExifInfoBatch.NO_DATE_TIME, ExifInfoBatch.toEpochMillis("2009:02:30 00:00:00"));
+
+		ExifInfoBatch.Cursor cursor = batch.cursor();
+		int rowCount = 0;
+		while (cursor.next()) {
+			assertEquals(rowCount, cursor.getRow());
+			assertEquals(expectedInfo.getModel(), cursor.getModel());
+			assertEquals(expectedInfo.getImageWidth(), cursor.getImageWidth());
+			assertFalse(cursor.hasGps());
+
+			ExifInfo exifInfo = new ExifInfo();
+			cursor.copyTo(exifInfo);
+			assertEquals(expectedInfo.toString(), exifInfo.toString());
+			rowCount++;
+		}
+		assertEquals(3, rowCount);
+		assertFalse(cursor.next());
+
+		// The paths are created from the byte area on demand
+		assertEquals(paths.get(0), batch.getPath(0));
+		batch.trimToSize();
+		Path otherPath = Paths.get("photos", "b.jpg");
+		assertEquals(3, batch.append(otherPath, expectedInfo));
+		assertEquals(4, batch.append(null, expectedInfo));
+		assertEquals(otherPath, batch.getPath(3));
+		assertNull(batch.getPath(4));
+		assertEquals(paths.get(2), batch.getPath(2));
+	}
+
+	@Test
+	public void test_25_RecordStore() throws Exception {
+		ExifInfo expectedInfo = new ExifInfo();
+		new ExiguousExifReader().read(TEST01_JPG_FILEPATH, expectedInfo);
+
+		List<Path> paths = new ArrayList<Path>();
+		for (int i = 0; i < 3; i++) {
+			paths.add(Paths.get(TEST01_JPG_FILEPATH));
+		}
+		paths.add(Paths.get("src/test/resources/not_found.jpg"));
+
+		Path directory = Files.createTempDirectory("exiguous");
+		Path scratchFile = directory.resolve("records.tmp");
+		try {
+			// 2 records per chunk to use multiple chunks
+			for (ExifRecordStore store : new ExifRecordStore[] { ExifRecordStore.allocateDirect(2), ExifRecordStore.mapScratchFile(scratchFile, 2) }) {
+				assertEquals(3, new ExifBatchReader().readAll(paths, store));
+				assertEquals(3, store.size());
+				assertEquals(1, store.getMakerDictionary().size());
+
+				ExifRecord record = store.newRecord();
+				int recordCount = 0;
+				while (record.next()) {
+					assertEquals(recordCount, record.getIndex());
+					assertEquals(Paths.get(TEST01_JPG_FILEPATH).toString(), record.getPath());
+					assertEquals(store.findModelId(expectedInfo.getModel()), record.getModelId());
+					assertEquals(expectedInfo.getImageHeight(), record.getImageHeight());
+					assertFalse(record.hasGps());
+
+					ExifInfo exifInfo = new ExifInfo();
+					record.copyTo(exifInfo);
+					assertEquals(expectedInfo.toString(), exifInfo.toString());
+					recordCount++;
+				}
+				assertEquals(3, recordCount);
+
+				record.moveTo(1);
+				assertEquals(expectedInfo.getMaker(), record.getMaker());
+				try {
+					record.moveTo(3);
+					fail();
+				} catch (IndexOutOfBoundsException e) {
+				}
+				store.close();
+			}
+			assertFalse(Files.exists(scratchFile));
+		} finally {
+			Files.deleteIfExists(scratchFile);
+			Files.delete(directory);
+		}
+	}
+
+	@Test
+	public void test_26_MalformedSubIFDs() {
+		byte[] image = exifImage(malformedSubIFDsTiff());
+
+		ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+		assertTrue(decoder.read(image));
+		decoder.close();
+		assertEquals(1, decoder.getIFDs().size());
+		assertEquals(0, decoder.getSubIFDs().size());
+		assertTrue(decoder.getErrors().contains(ExifDecodeError.INVALID_TYPE));
+
+		// no exception from the reader(no Exif IFD,so not enabled)
+		ExifInfo exifInfo = new ExifInfo();
+		new ExiguousExifReader().read(image, exifInfo);
+		assertFalse(exifInfo.isEnabled());
+	}
+
+	@Test
+	public void test_27_PooledDecoderRelease() throws Exception {
+		ExiguousExifReader reader = new ExiguousExifReader();
+
+		byte[] image = readAllBytes(TEST01_JPG_FILEPATH);
+		WeakReference<byte[]> imageRef = new WeakReference<byte[]>(image);
+		reader.read(image, new ExifInfo());
+		image = null;
+
+		// The decoder in the pool does not refer the buffer of the caller
+		for (int i = 0; i < 50 && imageRef.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(imageRef.get());
+	}
+
+	@Test
+	public void test_28_MakerNoteCopy() throws Exception {
+		byte[] tiff = new byte[] {
+				'M', 'M', 0x00, 0x2A, 0x00, 0x00, 0x00, 0x08,
+				// IFD0(8)
+				0x00, 0x04,
+				0x01, 0x0F, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, 'A', 0x00, 0x00, 0x00,
+				0x01, 0x10, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, 'B', 0x00, 0x00, 0x00,
+				0x01, 0x32, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, 'C', 0x00, 0x00, 0x00,
+				(byte) 0x87, 0x69, 0x00, 0x04, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x3E,
+				0x00, 0x00, 0x00, 0x00,
+				// Exif IFD(62)
+				0x00, 0x06,
+				(byte) 0x82, (byte) 0x9A, 0x00, 0x05, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, (byte) 0x8C,
+				(byte) 0x82, (byte) 0x9D, 0x00, 0x05, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, (byte) 0x94,
+				(byte) 0x90, 0x00, 0x00, 0x07, 0x00, 0x00, 0x00, 0x04, '0', '2', '3', '0',
+				(byte) 0x92, 0x7C, 0x00, 0x07, 0x00, 0x00, 0x00, 0x08, 0x00, 0x00, 0x00, (byte) 0x9C,
+				(byte) 0xA0, 0x02, 0x00, 0x03, 0x00, 0x00, 0x00, 0x01, 0x00, 0x10, 0x00, 0x00,
+				(byte) 0xA0, 0x03, 0x00, 0x03, 0x00, 0x00, 0x00, 0x01, 0x00, 0x08, 0x00, 0x00,
+				0x00, 0x00, 0x00, 0x00,
+				// ExposureTime(140),FNumber(148)
+				0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x64,
+				0x00, 0x00, 0x00, 0x1C, 0x00, 0x00, 0x00, 0x0A,
+				// MakerNote(156)
+				'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H' };
+		byte[] image = exifImage(tiff);
+
+		ExiguousExifReader reader = new ExiguousExifReader();
+		ExifInfo exifInfo = new ExifInfo();
+		reader.read(image, exifInfo);
+		assertTrue(exifInfo.isEnabled());
+		assertEquals(156, exifInfo.getExifMakerNote().getOffset());
+		assertEquals(8, exifInfo.getExifMakerNote().getLength());
+		assertEquals('A', exifInfo.getMakerNote()[0]);
+
+		// The makerNote is not changed by the buffer of the caller
+		Arrays.fill(image, (byte) 0);
+		assertEquals('A', exifInfo.getMakerNote()[0]);
+		assertEquals('H', exifInfo.getMakerNoteBuffer().get(7));
+		assertEquals(8, exifInfo.getMakerNoteBuffer().capacity());
+
+		// and it does not keep the buffer alive
+		image = exifImage(tiff);
+		WeakReference<byte[]> imageRef = new WeakReference<byte[]>(image);
+		exifInfo = new ExifInfo();
+		reader.read(image, exifInfo);
+		image = null;
+		for (int i = 0; i < 50 && imageRef.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(imageRef.get());
+		assertEquals('A', exifInfo.getMakerNote()[0]);
+	}
+
+	@Test
+	public void test_29_BatchReadErrors() throws Exception {
+		Path directory = Files.createTempDirectory("exiguous");
+		try {
+			Path ok = Files.copy(Paths.get(TEST01_JPG_FILEPATH), directory.resolve("ok.jpg"));
+			Path truncated = Files.write(directory.resolve("truncated.jpg"), Arrays.copyOf(readAllBytes(TEST01_JPG_FILEPATH), 400));
+			Path broken = Files.write(directory.resolve("broken.jpg"), exifImage(malformedSubIFDsTiff()));
+			Path dropped = Files.write(directory.resolve("dropped.jpg"), exifImage(droppedFieldsTiff()));
+
+			ExifBatchReader batchReader = new ExifBatchReader();
+			List<ExifBatchResult> results = batchReader.readAll(Arrays.asList(ok, truncated, broken, dropped)).collect(Collectors.toList());
+			assertTrue(results.get(0).isSucceeded());
+
+			// I/O error of the decoder
+			assertFalse(results.get(1).isSucceeded());
+			assertTrue(results.get(1).getError() instanceof IOException);
+			assertNull(results.get(1).getExifInfo());
+
+			// problems found by the decoder,the decoded part is kept
+			assertFalse(results.get(2).isSucceeded());
+			assertTrue(results.get(2).getError() instanceof ExifDecodeException);
+			assertTrue(((ExifDecodeException) results.get(2).getError()).getErrors().contains(ExifDecodeError.INVALID_TYPE));
+			assertTrue(results.get(2).getExifInfo() != null);
+
+			// the fields dropped by the decoder
+			assertTrue(results.get(3).getError() instanceof ExifDecodeException);
+			assertTrue(((ExifDecodeException) results.get(3).getError()).getErrors().contains(ExifDecodeError.INVALID_OFFSET));
+			assertEquals("A", results.get(3).getExifInfo().getMaker());
+
+			ExifScanProgress progress = new ExifDirectoryScanner().scan(directory, result -> {
+			});
+			assertEquals(4, progress.getCompletedCount());
+			assertEquals(3, progress.getErrorCount());
+			assertEquals(1, progress.getExifCount());
+
+			// an Error thrown while reading does not block the unordered
+			// results
+			Path failing = (Path) Proxy.newProxyInstance(Path.class.getClassLoader(), new Class<?>[] { Path.class }, (proxy, method, args) -> {
+				throw new AssertionError(method.getName());
+			});
+			batchReader.setOrdered(false);
+			results = batchReader.readAll(Arrays.asList(failing, ok)).collect(Collectors.toList());
+			assertEquals(2, results.size());
+			int errorCount = 0;
+			for (ExifBatchResult result : results) {
+				if (!result.isSucceeded()) {
+					assertTrue(result.getError() instanceof AssertionError);
+					errorCount++;
+				}
+			}
+			assertEquals(1, errorCount);
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	@Test
+	public void test_30_IndexChunks() throws Exception {
+		Path directory = Files.createTempDirectory("exiguous");
+		try {
+			for (int i = 0; i < 40; i++) {
+				Files.copy(Paths.get(TEST01_JPG_FILEPATH), directory.resolve(String.format("%02d.jpg", i)));
+			}
+			Path indexFile = directory.resolve("photos.index");
+
+			ExifInfo expectedInfo = new ExifInfo();
+			new ExiguousExifReader().read(TEST01_JPG_FILEPATH, expectedInfo);
+
+			// The offset table and the records span the small chunks
+			ExifIndex index = new ExifIndex(directory, indexFile);
+			index.setChunkSize(256);
+			index.refresh();
+			assertEquals(40, index.size());
+
+			ExifIndex reopenedIndex = new ExifIndex(directory, indexFile);
+			reopenedIndex.setChunkSize(256);
+			for (int i = 0; i < 40; i++) {
+				ExifInfo exifInfo = new ExifInfo();
+				assertTrue(reopenedIndex.read(String.format("%02d.jpg", i), exifInfo));
+				assertEquals(expectedInfo.toString(), exifInfo.toString());
+			}
+
+			// The records are copied across the chunks.The generation mapped
+			// by the other index is not replaced.
+			reopenedIndex.refresh();
+			assertEquals(40, reopenedIndex.getReusedCount());
+			ExifInfo exifInfo = new ExifInfo();
+			assertTrue(index.read("39.jpg", exifInfo));
+			assertEquals(expectedInfo.toString(), exifInfo.toString());
+			exifInfo = new ExifInfo();
+			assertTrue(reopenedIndex.read("00.jpg", exifInfo));
+			assertEquals(expectedInfo.toString(), exifInfo.toString());
+			assertTrue(Files.exists(directory.resolve("photos.index.2")));
+			assertFalse(Files.exists(directory.resolve("photos.index.1")));
+
+			// the generation files are not indexed
+			index.refresh();
+			assertEquals(40, index.size());
+			assertEquals(40, index.getReusedCount());
+			assertEquals(40, new ExifIndex(directory, indexFile).size());
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	@Test
+	public void test_31_ScanInterrupted() throws Exception {
+		Path directory = Files.createTempDirectory("exiguous");
+		try {
+			for (int i = 0; i < 3; i++) {
+				Files.copy(Paths.get(TEST01_JPG_FILEPATH), directory.resolve(i + ".jpg"));
+			}
+
+			final Thread scanningThread = Thread.currentThread();
+			final List<ExifBatchResult> completedResults = Collections.synchronizedList(new ArrayList<ExifBatchResult>());
+			ExifDirectoryScanner scanner = new ExifDirectoryScanner();
+			scanner.setMaxConcurrency(1);
+
+			// The scanning thread is interrupted while the first file is
+			// in-flight
+			try {
+				scanner.scan(directory, result -> {
+					scanningThread.interrupt();
+					try {
+						Thread.sleep(300);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					completedResults.add(result);
+				});
+				fail();
+			} catch (InterruptedException e) {
+				// The callback in-flight is completed before the scan throws
+				assertEquals(1, completedResults.size());
+			}
+			assertFalse(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+			deleteRecursively(directory);
+		}
+	}
+
+	@Test
+	public void test_32_LinkFieldTypes() {
+		byte[] image = exifImage(linkFieldsTiff());
+
+		ExiguousExifLowLevelDecoder decoder = new ExiguousExifLowLevelDecoder();
+		assertTrue(decoder.read(image));
+		decoder.close();
+		// SubIFDs and ExifIFDPointer of IFD type are followed
+		assertEquals(1, decoder.getSubIFDs().size());
+		assertNotNull(decoder.getSubIFDs().get(0).getField(0x0100));
+		assertNotNull(decoder.getExif_IFD());
+		assertNotNull(decoder.getExif_IFD().getField(ExifTag.EXIF_VERSION.getCode()));
+		// GPSInfo of SHORT type and InteroperabilityIFDPointer with 2 values
+		// are not followed
+		assertNull(decoder.getGPS_IFD());
+		assertNull(decoder.getInteroperability_IFD());
+		assertEquals(3, decoder.getIFDs().size());
+		assertTrue(decoder.getErrors().contains(ExifDecodeError.INVALID_TYPE));
+
+		// same for the visitor
+		final List<ExifIFDKind> kinds = new ArrayList<ExifIFDKind>();
+		decoder.setVisitor(new ExifVisitor() {
+			@Override
+			public boolean onIfdStart(ExifIFDKind kind, long offset, int entryCount) {
+				kinds.add(kind);
+				return true;
+			}
+
+			@Override
+			public void onEntry(ExifIFDKind kind, int tag, int type, long count, ExifValueView value) {
+			}
+
+			@Override
+			public void onIfdEnd(ExifIFDKind kind) {
+			}
+		});
+		assertTrue(decoder.read(image));
+		decoder.close();
+		assertEquals(3, kinds.size());
+		assertTrue(kinds.contains(ExifIFDKind.SUB_IFD));
+		assertTrue(kinds.contains(ExifIFDKind.EXIF));
+		assertTrue(decoder.getErrors().contains(ExifDecodeError.INVALID_TYPE));
+	}
+
+	@Test
+	public void test_33_DroppedFields() {
+		byte[] image = exifImage(droppedFieldsTiff());
+
+		ExifInfo exifInfo = new ExifInfo();
+		new ExiguousExifReader().read(image, exifInfo);
+		assertTrue(exifInfo.isEnabled());
+		assertEquals("A", exifInfo.getMaker());
+		// Model out of the segment is dropped by the decoder
+		assertEquals("", exifInfo.getModel());
+		assertNull(exifInfo.getDateTime());
+		assertEquals("0230", exifInfo.getExifVersion());
+		assertEquals(0, exifInfo.getImageWidth());
+		assertEquals("N", exifInfo.getGpsLatitudeRef());
+		// GPSLatitude with 1 value is not enough for deg,minute and seconds
+		assertEquals(0, exifInfo.getGpsLatitude(), 0);
+		assertNull(exifInfo.getGpsLongitudeRef());
+	}
+
+	@Test(timeout = 30000)
+	public void test_34_ScanErrors() throws Exception {
+		Path directory = Files.createTempDirectory("exiguous");
+		try {
+			for (int i = 0; i < 3; i++) {
+				Files.copy(Paths.get(TEST01_JPG_FILEPATH), directory.resolve(i + ".jpg"));
+			}
+
+			// The exceptions of the callback are counted
+			ExifDirectoryScanner scanner = new ExifDirectoryScanner();
+			ExifScanProgress progress = scanner.scan(directory, result -> {
+				throw new IllegalStateException("callback");
+			});
+			assertEquals(3, progress.getCompletedCount());
+			assertEquals(3, progress.getCallbackErrorCount());
+			assertEquals("callback", progress.getCallbackError().getMessage());
+
+			// The file which could not be started is an error and its permit
+			// is released
+			ExifDirectoryScanner rejectingScanner = new ExifDirectoryScanner() {
+				@Override
+				ExecutorService newExecutor() {
+					ExecutorService executor = Executors.newSingleThreadExecutor();
+					executor.shutdown();
+					return executor;
+				}
+			};
+			rejectingScanner.setMaxConcurrency(1);
+			final List<ExifBatchResult> results = Collections.synchronizedList(new ArrayList<ExifBatchResult>());
+			progress = rejectingScanner.scan(directory, result -> results.add(result));
+			assertEquals(3, progress.getCompletedCount());
+			assertEquals(3, progress.getErrorCount());
+			assertEquals(0, progress.getCallbackErrorCount());
+			assertEquals(3, results.size());
+			assertTrue(results.get(0).getError() instanceof RejectedExecutionException);
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	/**
+	 * IFD0 with the links of IFD type,GPSInfo of SHORT type and the Exif IFD
+	 * with InteroperabilityIFDPointer of 2 values
+	 */
+	private static byte[] linkFieldsTiff() {
+		return new byte[] {
+				'M', 'M', 0x00, 0x2A, 0x00, 0x00, 0x00, 0x08,
+				// IFD0
+				0x00, 0x06,
+				0x01, 0x0F, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, 'A', 0x00, 0x00, 0x00,
+				0x01, 0x10, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, 'B', 0x00, 0x00, 0x00,
+				0x01, 0x32, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, 'C', 0x00, 0x00, 0x00,
+				0x01, 0x4A, 0x00, 0x0D, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x56,
+				(byte) 0x87, 0x69, 0x00, 0x0D, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x68,
+				(byte) 0x88, 0x25, 0x00, 0x03, 0x00, 0x00, 0x00, 0x01, 0x00, 0x56, 0x00, 0x00,
+				0x00, 0x00, 0x00, 0x00,
+				// SubIFD at 0x56
+				0x00, 0x01,
+				0x01, 0x00, 0x00, 0x04, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x01,
+				0x00, 0x00, 0x00, 0x00,
+				// Exif IFD at 0x68
+				0x00, 0x02,
+				(byte) 0x90, 0x00, 0x00, 0x07, 0x00, 0x00, 0x00, 0x04, '0', '2', '3', '0',
+				(byte) 0xA0, 0x05, 0x00, 0x04, 0x00, 0x00, 0x00, 0x02, 0x00, 0x00, 0x00, 0x56,
+				0x00, 0x00, 0x00, 0x00 };
+	}
+
+	/**
+	 * IFD0 with the Model out of the segment,Exif IFD with ExifVersion only
+	 * and GPS IFD with GPSLatitude of 1 value
+	 */
+	private static byte[] droppedFieldsTiff() {
+		return new byte[] {
+				'M', 'M', 0x00, 0x2A, 0x00, 0x00, 0x00, 0x08,
+				// IFD0
+				0x00, 0x04,
+				0x01, 0x0F, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, 'A', 0x00, 0x00, 0x00,
+				0x01, 0x10, 0x00, 0x02, 0x00, 0x00, 0x00, 0x08, 0x00, 0x00, 0x10, 0x00,
+				(byte) 0x87, 0x69, 0x00, 0x04, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x3E,
+				(byte) 0x88, 0x25, 0x00, 0x04, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x50,
+				0x00, 0x00, 0x00, 0x00,
+				// Exif IFD at 0x3E
+				0x00, 0x01,
+				(byte) 0x90, 0x00, 0x00, 0x07, 0x00, 0x00, 0x00, 0x04, '0', '2', '3', '0',
+				0x00, 0x00, 0x00, 0x00,
+				// GPS IFD at 0x50
+				0x00, 0x02,
+				0x00, 0x01, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, 'N', 0x00, 0x00, 0x00,
+				0x00, 0x02, 0x00, 0x05, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x6E,
+				0x00, 0x00, 0x00, 0x00,
+				// GPSLatitude at 0x6E
+				0x00, 0x00, 0x00, 0x23, 0x00, 0x00, 0x00, 0x01 };
+	}
+
+	/**
+	 * IFD0 with the SubIFDs of ASCII type
+	 */
+	private static byte[] malformedSubIFDsTiff() {
+		return new byte[] {
+				'M', 'M', 0x00, 0x2A, 0x00, 0x00, 0x00, 0x08,
+				0x00, 0x04,
+				// Make,Model and DateTime read by ExiguousExifReader
+				0x01, 0x0F, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, 'A', 0x00, 0x00, 0x00,
+				0x01, 0x10, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, 'B', 0x00, 0x00, 0x00,
+				0x01, 0x32, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, 'C', 0x00, 0x00, 0x00,
+				0x01, 0x4A, 0x00, 0x02, 0x00, 0x00, 0x00, 0x05, 0x00, 0x00, 0x00, 0x3E,
+				0x00, 0x00, 0x00, 0x00,
+				'a', 'b', 'c', 'd', 0x00 };
+	}
+
+	/**
+	 * Little endian IFD0 with Orientation of SHORT type and the Exif IFD with
+	 * ExifImageWidth of SHORT type and ExifImageHeight of LONG type
+	 */
+	private static byte[] probeTiff() {
+		return new byte[] {
+				'I', 'I', 0x2A, 0x00, 0x08, 0x00, 0x00, 0x00,
+				// IFD0
+				0x02, 0x00,
+				0x12, 0x01, 0x03, 0x00, 0x01, 0x00, 0x00, 0x00, 0x06, 0x00, 0x00, 0x00,
+				0x69, (byte) 0x87, 0x04, 0x00, 0x01, 0x00, 0x00, 0x00, 0x26, 0x00, 0x00, 0x00,
+				0x00, 0x00, 0x00, 0x00,
+				// Exif IFD at 0x26
+				0x02, 0x00,
+				0x02, (byte) 0xA0, 0x03, 0x00, 0x01, 0x00, 0x00, 0x00, 0x40, 0x01, 0x00, 0x00,
+				0x03, (byte) 0xA0, 0x04, 0x00, 0x01, 0x00, 0x00, 0x00, (byte) 0xF0, 0x00, 0x00, 0x00,
+				0x00, 0x00, 0x00, 0x00 };
+	}
+
+	/**
+	 * Wrap the TIFF structure with SOI,APP1 and EOI
+	 * 
+	 * @param tiff
+	 * @return
+	 */
+	static byte[] exifImage(byte[] tiff) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int segmentLength = 2 + 6 + tiff.length;
+		out.write(0xFF);
+		out.write(0xD8);
+		out.write(0xFF);
+		out.write(0xE1);
+		out.write(segmentLength >> 8);
+		out.write(segmentLength & 0xFF);
+		out.write('E');
+		out.write('x');
+		out.write('i');
+		out.write('f');
+		out.write(0);
+		out.write(0);
+		out.write(tiff, 0, tiff.length);
+		out.write(0xFF);
+		out.write(0xD9);
+		return out.toByteArray();
+	}
+
+	static byte[] readAllBytes(String filePath) throws IOException {
+		File file = new File(filePath);
+		byte[] data = new byte[(int) file.length()];
+		FileInputStream fis = new FileInputStream(file);
+		try {
+			int readLength = 0;
+			while (readLength < data.length) {
+				readLength += fis.read(data, readLength, data.length - readLength);
+			}
+		} finally {
+			fis.close();
+		}
+		return data;
+	}
+
 }
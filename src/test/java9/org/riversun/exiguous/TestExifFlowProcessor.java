@@ -0,0 +1,280 @@
+/*  exiguous - EXIF reader for java
+ *
+ *  Copyright (c) 2003-2009 Tom Misawa(riversun.org@gmail.com)
+ *  
+ *  Permission is hereby granted, free of charge, to any person obtaining a
+ *  copy of this software and associated documentation files (the "Software"),
+ *  to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ *  and/or sell copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ *  
+ */
+package org.riversun.exiguous;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests of ExifFlowProcessor(compiled and run by the java9 profile)
+ * 
+ * @author Tom Misawa (riversun.org@gmail.com)
+ * 
+ */
+public class TestExifFlowProcessor {
+
+	static final String TEST01_JPG_FILEPATH = "src/test/resources/test01.jpg";
+
+	@Test
+	public void test_01_Backpressure() throws Exception {
+		Path test01 = Paths.get(TEST01_JPG_FILEPATH);
+		Path missing = Paths.get(TEST01_JPG_FILEPATH + ".missing");
+		List<Path> paths = new ArrayList<Path>();
+		for (int i = 0; i < 10; i++) {
+			paths.add(i == 4 ? missing : test01);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ExifFlowProcessor<Path> processor = ExifFlowProcessor.ofPaths(new ExiguousExifReader(), executor, 2);
+			ListPublisher<Path> publisher = new ListPublisher<Path>(paths);
+			publisher.subscribe(processor);
+			ResultSubscriber subscriber = new ResultSubscriber(3);
+			processor.subscribe(subscriber);
+
+			subscriber.subscription.request(3);
+			assertTrue(subscriber.resultLatch.await(10, TimeUnit.SECONDS));
+			Thread.sleep(100);
+
+			// nothing is requested from the upstream more than the demand
+			assertEquals(3, subscriber.results.size());
+			assertEquals(3, publisher.getRequestedCount());
+			assertEquals(1, subscriber.completeLatch.getCount());
+
+			subscriber.subscription.request(Long.MAX_VALUE);
+			assertTrue(subscriber.completeLatch.await(10, TimeUnit.SECONDS));
+			assertNull(subscriber.error.get());
+			assertEquals(10, subscriber.results.size());
+
+			ExifInfo expectedInfo = new ExifInfo();
+			new ExiguousExifReader().read(TEST01_JPG_FILEPATH, expectedInfo);
+			int errorCount = 0;
+			for (ExifBatchResult result : subscriber.results) {
+				assertSame(result.getPath(), result.getSource());
+				if (result.isSucceeded()) {
+					assertEquals(test01, result.getPath());
+					assertEquals(expectedInfo.toString(), result.getExifInfo().toString());
+				} else {
+					assertEquals(missing, result.getPath());
+					errorCount++;
+				}
+			}
+			assertEquals(1, errorCount);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void test_02_Bytes() throws Exception {
+		byte[] image = Files.readAllBytes(Paths.get(TEST01_JPG_FILEPATH));
+		ExifFlowProcessor<byte[]> processor = ExifFlowProcessor.ofBytes(new ExiguousExifReader(), Runnable::run, 1);
+		new ListPublisher<byte[]>(Collections.singletonList(image)).subscribe(processor);
+		ResultSubscriber subscriber = new ResultSubscriber(1);
+		processor.subscribe(subscriber);
+		subscriber.subscription.request(1);
+
+		assertTrue(subscriber.completeLatch.await(10, TimeUnit.SECONDS));
+		assertEquals(1, subscriber.results.size());
+		ExifBatchResult result = subscriber.results.get(0);
+		assertTrue(result.isSucceeded());
+		assertSame(image, result.getSource());
+		assertNull(result.getPath());
+		assertEquals("Canon", result.getExifInfo().getMaker());
+	}
+
+	@Test
+	public void test_03_RejectedExecution() throws Exception {
+		ExifFlowProcessor<Path> processor = ExifFlowProcessor.ofPaths(new ExiguousExifReader(), command -> {
+			throw new RejectedExecutionException("shut down");
+		}, 2);
+		ListPublisher<Path> publisher = new ListPublisher<Path>(Collections.nCopies(5, Paths.get(TEST01_JPG_FILEPATH)));
+		publisher.subscribe(processor);
+		ResultSubscriber subscriber = new ResultSubscriber(1);
+		processor.subscribe(subscriber);
+		subscriber.subscription.request(Long.MAX_VALUE);
+
+		// terminated with the error instead of waiting for the source forever
+		assertTrue(subscriber.completeLatch.await(10, TimeUnit.SECONDS));
+		assertTrue(subscriber.error.get() instanceof RejectedExecutionException);
+		assertEquals(0, subscriber.results.size());
+		assertTrue(publisher.isCancelled());
+		assertFalse(publisher.getRequestedCount() > 2);
+	}
+
+	@Test
+	public void test_04_RejectedSubscriber() throws Exception {
+		ExifFlowProcessor<Path> processor = ExifFlowProcessor.ofPaths(new ExiguousExifReader(), Runnable::run, 1);
+		final ResultSubscriber subscriber = new ResultSubscriber(1);
+		processor.subscribe(subscriber);
+
+		// The second subscriber is rejected out of the lock of the
+		// processor,so the other thread can use the processor meanwhile
+		final AtomicBoolean isRequested = new AtomicBoolean();
+		ResultSubscriber rejectedSubscriber = new ResultSubscriber(1) {
+			@Override
+			public void onError(Throwable throwable) {
+				Thread requestingThread = new Thread(() -> subscriber.subscription.request(1));
+				requestingThread.start();
+				try {
+					requestingThread.join(5000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				isRequested.set(!requestingThread.isAlive());
+				super.onError(throwable);
+			}
+		};
+		processor.subscribe(rejectedSubscriber);
+		assertTrue(isRequested.get());
+		assertTrue(rejectedSubscriber.error.get() instanceof IllegalStateException);
+	}
+
+	/**
+	 * Publisher of the items on the list,emits on the thread which requests
+	 */
+	private static class ListPublisher<T> implements Flow.Publisher<T> {
+
+		private final List<T> mItems;
+		private int mIndex = 0;
+		private long mDemand = 0;
+		private long mRequestedCount = 0;
+		private boolean mIsCancelled = false;
+		private boolean mIsEmitting = false;
+
+		ListPublisher(List<T> items) {
+			mItems = items;
+		}
+
+		synchronized long getRequestedCount() {
+			return mRequestedCount;
+		}
+
+		synchronized boolean isCancelled() {
+			return mIsCancelled;
+		}
+
+		@Override
+		public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+					synchronized (ListPublisher.this) {
+						mDemand += n;
+						mRequestedCount += n;
+						if (mIsEmitting) {
+							return;
+						}
+						mIsEmitting = true;
+					}
+					for (;;) {
+						T item;
+						boolean isCompleting = false;
+						synchronized (ListPublisher.this) {
+							if (mIsCancelled || mDemand == 0 && mIndex < mItems.size()) {
+								mIsEmitting = false;
+								return;
+							}
+							if (mIndex == mItems.size()) {
+								mIsCancelled = true;
+								isCompleting = true;
+								item = null;
+							} else {
+								item = mItems.get(mIndex++);
+								mDemand--;
+							}
+						}
+						if (isCompleting) {
+							subscriber.onComplete();
+						} else {
+							subscriber.onNext(item);
+						}
+					}
+				}
+
+				@Override
+				public void cancel() {
+					synchronized (ListPublisher.this) {
+						mIsCancelled = true;
+					}
+				}
+			});
+		}
+	}
+
+	private static class ResultSubscriber implements Flow.Subscriber<ExifBatchResult> {
+
+		final List<ExifBatchResult> results = Collections.synchronizedList(new ArrayList<ExifBatchResult>());
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CountDownLatch resultLatch;
+		final CountDownLatch completeLatch = new CountDownLatch(1);
+		volatile Flow.Subscription subscription;
+
+		ResultSubscriber(int expectedResultCount) {
+			resultLatch = new CountDownLatch(expectedResultCount);
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(ExifBatchResult item) {
+			results.add(item);
+			resultLatch.countDown();
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error.set(throwable);
+			completeLatch.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			completeLatch.countDown();
+		}
+	}
+}